@@ -23,6 +23,7 @@ import org.apache.commons.lang.StringUtils;
 import org.wso2.andes.exchange.ExchangeDefaults;
 import org.wso2.andes.server.logging.actors.CurrentActor;
 import org.wso2.andes.server.security.Result;
+import org.wso2.andes.server.security.SecurityManager;
 import org.wso2.andes.server.security.access.ObjectProperties;
 import org.wso2.andes.server.security.access.ObjectType;
 import org.wso2.andes.server.security.access.Operation;
@@ -60,8 +61,11 @@ public class RuleSet
 
     private final Map<String, List<String>> _aclGroups = new HashMap<String, List<String>>();
     private final SortedMap<Integer, Rule> _rules = new TreeMap<Integer, Rule>();
-    private final Map<Subject, Map<Operation, Map<ObjectType, List<Rule>>>> _cache =
-                        new WeakHashMap<Subject, Map<Operation, Map<ObjectType, List<Rule>>>>();
+    /**
+     * Enabled rules in rule number order by operation and object type, regardless of identity. Built on first use
+     * and discarded whenever rules or groups change, so that checks only go through the rules which could apply.
+     */
+    private volatile Map<Operation, Map<ObjectType, List<Rule>>> _compiledRules;
     private final Map<String, Boolean> _config = new HashMap<String, Boolean>();
 
     public RuleSet()
@@ -77,7 +81,7 @@ public class RuleSet
     public void clear()
     {
         _rules.clear();
-        _cache.clear();
+        rulesChanged();
         _config.clear();
         _aclGroups.clear();
     }
@@ -95,45 +99,26 @@ public class RuleSet
      */
     public List<Rule> getRules(final Subject subject, final Operation operation, final ObjectType objectType)
     {
-        final Map<ObjectType, List<Rule>> objects = getObjectToRuleCache(subject, operation);
+        final List<Rule> candidates = getCandidateRules(operation, objectType);
 
-        // Lookup object type rules for the operation
-        if (!objects.containsKey(objectType))
+        // Return null if there are no rules at all for this operation and object type
+        if (candidates.isEmpty())
         {
-            final Set<Principal> principals = subject.getPrincipals();
-            boolean controlled = false;
-            List<Rule> filtered = new LinkedList<Rule>();
-            for (Rule rule : _rules.values())
-            {
-                final Action ruleAction = rule.getAction();
-                if (rule.isEnabled()
-                    && (ruleAction.getOperation() == Operation.ALL || ruleAction.getOperation() == operation)
-                    && (ruleAction.getObjectType() == ObjectType.ALL || ruleAction.getObjectType() == objectType))
-                {
-                    controlled = true;
-
-                    if (isRelevant(principals,rule))
-                    {
-                        filtered.add(rule);
-                    }
-                }
-            }
+            return null;
+        }
 
-            // Return null if there are no rules at all for this operation and object type
-            if (filtered.isEmpty() && controlled == false)
+        final Set<Principal> principals = subject.getPrincipals();
+        List<Rule> filtered = new LinkedList<Rule>();
+        for (Rule rule : candidates)
+        {
+            if (isRelevant(principals, rule))
             {
-                filtered = null;
+                filtered.add(rule);
             }
-
-            // Save the rules we selected
-            objects.put(objectType, filtered);
         }
-
-        // Return the cached rules
-        return objects.get(objectType);
+        return filtered;
     }
 
-
     public boolean isValidNumber(Integer number)
     {
         return !_rules.containsKey(number);
@@ -180,7 +165,7 @@ public class RuleSet
     // TODO make this work when group membership is not known at file parse time
     public void addRule(Integer number, String identity, Permission permission, Action action)
     {
-        _cache.clear();
+        rulesChanged();
 
         if (!action.isAllowed())
         {
@@ -256,23 +241,25 @@ public class RuleSet
         }
 
         // save rule
-        _cache.remove(identity);
         _rules.put(rule.getNumber(), rule);
+        rulesChanged();
     }
 
     public void enableRule(int ruleNumber)
     {
         _rules.get(Integer.valueOf(ruleNumber)).enable();
+        rulesChanged();
     }
 
     public void disableRule(int ruleNumber)
     {
         _rules.get(Integer.valueOf(ruleNumber)).disable();
+        rulesChanged();
     }
 
     public boolean addGroup(String group, List<String> constituents)
     {
-        _cache.clear();
+        rulesChanged();
 
         if (_aclGroups.containsKey(group))
         {
@@ -380,9 +367,9 @@ public class RuleSet
         // Create the action to check
         Action action = new Action(operation, objectType, properties);
 
-        // get the list of rules relevant for this request
-        List<Rule> rules = getRules(subject, operation, objectType);
-        if (rules == null)
+        // get the list of rules for this operation and object type
+        List<Rule> rules = getCandidateRules(operation, objectType);
+        if (rules.isEmpty())
         {
             if (isSet(CONTROLLED))
             {
@@ -395,11 +382,12 @@ public class RuleSet
             }
         }
 
-        // Iterate through a filtered set of rules dealing with this identity and operation
+        // Iterate through the rules dealing with this identity and operation
+        final Set<Principal> principals = subject.getPrincipals();
         for (Rule current : rules)
         {
-            // Check if action matches
-            if (action.matches(current.getAction()))
+            // Check if the rule applies to the identity and the action matches
+            if (isRelevant(principals, current) && action.matches(current.getAction()))
             {
                 Permission permission = current.getPermission();
 
@@ -455,6 +443,7 @@ public class RuleSet
     public void configure(Map<String, Boolean> properties)
     {
         _config.putAll(properties);
+        rulesChanged();
     }
 
     /**
@@ -466,6 +455,17 @@ public class RuleSet
     public void configure(String key, Boolean value)
     {
         _config.put(key, value);
+        rulesChanged();
+    }
+
+    /**
+     * Discards the compiled rules and any authorisation decision cached by the broker, so that a change to the rules,
+     * groups or configuration takes effect for subsequent checks, including on already open channels.
+     */
+    private void rulesChanged()
+    {
+        _compiledRules = null;
+        SecurityManager.invalidateAllAuthorisations();
     }
 
     private boolean isRelevant(final Set<Principal> principals, final Rule rule)
@@ -491,24 +491,51 @@ public class RuleSet
         return false;
     }
 
-    private Map<ObjectType, List<Rule>> getObjectToRuleCache(final Subject subject, final Operation operation)
+    /**
+     * Enabled rules for an operation and object type, in rule number order.
+     */
+    private List<Rule> getCandidateRules(final Operation operation, final ObjectType objectType)
+    {
+        Map<Operation, Map<ObjectType, List<Rule>>> compiledRules = _compiledRules;
+        if (compiledRules == null)
+        {
+            compiledRules = compileRules();
+        }
+        return compiledRules.get(operation).get(objectType);
+    }
+
+    private synchronized Map<Operation, Map<ObjectType, List<Rule>>> compileRules()
     {
-        // Lookup identity in cache and create empty operation map if required
-        Map<Operation, Map<ObjectType, List<Rule>>> operations = _cache.get(subject);
-        if (operations == null)
+        Map<Operation, Map<ObjectType, List<Rule>>> compiledRules = _compiledRules;
+        if (compiledRules != null)
         {
-            operations = new EnumMap<Operation, Map<ObjectType, List<Rule>>>(Operation.class);
-            _cache.put(subject, operations);
+            return compiledRules;
         }
 
-        // Lookup operation and create empty object type map if required
-        Map<ObjectType, List<Rule>> objects = operations.get(operation);
-        if (objects == null)
+        compiledRules = new EnumMap<Operation, Map<ObjectType, List<Rule>>>(Operation.class);
+        for (Operation operation : Operation.values())
         {
-            objects = new EnumMap<ObjectType, List<Rule>>(ObjectType.class);
-            operations.put(operation, objects);
+            Map<ObjectType, List<Rule>> objects = new EnumMap<ObjectType, List<Rule>>(ObjectType.class);
+            for (ObjectType objectType : ObjectType.values())
+            {
+                List<Rule> candidates = new ArrayList<Rule>();
+                for (Rule rule : _rules.values())
+                {
+                    final Action ruleAction = rule.getAction();
+                    if (rule.isEnabled()
+                        && (ruleAction.getOperation() == Operation.ALL || ruleAction.getOperation() == operation)
+                        && (ruleAction.getObjectType() == ObjectType.ALL || ruleAction.getObjectType() == objectType))
+                    {
+                        candidates.add(rule);
+                    }
+                }
+                objects.put(objectType, Collections.unmodifiableList(candidates));
+            }
+            compiledRules.put(operation, objects);
         }
-        return objects;
+
+        _compiledRules = compiledRules;
+        return compiledRules;
     }
 
 }
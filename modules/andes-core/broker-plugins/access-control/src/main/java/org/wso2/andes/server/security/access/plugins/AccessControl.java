@@ -111,5 +111,8 @@ public class AccessControl extends AbstractPlugin
         AccessControlConfiguration accessConfig = (AccessControlConfiguration) _config;
 
         _ruleSet = accessConfig.getRuleSet();
+
+        // Decisions made with the previous rules may have been cached while the rules were being replaced
+        SecurityManager.invalidateAllAuthorisations();
     }
 }
@@ -28,6 +28,7 @@ import org.wso2.andes.configuration.qpid.plugins.ConfigurationPlugin;
 import org.wso2.andes.server.logging.UnitTestMessageLogger;
 import org.wso2.andes.server.logging.actors.CurrentActor;
 import org.wso2.andes.server.logging.actors.TestLogActor;
+import org.wso2.andes.server.security.PublishAuthorisationCache;
 import org.wso2.andes.server.security.Result;
 import org.wso2.andes.server.security.SecurityManager;
 import org.wso2.andes.server.security.access.ObjectProperties;
@@ -50,6 +51,7 @@ import org.wso2.andes.server.security.auth.sasl.TestPrincipalUtils;
 public class AccessControlTest extends TestCase
 {
     private AccessControl _plugin = null;  // Class under test
+    private RuleSet _ruleSet = null;
     private final UnitTestMessageLogger messageLogger = new UnitTestMessageLogger();
 
     protected void setUp() throws Exception
@@ -68,6 +70,7 @@ public class AccessControlTest extends TestCase
         // Catch all rule
         rs.grant(3, Rule.ALL, Permission.DENY_LOG, Operation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY);
 
+        _ruleSet = rs;
         _plugin = (AccessControl) AccessControl.FACTORY.newInstance(createConfiguration(rs));
 
         SecurityManager.setThreadSubject(null);
@@ -143,6 +146,54 @@ public class AccessControlTest extends TestCase
         assertTrue("Logged message does not contain expected string", messageLogger.messageContains(0, "ACL-1002"));
     }
     
+    /**
+     * Tests that a publish decision cached by a channel is not reused once the rule which allowed it is revoked.
+     */
+    public void testRevokedRuleDeniesCachedPublish() throws Exception
+    {
+        SecurityManager.setThreadSubject(TestPrincipalUtils.createTestSubject("user1"));
+
+        _ruleSet.grant(10, "user1", Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+        _ruleSet.grant(11, Rule.ALL, Permission.DENY, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+
+        SecurityManager securityManager = new SecurityManager(null, null);
+        securityManager.addHostPlugin(_plugin);
+        PublishAuthorisationCache channelCache = new PublishAuthorisationCache();
+
+        assertTrue("Publish should be allowed by the user rule",
+                   securityManager.authorisePublish(false, "routingKey", "amq.direct", channelCache));
+        assertTrue("Cached publish decision should be reused",
+                   securityManager.authorisePublish(false, "routingKey", "amq.direct", channelCache));
+
+        _ruleSet.disableRule(10);
+
+        assertFalse("Publish on the same channel should be denied once the rule is revoked",
+                    securityManager.authorisePublish(false, "routingKey", "amq.direct", channelCache));
+    }
+
+    /**
+     * Tests that replacing the rules of the plugin discards publish decisions cached with the previous rules.
+     */
+    public void testReconfiguredRulesDenyCachedPublish() throws Exception
+    {
+        SecurityManager.setThreadSubject(TestPrincipalUtils.createTestSubject("user1"));
+
+        _ruleSet.grant(10, "user1", Permission.ALLOW, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+
+        SecurityManager securityManager = new SecurityManager(null, null);
+        securityManager.addHostPlugin(_plugin);
+        PublishAuthorisationCache channelCache = new PublishAuthorisationCache();
+
+        assertTrue(securityManager.authorisePublish(false, "routingKey", "amq.direct", channelCache));
+
+        final RuleSet denyingRules = new RuleSet();
+        denyingRules.grant(0, Rule.ALL, Permission.DENY, Operation.PUBLISH, ObjectType.EXCHANGE, ObjectProperties.EMPTY);
+        _plugin.configure(createConfiguration(denyingRules));
+
+        assertFalse("Publish on the same channel should be denied by the new rules",
+                    securityManager.authorisePublish(false, "routingKey", "amq.direct", channelCache));
+    }
+
     /**
      * Creates a configuration plugin for the {@link AccessControl} plugin.
      */
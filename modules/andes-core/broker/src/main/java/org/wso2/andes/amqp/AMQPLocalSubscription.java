@@ -202,6 +202,16 @@ public class AMQPLocalSubscription implements OutboundSubscription {
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * AMQP limits are applied per subscription through the un-acknowledged message count of the connection.
+     */
+    @Override
+    public boolean hasRoomToAcceptMessages() {
+        return true;
+    }
+
     /**
      * Evaluating Delivery rules before sending the messages
      *
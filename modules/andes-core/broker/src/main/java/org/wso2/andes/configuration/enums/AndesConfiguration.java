@@ -207,6 +207,13 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     TRANSPORTS_MQTT_DELIVERY_BUFFER_SIZE("transports/mqtt/deliveryBufferSize", "32768", Integer.class),
 
+    /**
+     * Maximum number of QoS 1/QoS 2 messages that can be on flight (sent but not acknowledged) to a single MQTT
+     * client. Each client has its own packet id space, hence this cannot exceed 65535. Once a subscriber reaches
+     * this limit Andes stops delivering to it until acknowledgements arrive.
+     */
+    TRANSPORTS_MQTT_MAX_INFLIGHT_MESSAGES("transports/mqtt/maxInFlightMessages", "1000", Integer.class),
+
     /**
      * This is a temporary list of user elements to enable user-authentication for MQTT.
      */
@@ -378,6 +385,23 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_CONTENT_COMPRESSION_THRESHOLD
             ("performanceTuning/contentHandling/contentCompressionThreshold", "1000", Integer.class),
 
+    /**
+     * Minimum content size for the content of a message routed to more than one storage queue to be stored once
+     * and shared by all the queues. Smaller messages are stored per queue. -1 disables content sharing.
+     * NOTE : specified in bytes.
+     */
+    PERFORMANCE_TUNING_SHARED_CONTENT_THRESHOLD
+            ("performanceTuning/contentHandling/sharedContentThreshold", "10240", Integer.class),
+
+    /**
+     * Interval at which shared content no longer referred to by any message is removed from the store. Only the
+     * coordinator runs the removal, and each run inspects a bounded number of shared contents continuing from where
+     * the previous run stopped.
+     * NOTE : specified in seconds.
+     */
+    PERFORMANCE_TUNING_SHARED_CONTENT_RECLAIM_INTERVAL
+            ("performanceTuning/contentHandling/sharedContentReclaimInterval", "60", Integer.class),
+
     /**
      * Maximum time interval until which a slot can be retained in memory before updating to the cluster.
      * NOTE : specified in milliseconds.
@@ -407,6 +431,15 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_SLOTS_WORKER_THREAD_COUNT("performanceTuning/slots/workerThreadCount", "5",
             Integer.class),
 
+    /**
+     * Maximum delay (in milliseconds) before an idle message delivery task is checked again for messages. Delivery
+     * tasks are woken up as soon as messages or subscribers of the queue change on the local node. The delay between
+     * checks of a task that stays idle doubles up to this limit, which bounds the delay for messages published
+     * through other nodes.
+     */
+    PERFORMANCE_TUNING_SLOTS_MAX_IDLE_TASK_DELAY("performanceTuning/slots/maxIdleTaskDelay", "1000",
+            Long.class),
+
     /**
      * Published message information is sent to slot coordinator by the node when it either reaches the slot window
      * size or the window creation timeout in milliseconds. This configures the timeout for slot window creation task.
@@ -436,6 +469,13 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_DELIVERY_MAX_READ_BUT_UNDELIVERED_MESSAGES("performanceTuning/delivery" +
             "/maxNumberOfReadButUndeliveredMessages", "1000", Integer.class),
 
+    /**
+     * Maximum number of messages per queue that can be held in memory until their delivery time. These are not
+     * counted as read but undelivered messages. Reading stops for the queue once this limit is reached.
+     */
+    PERFORMANCE_TUNING_DELIVERY_MAX_DELAYED_MESSAGES("performanceTuning/delivery/maxNumberOfDelayedMessages",
+            "10000", Integer.class),
+
     /**
      * This is the ring buffer size of the delivery disruptor. This value should be a power of 2 (E.g. 1024, 2048,
      * 4096). Use a small ring size if you want to reduce the memory usage.
@@ -497,6 +537,13 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_PARALLEL_TRANSACTION_MESSAGE_WRITERS(
             "performanceTuning/inboundEvents/transactionMessageWriters", "1", Integer.class),
 
+    /**
+     * Number of parallel handlers matching inbound messages to storage queues and cloning them. Message ids are
+     * assigned after routing in a single ordered step, hence message order is kept regardless of this value.
+     */
+    PERFORMANCE_TUNING_MESSAGE_ROUTING_HANDLER_COUNT(
+            "performanceTuning/inboundEvents/messageRoutingHandlers", "2", Integer.class),
+
     /**
      * Size of the Disruptor ring buffer for inbound event handling. Buffer size should be a value of power of two
      * For publishing at higher rates increasing the buffer size may give some advantage to keep messages in memory and
@@ -575,12 +622,19 @@ public enum AndesConfiguration implements ConfigurationProperty {
             ("performanceTuning/messageExpiration/preDeliveryExpiryDeletionInterval", "600", Integer.class),
 
     /**
-     * Since server startup, whenever this interval elapses, the expired messages will be cleared from the store.
-     * specified in seconds.
+     * Since server startup, whenever this interval elapses, expiry data of newly stored messages are loaded from the
+     * store and scheduled for deletion. specified in seconds.
      */
     PERFORMANCE_TUNING_PERIODIC_EXPIRY_MESSAGE_DELETION_INTERVAL
             ("performanceTuning/messageExpiration/periodicMessageDeletionInterval", "900", Integer.class),
 
+    /**
+     * Precision of the timer which deletes scheduled expired messages from the store and releases delayed messages
+     * for delivery. specified in milliseconds.
+     */
+    PERFORMANCE_TUNING_MESSAGE_TIMER_TICK_INTERVAL
+            ("performanceTuning/messageExpiration/timerTickInterval", "1000", Integer.class),
+
     /**
      * The number of expired messages to be cleared in one store operation.
      *
@@ -594,11 +648,25 @@ public enum AndesConfiguration implements ConfigurationProperty {
     PERFORMANCE_TUNING_SAFE_DELETE_REGION_SLOT_COUNT
             ("performanceTuning/messageExpiration/safetySlotCount", "3", Integer.class),
     /**
-     * Maximum batch size (Messages) for a transaction. Exceeding this limit will result in a failure in the subsequent
-     * commit request. Default is set to 10MB. Limit is calculated considering the payload of messages.
+     * Batch size the message writers of transaction commits are created with. The content of a transaction is not
+     * limited by this value, content exceeding transaction/maxInMemoryContentSizeInBytes is staged in the message
+     * store.
      */
     MAX_TRANSACTION_BATCH_SIZE ("transaction/maxBatchSizeInBytes", "10000000", Integer.class),
 
+    /**
+     * Maximum content size (in bytes) an open transaction keeps in memory. Once exceeded, the enqueued messages are
+     * staged in the message store in the background and only their metadata is kept in memory until the transaction
+     * is committed. Content of messages waiting to be staged stays in memory until its staging batch is written.
+     */
+    MAX_TRANSACTION_IN_MEMORY_CONTENT_SIZE("transaction/maxInMemoryContentSizeInBytes", "1000000", Integer.class),
+
+    /**
+     * Number of threads writing staged messages of open transactions to the message store. The threads are shared
+     * by all transactions of the node.
+     */
+    TRANSACTION_STAGING_THREAD_COUNT("transaction/stagingThreadCount", "4", Integer.class),
+
     /**
      * Maximum wait time (in seconds) for a transactional publisher commit, rollback or close event to complete on
      * server side.
@@ -626,6 +694,20 @@ public enum AndesConfiguration implements ConfigurationProperty {
     MANAGEMENT_CONSOLE_ALLOW_REREOUTE_ALL_IN_DLC("managementConsole" +
                                                 "/allowReRouteAllInDLC", "false", Boolean.class),
 
+    /**
+     * Number of dead letter channel messages restored or deleted at a time by a bulk dead letter channel operation
+     * started from the management console.
+     */
+    MANAGEMENT_CONSOLE_DLC_BULK_OPERATION_CHUNK_SIZE("managementConsole" +
+            "/dlcBulkOperation/chunkSize", "500", Integer.class),
+
+    /**
+     * Time in milliseconds a bulk dead letter channel operation waits between two chunks, so that it does not
+     * compete with regular message traffic for the store.
+     */
+    MANAGEMENT_CONSOLE_DLC_BULK_OPERATION_CHUNK_INTERVAL("managementConsole" +
+            "/dlcBulkOperation/chunkIntervalInMillis", "100", Integer.class),
+
     /**
      * This is the per publisher buffer size low limit which disable the flow control for a channel if the flow-control
      * was enabled previously.
@@ -670,6 +752,15 @@ public enum AndesConfiguration implements ConfigurationProperty {
      */
     SLOT_MANAGEMENT_STORAGE("slotManagement/storage", "RDBMS", String.class),
 
+    /**
+     * Interval (in milliseconds) at which the coordinator writes slot changes to the database when RDBMS slot
+     * storage is used. The coordinator serves slot requests from memory and writes changes in batches at this
+     * interval. Changes made after the last write are lost if the coordinator crashes, which may cause messages to be
+     * delivered again. Disabled by default (0), in which case every change is written to the database before the slot
+     * request returns.
+     */
+    SLOT_MANAGEMENT_WRITE_BEHIND_INTERVAL("slotManagement/writeBehindInterval", "0", Integer.class),
+
     /**
      * Heartbeat interval used in the RDBMS base coordination algorithm in seconds
      * <p>
@@ -724,6 +815,24 @@ public enum AndesConfiguration implements ConfigurationProperty {
     RECOVERY_NETWORK_PARTITIONS_MINIMUM_CLUSTER_SIZE("recovery/networkPartitionsDetection/minimumClusterSize",
             "1", Integer.class),
 
+    /**
+     * One in this number of messages is tracked for per destination latency histograms. 0 disables latency
+     * tracking.
+     * <p>
+     * default value: 0
+     * </p>
+     */
+    METRICS_LATENCY_SAMPLING_RATE("metrics/latency/samplingRate", "0", Integer.class),
+
+    /**
+     * Maximum number of destinations separate latency histograms are kept for. Latencies of any further
+     * destinations are accumulated together.
+     * <p>
+     * default value: 100
+     * </p>
+     */
+    METRICS_LATENCY_MAX_DESTINATIONS("metrics/latency/maxDestinations", "100", Integer.class),
+
     /**
      * Specifies the deployment mode for the broker node (and cluster). Possible values {default, standalone}.
      *
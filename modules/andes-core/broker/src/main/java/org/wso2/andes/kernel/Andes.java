@@ -18,6 +18,7 @@
 
 package org.wso2.andes.kernel;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import org.apache.commons.logging.Log;
@@ -39,6 +40,7 @@ import org.wso2.andes.kernel.slot.Slot;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MessageLatencyTracker;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.tools.utils.MessageTracer;
 import org.wso2.carbon.metrics.manager.Counter;
@@ -50,8 +52,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -107,12 +111,6 @@ public class Andes {
      */
     private static final int safeZoneUpdateTriggerInterval = 3000;
 
-    /**
-     * Maximum batch size for a transaction. Limit is set for content size of the batch.
-     * Exceeding this limit will lead to a failure in the subsequent commit request.
-     */
-    private final int MAX_TX_BATCH_SIZE;
-
     /**
      * Transaction events such as commit, rollback and close are blocking calls waiting on
      * {@link com.google.common.util.concurrent.SettableFuture} objects. This is the maximum
@@ -120,6 +118,16 @@ public class Andes {
      */
     private final long TX_EVENT_TIMEOUT;
 
+    /**
+     * Maximum content size an open transaction keeps in memory before its messages are staged in the message store
+     */
+    private final int MAX_TX_IN_MEMORY_CONTENT_SIZE;
+
+    /**
+     * Writes messages of open transactions to the staging area of the message store. Shared by all transactions.
+     */
+    private final ExecutorService transactionStagingExecutor;
+
     /**
      * Instance of AndesAPI returned.
      *
@@ -135,9 +143,14 @@ public class Andes {
     private Andes() {
         PURGE_TIMEOUT_SECONDS = AndesConfigurationManager.readValue(PERFORMANCE_TUNING_PURGED_COUNT_TIMEOUT);
         this.flowControlManager = new FlowControlManager();
-        MAX_TX_BATCH_SIZE = AndesConfigurationManager.
-                readValue(AndesConfiguration.MAX_TRANSACTION_BATCH_SIZE);
         TX_EVENT_TIMEOUT = AndesConfigurationManager.readValue(AndesConfiguration.MAX_TRANSACTION_WAIT_TIMEOUT);
+        MAX_TX_IN_MEMORY_CONTENT_SIZE = AndesConfigurationManager.
+                readValue(AndesConfiguration.MAX_TRANSACTION_IN_MEMORY_CONTENT_SIZE);
+        Integer stagingThreadCount = AndesConfigurationManager.
+                readValue(AndesConfiguration.TRANSACTION_STAGING_THREAD_COUNT);
+        ThreadFactory stagingThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("TransactionStagingThread-%d").setDaemon(true).build();
+        transactionStagingExecutor = Executors.newFixedThreadPool(stagingThreadCount, stagingThreadFactory);
     }
 
 
@@ -227,6 +240,8 @@ public class Andes {
         Counter counter = MetricManager.counter(Level.INFO, MetricsConstants.ACK_MESSAGES);
         counter.inc();
 
+        MessageLatencyTracker.onMessageAcknowledged(ackData.getAcknowledgedMessage());
+
         //We call this later as this call removes the ackData.getAcknowledgedMessage() message
         inboundEventManager.ackReceived(ackData);
     }
@@ -416,6 +431,27 @@ public class Andes {
         inboundEventManager.publishStateEvent(deleteDLCMessagesEvent);
     }
 
+    /**
+     * Delete all messages of a queue which are in the dead letter channel within a message id range with a single
+     * store operation. The deletion is processed in order with other state events through the inbound disruptor,
+     * like {@link #deleteMessagesFromDLC(List)}. This call blocks until the messages are deleted.
+     *
+     * @param queueName      name of the queue the messages originally belonged to
+     * @param dlcQueueName   name of the dead letter channel queue
+     * @param firstMessageId first message id of the range, inclusive
+     * @param lastMessageId  last message id of the range, inclusive
+     * @return number of messages deleted
+     * @throws AndesException
+     */
+    public int deleteMessagesFromDLCInRange(String queueName, String dlcQueueName, long firstMessageId,
+            long lastMessageId) throws AndesException {
+        InboundDeleteDLCMessagesEvent deleteDLCMessagesEvent = new InboundDeleteDLCMessagesEvent(queueName,
+                dlcQueueName, firstMessageId, lastMessageId);
+        deleteDLCMessagesEvent.prepareForDeleteInRange(messagingEngine);
+        inboundEventManager.publishStateEvent(deleteDLCMessagesEvent);
+        return deleteDLCMessagesEvent.getDeletedCount();
+    }
+
     /**
      * Create queue in Andes kernel.
      *
@@ -758,8 +794,8 @@ public class Andes {
      * @throws AndesException
      */
     public InboundTransactionEvent newTransaction(AndesChannel channel) throws AndesException {
-        return new InboundTransactionEvent(messagingEngine, inboundEventManager, MAX_TX_BATCH_SIZE, TX_EVENT_TIMEOUT,
-                channel);
+        return new InboundTransactionEvent(messagingEngine, inboundEventManager, MAX_TX_IN_MEMORY_CONTENT_SIZE,
+                transactionStagingExecutor, TX_EVENT_TIMEOUT, channel);
     }
 
     /**
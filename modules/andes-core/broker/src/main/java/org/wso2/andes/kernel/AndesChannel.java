@@ -21,9 +21,6 @@ package org.wso2.andes.kernel;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -67,40 +64,15 @@ public class AndesChannel {
     private final long id;
 
     /**
-     * Scheduled executor service used to create flow control timeout events
+     * Number of messages this channel may still add to the buffer before flow control is enforced. Credits are
+     * consumed by the publisher and replenished by the inbound disruptor once messages are processed.
      */
-    private final ScheduledExecutorService executor;
-
-    /**
-     * Flow control timeout task for current channel
-     */
-    private Runnable flowControlTimeoutTask = new FlowControlTimeoutTask();
-
-    /**
-     * Number of messages waiting in the buffer
-     */
-    private AtomicInteger messagesOnBuffer;
+    private final AtomicInteger credits;
 
     /**
      * Indicate if the flow control is enabled for this channel
      */
-    private boolean flowControlEnabled;
-
-    /**
-     * Indicates if the buffer based flow controls is enabled a global level.
-     */
-    private boolean globalBufferBasedFlowControlEnabled;
-
-    /**
-     * Indicates if the error based flow controls is enabled ( Note: error based
-     * flow control is only enabled at global level)
-     */
-    private boolean globalErrorBasedFlowControlEnabled;
-
-    /**
-     * Used to close the flow control timeout task if not required
-     */
-    private ScheduledFuture<?> scheduledFlowControlTimeoutFuture;
+    private volatile boolean flowControlEnabled;
 
 	/**
 	 * Queue / Topic destination attached to channel
@@ -113,30 +85,18 @@ public class AndesChannel {
 	private String identifier;
 
     /**
-     * Instantiates a new andes channel
-     * 
-     * @param flowControlManager
-     *            - instance of the flow control manage to be used
-     * @param channelId the channel identifier which is a combination of the ip address and the port of the channel
-     * @param listener
-     *            - an implementation of {@link FlowControlListener} which should
-     *            originate from a concrete channel implementation.
-     * @param globalBufferBasedFlowControlEnabled
-     *            Indicates that global buffer based flow control is enabled at
-     *            the time of this channel is created.
-     * @param globalErrBasedFlowControlEnabled
-     *            Indicates that global error based flow control is enabled at
-     *            the time of this channel is created.
+     * Instantiates a new andes channel. Global flow control state is read from the flow control manager, therefore
+     * the channel need not be told about the global state at creation.
+     *
+     * @param flowControlManager instance of the flow control manage to be used
+     * @param channelId          the channel identifier which is a combination of the ip address and the port of the
+     *                           channel
+     * @param listener           an implementation of {@link FlowControlListener} which should originate from a
+     *                           concrete channel implementation.
      */
-    public AndesChannel(FlowControlManager flowControlManager, String channelId, FlowControlListener listener,
-                        boolean globalBufferBasedFlowControlEnabled, 
-                        boolean globalErrBasedFlowControlEnabled) {
+    public AndesChannel(FlowControlManager flowControlManager, String channelId, FlowControlListener listener) {
         this.flowControlManager = flowControlManager;
         this.listener = listener;
-        // Used the same executor used by the flow control manager
-        this.executor = flowControlManager.getScheduledExecutor();
-        this.globalBufferBasedFlowControlEnabled = globalBufferBasedFlowControlEnabled;
-        this.globalErrorBasedFlowControlEnabled = globalErrBasedFlowControlEnabled;
 
         // Read limits
         this.flowControlLowLimit = flowControlManager.getChannelLowLimit();
@@ -144,7 +104,7 @@ public class AndesChannel {
 
         this.identifier = channelId;
         this.id = idGenerator.incrementAndGet();
-        this.messagesOnBuffer = new AtomicInteger(0);
+        this.credits = new AtomicInteger(flowControlHighLimit);
         this.flowControlEnabled = false;
         log.info("Channel created (ID: " + getIdentifier() + ")");
     }
@@ -152,64 +112,40 @@ public class AndesChannel {
     /**
      * Instantiates a new andes channel
      *
-     * @param flowControlManager                  Instance of the flow control manage to be used
-     * @param listener                            an implementation of {@link FlowControlListener} which should
-     *                                            originate from a concrete channel
-     *                                            implementation.
-     * @param globalBufferBasedFlowControlEnabled Indicates that global buffer based flow control is enabled at the
-     *                                            time of this channel is created.
-     * @param globalErrBasedFlowControlEnabled    Indicates that global error based flow control is enabled at the
-     *                                            time of this channel is created.
+     * @param flowControlManager Instance of the flow control manage to be used
+     * @param listener           an implementation of {@link FlowControlListener} which should originate from a
+     *                           concrete channel implementation.
      */
-    public AndesChannel(FlowControlManager flowControlManager, FlowControlListener listener,
-            boolean globalBufferBasedFlowControlEnabled,
-            boolean globalErrBasedFlowControlEnabled) {
-
-        this(flowControlManager, "Internel_channel", listener,
-                globalBufferBasedFlowControlEnabled, globalErrBasedFlowControlEnabled);
-    }
-
-    /**
-     * This method is called by the flow control manager when buffer based flow control is enforced globally
-     */
-    public void notifyGlobalBufferBasedFlowControlActivation() {
-        globalBufferBasedFlowControlEnabled = true;
-    }
-
-    /**
-     * This method is called by the flow control manager when buffer based flow control is not enforced globally
-     */
-    public void notifyGlobalBufferBasedFlowControlDeactivation() {
-        globalBufferBasedFlowControlEnabled = false;
-        unblockLocalChannel();
+    public AndesChannel(FlowControlManager flowControlManager, FlowControlListener listener) {
+        this(flowControlManager, "Internel_channel", listener);
     }
 
     /**
      * Invoked when error based global flow control is enabled.
      */
     public void notifyGlobalErrorBasedFlowControlActivation() {
-        globalErrorBasedFlowControlEnabled = true;
         blockLocalChannel();
     }
 
     /**
-     * Invoked when error based global flow control is disabled.
-     */   
-    public void notifyGlobalErrorBasedFlowControlDeactivation() {
-        globalErrorBasedFlowControlEnabled = false;
-        unblockLocalChannel();
+     * Release flow control on the channel if neither the channel nor the global buffer is above its limit. Called by
+     * the flow control manager when global flow control is released and periodically to avoid flow control being
+     * enforced forever. This can happen if recordAdditionToBuffer gets a context switch after evaluating the
+     * condition and during that time all the messages get processed from the StateEventHandler.
+     */
+    void validateFlowControlState() {
+        if (flowControlEnabled && isBelowLowLimit() && !flowControlManager.isGlobalFlowControlEnabled()) {
+            unblockLocalChannel();
+        }
     }
 
-    
-    
-    
     /**
      * Notify local channel to unblock channel
      */
     private synchronized void unblockLocalChannel() {
         if (flowControlEnabled) {
-            scheduledFlowControlTimeoutFuture.cancel(false);
             flowControlEnabled = false;
+            flowControlManager.onChannelUnblocked(this);
             listener.unblock();
 
             log.info("Flow control disabled for channel [ ID: " + getId() + " , Identifier: "
@@ -223,15 +159,21 @@ public class AndesChannel {
     private synchronized void blockLocalChannel() {
         if (!flowControlEnabled) {
             flowControlEnabled = true;
+            flowControlManager.onChannelBlocked(this);
             listener.block();
-            scheduledFlowControlTimeoutFuture = executor.schedule(flowControlTimeoutTask, 1, TimeUnit.MINUTES);
 
             log.info("Flow control enabled for channel [ ID: " + getId() + " , Identifier: "
                       + this.getIdentifier() + " , Destination: " + this.getDestination() + " ]");
         }
     }
-    
-    
+
+    /**
+     * Check if the number of messages of the channel waiting in the buffer is at or below the low limit
+     */
+    private boolean isBelowLowLimit() {
+        return (flowControlHighLimit - credits.get()) <= flowControlLowLimit;
+    }
+
     /**
      * This method should be called when a message is put into the buffer
      *
@@ -239,35 +181,29 @@ public class AndesChannel {
      *         Number of items added to buffer
      */
     public void recordAdditionToBuffer(int size) {
-        flowControlManager.notifyAddition(size);
+        flowControlManager.notifyAddition(this, size);
 
-        int count = messagesOnBuffer.addAndGet(size);
+        int remainingCredits = credits.addAndGet(-size);
 
-        if (!flowControlEnabled && 
-               (globalBufferBasedFlowControlEnabled 
-                 || count >= flowControlHighLimit 
-                 || globalErrorBasedFlowControlEnabled)) {
-            
+        if (!flowControlEnabled && (remainingCredits <= 0 || flowControlManager.isGlobalFlowControlEnabled())) {
             blockLocalChannel();
         }
     }
 
- 
-
     /**
-     * This method should be called after a message is processed and no longer required in the buffer.
+     * This method should be called after a message is processed and no longer required in the buffer. This
+     * replenishes the credits of the channel.
      *
      * @param size
      *         Number of items removed from buffer
      */
     public void recordRemovalFromBuffer(int size) {
-        flowControlManager.notifyRemoval(size);
+        flowControlManager.notifyRemoval(this, size);
 
-        int count = messagesOnBuffer.addAndGet(-size);
+        int remainingCredits = credits.addAndGet(size);
 
-        if (flowControlEnabled && (!globalBufferBasedFlowControlEnabled) 
-                               && (count <= flowControlLowLimit) 
-                               && (! globalErrorBasedFlowControlEnabled)) {
+        if (flowControlEnabled && (flowControlHighLimit - remainingCredits) <= flowControlLowLimit
+                && !flowControlManager.isGlobalFlowControlEnabled()) {
             unblockLocalChannel();
         }
     }
@@ -287,22 +223,6 @@ public class AndesChannel {
         return id;
     }
 
-    /**
-     * This timeout task avoid flow control being enforced forever. This can happen if the recordAdditionToBuffer get a
-     * context switch after evaluating the existing condition and during that time all the messages get processed from
-     * the StateEventHandler.
-     */
-    private class FlowControlTimeoutTask implements Runnable {
-        @Override
-        public void run() {
-            if (flowControlEnabled && (! globalBufferBasedFlowControlEnabled) 
-                                      && (messagesOnBuffer.get() <= flowControlLowLimit)
-                                      && (! globalErrorBasedFlowControlEnabled)) {
-                unblockLocalChannel();
-            }
-        }
-    }
-
 	/**
 	 * Get destination attached to channel
 	 * @return destination name
@@ -29,7 +29,6 @@ import org.wso2.andes.kernel.disruptor.inbound.InboundQueueSyncEvent;
 import org.wso2.andes.kernel.disruptor.inbound.QueueInfo;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.router.MessageRouterFactory;
-import org.wso2.andes.kernel.router.QueueMessageRouter;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.server.ClusterResourceHolder;
@@ -130,15 +129,15 @@ public class AndesContextInformationManager {
      */
     public void syncExchangeCreate(InboundExchangeSyncEvent exchangeSyncEvent) throws AndesException {
 
-        //create a message router and register
-        AndesMessageRouter messageRouter = messageRouterFactory.
-                createMessageRouter(exchangeSyncEvent.getEncodedExchangeInfo());
-        AndesContext.getInstance().getMessageRouterRegistry().
-                registerMessageRouter(messageRouter.getName(), messageRouter);
+        //register message routers created by the factory on decoding
+        for (AndesMessageRouter messageRouter : exchangeSyncEvent.getMessageRouters()) {
+            AndesContext.getInstance().getMessageRouterRegistry().
+                    registerMessageRouter(messageRouter.getName(), messageRouter);
 
-        ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
-                clusterExchangeAdded(messageRouter);
-        log.info("Message Router Sync [create]: " + messageRouter.getName());
+            ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
+                    clusterExchangeAdded(messageRouter);
+            log.info("Message Router Sync [create]: " + messageRouter.getName());
+        }
     }
 
     /**
@@ -164,17 +163,18 @@ public class AndesContextInformationManager {
      */
     public void syncExchangeDelete(InboundExchangeSyncEvent exchangeSyncEvent) throws AndesException {
 
-        AndesMessageRouter mockMessageRouter = new QueueMessageRouter(exchangeSyncEvent.getEncodedExchangeInfo());
-        String messageRouterName = mockMessageRouter.getName();
+        for (AndesMessageRouter mockMessageRouter : exchangeSyncEvent.getMessageRouters()) {
+            String messageRouterName = mockMessageRouter.getName();
 
-        AndesMessageRouter removedRouter = AndesContext.getInstance().getMessageRouterRegistry().
-                removeMessageRouter(messageRouterName);
+            AndesMessageRouter removedRouter = AndesContext.getInstance().getMessageRouterRegistry().
+                    removeMessageRouter(messageRouterName);
 
-        //remove exchange inside Qpid
-        ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
-                clusterExchangeRemoved(messageRouterName);
+            //remove exchange inside Qpid
+            ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
+                    clusterExchangeRemoved(messageRouterName);
 
-        log.info("Message Router Sync [delete]: " + removedRouter.getName());
+            log.info("Message Router Sync [delete]: " + removedRouter.getName());
+        }
     }
 
     /**
@@ -207,10 +207,19 @@ public class AndesContextInformationManager {
     public void handleQueuePurgeNotification(InboundQueueSyncEvent queuePurgeNotification)
             throws AndesException{
 
-        // Clear in memory messages of self (node)
-        StorageQueue queueWithEvent = queuePurgeNotification.toStorageQueue();
+        for (StorageQueue queueWithEvent : queuePurgeNotification.toStorageQueues()) {
+            clearBufferedMessages(queueWithEvent.getName());
+        }
+    }
+
+    /**
+     * Clear in memory messages of self (node) for the given queue
+     *
+     * @param storageQueueName name of the queue
+     */
+    private void clearBufferedMessages(String storageQueueName) {
         StorageQueue registeredQueue = AndesContext.getInstance().getStorageQueueRegistry().getStorageQueue
-                (queueWithEvent.getName());
+                (storageQueueName);
         registeredQueue.clearMessagesReadToBufferForDelivery();
 
         log.info("Queue Sync [purge]: " + registeredQueue.getName());
@@ -245,18 +254,18 @@ public class AndesContextInformationManager {
      * @throws AndesException
      */
     public void syncQueueCreate(InboundQueueSyncEvent queueCreateEvent) throws AndesException {
-        StorageQueue queueEvent = queueCreateEvent.toStorageQueue();
+        for (StorageQueue queueEvent : queueCreateEvent.toStorageQueues()) {
+            StorageQueue storageQueueToAdd = AndesContext.getInstance().
+                    getStorageQueueRegistry().registerStorageQueue(queueEvent.getName(),
+                    queueEvent.isDurable(), queueEvent.isShared(), queueEvent.getQueueOwner(),
+                    queueEvent.isExclusive());
 
-        StorageQueue storageQueueToAdd = AndesContext.getInstance().
-                getStorageQueueRegistry().registerStorageQueue(queueEvent.getName(),
-                queueEvent.isDurable(), queueEvent.isShared(), queueEvent.getQueueOwner(),
-                queueEvent.isExclusive());
+            //add queue inside Qpid
+            ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
+                    clusterQueueAdded(storageQueueToAdd);
 
-        //add queue inside Qpid
-        ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
-                clusterQueueAdded(storageQueueToAdd);
-
-        log.info("Queue Sync [create]: " + storageQueueToAdd.getName());
+            log.info("Queue Sync [create]: " + storageQueueToAdd.getName());
+        }
     }
 
     /**
@@ -328,28 +337,30 @@ public class AndesContextInformationManager {
      * @throws AndesException
      */
     public void syncQueueDelete(InboundQueueSyncEvent queueDeleteSyncEvent) throws AndesException {
-        StorageQueue queueWithEvent = queueDeleteSyncEvent.toStorageQueue();
-        String storageQueueName = queueWithEvent.getName();
+        for (StorageQueue queueWithEvent : queueDeleteSyncEvent.toStorageQueues()) {
+            String storageQueueName = queueWithEvent.getName();
 
-        //remove all subscriptions to the queue
-        subscriptionManager.closeAllSubscriptionsBoundToQueue(storageQueueName);
+            //remove all subscriptions to the queue
+            subscriptionManager.closeAllSubscriptionsBoundToQueue(storageQueueName);
 
-        //clear in-memory messages buffered for queue
-        handleQueuePurgeNotification(queueDeleteSyncEvent);
+            //clear in-memory messages buffered for queue
+            clearBufferedMessages(storageQueueName);
 
-        //remove all bindings from memory if not removed
-        amqpConstructStore.removeAllBindingsForQueue(storageQueueName);
+            //remove all bindings from memory if not removed
+            amqpConstructStore.removeAllBindingsForQueue(storageQueueName);
 
-        //remove queue mapping
-        messageStore.removeLocalQueueData(storageQueueName);
+            //remove queue mapping
+            messageStore.removeLocalQueueData(storageQueueName);
 
-        //identify storage queue and delete from queue registry
-        StorageQueue queueToDelete = AndesContext.getInstance().
-                getStorageQueueRegistry().removeStorageQueue(storageQueueName);
-        //remove queue inside Qpid
-        ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().clusterQueueRemoved(queueToDelete);
+            //identify storage queue and delete from queue registry
+            StorageQueue queueToDelete = AndesContext.getInstance().
+                    getStorageQueueRegistry().removeStorageQueue(storageQueueName);
+            //remove queue inside Qpid
+            ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
+                    clusterQueueRemoved(queueToDelete);
 
-        log.info("Queue Sync [delete]: " + queueToDelete.toString());
+            log.info("Queue Sync [delete]: " + queueToDelete.toString());
+        }
     }
 
     /**
@@ -402,21 +413,21 @@ public class AndesContextInformationManager {
      */
     public void syncCreateBinding(InboundBindingSyncEvent bindingSyncEvent) throws AndesException {
 
-        AndesBinding binding = new AndesBinding(bindingSyncEvent.getEncodedBindingInfo());
-
-        //bind queue to messageRouter
-        StorageQueue queueToBind = binding.getBoundQueue();
-        String messageRouterToBind = binding.getMessageRouterName();
-        AndesMessageRouter messageRouter = AndesContext.getInstance().
-                getMessageRouterRegistry().getMessageRouter(messageRouterToBind);
-        queueToBind.bindQueueToMessageRouter(binding.getBindingKey(),messageRouter);
-        messageRouter.addMapping(binding.getBindingKey(), queueToBind);
+        for (AndesBinding binding : bindingSyncEvent.getBindings()) {
+            //bind queue to messageRouter
+            StorageQueue queueToBind = binding.getBoundQueue();
+            String messageRouterToBind = binding.getMessageRouterName();
+            AndesMessageRouter messageRouter = AndesContext.getInstance().
+                    getMessageRouterRegistry().getMessageRouter(messageRouterToBind);
+            queueToBind.bindQueueToMessageRouter(binding.getBindingKey(),messageRouter);
+            messageRouter.addMapping(binding.getBindingKey(), queueToBind);
 
-        amqpConstructStore.addBinding(binding, false);
-        //add binding inside qpid
-        ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().clusterBindingAdded(binding);
+            amqpConstructStore.addBinding(binding, false);
+            //add binding inside qpid
+            ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().clusterBindingAdded(binding);
 
-        log.info("Binding Sync [create]: " + binding.toString());
+            log.info("Binding Sync [create]: " + binding.toString());
+        }
     }
 
     /**
@@ -459,21 +470,22 @@ public class AndesContextInformationManager {
      */
     public void syncRemoveBinding(InboundBindingSyncEvent bindingSyncEvent) throws AndesException {
 
-        AndesBinding binding = new AndesBinding(bindingSyncEvent.getEncodedBindingInfo());
-
-        //find and remove binding
-        AndesBinding removedBinding = amqpConstructStore.removeBinding(binding.getMessageRouterName(), binding
-                .getBoundQueue().getName(), true);
+        for (AndesBinding binding : bindingSyncEvent.getBindings()) {
+            //find and remove binding
+            AndesBinding removedBinding = amqpConstructStore.removeBinding(binding.getMessageRouterName(), binding
+                    .getBoundQueue().getName(), true);
 
-        //unbind queue from messageRouter
-        StorageQueue boundQueue = removedBinding.getBoundQueue();
+            //unbind queue from messageRouter
+            StorageQueue boundQueue = removedBinding.getBoundQueue();
 
-        boundQueue.unbindQueueFromMessageRouter();
+            boundQueue.unbindQueueFromMessageRouter();
 
-        //remove binding inside Qpid
-        ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().clusterBindingRemoved(removedBinding);
+            //remove binding inside Qpid
+            ClusterResourceHolder.getInstance().getVirtualHostConfigSynchronizer().
+                    clusterBindingRemoved(removedBinding);
 
-        log.info("Binding Sync [delete]: " + binding.toString());
+            log.info("Binding Sync [delete]: " + binding.toString());
+        }
     }
 
 }
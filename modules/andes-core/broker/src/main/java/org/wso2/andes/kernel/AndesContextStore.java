@@ -451,6 +451,16 @@ public interface AndesContextStore extends HealthAwareStore {
      */
     TreeSet<Slot> getAllSlotsByQueueName(String queueName) throws AndesException;
 
+    /**
+     * Get all slots for a give queue along with the node each slot is assigned to. Slots are returned in the order
+     * they were created.
+     *
+     * @param queueName name of queue
+     * @return map of slot to the id of the node it is assigned to, node id is null if the slot is not assigned
+     * @throws AndesException
+     */
+    Map<Slot, String> getSlotAssignmentsByQueueName(String queueName) throws AndesException;
+
     /**
      * Get all active queue names.
      *
@@ -620,12 +630,13 @@ public interface AndesContextStore extends HealthAwareStore {
      * @param originatedNode           node from which, the cluster notification was sent
      * @param artifactType             broker artifact being notified
      * @param clusterNotificationType  type of the change addressed by the cluster notification. e.g. "QUEUUE_ADDED"
-     * @param notification             notification encoded as a string
+     * @param notification             notified artifacts encoded by
+     *                                 {@link org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec}
      * @param description              readable description of the notification
      * @throws AndesException
      */
     void storeClusterNotification(List<String> clusterNodes, String originatedNode, String artifactType, String
-            clusterNotificationType, String notification, String description) throws AndesException;
+            clusterNotificationType, byte[] notification, String description) throws AndesException;
 
     /**
      * Reads cluster notifications that are destined to a specific node.
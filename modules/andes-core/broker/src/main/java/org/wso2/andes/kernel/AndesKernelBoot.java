@@ -26,6 +26,7 @@ import org.wso2.andes.configuration.StoreConfiguration;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.disruptor.inbound.InboundEventManager;
 import org.wso2.andes.kernel.disruptor.inbound.InboundExchangeEvent;
+import org.wso2.andes.kernel.disruptor.inbound.TransactionStagingArea;
 import org.wso2.andes.kernel.registry.MessageRouterRegistry;
 import org.wso2.andes.kernel.registry.StorageQueueRegistry;
 import org.wso2.andes.kernel.registry.SubscriptionRegistry;
@@ -34,6 +35,7 @@ import org.wso2.andes.kernel.slot.SlotDeletionExecutor;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MessageLatencyTracker;
 import org.wso2.andes.mqtt.utils.MQTTUtils;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.ClusterAgent;
@@ -42,6 +44,7 @@ import org.wso2.andes.server.cluster.ClusterManager;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationListenerManager;
 import org.wso2.andes.server.cluster.coordination.CoordinationComponentFactory;
 import org.wso2.andes.server.cluster.coordination.hazelcast.HazelcastAgent;
+import org.wso2.andes.server.information.management.LatencyInformationMBean;
 import org.wso2.andes.server.information.management.MessageStatusInformationMBean;
 import org.wso2.andes.server.information.management.SubscriptionManagementInformationMBean;
 import org.wso2.andes.server.queue.DLCQueueUtils;
@@ -126,6 +129,11 @@ public class AndesKernelBoot {
         startHouseKeepingThreads();
         createDefinedProtocolArtifacts();
         syncNodeWithClusterState();
+        int latencySamplingRate =
+                AndesConfigurationManager.readValue(AndesConfiguration.METRICS_LATENCY_SAMPLING_RATE);
+        int latencyMaxDestinations =
+                AndesConfigurationManager.readValue(AndesConfiguration.METRICS_LATENCY_MAX_DESTINATIONS);
+        MessageLatencyTracker.initialize(latencySamplingRate, latencyMaxDestinations);
         registerMBeans();
         startThriftServer();
         Andes.getInstance().startSafeZoneAnalysisWorker();
@@ -397,11 +405,26 @@ public class AndesKernelBoot {
         // Clear all slots and cluster notifications at a cluster startup
         clearMembershipEventsAndRecoverDistributedSlotMap();
 
+        // Transactions open when the node stopped can never be committed
+        discardStagedTransactionMessages();
+
         //Start components such as the subscription manager, subscription engine, messaging engine, etc.
         startAndesComponents();
 
     }
 
+    /**
+     * Discard messages staged by transactions of the local node which were open when the node stopped
+     *
+     * @throws AndesException
+     */
+    private static void discardStagedTransactionMessages() throws AndesException {
+        int discardedCount = messageStore.deleteAllMessageMetadata(TransactionStagingArea.getStagingQueueName());
+        if (discardedCount > 0) {
+            log.info("Discarded " + discardedCount + " messages staged by transactions open at last shutdown.");
+        }
+    }
+
     /**
      * Stops tasks for cluster event synchronization.
      */
@@ -455,12 +478,14 @@ public class AndesKernelBoot {
 
         int recoveryTaskScheduledPeriod = AndesConfigurationManager.readValue
                 (AndesConfiguration.PERFORMANCE_TUNING_FAILOVER_VHOST_SYNC_TASK_INTERVAL);
-        int dbBasedDeletionTaskScheduledPeriod = AndesConfigurationManager.readValue
-                (AndesConfiguration.PERFORMANCE_TUNING_PERIODIC_EXPIRY_MESSAGE_DELETION_INTERVAL);
+        int expiryTimerTickInterval = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_TIMER_TICK_INTERVAL);
         int safeDeleteRegionSlotCount = AndesConfigurationManager.readValue
                 (AndesConfiguration.PERFORMANCE_TUNING_SAFE_DELETE_REGION_SLOT_COUNT);
         boolean isDLCExpiryCheckEnabled = AndesConfigurationManager.readValue
                 (AndesConfiguration.PERFORMANCE_TUNING_EXPIRE_MESSAGES_IN_DLC);
+        int sharedContentReclaimInterval = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_SHARED_CONTENT_RECLAIM_INTERVAL);
 
         //based on the DLC expiration check configuration bind the appropriate deletion task
         if (isDLCExpiryCheckEnabled) {
@@ -472,13 +497,18 @@ public class AndesKernelBoot {
         andesRecoveryTaskScheduler.scheduleAtFixedRate(andesRecoveryTask, recoveryTaskScheduledPeriod,
                 recoveryTaskScheduledPeriod, TimeUnit.SECONDS);
         if (safeDeleteRegionSlotCount >= 1) {
+            // Task loads expiry data on its own interval, and deletes messages which become due on each tick
             expiryMessageDeletionTaskScheduler.scheduleAtFixedRate(periodicExpiryMessageDeletionTask,
-                    dbBasedDeletionTaskScheduledPeriod, dbBasedDeletionTaskScheduledPeriod, TimeUnit.SECONDS);
+                    expiryTimerTickInterval, expiryTimerTickInterval, TimeUnit.MILLISECONDS);
         } else {
             log.error("DB based expiry message deletion task is not scheduled due to not providing " +
                     "a valid safe delete region slot count is not given");
         }
 
+        // Content shared between queues is removed by the coordinator once all messages referring to it are gone
+        andesRecoveryTaskScheduler.scheduleWithFixedDelay(new SharedContentReclaimTask(),
+                sharedContentReclaimInterval, sharedContentReclaimInterval, TimeUnit.SECONDS);
+
         ClusterResourceHolder.getInstance().setAndesRecoveryTask(andesRecoveryTask);
     }
 
@@ -520,6 +550,9 @@ public class AndesKernelBoot {
             MessageStatusInformationMBean messageStatusInformationMBean = new
                     MessageStatusInformationMBean();
             messageStatusInformationMBean.register();
+
+            LatencyInformationMBean latencyInformationMBean = new LatencyInformationMBean();
+            latencyInformationMBean.register();
         } catch (JMException ex) {
             throw new AndesException("Unable to register Andes MBeans", ex);
         }
@@ -37,6 +37,18 @@ public class AndesMessage {
      */
     private List<AndesMessagePart> contentChunkList;
 
+    /**
+     * Id the content of the message is staged under in the message store. Content of a message which belongs to a
+     * large transaction is moved to the store before the transaction is committed.
+     */
+    private long stagedMessageID;
+
+    /**
+     * Id the content of the message is shared under in the message store. Messages routed to several storage queues
+     * refer to a single copy of the content instead of storing it once per queue.
+     */
+    private long sharedContentID;
+
     public AndesMessage(AndesMessageMetadata metadata) {
         this.metadata = metadata;
         contentChunkList = new ArrayList<>();
@@ -75,4 +87,59 @@ public class AndesMessage {
     public void setChunkList(List<AndesMessagePart> chunkList) {
         this.contentChunkList = chunkList;
     }
+
+    /**
+     * Check whether the content of the message is staged in the message store instead of the content chunk list
+     *
+     * @return true if the content is staged
+     */
+    public boolean isContentStaged() {
+        return stagedMessageID != 0;
+    }
+
+    /**
+     * Get the id the content of the message is staged under in the message store
+     *
+     * @return staged message id, 0 if the content is not staged
+     */
+    public long getStagedMessageID() {
+        return stagedMessageID;
+    }
+
+    /**
+     * Set the id the content of the message is staged under in the message store
+     *
+     * @param stagedMessageID id the content is staged under, 0 if the content is not staged
+     */
+    public void setStagedMessageID(long stagedMessageID) {
+        this.stagedMessageID = stagedMessageID;
+    }
+
+    /**
+     * Check whether the content of the message is stored once and shared with the other messages cloned from the
+     * same published message
+     *
+     * @return true if the content is shared
+     */
+    public boolean isContentShared() {
+        return sharedContentID != 0;
+    }
+
+    /**
+     * Get the id the content of the message is shared under in the message store
+     *
+     * @return shared content id, 0 if the content is not shared
+     */
+    public long getSharedContentID() {
+        return sharedContentID;
+    }
+
+    /**
+     * Set the id the content of the message is shared under in the message store
+     *
+     * @param sharedContentID id the content is shared under, 0 if the content is not shared
+     */
+    public void setSharedContentID(long sharedContentID) {
+        this.sharedContentID = sharedContentID;
+    }
 }
@@ -22,6 +22,7 @@ package org.wso2.andes.kernel;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.framing.BasicContentHeaderProperties;
 import org.wso2.andes.mqtt.MQTTMessageMetaData;
 import org.wso2.andes.mqtt.MQTTMetaDataHandler;
 import org.wso2.andes.mqtt.utils.MQTTUtils;
@@ -36,6 +37,22 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
 
     private static Log log = LogFactory.getLog(AndesMessageMetadata.class);
 
+    /**
+     * Priority of messages which do not carry a priority, same as the JMS default priority
+     */
+    public static final int DEFAULT_PRIORITY = 4;
+
+    /**
+     * Highest priority a message could have, priorities range from 0 to this value
+     */
+    public static final int MAX_PRIORITY = 9;
+
+    /**
+     * Message header carrying the number of milliseconds the delivery of a message should be delayed by, counted from
+     * the arrival of the message
+     */
+    public static final String DELAYED_DELIVERY_HEADER = "x-delay";
+
     /**
      * Unique identifier of the message
      */
@@ -122,6 +139,18 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
      */
     private boolean retain;
 
+    /**
+     * Delivery priority of the message. Derived from the protocol metadata, hence it is not stored separately. Only
+     * AMQP messages carry a priority, messages of other protocols such as MQTT keep {@link #DEFAULT_PRIORITY}.
+     */
+    private int priority = DEFAULT_PRIORITY;
+
+    /**
+     * Time before which the message should not be delivered, zero if the message could be delivered right away.
+     * Derived from the protocol metadata, hence it is not stored separately.
+     */
+    private long deliveryTime;
+
     public AndesMessageMetadata() {
         propertyMap = new HashMap<>();
         this.retain = false;
@@ -162,6 +191,38 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
         return retain;
     }
 
+    /**
+     * @return delivery priority of the message, from 0 to {@link #MAX_PRIORITY}
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Set delivery priority of the message. Values beyond the supported range are clamped.
+     *
+     * @param priority delivery priority
+     */
+    public void setPriority(int priority) {
+        this.priority = Math.max(0, Math.min(priority, MAX_PRIORITY));
+    }
+
+    /**
+     * @return time before which the message should not be delivered, zero if it could be delivered right away
+     */
+    public long getDeliveryTime() {
+        return deliveryTime;
+    }
+
+    /**
+     * Set time before which the message should not be delivered
+     *
+     * @param deliveryTime time in milliseconds, zero if the message could be delivered right away
+     */
+    public void setDeliveryTime(long deliveryTime) {
+        this.deliveryTime = deliveryTime;
+    }
+
     public void setMessageID(long messageID) {
         this.messageID = messageID;
     }
@@ -294,6 +355,8 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
         clone.propertyMap = propertyMap;
         clone.messageContentLength = messageContentLength;
         clone.isCompressed = isCompressed;
+        clone.priority = priority;
+        clone.deliveryTime = deliveryTime;
         return clone;
     }
 
@@ -355,6 +418,17 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
                     .TOPIC_EXCHANGE_NAME);
             this.messageRouterName = ((MessageMetaData) mdt).getMessagePublishInfo().getExchange().toString();
             this.isCompressed = ((MessageMetaData) mdt).isCompressed();
+            BasicContentHeaderProperties properties = (BasicContentHeaderProperties) ((MessageMetaData) mdt)
+                    .getContentHeaderBody().getProperties();
+            if (properties.hasPriority()) {
+                setPriority(properties.getPriority());
+            } else {
+                setPriority(DEFAULT_PRIORITY);
+            }
+            Object deliveryDelay = ((MessageMetaData) mdt).getMessageHeader().getHeader(DELAYED_DELIVERY_HEADER);
+            if ((deliveryDelay instanceof Number) && (((Number) deliveryDelay).longValue() > 0)) {
+                this.deliveryTime = arrivalTime + ((Number) deliveryDelay).longValue();
+            }
         }
         //For MQTT Specific Types
         if (type.equals(MessageMetaDataType.META_DATA_MQTT)) {
@@ -366,6 +440,7 @@ public class AndesMessageMetadata implements Comparable<AndesMessageMetadata> {
             this.messageContentLength = ((MQTTMessageMetaData) mdt).getContentSize();
             this.qosLevel = ((MQTTMessageMetaData) mdt).getQosLevel();
             this.isCompressed = ((MQTTMessageMetaData) mdt).isCompressed();
+            // MQTT has no notion of message priority, hence the default priority is kept
         }
 
     }
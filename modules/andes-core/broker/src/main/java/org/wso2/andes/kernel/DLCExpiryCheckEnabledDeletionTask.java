@@ -87,8 +87,11 @@ public class DLCExpiryCheckEnabledDeletionTask extends PeriodicExpiryMessageDele
     @Override
     public void run() {
 
-         //When DLC expiry check is enabled delete the expired messages from DLC regardless of queue name or message id
-        deleteExpiredMessagesFromDLC();
+        //When DLC expiry check is enabled delete the expired messages from DLC regardless of queue name or message id.
+        //DLC is checked along with each load of expiry data rather than on every timer tick
+        if (isExpiryDataLoadDue()) {
+            deleteExpiredMessagesFromDLC();
+        }
 
         //After delete messages from DLC then run a queue wise check for expired messages in unallocated zone
         deleteExpiredMessages();
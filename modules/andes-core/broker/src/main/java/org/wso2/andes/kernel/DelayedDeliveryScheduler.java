@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+
+import java.util.List;
+
+/**
+ * Holds back messages which should not be delivered before a given time, such as messages published with the
+ * {@link AndesMessageMetadata#DELAYED_DELIVERY_HEADER} header. Messages are kept in a {@link HierarchicalTimerWheel}
+ * and handed back to the buffer of their queue on the first run after their delivery time.
+ * <p>
+ * A held back message remains tracked by its slot, hence the slot is not removed until the message is delivered, and
+ * the message is read again if the slot is returned and reassigned meanwhile.
+ * </p>
+ * <p>
+ * Messages a subscriber could not take at the moment are also held here until the next run, and are then scheduled
+ * again to that subscription only.
+ * </p>
+ */
+class DelayedDeliveryScheduler implements Runnable {
+
+    private static Log log = LogFactory.getLog(DelayedDeliveryScheduler.class);
+
+    /**
+     * A message held back along with the handler of the queue it should be buffered to, or the subscription it should
+     * be delivered to
+     */
+    private static final class DelayedMessage {
+
+        private final MessageHandler messageHandler;
+
+        private final AndesSubscription subscription;
+
+        private final DeliverableAndesMetadata message;
+
+        private DelayedMessage(MessageHandler messageHandler, AndesSubscription subscription,
+                               DeliverableAndesMetadata message) {
+            this.messageHandler = messageHandler;
+            this.subscription = subscription;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Held back messages scheduled at their delivery time. Guarded by itself.
+     */
+    private final HierarchicalTimerWheel<DelayedMessage> deliverySchedule;
+
+    /**
+     * Create a scheduler
+     *
+     * @param tickInterval precision of the scheduler in milliseconds
+     */
+    DelayedDeliveryScheduler(long tickInterval) {
+        deliverySchedule = new HierarchicalTimerWheel<>(tickInterval, System.currentTimeMillis());
+    }
+
+    /**
+     * Hold back a message until its delivery time
+     *
+     * @param messageHandler handler of the queue the message should be buffered to
+     * @param message        message to hold back
+     */
+    void schedule(MessageHandler messageHandler, DeliverableAndesMetadata message) {
+        synchronized (deliverySchedule) {
+            deliverySchedule.schedule(message.getDeliveryTime(), new DelayedMessage(messageHandler, null, message));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Delivery of message id= " + message.getMessageID() + " is delayed until "
+                    + message.getDeliveryTime());
+        }
+    }
+
+    /**
+     * Hold back a message the subscriber could not take until the next run, and then schedule it to the subscription
+     * again
+     *
+     * @param subscription subscription to deliver the message to
+     * @param message      message to hold back
+     */
+    void scheduleRedelivery(AndesSubscription subscription, DeliverableAndesMetadata message) {
+        synchronized (deliverySchedule) {
+            deliverySchedule.schedule(System.currentTimeMillis(), new DelayedMessage(null, subscription, message));
+        }
+    }
+
+    /**
+     * Hand back the messages whose delivery time has been reached
+     */
+    @Override
+    public void run() {
+        List<DelayedMessage> dueMessages;
+        synchronized (deliverySchedule) {
+            dueMessages = deliverySchedule.advance(System.currentTimeMillis());
+        }
+
+        for (DelayedMessage dueMessage : dueMessages) {
+            try {
+                if (null != dueMessage.subscription) {
+                    dueMessage.message.markAsScheduledToDeliver(dueMessage.subscription);
+                    MessageFlusher.getInstance().deliverMessageAsynchronously(dueMessage.subscription,
+                            dueMessage.message);
+                } else {
+                    dueMessage.messageHandler.releaseDelayedMessage(dueMessage.message);
+                }
+            } catch (Throwable e) {
+                log.error("Error while releasing delayed message id= " + dueMessage.message.getMessageID()
+                        + " for delivery", e);
+            }
+        }
+    }
+}
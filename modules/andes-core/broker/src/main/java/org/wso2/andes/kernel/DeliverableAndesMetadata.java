@@ -57,6 +57,12 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
      */
     private long timeMessageIsRead;
 
+    /**
+     * {@link System#nanoTime()} at which the message was last dispatched to the protocol. Only set for messages
+     * sampled by {@link org.wso2.andes.metrics.MessageLatencyTracker}
+     */
+    private volatile long timeMessageIsDispatched;
+
     /**
      * In a session-transacted consumer scenario, a rollback will reject even the messages beyond the rollback point,
      * since they have been pre-fetched from the server to the client buffer. This property marks such messages.
@@ -102,6 +108,33 @@ public class DeliverableAndesMetadata extends AndesMessageMetadata {
         this.slot = slot;
     }
 
+    /**
+     * Get the time message is read from the store
+     *
+     * @return time in milliseconds
+     */
+    public long getTimeMessageIsRead() {
+        return timeMessageIsRead;
+    }
+
+    /**
+     * Get the time message was last dispatched to the protocol, 0 if it is not recorded
+     *
+     * @return value of {@link System#nanoTime()} at dispatch
+     */
+    public long getTimeMessageIsDispatched() {
+        return timeMessageIsDispatched;
+    }
+
+    /**
+     * Record the time message is dispatched to the protocol
+     *
+     * @param timeMessageIsDispatched value of {@link System#nanoTime()} at dispatch
+     */
+    public void setTimeMessageIsDispatched(long timeMessageIsDispatched) {
+        this.timeMessageIsDispatched = timeMessageIsDispatched;
+    }
+
     /**
      * Check if message is expired
      *
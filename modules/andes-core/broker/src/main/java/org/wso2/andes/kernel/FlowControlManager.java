@@ -33,12 +33,13 @@ import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.MetricManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Flow control is typically employed in controlling fast producers from overloading slow consumers in
@@ -61,12 +62,17 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
     private final int globalHighLimit;
 
     /**
-     * List of active channels
+     * Active channels. A concurrent set so that creating and closing channels does not contend on a lock
      */
-    private final ArrayList<AndesChannel> channels;
+    private final Set<AndesChannel> channels;
 
     /**
-     * Executor used for flow control timeout tasks
+     * Channels on which flow control is currently enforced. Releasing global flow control only needs to visit these
+     */
+    private final Set<AndesChannel> blockedChannels;
+
+    /**
+     * Executor used for flow control tasks
      */
     private final ScheduledExecutorService executor;
 
@@ -81,14 +87,22 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
     private final int channelLowLimit;
 
     /**
-     * Track total number of unprocessed messages
+     * Track total number of unprocessed messages. Striped by channel so that publishers do not contend on a single
+     * counter
+     */
+    private final StripedCounter messagesOnGlobalBuffer;
+
+    /**
+     * Value a single stripe of the global buffer counter should reach before the stripes are summed on an addition.
+     * The global high limit cannot be reached unless at least one stripe holds this share of it, hence additions to
+     * lightly loaded stripes skip reading the other stripes.
      */
-    private AtomicInteger messagesOnGlobalBuffer;
+    private final int stripeHighLimit;
 
     /**
      * Indicate if the flow control is enabled globally
      */
-    private boolean globalBufferBasedFlowControlEnabled;
+    private volatile boolean globalBufferBasedFlowControlEnabled;
 
     /**
      * Set to true if there are global level error(s) occurred 
@@ -96,20 +110,15 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
     private volatile boolean globalErrorBasedFlowControlEnabled;
 
     /**
-     * Global flow control time out task
-     */
-    private Runnable flowControlTimeoutTask = new BufferBasedFlowControlTimeoutTask();
-    
-    /**
-     * Used to close the flow control timeout task if not required
+     * Flag set to true when shutdown hook triggered and use this flog to avoid
+     * unblocking flow control while shutting down
      */
-    private ScheduledFuture<?> scheduledBufferBasedFlowControlTimeoutFuture;
+    private volatile boolean shutDownTriggered;
 
     /**
-     * Flag set to true when shutdown hook triggered and use this flog to avoid
-     * unblocking flow control while shutting down
+     * Interval in seconds at which flow control state of blocked channels is validated
      */
-    private boolean shutDownTriggered;
+    private static final int FLOW_CONTROL_VALIDATION_INTERVAL = 10;
 
     public FlowControlManager() {
         // Read configured limits
@@ -126,10 +135,13 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
             throw new RuntimeException("Flow Control limits are not configured correctly.");
         }
 
-        messagesOnGlobalBuffer = new AtomicInteger(0);
+        messagesOnGlobalBuffer = new StripedCounter(Runtime.getRuntime().availableProcessors() * 2);
+        int stripeCount = messagesOnGlobalBuffer.getStripeCount();
+        stripeHighLimit = (globalHighLimit + stripeCount - 1) / stripeCount;
         globalBufferBasedFlowControlEnabled = false;
         globalErrorBasedFlowControlEnabled = false;
-        channels = new ArrayList<AndesChannel>();
+        channels = Collections.newSetFromMap(new ConcurrentHashMap<AndesChannel, Boolean>());
+        blockedChannels = Collections.newSetFromMap(new ConcurrentHashMap<AndesChannel, Boolean>());
 
         FailureObservingStoreManager.registerStoreHealthListener(this);
         if ( AndesContext.getInstance().isClusteringEnabled()){ // network partition detection works only when clustered.
@@ -139,6 +151,8 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
         ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("AndesScheduledTaskManager-FlowControl")
                                                                      .build();
         executor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        executor.scheduleWithFixedDelay(new FlowControlValidationTask(), FLOW_CONTROL_VALIDATION_INTERVAL,
+                FLOW_CONTROL_VALIDATION_INTERVAL, TimeUnit.SECONDS);
 
         //Will start the gauge
         MetricManager.gauge(Level.INFO, MetricsConstants.ACTIVE_CHANNELS, new ChannelGauge());
@@ -153,18 +167,8 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
      *            the identifier of the channel
      * @return AndesChannel
      */
-    public synchronized AndesChannel createChannel(String channelId,
-                                                   FlowControlListener listener) throws AndesException {
-
-        if (globalErrorBasedFlowControlEnabled) {
-            throw new AndesException("Global error based flow control is enabled. new connections are not allowed");
-        }
-        
-
-        AndesChannel channel = new AndesChannel(this, channelId, listener, globalBufferBasedFlowControlEnabled,
-                                                      globalErrorBasedFlowControlEnabled);
-        channels.add(channel);
-        return channel;
+    public AndesChannel createChannel(String channelId, FlowControlListener listener) throws AndesException {
+        return registerChannel(new AndesChannel(this, channelId, listener));
     }
 
     /**
@@ -174,15 +178,29 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
      *         Local flow control listener
      * @return AndesChannel
      */
-    public synchronized AndesChannel createChannel(FlowControlListener listener) throws AndesException {
-        
-        if ( globalErrorBasedFlowControlEnabled ){
+    public AndesChannel createChannel(FlowControlListener listener) throws AndesException {
+        return registerChannel(new AndesChannel(this, listener));
+    }
+
+    /**
+     * Start tracking a channel. The error based flow control state is checked after adding the channel so that a
+     * channel added concurrently with the activation is either rejected here or blocked by the activation.
+     *
+     * @param channel channel to track
+     * @return the registered channel
+     * @throws AndesException if error based flow control is enabled
+     */
+    private AndesChannel registerChannel(AndesChannel channel) throws AndesException {
+        if (globalErrorBasedFlowControlEnabled) {
             throw new AndesException("Global error based flow control is enabled. new connections are not allowed");
         }
-        
-        AndesChannel channel = new AndesChannel(this, listener, globalBufferBasedFlowControlEnabled, 
-                                                      globalErrorBasedFlowControlEnabled);
+
         channels.add(channel);
+
+        if (globalErrorBasedFlowControlEnabled) {
+            channels.remove(channel);
+            throw new AndesException("Global error based flow control is enabled. new connections are not allowed");
+        }
         return channel;
     }
 
@@ -213,16 +231,29 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
         return executor;
     }
 
+    /**
+     * Check if buffer based or error based flow control is enforced globally. Channels read this on each addition
+     * to the buffer, therefore enabling global flow control does not need to visit every channel.
+     *
+     * @return true if flow control is enforced globally
+     */
+    public boolean isGlobalFlowControlEnabled() {
+        return globalBufferBasedFlowControlEnabled || globalErrorBasedFlowControlEnabled;
+    }
+
     /**
      * This method should be called when a message is put into the buffer
      *
+     * @param channel
+     *         Channel the items are added from
      * @param size
      *         Number of items added to buffer
      */
-    public void notifyAddition(int size) {
-        int count = messagesOnGlobalBuffer.addAndGet(size);
+    public void notifyAddition(AndesChannel channel, int size) {
+        long stripeValue = messagesOnGlobalBuffer.add(channel.getId(), size);
 
-        if ((!globalBufferBasedFlowControlEnabled) && (count >= globalHighLimit)) {
+        if ((!globalBufferBasedFlowControlEnabled) && (stripeValue >= stripeHighLimit)
+                && (messagesOnGlobalBuffer.sum() >= globalHighLimit)) {
             blockListenersOnBufferBasedFlowControl();
         }
     }
@@ -230,52 +261,62 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
     /**
      * This method should be called after a message is processed and no longer required in the buffer.
      *
+     * @param channel
+     *         Channel the items were added from
      * @param size
      *         Number of items removed from buffer
      */
-    public void notifyRemoval(int size) {
-        int count = messagesOnGlobalBuffer.addAndGet(-size);
+    public void notifyRemoval(AndesChannel channel, int size) {
+        long stripeValue = messagesOnGlobalBuffer.add(channel.getId(), -size);
 
-        if (globalBufferBasedFlowControlEnabled && count <= globalLowLimit) {
+        // A channel adds to and removes from the same stripe, hence stripes do not go negative and the global buffer
+        // cannot be below the low limit while this stripe is above it. Stripes are summed only while flow control is
+        // enforced, when publishers are not updating the counter.
+        if (globalBufferBasedFlowControlEnabled && (stripeValue <= globalLowLimit)
+                && (messagesOnGlobalBuffer.sum() <= globalLowLimit)) {
             unblockListenersOnBufferBasedFlowControl();
         }
     }
 
-    
     /**
-     * Notify all the channels to enable buffer based flow control
+     * Called by a channel when flow control is enforced on it
+     *
+     * @param channel blocked channel
+     */
+    void onChannelBlocked(AndesChannel channel) {
+        blockedChannels.add(channel);
+    }
+
+    /**
+     * Called by a channel when flow control is released on it
+     *
+     * @param channel unblocked channel
+     */
+    void onChannelUnblocked(AndesChannel channel) {
+        blockedChannels.remove(channel);
+    }
+
+    /**
+     * Enable buffer based flow control. Channels pick this up on their next addition to the buffer
      */
     private synchronized void blockListenersOnBufferBasedFlowControl() {
         if (!globalBufferBasedFlowControlEnabled) {
             globalBufferBasedFlowControlEnabled = true;
-
-            for (AndesChannel channel : channels) {
-                channel.notifyGlobalBufferBasedFlowControlActivation();
-            }
-
-            scheduledBufferBasedFlowControlTimeoutFuture = executor.schedule(flowControlTimeoutTask, 1, TimeUnit.MINUTES);
             log.info("Global buffer based flow control enabled.");
         }
     }
 
-
     /**
-     * Notify all the channels to disable buffer based flow control
+     * Disable buffer based flow control and release blocked channels
      */
     private synchronized void unblockListenersOnBufferBasedFlowControl() {
         if (globalBufferBasedFlowControlEnabled && !shutDownTriggered) {
-            scheduledBufferBasedFlowControlTimeoutFuture.cancel(false);
             globalBufferBasedFlowControlEnabled = false;
-
-            for (AndesChannel channel : channels) {
-                channel.notifyGlobalBufferBasedFlowControlDeactivation();
-            }
-
+            scheduleBlockedChannelValidation();
             log.info("Global buffer based flow control disabled.");
         }
     }
 
-
     /**
      * Notify all the channels to enable error based flow control
      */
@@ -286,39 +327,52 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
             for (AndesChannel channel : channels) {
                 channel.notifyGlobalErrorBasedFlowControlActivation();
             }
-            
-            
-            if (forcefullyDisconnect){
+
+            if (forcefullyDisconnect) {
                 // before the iteration its important to have a constant view on available channels.
-                // if we send 'disconnect' to channels using the original collection that will result in a 
-                // concurrent modification ( since underlying socket/client is asked to disconnect,
-                // client disconnects, and this collection is modified while we iterating.
+                // client disconnects remove channels from the set while we iterate. Although the concurrent set
+                // tolerates that, a snapshot makes sure every channel present now is asked to disconnect once.
                 ArrayList<AndesChannel> constantView = new ArrayList<>(channels);
-                
-                for (AndesChannel channel : constantView){
+
+                for (AndesChannel channel : constantView) {
                     channel.disconnect();
                 }
-                
             }
-            
+
             log.info("Global error based flow control enabled.");
         }
     }
-    
-    
-    
+
     /**
-     * Notify all the channels to disable error based flow control
+     * Disable error based flow control and release blocked channels
      */
     private synchronized void unblockListenersOnErrorBasedFlowControl() {
         if (globalErrorBasedFlowControlEnabled) {
             globalErrorBasedFlowControlEnabled = false;
+            scheduleBlockedChannelValidation();
+            log.info("Global error based flow control disabled.");
+        }
+    }
 
-            for (AndesChannel channel : channels) {
-                channel.notifyGlobalErrorBasedFlowControlDeactivation();
+    /**
+     * Release blocked channels in a single task on the flow control executor rather than on the thread which
+     * released global flow control (typically the inbound disruptor).
+     */
+    private void scheduleBlockedChannelValidation() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                validateBlockedChannels();
             }
+        });
+    }
 
-            log.info("Global error based flow control disabled.");
+    /**
+     * Release flow control on blocked channels that are within their limits
+     */
+    private void validateBlockedChannels() {
+        for (AndesChannel channel : blockedChannels) {
+            channel.validateFlowControlState();
         }
     }
 
@@ -328,22 +382,33 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
      * @param channel
      *         Andes channel
      */
-    public synchronized void deleteChannel(AndesChannel channel) {
+    public void deleteChannel(AndesChannel channel) {
         channels.remove(channel);
+        blockedChannels.remove(channel);
 
         log.info("Channel removed (ID: " + channel.getIdentifier() + ")");
     }
 
     /**
-     * This timeout task avoid flow control being enforced forever. This can happen if the recordAdditionToBuffer get a
-     * context switch after evaluating the existing condition and during that time all the messages present in global
-     * buffer get processed from the StateEventHandler.
+     * This task avoids flow control being enforced forever. This can happen if notifyAddition gets a context switch
+     * after evaluating the existing condition and during that time all the messages present in global buffer get
+     * processed from the StateEventHandler. The same applies to individual channels. It also enforces flow control
+     * if the global high limit was reached through additions to lightly loaded stripes, which do not sum the
+     * counter.
      */
-    private class BufferBasedFlowControlTimeoutTask implements Runnable {
+    private class FlowControlValidationTask implements Runnable {
         @Override
         public void run() {
-            if (globalBufferBasedFlowControlEnabled && (messagesOnGlobalBuffer.get() <= globalLowLimit)) {
-                unblockListenersOnBufferBasedFlowControl();
+            try {
+                long messageCount = messagesOnGlobalBuffer.sum();
+                if (globalBufferBasedFlowControlEnabled && (messageCount <= globalLowLimit)) {
+                    unblockListenersOnBufferBasedFlowControl();
+                } else if (!globalBufferBasedFlowControlEnabled && (messageCount >= globalHighLimit)) {
+                    blockListenersOnBufferBasedFlowControl();
+                }
+                validateBlockedChannels();
+            } catch (Throwable e) {
+                log.error("Error while validating flow control state", e);
             }
         }
     }
@@ -357,12 +422,6 @@ public class FlowControlManager  implements StoreHealthListener, NetworkPartitio
             shutDownTriggered = true;
 
             log.info("Prepare channels for shutdown.");
-
-            for (AndesChannel channel : channels) {
-                channel.notifyGlobalBufferBasedFlowControlActivation();
-            }
-
-            scheduledBufferBasedFlowControlTimeoutFuture = executor.schedule(flowControlTimeoutTask, 1, TimeUnit.MINUTES);
         }
     }
 
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Schedules values to be released at a given time, such as messages which expire or become deliverable at a
+ * certain time.
+ * <p>
+ * Time is divided into ticks of a fixed duration. The wheel has several levels of 64 buckets, level 0 holds values due
+ * within the next 64 ticks, level 1 values due within the next 64 * 64 ticks and so on. Scheduling a value appends it
+ * to a bucket, and a value is moved down a level when the wheel reaches the range of ticks of its bucket. Hence the
+ * cost of the wheel depends on the number of values which are scheduled and released, not on how far ahead they are
+ * scheduled or how many of them are waiting.
+ * </p>
+ * <p>
+ * A value is never released before its due time, and it is released by the first {@link #advance(long)} call made
+ * at or after the end of the tick its due time falls in.
+ * </p>
+ * <p><b>Note: </b>Not thread safe, callers should guard the wheel.</p>
+ *
+ * @param <T> type of the scheduled values
+ */
+public class HierarchicalTimerWheel<T> {
+
+    /**
+     * Number of bits of a tick which are resolved by a single level
+     */
+    private static final int BITS_PER_LEVEL = 6;
+
+    private static final int BUCKETS_PER_LEVEL = 1 << BITS_PER_LEVEL;
+
+    private static final int BUCKET_MASK = BUCKETS_PER_LEVEL - 1;
+
+    /**
+     * Number of levels required to cover every non negative tick
+     */
+    private static final int LEVELS = (Long.SIZE + BITS_PER_LEVEL - 1) / BITS_PER_LEVEL;
+
+    /**
+     * A scheduled value along with the tick it is due at
+     *
+     * @param <T> type of the value
+     */
+    private static final class Entry<T> {
+
+        private final long tick;
+
+        private final T value;
+
+        private Entry(long tick, T value) {
+            this.tick = tick;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Duration of a tick in milliseconds
+     */
+    private final long tickDuration;
+
+    /**
+     * Buckets of each level, a bucket is created when a value is first scheduled to it
+     */
+    private final List<Entry<T>>[][] buckets;
+
+    /**
+     * Values whose tick has already been reached, released by the next advance
+     */
+    private final List<Entry<T>> overdue = new ArrayList<>();
+
+    /**
+     * Last tick the wheel has advanced to
+     */
+    private long currentTick;
+
+    /**
+     * Number of values scheduled
+     */
+    private int size;
+
+    /**
+     * Creates an empty wheel
+     *
+     * @param tickDuration duration of a tick in milliseconds, the precision of the wheel
+     * @param startTime    time the wheel starts at, in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimerWheel(long tickDuration, long startTime) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration should be positive: " + tickDuration);
+        }
+        this.tickDuration = tickDuration;
+        this.buckets = (List<Entry<T>>[][]) new List[LEVELS][BUCKETS_PER_LEVEL];
+        this.currentTick = Math.max(0L, startTime) / tickDuration;
+    }
+
+    /**
+     * Schedules a value to be released at the given time. A value due at a time which the wheel has already passed is
+     * released by the next advance.
+     *
+     * @param dueTime time at which the value is due, in milliseconds
+     * @param value   value to release
+     */
+    public void schedule(long dueTime, T value) {
+        long dueTick = Math.max(0L, dueTime) / tickDuration;
+        // A value due within a tick is released at the end of the tick, so that it is never released early
+        if (dueTick * tickDuration < dueTime) {
+            dueTick++;
+        }
+        place(new Entry<>(dueTick, value));
+        size++;
+    }
+
+    /**
+     * Advances the wheel up to the given time and releases the values which have become due
+     *
+     * @param now current time in milliseconds
+     * @return released values, in the order of their due ticks
+     */
+    public List<T> advance(long now) {
+        List<T> dueValues = new ArrayList<>();
+        long targetTick = Math.max(0L, now) / tickDuration;
+
+        releaseOverdue(dueValues);
+
+        while (currentTick < targetTick) {
+            if (0 == size) {
+                // Nothing to release on the way, jump straight to the target
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            releaseOverdue(dueValues);
+
+            List<Entry<T>> bucket = buckets[0][(int) (currentTick & BUCKET_MASK)];
+            if (null != bucket && !bucket.isEmpty()) {
+                for (Entry<T> entry : bucket) {
+                    dueValues.add(entry.value);
+                }
+                size = size - bucket.size();
+                bucket.clear();
+            }
+        }
+        return dueValues;
+    }
+
+    /**
+     * @return number of values which are scheduled and not released yet
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no value is scheduled
+     */
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    /**
+     * Drops all scheduled values
+     */
+    public void clear() {
+        for (List<Entry<T>>[] level : buckets) {
+            for (List<Entry<T>> bucket : level) {
+                if (null != bucket) {
+                    bucket.clear();
+                }
+            }
+        }
+        overdue.clear();
+        size = 0;
+    }
+
+    /**
+     * Adds an entry to the bucket covering its tick. An entry goes to the lowest level whose range of ticks, counted
+     * from the current tick, contains the tick of the entry.
+     *
+     * @param entry entry to add
+     */
+    private void place(Entry<T> entry) {
+        if (entry.tick <= currentTick) {
+            overdue.add(entry);
+            return;
+        }
+
+        int level = 0;
+        while ((level < LEVELS - 1) && ((entry.tick >>> (BITS_PER_LEVEL * (level + 1)))
+                != (currentTick >>> (BITS_PER_LEVEL * (level + 1))))) {
+            level++;
+        }
+
+        int index = (int) ((entry.tick >>> (BITS_PER_LEVEL * level)) & BUCKET_MASK);
+        List<Entry<T>> bucket = buckets[level][index];
+        if (null == bucket) {
+            bucket = new ArrayList<>();
+            buckets[level][index] = bucket;
+        }
+        bucket.add(entry);
+    }
+
+    /**
+     * Moves entries of the upper level buckets whose range of ticks starts at the current tick to lower levels.
+     * Upper levels are cascaded first since their entries could fall into a bucket cascaded next.
+     */
+    private void cascade() {
+        int topLevel = 0;
+        while ((topLevel < LEVELS - 1)
+                && (0 == (currentTick & ((1L << (BITS_PER_LEVEL * (topLevel + 1))) - 1)))) {
+            topLevel++;
+        }
+
+        for (int level = topLevel; level > 0; level--) {
+            List<Entry<T>> bucket = buckets[level][(int) ((currentTick >>> (BITS_PER_LEVEL * level)) & BUCKET_MASK)];
+            if (null != bucket && !bucket.isEmpty()) {
+                // Entries always move to a lower level, hence the bucket is not modified while iterating
+                for (Entry<T> entry : bucket) {
+                    place(entry);
+                }
+                bucket.clear();
+            }
+        }
+    }
+
+    /**
+     * Releases entries whose tick has already been reached
+     *
+     * @param dueValues list to add the released values to
+     */
+    private void releaseOverdue(List<T> dueValues) {
+        if (!overdue.isEmpty()) {
+            for (Entry<T> entry : overdue) {
+                dueValues.add(entry.value);
+            }
+            size = size - overdue.size();
+            overdue.clear();
+        }
+    }
+}
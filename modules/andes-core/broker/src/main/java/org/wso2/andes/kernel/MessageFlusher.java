@@ -18,6 +18,7 @@
 
 package org.wso2.andes.kernel;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.amqp.AMQPUtils;
@@ -31,6 +32,7 @@ import org.wso2.andes.mqtt.utils.MQTTUtils;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 
@@ -62,6 +64,16 @@ public class MessageFlusher {
      */
     private DeliveryResponsibility deliveryResponsibilityHead;
 
+    /**
+     * Holds back messages which should not be delivered yet
+     */
+    private DelayedDeliveryScheduler delayedDeliveryScheduler;
+
+    /**
+     * Runs {@link #delayedDeliveryScheduler} on every timer tick
+     */
+    private ScheduledExecutorService delayedDeliveryExecutor;
+
 
     private static MessageFlusher messageFlusher = new MessageFlusher();
 
@@ -98,6 +110,7 @@ public class MessageFlusher {
         }
 
         initializeDeliveryResponsibilityComponents();
+        initializeDelayedDelivery();
 
     }
 
@@ -129,6 +142,39 @@ public class MessageFlusher {
 
     }
 
+    /**
+     * Start the scheduler which releases delayed messages for delivery
+     */
+    private void initializeDelayedDelivery() {
+        int tickInterval = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_TIMER_TICK_INTERVAL);
+        delayedDeliveryScheduler = new DelayedDeliveryScheduler(tickInterval);
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("DelayedDeliveryScheduler-%d").build();
+        delayedDeliveryExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        delayedDeliveryExecutor.scheduleAtFixedRate(delayedDeliveryScheduler, tickInterval, tickInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return scheduler holding back messages which should not be delivered yet
+     */
+    DelayedDeliveryScheduler getDelayedDeliveryScheduler() {
+        return delayedDeliveryScheduler;
+    }
+
+    /**
+     * Deliver a message to the subscription again on the next run of the scheduler. This is used when the subscriber
+     * could not take the message at the moment. Delivery handlers must not publish to the ring they consume, hence
+     * the message is handed over from the scheduler thread.
+     *
+     * @param subscription subscription to deliver the message to
+     * @param message      message to deliver
+     */
+    public void redeliverMessageLater(AndesSubscription subscription, DeliverableAndesMetadata message) {
+        delayedDeliveryScheduler.scheduleRedelivery(subscription, message);
+    }
+
     /**
      * Check whether there are active subscribers and send
      *
@@ -179,9 +225,10 @@ public class MessageFlusher {
     /**
      * Stop disruptor based message delivery. This will process all taken in events
      * and then shutdown. Make sure to stop all incoming events to outbound disruptor
-     * before calling this method.
+     * before calling this method. Delayed messages are no longer released once stopped.
      */
     public void stopMessageFlusher() {
+        delayedDeliveryExecutor.shutdown();
         flusherExecutor.stop();
     }
 
@@ -38,11 +38,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is for message handling operations of a queue. Handling
@@ -76,10 +75,16 @@ public class MessageHandler {
 
     /**
      * In-memory message list scheduled to be delivered. These messages will be flushed
-     * to subscriber.Used Map instead of Set because of https://wso2.org/jira/browse/MB-1624
+     * to subscriber, highest priority first. Keyed by message ID because of https://wso2.org/jira/browse/MB-1624
      */
-    private ConcurrentMap<Long, DeliverableAndesMetadata> readButUndeliveredMessages = new
-            ConcurrentSkipListMap<>();
+    private final PriorityDeliveryBuffer readButUndeliveredMessages = new PriorityDeliveryBuffer();
+
+    /**
+     * Number of messages read for this queue which are held back by the
+     * {@link DelayedDeliveryScheduler} until their delivery time. These have a limit of their own, so that messages
+     * with a future delivery time do not take the room of messages which can be delivered now.
+     */
+    private final AtomicInteger delayedMessageCount = new AtomicInteger(0);
 
     /**
      * Map of slots read so far
@@ -97,6 +102,11 @@ public class MessageHandler {
      */
     private Integer maxNumberOfReadButUndeliveredMessages;
 
+    /**
+     * Max number of messages to hold back until their delivery time
+     */
+    private Integer maxNumberOfDelayedMessages;
+
     /**
      * Used for asynchronously execute slot reassign task
      */
@@ -110,6 +120,8 @@ public class MessageHandler {
         this.executor = Executors.newSingleThreadExecutor(namedThreadFactory);
         this.maxNumberOfReadButUndeliveredMessages = AndesConfigurationManager.
                 readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_MAX_READ_BUT_UNDELIVERED_MESSAGES);
+        this.maxNumberOfDelayedMessages = AndesConfigurationManager.
+                readValue(AndesConfiguration.PERFORMANCE_TUNING_DELIVERY_MAX_DELAYED_MESSAGES);
         this.messageDeliveryManager = SlotDeliveryWorkerManager.getInstance();
         this.lastPurgedTimestamp = 0L;
         this.messageStore = AndesContext.getInstance().getMessageStore();
@@ -126,6 +138,15 @@ public class MessageHandler {
         messageDeliveryManager.startMessageDeliveryForQueue(queue);
     }
 
+    /**
+     * Notify the delivery of the queue that there may be messages to deliver
+     *
+     * @param queue queue to deliver messages
+     */
+    public void wakeUpMessageDelivery(StorageQueue queue) {
+        messageDeliveryManager.wakeUpDeliveryForQueue(queue.getName());
+    }
+
     /**
      * Stop delivering messages for queue
      *
@@ -267,7 +288,7 @@ public class MessageHandler {
     }
 
     /**
-     * Get buffered messages
+     * Get buffered messages, highest priority first and in message ID order within a priority
      *
      * @return Collection with DeliverableAndesMetadata
      */
@@ -281,20 +302,46 @@ public class MessageHandler {
      * @param message message metadata to buffer
      */
     public void bufferMessage(DeliverableAndesMetadata message) {
-        readButUndeliveredMessages.putIfAbsent(message.getMessageID(), message);
+        if (message.getDeliveryTime() > System.currentTimeMillis()) {
+            delayedMessageCount.incrementAndGet();
+            MessageFlusher.getInstance().getDelayedDeliveryScheduler().schedule(this, message);
+            return;
+        }
+        readButUndeliveredMessages.putIfAbsent(message);
         message.markAsBuffered();
         MessageTracer.trace(message, MessageTracer.METADATA_BUFFERED_FOR_DELIVERY);
     }
 
 
     /**
-     * Returns boolean variable saying whether this destination has room or not
+     * Buffer a message which was held back until its delivery time. The message is dropped if its slot was returned
+     * or removed meanwhile, since the message is then read again or no longer needs delivery.
+     *
+     * @param message message whose delivery time has been reached
+     */
+    void releaseDelayedMessage(DeliverableAndesMetadata message) {
+        delayedMessageCount.decrementAndGet();
+        if (message.isStale() || (MessageStatus.READ != message.getLatestState())) {
+            if (log.isDebugEnabled()) {
+                log.debug("Delayed message id= " + message.getMessageID() + " is not buffered since it is in state "
+                        + message.getLatestState());
+            }
+            return;
+        }
+        bufferMessage(message);
+        messageDeliveryManager.wakeUpDeliveryForQueue(queueName);
+    }
+
+    /**
+     * Returns boolean variable saying whether this destination has room or not. Messages held back until their
+     * delivery time are checked against their own limit.
      *
      * @return whether this destination has room or not
      */
     public boolean messageBufferHasRoom() {
         boolean hasRoom = true;
-        if (readButUndeliveredMessages.size() >= maxNumberOfReadButUndeliveredMessages) {
+        if ((readButUndeliveredMessages.size() >= maxNumberOfReadButUndeliveredMessages)
+                || (delayedMessageCount.get() >= maxNumberOfDelayedMessages)) {
             hasRoom = false;
         }
         return hasRoom;
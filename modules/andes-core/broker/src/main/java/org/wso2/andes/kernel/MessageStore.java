@@ -77,6 +77,20 @@ public interface MessageStore extends HealthAwareStore {
      */
     void storeMessages(List<AndesMessage> messageList) throws AndesException;
 
+    /**
+     * Store messages of an open transaction under a staging queue. Staged messages are never delivered since no
+     * subscriber is bound to a staging queue. When messages referring to the staged ids are stored through
+     * {@link #storeMessages(List)}, staged messages are kept as shared content of those messages without writing the
+     * content again, and are reclaimed through {@link #reclaimSharedContent(long, int)}. Staged messages which are not
+     * published are discarded using {@link #deleteMessages(List)}. Messages left in a staging queue are discarded
+     * using {@link #deleteAllMessageMetadata(String)}.
+     *
+     * @param stagingQueueName storage queue the messages are staged under
+     * @param messageList      messages to be staged, each message should have a staged message id
+     * @throws AndesException
+     */
+    void stageMessages(String stagingQueueName, List<AndesMessage> messageList) throws AndesException;
+
     /**
      * Store a message in a different Queue without altering the meta data.
      *
@@ -203,6 +217,33 @@ public interface MessageStore extends HealthAwareStore {
     List<AndesMessageMetadata> getNextNMessageMetadataFromDLC(String dlcQueueName, long firstMsgId, int count)
             throws AndesException;
 
+    /**
+     * Delete all messages of a queue within a message id range with a single operation. Content and expiry data of
+     * the messages are removed along with them, and cached content is evicted. Messages of the queue which are in
+     * the dead letter channel are not affected. Caller must make sure no message in the range is still pending
+     * delivery.
+     *
+     * @param storageQueueName name of the queue
+     * @param firstMsgId       first message id of the range, inclusive
+     * @param lastMsgId        last message id of the range, inclusive
+     * @return number of messages deleted
+     * @throws AndesException
+     */
+    int deleteMessageMetadataInRange(final String storageQueueName, long firstMsgId, long lastMsgId)
+            throws AndesException;
+
+    /**
+     * Remove content stored once for messages routed to several queues (see
+     * {@link AndesMessage#getSharedContentID()}) which is no longer referred to by any message. Shared contents are
+     * inspected one batch at a time in id order.
+     *
+     * @param lastSharedContentID shared content id to continue after, 0 to start from the beginning
+     * @param batchSize           maximum number of shared contents to inspect
+     * @return id of the last shared content inspected, 0 if no shared content is left after this batch
+     * @throws AndesException
+     */
+    long reclaimSharedContent(long lastSharedContentID, int batchSize) throws AndesException;
+
     /**
      * delete message metadata of messages for a queue
      *
@@ -242,6 +283,21 @@ public interface MessageStore extends HealthAwareStore {
      */
     void deleteDLCMessages(List<AndesMessageMetadata> messagesToRemove) throws AndesException;
 
+    /**
+     * Delete all messages of a queue which are in the given dead letter channel within a message id range with a
+     * single operation. Content and expiry data of the messages are removed along with them. Messages of the queue
+     * which are not in the dead letter channel are not affected.
+     *
+     * @param storageQueueName name of the queue the messages originally belonged to
+     * @param dlcQueueName     name of the dead letter channel queue
+     * @param firstMsgId       first message id of the range, inclusive
+     * @param lastMsgId        last message id of the range, inclusive
+     * @return number of messages deleted
+     * @throws AndesException
+     */
+    int deleteDLCMessagesForQueueInRange(String storageQueueName, String dlcQueueName, long firstMsgId,
+            long lastMsgId) throws AndesException;
+
     /**
      * get expired messages from store
      *
@@ -259,6 +315,21 @@ public interface MessageStore extends HealthAwareStore {
      */
     List<Long> getExpiredMessagesFromDLC() throws AndesException;
 
+    /**
+     * Get expiry data of messages which expire within the given period, reading only messages with an id at or
+     * above the given id. Used to populate the expiry schedule without scanning the whole store. Messages are
+     * returned in id order, hence the next page starts after the id of the last message returned.
+     *
+     * @param lowerBoundMessageID lowest message id to read
+     * @param expiryTimeFrom      start of the period, inclusive
+     * @param expiryTimeTo        end of the period, exclusive
+     * @param limit               maximum number of messages to read
+     * @return message id, storage queue name and expiration time of each message
+     * @throws AndesException
+     */
+    List<AndesMessageMetadata> getExpiringMessages(long lowerBoundMessageID, long expiryTimeFrom, long expiryTimeTo,
+                                                   int limit) throws AndesException;
+
     /**
      * add messages to expiry queue
      *
@@ -234,6 +234,27 @@ public class MessagingEngine {
         messageStore.deleteDLCMessages(messagesToRemove);
     }
 
+    /**
+     * Delete all messages of a queue which are in the dead letter channel within a message id range, along with their
+     * content and expiry data, and decrement the message counter of the dead letter channel accordingly.
+     *
+     * @param storageQueueName name of the queue the messages originally belonged to
+     * @param dlcQueueName     name of the dead letter channel queue
+     * @param firstMessageId   first message id of the range
+     * @param lastMessageId    last message id of the range
+     * @return number of messages deleted
+     * @throws AndesException
+     */
+    public int deleteDLCMessagesInRange(String storageQueueName, String dlcQueueName, long firstMessageId,
+            long lastMessageId) throws AndesException {
+        int deletedCount = messageStore.deleteDLCMessagesForQueueInRange(storageQueueName, dlcQueueName,
+                firstMessageId, lastMessageId);
+        if (deletedCount > 0) {
+            messageStore.decrementMessageCountForQueue(dlcQueueName, deletedCount);
+        }
+        return deletedCount;
+    }
+
     /**
      * Delete messages from store. Optionally move to dead letter channel.  Delete
      * call is blocking and then slot message count is dropped in order. Message state
@@ -373,6 +394,39 @@ public class MessagingEngine {
         return messageStore.getMessageCountForQueueInRange(storageQueueName, firstMessageId, lastMessageId);
     }
 
+    /**
+     * Delete all messages of a queue within a message id range, along with their content and expiry data, and
+     * decrement the message counter of the queue accordingly. Messages of the queue in the dead letter channel are
+     * not affected. Messages in the range must not be buffered for delivery, the caller clears them first.
+     *
+     * @param storageQueueName name of the queue
+     * @param firstMessageId   first message id of the range
+     * @param lastMessageId    last message id of the range
+     * @return number of messages deleted
+     * @throws AndesException
+     */
+    public int deleteMessagesInRange(final String storageQueueName, long firstMessageId, long lastMessageId)
+            throws AndesException {
+        int deletedCount = messageStore.deleteMessageMetadataInRange(storageQueueName, firstMessageId,
+                lastMessageId);
+        if (deletedCount > 0) {
+            messageStore.decrementMessageCountForQueue(storageQueueName, deletedCount);
+        }
+        return deletedCount;
+    }
+
+    /**
+     * Remove shared content of fanned out messages which is no longer referred to by any message
+     *
+     * @param lastSharedContentID shared content id to continue after, 0 to start from the beginning
+     * @param batchSize           maximum number of shared contents to inspect
+     * @return id of the last shared content inspected, 0 if no shared content is left after this batch
+     * @throws AndesException
+     */
+    public long reclaimSharedContent(long lastSharedContentID, int batchSize) throws AndesException {
+        return messageStore.reclaimSharedContent(lastSharedContentID, batchSize);
+    }
+
     /**
      * Get message count in DLC for a specific queue.
      *
@@ -475,6 +529,21 @@ public class MessagingEngine {
         return messageStore.getExpiredMessagesFromDLC();
     }
 
+    /**
+     * Get expiry data of messages expiring within the given period, starting from the given message id
+     *
+     * @param lowerBoundMessageID lowest message id to read
+     * @param expiryTimeFrom      start of the period, inclusive
+     * @param expiryTimeTo        end of the period, exclusive
+     * @param limit               maximum number of messages to read
+     * @return message id, storage queue name and expiration time of each message, in id order
+     * @throws AndesException
+     */
+    public List<AndesMessageMetadata> getExpiringMessages(long lowerBoundMessageID, long expiryTimeFrom,
+                                                          long expiryTimeTo, int limit) throws AndesException {
+        return messageStore.getExpiringMessages(lowerBoundMessageID, expiryTimeFrom, expiryTimeTo, limit);
+    }
+
     /**
      * Update the meta data for the given message with the given information in the AndesMetaData. Update destination
      * and meta data bytes.
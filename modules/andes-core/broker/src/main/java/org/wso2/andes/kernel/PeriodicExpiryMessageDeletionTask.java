@@ -17,25 +17,40 @@
 package org.wso2.andes.kernel;
 
 import com.google.common.util.concurrent.SettableFuture;
+import com.gs.collections.impl.set.mutable.primitive.LongHashSet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.slot.AbstractSlotManager;
 import org.wso2.andes.kernel.slot.SlotManagerClusterMode;
 import org.wso2.andes.kernel.slot.SlotManagerStandalone;
+import org.wso2.andes.server.cluster.coordination.TimeStampBasedMessageIdGenerator;
 import org.wso2.andes.store.FailureObservingStoreManager;
 import org.wso2.andes.store.HealthAwareStore;
 import org.wso2.andes.store.StoreHealthListener;
 import org.wso2.andes.tools.utils.MessageTracer;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * PeriodicExpiryMessageDeletionTask is responsible to delete the expired messages from the database which were not currently
  * allocated to any slots. If we delete any messages that are assigned to a slot delivery worker, the
  * content may got deleted when the content is asked to retrieve. This can mess up the message delivery
  * flow. Because of that the messages not allocated to a slot are considered as safe to delete
+ * <p>
+ * Rather than querying every queue for expired messages, expiry data is loaded from the store once every load
+ * interval and kept in a {@link HierarchicalTimerWheel}. Each load reads the messages expiring before the next load,
+ * and the messages stored since the previous load which expire within the period already loaded. The task runs on
+ * every timer tick and deletes the messages which have become due, hence the work done depends on the number of
+ * messages expiring rather than the number of messages in the store.
+ * </p>
  */
 public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthListener {
 
@@ -62,6 +77,42 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
      */
     protected boolean isClusteringEnabled;
 
+    /**
+     * Messages loaded from the store, scheduled at their expiration time
+     */
+    private final HierarchicalTimerWheel<AndesMessageMetadata> expirySchedule;
+
+    /**
+     * Ids of the messages in the expiry schedule. A message could be read by two consecutive loads.
+     */
+    private final LongHashSet scheduledMessageIds = new LongHashSet();
+
+    /**
+     * Interval between two loads of expiry data, in milliseconds
+     */
+    private final long loadInterval;
+
+    /**
+     * Maximum number of messages deleted in one store operation. Expiry data is read from the store in pages of the
+     * same size.
+     */
+    private final int deletionBatchSize;
+
+    /**
+     * Expiry data of the messages which expire before this time have been loaded. Zero if nothing is loaded.
+     */
+    private long loadedUntil;
+
+    /**
+     * Time expiry data was last loaded at
+     */
+    private long lastLoadTime;
+
+    /**
+     * Time expiry data should be loaded next
+     */
+    private long nextLoadTime;
+
     public PeriodicExpiryMessageDeletionTask() {
 
         this.messageStoresUnavailable = null;
@@ -76,10 +127,23 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
             this.abstractSlotManagerSlotManager = SlotManagerStandalone.getInstance();
         }
 
+        int loadIntervalInSeconds = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_PERIODIC_EXPIRY_MESSAGE_DELETION_INTERVAL);
+        int tickInterval = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_TIMER_TICK_INTERVAL);
+        deletionBatchSize = AndesConfigurationManager.readValue
+                (AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_EXPIRATION_BATCH_SIZE);
+
+        long now = System.currentTimeMillis();
+        loadInterval = TimeUnit.SECONDS.toMillis(loadIntervalInSeconds);
+        expirySchedule = new HierarchicalTimerWheel<>(tickInterval, now);
+        // First load happens after one interval, as the first scan used to
+        nextLoadTime = now + loadInterval;
     }
 
     /**
-     * Get the expiry messages queue wise from unallocated region  and delete those from DB
+     * Load expiry data when due and delete the messages which have expired from the unallocated region of their
+     * queues
      */
     protected void deleteExpiredMessages(){
 
@@ -90,59 +154,28 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
             if (!isClusteringEnabled
                     || (isClusteringEnabled && AndesContext.getInstance().getClusterAgent().isCoordinator())) {
 
-                Set<String> queues = abstractSlotManagerSlotManager.getAllQueues();
-
-                for (String queueName : queues) {
-
-                    long currentDeletionRangeLowerBoundId = abstractSlotManagerSlotManager
-                            .getSafeZoneLowerBoundId(queueName);
-                    /**
-                     * Get the expired messages for that queue in the range of message ID starting form the lower
-                     * bound ID. Lower bound id -1 represents that there is no valid region to perform the delete
-                     */
-                    if(currentDeletionRangeLowerBoundId != -1) {
-
-                        List<Long> expiredMessages = MessagingEngine.getInstance()
-                                .getExpiredMessages(currentDeletionRangeLowerBoundId, queueName);
-
-                        /*
-                        * Checks for the message store availability if its not available
-                        * Deletion task needs to await until message store becomes available
-                        */
-                        if (null != messageStoresUnavailable) {
-                            log.info("Message store has become unavailable therefore expiry message deletion task waiting"
-
-                                    + " until store becomes available");
-                            //act as a barrier
-                            messageStoresUnavailable.get();
-                            log.info("Message store became available. Resuming expiry message deletion task");
-                            messageStoresUnavailable = null; // we are passing the blockade
-                            // (therefore clear the it).
-                        }
-
-                        if ((null != expiredMessages) && (!expiredMessages.isEmpty())) {
-
-                            //Tracing message activity
-                            if (MessageTracer.isEnabled()) {
-                                for (Long messageId : expiredMessages) {
-                                    MessageTracer.trace(messageId, "", MessageTracer
-                                            .EXPIRED_MESSAGE_DETECTED_FROM_DATABASE);
-                                }
-                            }
-                            //delete message metadata, content from the meta data table, content table and expiry table
-                            MessagingEngine.getInstance().deleteMessagesById(expiredMessages);
-
-                            if (log.isDebugEnabled()) {
-                                log.debug("Expired message count for queue : " + queueName + "is" + expiredMessages.size());
-                            }
-                        }
-                        //clear the safe deletion state in the slot manager after deletion completes
-                        abstractSlotManagerSlotManager.clearDeletionTaskState();
-                    }
+                long now = System.currentTimeMillis();
+
+                if (now >= nextLoadTime) {
+                    awaitMessageStores();
+                    loadExpiryData(now);
+                    nextLoadTime = now + loadInterval;
+                }
+
+                List<AndesMessageMetadata> expiredMessages = expirySchedule.advance(now);
+
+                if (!expiredMessages.isEmpty()) {
+                    awaitMessageStores();
+                    deleteMessages(expiredMessages);
                 }
+            } else if (0 != loadedUntil) {
+                // Some other node is the coordinator. Start over if this node becomes the coordinator again since
+                // messages could be stored and deleted meanwhile
+                expirySchedule.clear();
+                scheduledMessageIds.clear();
+                loadedUntil = 0;
+                lastLoadTime = 0;
             }
-            //sleep the message expiration worker for specified amount of time
-            // sleepForWaitInterval(workerWaitInterval);
         } catch (AndesException e) {
             log.error("Error running Message Expiration Checker " + e.getMessage(), e);
         } catch (InterruptedException e) {
@@ -155,6 +188,175 @@ public class PeriodicExpiryMessageDeletionTask implements Runnable, StoreHealthL
 
     }
 
+    /**
+     * Checks whether expiry data is due to be loaded from the store on this run
+     *
+     * @return true if expiry data will be loaded
+     */
+    protected boolean isExpiryDataLoadDue() {
+        return System.currentTimeMillis() >= nextLoadTime;
+    }
+
+    /**
+     * Reads expiry data from the store and schedules the messages at their expiration time
+     *
+     * @param now current time
+     * @throws AndesException if the store could not be read
+     */
+    private void loadExpiryData(long now) throws AndesException {
+        long loadUntil = now + loadInterval;
+        int scheduledCount = 0;
+
+        if (0 != loadedUntil) {
+            // Messages stored since the last load which expire within the period already loaded. Ids are generated
+            // before messages are stored, hence messages with ids generated one interval before the last load are
+            // read again.
+            long lowerBoundMessageID = TimeStampBasedMessageIdGenerator
+                    .getFirstIdForTimestamp(lastLoadTime - loadInterval);
+            scheduledCount = scheduledCount + scheduleExpiringMessages(lowerBoundMessageID, 0, loadedUntil);
+        }
+
+        // Messages expiring before the next load. On the first load this includes every message which has already
+        // expired.
+        scheduledCount = scheduledCount + scheduleExpiringMessages(0, loadedUntil, loadUntil);
+
+        loadedUntil = loadUntil;
+        lastLoadTime = now;
+
+        if (log.isDebugEnabled()) {
+            log.debug("Scheduled " + scheduledCount + " messages for expiry. Messages in expiry schedule: "
+                    + expirySchedule.size());
+        }
+    }
+
+    /**
+     * Reads expiry data of the messages expiring within the given period page by page in id order, and schedules
+     * the messages at their expiration time
+     *
+     * @param lowerBoundMessageID lowest message id to read
+     * @param expiryTimeFrom      start of the period, inclusive
+     * @param expiryTimeTo        end of the period, exclusive
+     * @return number of messages newly scheduled
+     * @throws AndesException if the store could not be read
+     */
+    private int scheduleExpiringMessages(long lowerBoundMessageID, long expiryTimeFrom, long expiryTimeTo)
+            throws AndesException {
+        int scheduledCount = 0;
+        List<AndesMessageMetadata> expiringMessages;
+        do {
+            expiringMessages = MessagingEngine.getInstance().getExpiringMessages(lowerBoundMessageID, expiryTimeFrom,
+                    expiryTimeTo, deletionBatchSize);
+            for (AndesMessageMetadata message : expiringMessages) {
+                if (scheduledMessageIds.add(message.getMessageID())) {
+                    expirySchedule.schedule(message.getExpirationTime(), message);
+                    scheduledCount++;
+                }
+            }
+            if (!expiringMessages.isEmpty()) {
+                lowerBoundMessageID = expiringMessages.get(expiringMessages.size() - 1).getMessageID() + 1;
+            }
+        } while (expiringMessages.size() >= deletionBatchSize);
+        return scheduledCount;
+    }
+
+    /**
+     * Deletes expired messages queue wise. Only the messages within the safe deletion range of the queue are deleted,
+     * the rest are in or close to the delivery path and are removed by the pre delivery expiry check.
+     *
+     * @param expiredMessages messages which have expired
+     * @throws AndesException if the safe deletion range could not be calculated
+     */
+    private void deleteMessages(List<AndesMessageMetadata> expiredMessages) throws AndesException {
+
+        Map<String, List<AndesMessageMetadata>> queueSeparatedMessages = new HashMap<>();
+        for (AndesMessageMetadata message : expiredMessages) {
+            scheduledMessageIds.remove(message.getMessageID());
+            List<AndesMessageMetadata> messagesOfQueue = queueSeparatedMessages.get(message.getStorageQueueName());
+            if (null == messagesOfQueue) {
+                messagesOfQueue = new ArrayList<>();
+                queueSeparatedMessages.put(message.getStorageQueueName(), messagesOfQueue);
+            }
+            messagesOfQueue.add(message);
+        }
+
+        Set<String> queues = abstractSlotManagerSlotManager.getAllQueues();
+
+        for (Map.Entry<String, List<AndesMessageMetadata>> entry : queueSeparatedMessages.entrySet()) {
+
+            String queueName = entry.getKey();
+            if (!queues.contains(queueName)) {
+                continue;
+            }
+
+            long currentDeletionRangeLowerBoundId = abstractSlotManagerSlotManager.getSafeZoneLowerBoundId(queueName);
+            /**
+             * Lower bound id -1 represents that there is no valid region to perform the delete
+             */
+            if (currentDeletionRangeLowerBoundId == -1) {
+                continue;
+            }
+
+            try {
+                List<Long> messageIdsToDelete = new ArrayList<>();
+                for (AndesMessageMetadata message : entry.getValue()) {
+                    if (message.getMessageID() < currentDeletionRangeLowerBoundId) {
+                        continue;
+                    }
+                    messageIdsToDelete.add(message.getMessageID());
+                    //Tracing message activity
+                    if (MessageTracer.isEnabled()) {
+                        MessageTracer.trace(message.getMessageID(), "", MessageTracer
+                                .EXPIRED_MESSAGE_DETECTED_FROM_DATABASE);
+                    }
+
+                    if (messageIdsToDelete.size() >= deletionBatchSize) {
+                        MessagingEngine.getInstance().deleteMessagesById(messageIdsToDelete);
+                        messageIdsToDelete = new ArrayList<>();
+                    }
+                }
+
+                //delete message metadata, content from the meta data table, content table and expiry table
+                if (!messageIdsToDelete.isEmpty()) {
+                    MessagingEngine.getInstance().deleteMessagesById(messageIdsToDelete);
+                }
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Expired message count for queue : " + queueName + " is " + entry.getValue().size());
+                }
+            } catch (AndesException e) {
+                log.error("Error deleting expired messages of queue " + queueName + ". Deletion will be retried", e);
+                // Already expired, hence released again on the next run
+                for (AndesMessageMetadata message : entry.getValue()) {
+                    if (scheduledMessageIds.add(message.getMessageID())) {
+                        expirySchedule.schedule(message.getExpirationTime(), message);
+                    }
+                }
+            } finally {
+                //clear the safe deletion state in the slot manager after deletion completes
+                abstractSlotManagerSlotManager.clearDeletionTaskState();
+            }
+        }
+    }
+
+    /**
+     * Checks for the message store availability if its not available
+     * Deletion task needs to await until message store becomes available
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException   if an error occurred while waiting
+     */
+    private void awaitMessageStores() throws InterruptedException, ExecutionException {
+        if (null != messageStoresUnavailable) {
+            log.info("Message store has become unavailable therefore expiry message deletion task waiting"
+                    + " until store becomes available");
+            //act as a barrier
+            messageStoresUnavailable.get();
+            log.info("Message store became available. Resuming expiry message deletion task");
+            messageStoresUnavailable = null; // we are passing the blockade
+            // (therefore clear the it).
+        }
+    }
+
     @Override
     public void run() {
         //delete the expired messages queue wise from safe deletion range
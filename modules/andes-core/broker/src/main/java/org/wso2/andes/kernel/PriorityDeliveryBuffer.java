@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-ahead buffer of messages of a storage queue which are scheduled to be delivered.
+ * <p>
+ * Messages are kept in one lane per priority, each lane ordered by message ID. Messages are handed out for delivery
+ * from the highest priority lane first, so that a high priority message which is read into the buffer does not wait
+ * behind lower priority messages read before it. Lanes are created when the first message of the priority is
+ * buffered, hence queues which do not use priorities keep a single lane.
+ * </p>
+ */
+public class PriorityDeliveryBuffer {
+
+    /**
+     * Lanes indexed by priority
+     */
+    private final AtomicReferenceArray<ConcurrentNavigableMap<Long, DeliverableAndesMetadata>> lanes =
+            new AtomicReferenceArray<>(AndesMessageMetadata.MAX_PRIORITY + 1);
+
+    /**
+     * Number of messages in all lanes, kept separately since sizing a skip list walks the list
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * View of buffered messages in delivery order
+     */
+    private final Collection<DeliverableAndesMetadata> deliveryOrderView = new DeliveryOrderView();
+
+    /**
+     * Buffer a message if a message with the same ID is not buffered already
+     *
+     * @param message message to buffer
+     * @return true if the message was buffered
+     */
+    public boolean putIfAbsent(DeliverableAndesMetadata message) {
+        ConcurrentNavigableMap<Long, DeliverableAndesMetadata> lane = getOrCreateLane(message.getPriority());
+        if (null == lane.putIfAbsent(message.getMessageID(), message)) {
+            size.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get buffered messages, highest priority first and in message ID order within a priority. Messages delivered
+     * should be removed through the iterator of the returned collection.
+     *
+     * @return weakly consistent view of buffered messages
+     */
+    public Collection<DeliverableAndesMetadata> values() {
+        return deliveryOrderView;
+    }
+
+    /**
+     * @return number of buffered messages
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Remove all buffered messages
+     */
+    public void clear() {
+        for (int priority = 0; priority < lanes.length(); priority++) {
+            ConcurrentNavigableMap<Long, DeliverableAndesMetadata> lane = lanes.get(priority);
+            if (null != lane) {
+                while (null != lane.pollFirstEntry()) {
+                    size.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private ConcurrentNavigableMap<Long, DeliverableAndesMetadata> getOrCreateLane(int priority) {
+        ConcurrentNavigableMap<Long, DeliverableAndesMetadata> lane = lanes.get(priority);
+        if (null == lane) {
+            lanes.compareAndSet(priority, null, new ConcurrentSkipListMap<Long, DeliverableAndesMetadata>());
+            lane = lanes.get(priority);
+        }
+        return lane;
+    }
+
+    /**
+     * Collection view chaining lanes from the highest priority to the lowest
+     */
+    private class DeliveryOrderView extends AbstractCollection<DeliverableAndesMetadata> {
+
+        @Override
+        public Iterator<DeliverableAndesMetadata> iterator() {
+            return new DeliveryOrderIterator();
+        }
+
+        @Override
+        public int size() {
+            return PriorityDeliveryBuffer.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return 0 == PriorityDeliveryBuffer.this.size();
+        }
+    }
+
+    private class DeliveryOrderIterator implements Iterator<DeliverableAndesMetadata> {
+
+        /**
+         * Priority of the lane being iterated
+         */
+        private int priority = lanes.length();
+
+        private Iterator<Map.Entry<Long, DeliverableAndesMetadata>> laneIterator;
+
+        private ConcurrentNavigableMap<Long, DeliverableAndesMetadata> lane;
+
+        private DeliverableAndesMetadata lastReturned;
+
+        /**
+         * Lane of the message last returned, iteration may have moved on to the next lane since
+         */
+        private ConcurrentNavigableMap<Long, DeliverableAndesMetadata> lastReturnedLane;
+
+        @Override
+        public boolean hasNext() {
+            while (null == laneIterator || !laneIterator.hasNext()) {
+                if (0 == priority) {
+                    return false;
+                }
+                priority--;
+                lane = lanes.get(priority);
+                laneIterator = (null == lane) ? null : lane.entrySet().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public DeliverableAndesMetadata next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = laneIterator.next().getValue();
+            lastReturnedLane = lane;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (null == lastReturned) {
+                throw new IllegalStateException();
+            }
+            if (lastReturnedLane.remove(lastReturned.getMessageID(), lastReturned)) {
+                size.decrementAndGet();
+            }
+            lastReturned = null;
+        }
+    }
+}
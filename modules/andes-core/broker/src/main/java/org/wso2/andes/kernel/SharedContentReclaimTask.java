@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Periodically removes message content shared between queues once none of the messages referring to it are left in
+ * the message store.
+ * <p>
+ * The task runs on the coordinator only in a cluster. Shared contents are inspected in batches in id order, a run
+ * stops after a bounded number of batches and the next run continues from there, so that a large store is not
+ * rescanned as a whole on every run.
+ */
+public class SharedContentReclaimTask implements Runnable {
+
+    private static Log log = LogFactory.getLog(SharedContentReclaimTask.class);
+
+    /**
+     * Maximum number of shared contents inspected by a single store call
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of batches inspected in a single run
+     */
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    /**
+     * Shared content id the next batch starts after, 0 when a new scan should be started
+     */
+    private long lastSharedContentID = 0;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        try {
+            AndesContext andesContext = AndesContext.getInstance();
+            if (andesContext.isClusteringEnabled() && !andesContext.getClusterAgent().isCoordinator()) {
+                // Start over if this node becomes the coordinator later, another node may have reclaimed meanwhile
+                lastSharedContentID = 0;
+                return;
+            }
+
+            int batchCount = 0;
+            do {
+                lastSharedContentID = MessagingEngine.getInstance().reclaimSharedContent(lastSharedContentID,
+                        BATCH_SIZE);
+                batchCount++;
+            } while (0 != lastSharedContentID && batchCount < MAX_BATCHES_PER_RUN);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Inspected " + batchCount + " batches of shared message content, next batch starts after "
+                        + lastSharedContentID);
+            }
+        } catch (AndesException e) {
+            log.error("Error occurred while reclaiming shared message content", e);
+        } catch (Throwable e) {
+            // Catch all so that the scheduled executor does not cancel the task
+            log.error("Error occurred while running shared content reclaim task", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter split in to a number of independently updated cells so that concurrent writers with different stripe
+ * hints do not contend on a single atomic value. Cells are spaced a cache line apart to avoid false sharing.
+ * Reading the value sums all cells and is not an atomic snapshot, which is fine for threshold checks.
+ */
+class StripedCounter {
+
+    /**
+     * Number of long slots between two cells. 8 longs make up a 64 byte cache line
+     */
+    private static final int CELL_SPACING = 8;
+
+    private final AtomicLongArray cells;
+
+    private final int stripeMask;
+
+    /**
+     * Create a striped counter
+     *
+     * @param stripes minimum number of stripes. Rounded up to a power of two
+     */
+    StripedCounter(int stripes) {
+        int stripeCount = 1;
+        while (stripeCount < stripes) {
+            stripeCount = stripeCount << 1;
+        }
+        stripeMask = stripeCount - 1;
+        cells = new AtomicLongArray(stripeCount * CELL_SPACING);
+    }
+
+    /**
+     * Add a delta to the cell selected by the stripe hint
+     *
+     * @param stripeHint value used to select the cell. Callers should pass a value that is stable per writer
+     * @param delta      value to add
+     * @return value of the updated cell
+     */
+    long add(long stripeHint, long delta) {
+        int stripe = (int) (stripeHint ^ (stripeHint >>> 32)) & stripeMask;
+        return cells.addAndGet(stripe * CELL_SPACING, delta);
+    }
+
+    /**
+     * @return sum of all cells
+     */
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i = i + CELL_SPACING) {
+            sum = sum + cells.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * @return number of cells in the counter
+     */
+    int getStripeCount() {
+        return stripeMask + 1;
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.log4j.Logger;
 import org.wso2.andes.kernel.Andes;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.andes.kernel.MessageFlusher;
 import org.wso2.andes.kernel.MessageStatus;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.ProtocolDeliveryFailureException;
@@ -31,6 +32,7 @@ import org.wso2.andes.kernel.ProtocolMessage;
 import org.wso2.andes.kernel.SubscriptionAlreadyClosedException;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MessageLatencyTracker;
 import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.tools.utils.MessageTracer;
 import org.wso2.carbon.metrics.manager.Counter;
@@ -99,6 +101,7 @@ public class DeliveryEventHandler implements EventHandler<DeliveryEventData> {
                     if (subscription.isActive()) {
                         //Tracing Message
                         MessageTracer.trace(message, MessageTracer.DISPATCHED_TO_PROTOCOL);
+                        MessageLatencyTracker.onMessageDispatched(message);
 
                         //Adding metrics meter for ack rate
                         Meter messageMeter = MetricManager.meter(Level.INFO, MetricsConstants.MSG_SENT_RATE);
@@ -107,13 +110,20 @@ public class DeliveryEventHandler implements EventHandler<DeliveryEventData> {
                         Counter counter = MetricManager.counter(Level.INFO, MetricsConstants.DEQUEUE_MESSAGES);
                         counter.inc();
 
-                        subscription.getSubscriberConnection().writeMessageToConnection(protocolMessage,
-                                deliveryEventData.getAndesContent());
+                        boolean sent = subscription.getSubscriberConnection().writeMessageToConnection(
+                                protocolMessage, deliveryEventData.getAndesContent());
+
+                        //Subscriber could not take the message at the moment. This is back pressure rather than
+                        //a delivery failure, hence the delivery count is rolled back
+                        if (!sent) {
+                            onSendError(message, subscription);
+                            rescheduleMessage(message, subscription);
+                        }
 
                     } else {
                         onSendError(message, subscription);
                         onSubscriptionAlreadyClosed(message, subscription);
-                        reQueueMessageIfDurable(message, subscription);
+                        reQueueMessageIfDurable(message, subscription, "subscriber is closed");
                     }
                 } else {
                     // Stale only happens when last subscription is closed and slot is returned. No need to re-queue
@@ -139,12 +149,12 @@ public class DeliveryEventHandler implements EventHandler<DeliveryEventData> {
                 // we log the exception earlier. Hence logging is not required here. We increase delivery count so max
                 // send count delivery rule is evaluated and message is sent to DLC if failure is consistent
                 onDeliveryException(message, subscription);
-                reQueueMessageIfDurable(message, subscription);
+                reQueueMessageIfDurable(message, subscription, "protocol failed to deliver it");
 
             } catch (Throwable e) {
                 log.error("Unexpected error while delivering message. Message id " + message.getMessageID(), e);
                 onDeliveryException(message, subscription);
-                reQueueMessageIfDurable(message, subscription);
+                reQueueMessageIfDurable(message, subscription, "an unexpected error occurred");
 
             } finally {
                 deliveryEventData.clearData();
@@ -158,20 +168,39 @@ public class DeliveryEventHandler implements EventHandler<DeliveryEventData> {
      *
      * @param message      message metadata to re-queue
      * @param subscription subscription to check on
+     * @param reason       why the message could not be sent, for logging
      * @throws AndesException on re-queue error
      */
-    private void reQueueMessageIfDurable(DeliverableAndesMetadata message, AndesSubscription subscription)
-            throws AndesException {
+    private void reQueueMessageIfDurable(DeliverableAndesMetadata message, AndesSubscription subscription,
+                                         String reason) throws AndesException {
         if (subscription.isDurable()) {
             StorageQueue storageQueue = subscription.getStorageQueue();
             storageQueue.bufferMessageForDelivery(message);
         } else {
             if (!message.isOKToDispose()) {
-                log.warn("Cannot send message id= " + message.getMessageID() + " as subscriber is closed");
+                log.warn("Cannot send message id= " + message.getMessageID() + " as " + reason);
             }
         }
     }
 
+    /**
+     * Deliver a message again which the subscriber could not take at the moment. A durable subscription gets it
+     * back through its storage queue. A non-durable message was scheduled to every matching subscription of the
+     * queue at once, hence it is scheduled again to this subscription only, shortly after.
+     *
+     * @param message      message the subscriber did not take
+     * @param subscription subscription to deliver the message to
+     * @throws AndesException on re-queue error
+     */
+    private void rescheduleMessage(DeliverableAndesMetadata message, AndesSubscription subscription)
+            throws AndesException {
+        if (subscription.isDurable()) {
+            subscription.getStorageQueue().bufferMessageForDelivery(message);
+        } else {
+            MessageFlusher.getInstance().redeliverMessageLater(subscription, message);
+        }
+    }
+
     /**
      * Called when a delivery failure happened due to channel is already closed
      *
@@ -89,7 +89,7 @@ public class ContentChunkHandler implements EventHandler<InboundEventContainer>
     private void handleTransaction(InboundEventContainer event, long sequence) {
         AndesMessage message = resizeContentChunks(event.popMessage(), sequence);
         event.addMessage(message);
-        event.getTransactionEvent().addMessages(event.getMessageList());
+        event.getTransactionEvent().addEnqueuedMessages(event.getMessageList());
     }
 
     /**
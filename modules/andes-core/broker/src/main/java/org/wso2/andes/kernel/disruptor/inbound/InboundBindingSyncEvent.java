@@ -19,7 +19,11 @@ package org.wso2.andes.kernel.disruptor.inbound;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesContextInformationManager;
+import org.wso2.andes.kernel.AndesBinding;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
+
+import java.util.List;
 
 /**
  * Inbound event for disruptor representing a binding change notification
@@ -55,26 +59,30 @@ public class InboundBindingSyncEvent implements AndesInboundStateEvent {
     private EventType eventType;
 
 
-    private String encodedBindingInfo;
+    /**
+     * Bindings encoded by {@link ClusterNotificationCodec}
+     */
+    private byte[] encodedBindingInfo;
 
     /**
      * Create a event representing a binding change
      *
      * @param encodedBindingInfo encoded information of
-     *                           a {@link org.wso2.andes.kernel.AndesBinding}
+     *                           one or more {@link org.wso2.andes.kernel.AndesBinding}s
      */
-    public InboundBindingSyncEvent(String encodedBindingInfo) {
+    public InboundBindingSyncEvent(byte[] encodedBindingInfo) {
         this.encodedBindingInfo = encodedBindingInfo;
     }
 
     /**
-     * Get string representation of
-     * a {@link org.wso2.andes.kernel.AndesBinding}
+     * Decode the bindings carried by the event. Bound queues are resolved from the
+     * storage queue registry.
      *
-     * @return String with binding information
+     * @return bindings in the order they were notified
+     * @throws AndesException if the encoded information is malformed or a bound queue is not registered
      */
-    public String getEncodedBindingInfo() {
-        return encodedBindingInfo;
+    public List<AndesBinding> getBindings() throws AndesException {
+        return ClusterNotificationCodec.decodeBindings(encodedBindingInfo);
     }
 
     /**
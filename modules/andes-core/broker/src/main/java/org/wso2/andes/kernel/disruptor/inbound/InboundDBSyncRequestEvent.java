@@ -27,6 +27,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.router.AndesMessageRouter;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -114,19 +115,23 @@ public class InboundDBSyncRequestEvent implements AndesInboundStateEvent {
         List<AndesMessageRouter> copyOfMessageRoutersStored = new ArrayList<>(messageRoutersStored);
 
         messageRoutersStored.removeAll(messageRoutersInMemory);
-        for (AndesMessageRouter messageRouter : messageRoutersStored) {
-            log.warn("Recovering node. Adding exchange " + messageRouter.toString());
+        if (!messageRoutersStored.isEmpty()) {
+            for (AndesMessageRouter messageRouter : messageRoutersStored) {
+                log.warn("Recovering node. Adding exchange " + messageRouter.toString());
+            }
             InboundExchangeSyncEvent exchangeCreateEvent =
-                    new InboundExchangeSyncEvent(messageRouter.encodeAsString());
+                    new InboundExchangeSyncEvent(ClusterNotificationCodec.encodeMessageRouters(messageRoutersStored));
             exchangeCreateEvent.prepareForCreateExchangeSync(contextInformationManager);
             exchangeCreateEvent.updateState();
         }
 
         messageRoutersInMemory.removeAll(copyOfMessageRoutersStored);
-        for (AndesMessageRouter messageRouter : messageRoutersInMemory) {
-            log.warn("Recovering node. Removing exchange " + messageRouter.toString());
+        if (!messageRoutersInMemory.isEmpty()) {
+            for (AndesMessageRouter messageRouter : messageRoutersInMemory) {
+                log.warn("Recovering node. Removing exchange " + messageRouter.toString());
+            }
             InboundExchangeSyncEvent exchangeDeleteEvent =
-                    new InboundExchangeSyncEvent(messageRouter.encodeAsString());
+                    new InboundExchangeSyncEvent(ClusterNotificationCodec.encodeMessageRouters(messageRoutersInMemory));
             exchangeDeleteEvent.prepareForDeleteExchangeSync(contextInformationManager);
             exchangeDeleteEvent.updateState();
         }
@@ -145,17 +150,23 @@ public class InboundDBSyncRequestEvent implements AndesInboundStateEvent {
         List<StorageQueue> copyOfQueuesStored = new ArrayList<>(queuesStored);
 
         queuesStored.removeAll(queuesInMemory);
-        for (StorageQueue queue : queuesStored) {
-            log.warn("Recovering node. Adding queue to queue registry " + queue.toString());
-            InboundQueueSyncEvent queueCreateEvent = new InboundQueueSyncEvent(queue.encodeAsString());
+        if (!queuesStored.isEmpty()) {
+            for (StorageQueue queue : queuesStored) {
+                log.warn("Recovering node. Adding queue to queue registry " + queue.toString());
+            }
+            InboundQueueSyncEvent queueCreateEvent =
+                    new InboundQueueSyncEvent(ClusterNotificationCodec.encodeQueues(queuesStored));
             queueCreateEvent.prepareForSyncCreateQueue(contextInformationManager);
             queueCreateEvent.updateState();
         }
 
         queuesInMemory.removeAll(copyOfQueuesStored);
-        for (StorageQueue queue : queuesInMemory) {
-            log.warn("Recovering node. Removing queue from queue registry " + queue.toString());
-            InboundQueueSyncEvent queueDeleteEvent = new InboundQueueSyncEvent(queue.encodeAsString());
+        if (!queuesInMemory.isEmpty()) {
+            for (StorageQueue queue : queuesInMemory) {
+                log.warn("Recovering node. Removing queue from queue registry " + queue.toString());
+            }
+            InboundQueueSyncEvent queueDeleteEvent =
+                    new InboundQueueSyncEvent(ClusterNotificationCodec.encodeQueues(queuesInMemory));
             queueDeleteEvent.prepareForSyncDeleteQueue(contextInformationManager);
             queueDeleteEvent.updateState();
         }
@@ -178,19 +189,23 @@ public class InboundDBSyncRequestEvent implements AndesInboundStateEvent {
             List<AndesBinding> copyOfBindingsStored = new ArrayList<>(bindingsStored);
 
             bindingsStored.removeAll(inMemoryBindings);
-            for (AndesBinding binding : bindingsStored) {
-                log.warn("Recovering node. Adding binding " + binding.toString());
+            if (!bindingsStored.isEmpty()) {
+                for (AndesBinding binding : bindingsStored) {
+                    log.warn("Recovering node. Adding binding " + binding.toString());
+                }
                 InboundBindingSyncEvent bindingCreateEvent =
-                        new InboundBindingSyncEvent(binding.encodeAsString());
+                        new InboundBindingSyncEvent(ClusterNotificationCodec.encodeBindings(bindingsStored));
                 bindingCreateEvent.prepareForAddBindingEvent(contextInformationManager);
                 bindingCreateEvent.updateState();
             }
 
             inMemoryBindings.removeAll(copyOfBindingsStored);
-            for (AndesBinding binding : inMemoryBindings) {
-                log.warn("Recovering node. removing binding " + binding.toString());
+            if (!inMemoryBindings.isEmpty()) {
+                for (AndesBinding binding : inMemoryBindings) {
+                    log.warn("Recovering node. removing binding " + binding.toString());
+                }
                 InboundBindingSyncEvent bindingDeleteEvent =
-                        new InboundBindingSyncEvent(binding.encodeAsString());
+                        new InboundBindingSyncEvent(ClusterNotificationCodec.encodeBindings(inMemoryBindings));
                 bindingDeleteEvent.prepareForRemoveBinding(contextInformationManager);
                 bindingDeleteEvent.updateState();
             }
@@ -18,6 +18,7 @@
 
 package org.wso2.andes.kernel.disruptor.inbound;
 
+import com.google.common.util.concurrent.SettableFuture;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesException;
@@ -25,6 +26,7 @@ import org.wso2.andes.kernel.AndesMessageMetadata;
 import org.wso2.andes.kernel.MessagingEngine;
 
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Class to hold information about deleting messages from dead letter channel event
@@ -41,6 +43,11 @@ public class InboundDeleteDLCMessagesEvent implements AndesInboundStateEvent {
          * Delete messages event related event type
          */
         DELETE_DLC_MESSAGES_EVENT,
+
+        /**
+         * Delete all messages of a queue in the dead letter channel within a message id range
+         */
+        DELETE_DLC_MESSAGES_IN_RANGE_EVENT
     }
 
     /**
@@ -53,6 +60,32 @@ public class InboundDeleteDLCMessagesEvent implements AndesInboundStateEvent {
      */
     private List<AndesMessageMetadata> andesMessageMetadataList;
 
+    /**
+     * Name of the queue the messages to remove by range originally belonged to
+     */
+    private String queueName;
+
+    /**
+     * Name of the dead letter channel queue to remove messages by range from
+     */
+    private String dlcQueueName;
+
+    /**
+     * First message id of the range to remove, inclusive
+     */
+    private long firstMessageId;
+
+    /**
+     * Last message id of the range to remove, inclusive
+     */
+    private long lastMessageId;
+
+    /**
+     * Number of messages removed by range. Set once the event is processed, use
+     * InboundDeleteDLCMessagesEvent#getDeletedCount to wait for it.
+     */
+    private SettableFuture<Integer> deletedCount;
+
     /**
      * Reference to MessagingEngine for message deletion
      */
@@ -67,6 +100,23 @@ public class InboundDeleteDLCMessagesEvent implements AndesInboundStateEvent {
         this.andesMessageMetadataList = messagesToRemove;
     }
 
+    /**
+     * Delete all messages of a queue in the dead letter channel within a message id range.
+     *
+     * @param queueName      name of the queue the messages originally belonged to
+     * @param dlcQueueName   name of the dead letter channel queue
+     * @param firstMessageId first message id of the range, inclusive
+     * @param lastMessageId  last message id of the range, inclusive
+     */
+    public InboundDeleteDLCMessagesEvent(String queueName, String dlcQueueName, long firstMessageId,
+            long lastMessageId) {
+        this.queueName = queueName;
+        this.dlcQueueName = dlcQueueName;
+        this.firstMessageId = firstMessageId;
+        this.lastMessageId = lastMessageId;
+        this.deletedCount = SettableFuture.create();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -76,6 +126,9 @@ public class InboundDeleteDLCMessagesEvent implements AndesInboundStateEvent {
             case DELETE_DLC_MESSAGES_EVENT:
                 messagingEngine.deleteDLCMessages(andesMessageMetadataList);
                 break;
+            case DELETE_DLC_MESSAGES_IN_RANGE_EVENT:
+                deleteInRange();
+                break;
             default:
                 log.error("Event type not set properly " + eventType);
                 break;
@@ -99,4 +152,42 @@ public class InboundDeleteDLCMessagesEvent implements AndesInboundStateEvent {
         eventType = EventType.DELETE_DLC_MESSAGES_EVENT;
         this.messagingEngine = messagingEngine;
     }
+
+    /**
+     * Prepare to update Andes state with a delete messages in range event
+     *
+     * @param messagingEngine MessagingEngine to be used for this event
+     */
+    public void prepareForDeleteInRange(MessagingEngine messagingEngine) {
+        eventType = EventType.DELETE_DLC_MESSAGES_IN_RANGE_EVENT;
+        this.messagingEngine = messagingEngine;
+    }
+
+    /**
+     * Wait until the messages in range are deleted. This is a blocking call.
+     *
+     * @return number of messages deleted, 0 if the calling thread was interrupted while waiting
+     * @throws AndesException if the deletion failed
+     */
+    public int getDeletedCount() throws AndesException {
+        try {
+            return deletedCount.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new AndesException("Error while deleting messages of queue " + queueName + " in range "
+                    + firstMessageId + " - " + lastMessageId + " from " + dlcQueueName, e.getCause());
+        }
+        return 0;
+    }
+
+    private void deleteInRange() throws AndesException {
+        try {
+            deletedCount.set(messagingEngine.deleteDLCMessagesInRange(queueName, dlcQueueName, firstMessageId,
+                    lastMessageId));
+        } catch (AndesException | RuntimeException e) {
+            deletedCount.setException(e);
+            throw e;
+        }
+    }
 }
@@ -25,6 +25,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.slot.SlotMessageCounter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -58,6 +59,11 @@ public class InboundEventContainer {
      */
     private InboundMessageList messageList;
 
+    /**
+     * Messages routed by {@link MessageRoutingHandler} waiting for {@link MessagePreProcessor} to assign message ids
+     */
+    private final List<RoutedMessage> routedMessages;
+
     /**
      * MessageId generated by {@link MessagePreProcessor} for slot submit a slot submit after a member left event.
      * This is to avoid lost slot submit events from left member nodes.
@@ -166,6 +172,7 @@ public class InboundEventContainer {
      */
     public InboundEventContainer() {
         setMessageList(new InboundMessageList());
+        routedMessages = new ArrayList<>();
         eventType = Type.IGNORE_EVENT;
         safeZoneLimit = Long.MIN_VALUE;
         freshContent = new AtomicBoolean(true);
@@ -218,6 +225,7 @@ public class InboundEventContainer {
      */
     public void clear() {
         messageList.clear();
+        routedMessages.clear();
         retainMessage = null;
         ackData = null;
         stateEvent = null;
@@ -330,6 +338,24 @@ public class InboundEventContainer {
         messageList.registerClear(andesChannel);
     }
 
+    /**
+     * Add a message routed to storage queues. Copies of the message should already be added to the message list
+     *
+     * @param routedMessage routed message
+     */
+    void addRoutedMessage(RoutedMessage routedMessage) {
+        routedMessages.add(routedMessage);
+    }
+
+    /**
+     * Messages routed to storage queues, in the order they were published
+     *
+     * @return routed messages
+     */
+    List<RoutedMessage> getRoutedMessages() {
+        return routedMessages;
+    }
+
     public AndesChannel getChannel() {
         return channel;
     }
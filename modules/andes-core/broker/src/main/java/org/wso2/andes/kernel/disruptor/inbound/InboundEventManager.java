@@ -51,10 +51,12 @@ import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLER_COUNT;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_CONTENT_CHUNK_HANDLER_COUNT;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_ROUTING_HANDLER_COUNT;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_MESSAGE_WRITER_BATCH_SIZE;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_MESSAGE_WRITERS;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PARALLEL_TRANSACTION_MESSAGE_WRITERS;
 import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_PUBLISHING_BUFFER_SIZE;
+import static org.wso2.andes.configuration.enums.AndesConfiguration.PERFORMANCE_TUNING_SHARED_CONTENT_THRESHOLD;
 import static org.wso2.andes.kernel.disruptor.inbound.InboundEventContainer.Type.ACKNOWLEDGEMENT_EVENT;
 import static org.wso2.andes.kernel.disruptor.inbound.InboundEventContainer.Type.MESSAGE_EVENT;
 import static org.wso2.andes.kernel.disruptor.inbound.InboundEventContainer.Type.PUBLISHER_RECOVERY_EVENT;
@@ -102,6 +104,10 @@ public class InboundEventManager {
                 PERFORMANCE_TUNING_MAX_CONTENT_CHUNK_SIZE);
         int contentChunkHandlerCount = AndesConfigurationManager.readValue(
                 PERFORMANCE_TUNING_CONTENT_CHUNK_HANDLER_COUNT);
+        int routingHandlerCount = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_MESSAGE_ROUTING_HANDLER_COUNT);
+        int sharedContentThreshold = AndesConfigurationManager.readValue(
+                PERFORMANCE_TUNING_SHARED_CONTENT_THRESHOLD);
 
         ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
                 .setNameFormat("DisruptorInboundEventThread-%d").build();
@@ -154,15 +160,21 @@ public class InboundEventManager {
                             new AckHandler(messagingEngine));
         }
 
+        MessageRoutingHandler[] routingHandlers = new MessageRoutingHandler[routingHandlerCount];
+        for (int turn = 0; turn < routingHandlerCount; turn++) {
+            routingHandlers[turn] = new MessageRoutingHandler(turn, routingHandlerCount, sharedContentThreshold);
+        }
+
         MessagePreProcessor preProcessor = new MessagePreProcessor();
         StateEventHandler stateEventHandler = new StateEventHandler();
 
         // Order in which handlers run in Disruptor
         // - ContentChunkHandlers
+        // - MessageRoutingHandlers
         // - MessagePreProcessor
         // - MessageWriters and AckHandlers
         // - StateEventHandler
-        disruptor.handleEventsWith(chunkHandlers).then(preProcessor);
+        disruptor.handleEventsWith(chunkHandlers).then(routingHandlers).then(preProcessor);
         disruptor.after(preProcessor).handleEventsWith(concurrentBatchEventHandlers);
 
         // State event handler update the state of Andes after other handlers work is done.
@@ -19,6 +19,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesContextInformationManager;
 import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
+
+import java.util.List;
 
 /**
  * Inbound event for disruptor representing a message router change notification
@@ -44,9 +48,9 @@ public class InboundExchangeSyncEvent implements AndesInboundStateEvent {
     private EventType eventType;
 
     /**
-     * Exchange as an encoded string
+     * Message routers encoded by {@link ClusterNotificationCodec}
      */
-    private String encodedExchangeInfo;
+    private byte[] encodedExchangeInfo;
 
     /**
      * Reference to AndesContextInformationManager to update create/ remove exchanges
@@ -57,20 +61,21 @@ public class InboundExchangeSyncEvent implements AndesInboundStateEvent {
     /**
      * Create a event representing a message router change
      *
-     * @param exchangeInfo encoded information of a
-     *                     {@link org.wso2.andes.kernel.router.AndesMessageRouter}
+     * @param exchangeInfo encoded information of one or more
+     *                     {@link org.wso2.andes.kernel.router.AndesMessageRouter}s
      */
-    public InboundExchangeSyncEvent(String exchangeInfo) {
+    public InboundExchangeSyncEvent(byte[] exchangeInfo) {
         this.encodedExchangeInfo = exchangeInfo;
     }
 
     /**
-     * Get string representation of a {@link org.wso2.andes.kernel.router.AndesMessageRouter}
+     * Decode the message routers carried by the event
      *
-     * @return String with message router information
+     * @return message routers in the order they were notified
+     * @throws AndesException if the encoded information is malformed
      */
-    public String getEncodedExchangeInfo() {
-        return encodedExchangeInfo;
+    public List<AndesMessageRouter> getMessageRouters() throws AndesException {
+        return ClusterNotificationCodec.decodeMessageRouters(encodedExchangeInfo);
     }
 
     @Override
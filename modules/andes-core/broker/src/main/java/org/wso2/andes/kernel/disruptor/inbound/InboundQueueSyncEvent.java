@@ -22,6 +22,9 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesContextInformationManager;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
+
+import java.util.List;
 
 /**
  * Inbound event for disruptor representing a queue change notification
@@ -58,9 +61,9 @@ public class InboundQueueSyncEvent implements AndesInboundStateEvent {
     }
 
     /**
-     * Queue information encoded as a string
+     * Queue information encoded by {@link ClusterNotificationCodec}
      */
-    private String encodedQueueInfo;
+    private byte[] encodedQueueInfo;
 
     /**
      * Event type this event
@@ -94,23 +97,24 @@ public class InboundQueueSyncEvent implements AndesInboundStateEvent {
     /**
      * Create a event representing a queue change
      *
-     * @param encodedQueueInfo encoded information of a
-     *                         {@link org.wso2.andes.kernel.subscription.StorageQueue}
+     * @param encodedQueueInfo encoded information of one or more
+     *                         {@link org.wso2.andes.kernel.subscription.StorageQueue}s
      */
-    public InboundQueueSyncEvent(String encodedQueueInfo) {
+    public InboundQueueSyncEvent(byte[] encodedQueueInfo) {
         this.encodedQueueInfo = encodedQueueInfo;
         this.purgedCount = SettableFuture.create();
         this.isEventComplete = SettableFuture.create();
     }
 
     /**
-     * Get a mock representation of a StorageQueue coming with event.
-     * This decodes the string representation and create the object.
+     * Get mock representations of the StorageQueues coming with event.
+     * This decodes the encoded information and create the objects.
      *
-     * @return a mock representation of a StorageQueue
+     * @return mock representations of StorageQueues in the order they were notified
+     * @throws AndesException if the encoded information is malformed
      */
-    public StorageQueue toStorageQueue() {
-        return new StorageQueue(encodedQueueInfo);
+    public List<StorageQueue> toStorageQueues() throws AndesException {
+        return ClusterNotificationCodec.decodeQueues(encodedQueueInfo);
     }
 
 
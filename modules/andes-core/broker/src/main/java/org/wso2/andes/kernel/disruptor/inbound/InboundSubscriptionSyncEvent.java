@@ -21,9 +21,12 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.SubscriptionAlreadyExistsException;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.kernel.subscription.AndesSubscriptionManager;
 import org.wso2.andes.kernel.subscription.SubscriptionException;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -69,26 +72,30 @@ public class InboundSubscriptionSyncEvent implements AndesInboundStateEvent {
      */
     private AndesSubscriptionManager subscriptionManager;
 
-    private String encodedSubscriptionEventInfo;
+    /**
+     * Subscriptions encoded by {@link ClusterNotificationCodec}
+     */
+    private byte[] encodedSubscriptionEventInfo;
 
     /**
      * Create a event representing a subscription change
      *
-     * @param encodedSubscription encoded information of a
-     *                            {@link org.wso2.andes.kernel.subscription.AndesSubscription}
+     * @param encodedSubscription encoded information of one or more
+     *                            {@link org.wso2.andes.kernel.subscription.AndesSubscription}s
      */
-    public InboundSubscriptionSyncEvent(String encodedSubscription) {
+    public InboundSubscriptionSyncEvent(byte[] encodedSubscription) {
         this.encodedSubscriptionEventInfo = encodedSubscription;
     }
 
     /**
-     * Get string representation of a {
+     * Decode the subscriptions carried by the event. Storage queues of the subscriptions are
+     * resolved from the storage queue registry.
      *
-     * @return String with subscriber information
-     * @link org.wso2.andes.kernel.subscription.AndesSubscription}
+     * @return subscriptions in the order they were notified
+     * @throws SubscriptionException if the encoded information is malformed or a queue is not registered
      */
-    public String getEncodedSubscription() {
-        return encodedSubscriptionEventInfo;
+    public List<AndesSubscription> getSubscriptions() throws SubscriptionException {
+        return ClusterNotificationCodec.decodeSubscriptions(encodedSubscriptionEventInfo);
     }
 
 
@@ -168,8 +175,8 @@ public class InboundSubscriptionSyncEvent implements AndesInboundStateEvent {
                 throw (SubscriptionAlreadyExistsException) e.getCause();
             } else {
                 // No point in throwing an exception here and disrupting the server. A warning is sufficient.
-                log.warn("Error occurred while processing event '" + eventType + "' for subscriber "
-                        + encodedSubscriptionEventInfo);
+                log.warn("Error occurred while processing event '" + eventType + "' for subscriber. "
+                        + e.getCause().getMessage());
             }
         }
         return false;
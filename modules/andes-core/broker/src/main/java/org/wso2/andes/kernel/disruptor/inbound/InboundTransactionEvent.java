@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.SettableFuture;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesContext;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.AndesMessageMetadata;
@@ -30,10 +31,13 @@ import org.wso2.andes.kernel.slot.SlotMessageCounter;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -73,15 +77,9 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
     private final MessagingEngine messagingEngine;
 
     /**
-     * Maximum batch size for a transaction. Limit is set for content size of the batch.
-     * Exceeding this limit will lead to a failure in the subsequent commit request.
+     * Stages enqueued messages in the message store once the content held in memory exceeds the configured limit
      */
-    private final int maxBatchSize;
-
-    /**
-     * Content batch cached size at a given point in time.
-     */
-    private int currentBatchSize;
+    private final TransactionStagingArea stagingArea;
 
     /**
      * Reference to the channel of the publisher
@@ -121,6 +119,31 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
         this.messageQueue.addAll(messages);
     }
 
+    /**
+     * Add enqueued messages to the transaction. If the content held in memory by the transaction exceeds the
+     * configured limit, messages held in memory are staged in the message store in the background and only their
+     * metadata is kept. This is called by {@link org.wso2.andes.kernel.disruptor.inbound.ContentChunkHandler} once
+     * content chunks of a message are resized.
+     *
+     * @param messages enqueued messages
+     */
+    void addEnqueuedMessages(Collection<AndesMessage> messages) {
+        for (AndesMessage message : messages) {
+            messageQueue.add(message);
+            stagingArea.add(message);
+        }
+    }
+
+    /**
+     * Wait until messages handed over for staging are written to the message store. Called before the messages of
+     * the transaction are routed, so that content of a message is not released while it is being copied.
+     *
+     * @throws AndesException if interrupted while waiting
+     */
+    void awaitStagedMessages() throws AndesException {
+        stagingArea.awaitPendingBatches();
+    }
+
     void clearMessages() {
         this.messageQueue.clear();
     }
@@ -140,27 +163,26 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
         TX_CLOSE_EVENT
     }
 
-    /**
-     *
-     * @param eventManager InboundEventManager
-     */
     /**
      * Transaction object to do a transaction
      * @param messagingEngine {@link org.wso2.andes.kernel.MessagingEngine}
      * @param eventManager InboundEventManager
-     * @param maxBatchSize maximum batch size for a commit
-     * @param channel AndesChannel
+     * @param maxInMemoryContentSize maximum content size kept in memory before staging messages in the store
+     * @param stagingExecutor executor messages of the transaction are staged on
      * @param txWaitTimeout maximum wait time for commit, rollback or close event to complete
+     * @param channel AndesChannel
      */
     public InboundTransactionEvent(MessagingEngine messagingEngine, InboundEventManager eventManager,
-                                   int maxBatchSize, long txWaitTimeout, AndesChannel channel) {
+                                   int maxInMemoryContentSize, ExecutorService stagingExecutor, long txWaitTimeout,
+                                   AndesChannel channel) {
         this.messagingEngine = messagingEngine;
         this.eventManager = eventManager;
         messageQueue = new ConcurrentLinkedQueue<>();
         taskCompleted = SettableFuture.create();
-        this.maxBatchSize = maxBatchSize;
         this.channel = channel;
         this.txWaitTimeout = txWaitTimeout;
+        stagingArea = new TransactionStagingArea(AndesContext.getInstance().getMessageStore(),
+                TransactionStagingArea.getStagingQueueName(), maxInMemoryContentSize, stagingExecutor);
     }
 
     /**
@@ -172,13 +194,6 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
      */
     public void commit() throws AndesException {
 
-        if(currentBatchSize > maxBatchSize) {
-            currentBatchSize = 0;
-            messageQueue.clear();
-            throw new AndesException("Current enqueued batch size exceeds maximum transactional batch size of " +
-            maxBatchSize + " bytes." );
-        }
-
         if (log.isDebugEnabled()) {
             log.debug("Prepare for commit. Channel id: " + channel.getId());
         }
@@ -214,25 +229,19 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
 
     /**
      * Add a message to a transaction. Added messages will be persisted in DB only when
-     * commit is invoked. Underlying event manager will add the message to the the transaction
+     * commit is invoked. Underlying event manager will add the message to the the transaction. The content of a
+     * transaction is not limited in size, content exceeding the in memory limit is staged in the message store.
      *
      * This is a asynchronous call
      * @param message AndesMessage
      */
     public void enqueue(AndesMessage message) {
-        currentBatchSize = currentBatchSize + message.getMetadata().getMessageContentLength();
+        // This will go through ContentChunkHandler and add the message to message list of the transaction
+        eventManager.requestTransactionEnqueueEvent(message, this, channel);
 
-        if (currentBatchSize > maxBatchSize) {
-            messageQueue.clear(); // if max batch size exceeds invalidate commit.
-        } else {
-
-            // This will go through ContentChunkHandler and add the message to message list of the transaction
-            eventManager.requestTransactionEnqueueEvent(message, this, channel);
-
-            if (log.isDebugEnabled()) {
-                log.debug("Enqueue message with message id " +
-                        message.getMetadata().getMessageID() + " for transaction ");
-            }
+        if (log.isDebugEnabled()) {
+            log.debug("Enqueue message with message id " +
+                    message.getMetadata().getMessageID() + " for transaction ");
         }
     }
 
@@ -287,8 +296,10 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
      */
     private void executeCloseEvent() throws AndesException {
         try {
+            // Messages staged by an uncommitted transaction are discarded on close
+            stagingArea.awaitPendingBatches();
+            stagingArea.discard(stagingArea.getStagedMessageIDs());
             messageQueue.clear();
-            currentBatchSize = 0;
             taskCompleted.set(true);
         } catch (Throwable t) {
             // Exception is passed to the the caller who is waiting on the future
@@ -309,9 +320,18 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
             messagesStoredNotCommitted = true;
             // update slot information for transaction related messages
             SlotMessageCounter.getInstance().recordMetadataCountInSlot(getQueuedMessages());
+
+            // Staged messages which are published keep their content in the store, the message writer turns them into
+            // shared content of the published messages. Messages which had no routes at the time of commit are
+            // discarded here.
+            Set<Long> unpublishedMessageIDs = new HashSet<>(stagingArea.getStagedMessageIDs());
+            for (AndesMessage message : messageQueue) {
+                unpublishedMessageIDs.remove(message.getStagedMessageID());
+            }
+            stagingArea.discard(new ArrayList<>(unpublishedMessageIDs));
+
             messageQueue.clear();
             messagesStoredNotCommitted = false; // Once slots are updated rolling back is irrelevant.
-            currentBatchSize = 0;
             taskCompleted.set(true);
         } catch (Throwable t) {
             // Exception is passed to the the caller of get method of settable future
@@ -336,8 +356,9 @@ public class InboundTransactionEvent implements AndesInboundStateEvent {
                 messagesStoredNotCommitted = false;
             }
 
+            stagingArea.awaitPendingBatches();
+            stagingArea.discard(stagingArea.getStagedMessageIDs());
             messageQueue.clear();
-            currentBatchSize = 0;
             taskCompleted.set(true);
         } catch (Throwable t) {
             taskCompleted.setException(t);
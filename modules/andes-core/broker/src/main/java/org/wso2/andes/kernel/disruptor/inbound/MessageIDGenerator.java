@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.wso2.andes.server.ClusterResourceHolder;
+
+/**
+ * Generates IDs. This id generator cannot be used in a multi threaded environment. Removed any locking behaviour to
+ * improve id generation in single threaded approach. Callers sharing a generator across threads should guard it.
+ */
+class MessageIDGenerator {
+
+    /** REFERENCE_START time set to 2011 */
+    private static final long REFERENCE_START = 41L * 365L * 24L * 60L * 60L * 1000L;
+    private int uniqueIdForNode;
+    private long lastTimestamp;
+    private long lastID;
+    private int offset;
+
+    MessageIDGenerator() {
+        uniqueIdForNode = 0;
+        lastTimestamp = 0;
+        lastID = 0;
+        offset = 0;
+    }
+
+    /**
+     * Out of 64 bits for long, we will use the range as follows
+     * [1 sign bit][45bits for time spent from reference time in milliseconds][8bit node id][10 bit offset for ID
+     * falls within the same timestamp]
+     * This assumes there will not be more than 1024 hits within a given millisecond. Range is sufficient for
+     * 6029925857 years.
+     *
+     * @return Generated ID
+     */
+    public long getNextId() {
+
+        // id might change at runtime. Hence reading the value
+        uniqueIdForNode = ClusterResourceHolder.getInstance().getClusterManager().getUniqueIdForLocalNode();
+        long ts = System.currentTimeMillis();
+
+        if (ts == lastTimestamp) {
+            offset = offset + 1;
+        } else {
+            offset = 0;
+        }
+        lastTimestamp = ts;
+        long id = (ts - REFERENCE_START) * 256 * 1024 + uniqueIdForNode * 1024 + offset;
+        if (lastID == id) {
+            throw new RuntimeException("duplicate ids detected. This should never happen");
+        }
+        lastID = id;
+        return id;
+    }
+}
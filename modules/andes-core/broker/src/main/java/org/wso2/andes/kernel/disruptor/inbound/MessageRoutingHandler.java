@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import com.lmax.disruptor.EventHandler;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matches inbound messages to storage queues and makes a copy of the message for each matching storage queue.
+ * Several instances of this handler process the ring buffer concurrently, each taking the events of its own turn.
+ * Message ids are not assigned here. {@link MessagePreProcessor} assigns them afterwards in ring buffer order.
+ */
+public class MessageRoutingHandler implements EventHandler<InboundEventContainer> {
+
+    private static final Log log = LogFactory.getLog(MessageRoutingHandler.class);
+
+    /**
+     * Value of sequence % groupCount of the events processed by this handler
+     */
+    private final long turn;
+
+    /**
+     * Total number of routing handlers
+     */
+    private final int groupCount;
+
+    /**
+     * Minimum content size of a message routed to more than one storage queue for its content to be shared. -1 if
+     * content sharing is disabled
+     */
+    private final int sharedContentThreshold;
+
+    /**
+     * Creates a routing handler processing the events of the given turn
+     *
+     * @param turn                   value of sequence % groupCount of the events processed by this handler. Must be
+     *                               less than groupCount
+     * @param groupCount             total number of routing handlers
+     * @param sharedContentThreshold minimum content size for content to be shared between message copies, -1 if
+     *                               content sharing is disabled
+     */
+    MessageRoutingHandler(long turn, int groupCount, int sharedContentThreshold) {
+        if (turn >= groupCount) {
+            throw new IllegalArgumentException("Turn should be less than groupCount");
+        }
+        this.turn = turn;
+        this.groupCount = groupCount;
+        this.sharedContentThreshold = sharedContentThreshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEvent(InboundEventContainer event, long sequence, boolean endOfBatch) throws Exception {
+        if (turn != sequence % groupCount) {
+            return;
+        }
+
+        switch (event.getEventType()) {
+            case MESSAGE_EVENT:
+                // There is exactly one message in the list at this point
+                routeMessage(event, event.popMessage());
+                break;
+            case TRANSACTION_COMMIT_EVENT:
+                routeTransaction(event);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Route the messages of a transaction. The internal message list of the transaction is updated to reflect the
+     * messages actually written to DB. Messages still being staged are waited for, since message copies take either
+     * the content in memory or the staged message id.
+     *
+     * @param event InboundEventContainer
+     * @throws AndesException if interrupted while waiting for messages to be staged
+     */
+    private void routeTransaction(InboundEventContainer event) throws AndesException {
+        event.getTransactionEvent().awaitStagedMessages();
+        Collection<AndesMessage> messageList = event.getTransactionEvent().getQueuedMessages();
+        for (AndesMessage message : messageList) {
+            routeMessage(event, message);
+        }
+
+        event.getTransactionEvent().clearMessages();
+        event.getTransactionEvent().addMessages(event.getMessageList());
+    }
+
+    /**
+     * Route the message to queue/queues of subscribers matching in AMQP way. Hierarchical topic message routing is
+     * evaluated here. This will duplicate message for each "subscription destination (not message destination)" at
+     * different nodes
+     *
+     * @param event   InboundEventContainer the message copies are added to
+     * @param message message to route
+     */
+    private void routeMessage(InboundEventContainer event, AndesMessage message) {
+
+        //Get storage queues bound to the message router
+        String messageRouterName = message.getMetadata().getMessageRouterName();
+        AndesMessageRouter messageRouter = AndesContext.getInstance().
+                getMessageRouterRegistry().getMessageRouter(messageRouterName);
+
+        //do topic matching with the routing key of the message and get a list of
+        //mating binding keys
+        Set<StorageQueue> matchingQueues = messageRouter.getMatchingStorageQueues(message);
+
+        //TODO: validate this
+        // If retain enabled, need to store the retained message. Set the retained message
+        // so the message writer will persist the retained message
+        if (message.getMetadata().isRetain()) {
+            event.retainMessage = message;
+        }
+
+        if (matchingQueues.isEmpty()) {
+            event.addRoutedMessage(RoutedMessage.unrouted(message));
+            return;
+        }
+
+        List<AndesMessage> copies = new ArrayList<>(matchingQueues.size());
+        for (StorageQueue matchingQueue : matchingQueues) {
+
+            if (copies.isEmpty()) {
+                message.getMetadata().setStorageQueueName(matchingQueue.getName());
+                copies.add(message);
+            } else {
+                AndesMessage clonedMessage = cloneAndesMessageMetadataAndContent(message);
+
+                //Message should be written to storage queue name. This is
+                //determined by destination of the message. So should be
+                //updated (but internal metadata will have topic name as usual)
+                clonedMessage.getMetadata().setStorageQueueName(matchingQueue.getName());
+
+                /**
+                 * Update cloned message metadata if isCompressed set true.
+                 */
+                if (clonedMessage.getMetadata().isCompressed()) {
+                    clonedMessage.getMetadata().updateMetadata(true);
+                }
+                copies.add(clonedMessage);
+            }
+        }
+
+        // add the topic wise cloned messages to the events list. Message writers will pick that and
+        // write it.
+        for (AndesMessage copy : copies) {
+            event.addMessage(copy);
+        }
+
+        boolean contentShareable = copies.size() > 1 && isContentShareable(message);
+        event.addRoutedMessage(new RoutedMessage(message, copies, contentShareable));
+
+        if (log.isDebugEnabled()) {
+            log.debug("Message with routing key " + message.getMetadata().getDestination() + " routed to "
+                    + copies.size() + " storage queues");
+        }
+    }
+
+    /**
+     * Create a clone of the message. Message id of the clone is assigned later
+     *
+     * @param message message to be cloned
+     * @return Cloned reference of AndesMessage
+     */
+    private AndesMessage cloneAndesMessageMetadataAndContent(AndesMessage message) {
+        AndesMessageMetadata clonedMetadata = message.getMetadata().shallowCopy(0);
+        AndesMessage clonedMessage = new AndesMessage(clonedMetadata);
+
+        // Clones of a message with staged content refer to the same staged content
+        clonedMessage.setStagedMessageID(message.getStagedMessageID());
+
+        //Duplicate message content
+        List<AndesMessagePart> messageParts = message.getContentChunkList();
+        for (AndesMessagePart messagePart : messageParts) {
+            clonedMessage.addMessagePart(messagePart.shallowCopy(0));
+        }
+
+        return clonedMessage;
+    }
+
+    /**
+     * Check whether the content of a message is large enough to be stored once and shared between the storage
+     * queues the message is routed to. Staged content is already stored once, hence it is not shared.
+     *
+     * @param message message to be checked
+     * @return true if content should be shared
+     */
+    private boolean isContentShareable(AndesMessage message) {
+        if (sharedContentThreshold < 0 || message.isContentStaged()) {
+            return false;
+        }
+        int contentSize = 0;
+        for (AndesMessagePart messagePart : message.getContentChunkList()) {
+            contentSize = contentSize + messagePart.getDataLength();
+        }
+        return contentSize >= sharedContentThreshold;
+    }
+}
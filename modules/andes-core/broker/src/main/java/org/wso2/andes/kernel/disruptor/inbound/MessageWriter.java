@@ -26,6 +26,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.AndesMessage;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.disruptor.BatchEventHandler;
+import org.wso2.andes.metrics.MessageLatencyTracker;
 import org.wso2.andes.store.AndesBatchUpdateException;
 import org.wso2.andes.store.AndesTransactionRollbackException;
 import org.wso2.andes.store.FailureObservingStoreManager;
@@ -140,6 +141,12 @@ public class MessageWriter implements BatchEventHandler, StoreHealthListener {
                 }
             }
 
+            if (MessageLatencyTracker.isEnabled()) {
+                for (AndesMessage message : currentMessageList) {
+                    MessageLatencyTracker.onMessageStored(message.getMetadata());
+                }
+            }
+
             if(log.isTraceEnabled()) {
                 StringBuilder messageIDsString = new StringBuilder();
                 for (AndesMessage message : currentMessageList) {
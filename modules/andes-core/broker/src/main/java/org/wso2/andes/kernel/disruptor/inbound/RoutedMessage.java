@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.wso2.andes.kernel.AndesMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message published to the inbound ring along with the copies made of it for each storage queue it is routed to.
+ * Copies are made by {@link MessageRoutingHandler} and message ids are assigned to them afterwards by
+ * {@link MessagePreProcessor}.
+ */
+class RoutedMessage {
+
+    /**
+     * Message as published
+     */
+    private final AndesMessage message;
+
+    /**
+     * Message copies to be written, one per matching storage queue. The published message itself is the first
+     */
+    private final List<AndesMessage> copies;
+
+    /**
+     * True if the content of the copies should be stored once and shared
+     */
+    private final boolean contentShareable;
+
+    RoutedMessage(AndesMessage message, List<AndesMessage> copies, boolean contentShareable) {
+        this.message = message;
+        this.copies = copies;
+        this.contentShareable = contentShareable;
+    }
+
+    /**
+     * Create a routed message for a message with no matching storage queues
+     *
+     * @param message message as published
+     * @return routed message without copies
+     */
+    static RoutedMessage unrouted(AndesMessage message) {
+        return new RoutedMessage(message, new ArrayList<AndesMessage>(0), false);
+    }
+
+    AndesMessage getMessage() {
+        return message;
+    }
+
+    List<AndesMessage> getCopies() {
+        return copies;
+    }
+
+    boolean isRouted() {
+        return !copies.isEmpty();
+    }
+
+    boolean isContentShareable() {
+        return contentShareable;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.MessageStore;
+import org.wso2.andes.server.ClusterResourceHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps the content of an open transaction within a memory limit by staging messages in the message store.
+ * <p>
+ * Messages are staged on a thread pool shared by all transactions, so that the content chunk handlers of the inbound
+ * disruptor never wait on the database and a large transaction does not hold up staging of the others. Content of a message stays in memory until its staging batch is written. Staged messages are
+ * written under a staging queue of the local node, hence messages left behind by a crash of the node are discarded
+ * when the node starts again.
+ * </p>
+ */
+public class TransactionStagingArea {
+
+    private static Log log = LogFactory.getLog(TransactionStagingArea.class);
+
+    /**
+     * Prefix of the storage queue messages of open transactions are staged under. No subscriber is bound to the
+     * staging queue, therefore staged messages are never delivered.
+     */
+    private static final String STAGING_QUEUE_PREFIX = "AndesTransactionStagingQueue_";
+
+    /**
+     * Generates ids for staged messages. Staged message ids are negated message ids, hence they never collide with
+     * ids of published messages. Shared by all transactions and guarded by itself.
+     */
+    private static final MessageIDGenerator stagedMessageIDGenerator = new MessageIDGenerator();
+
+    private final MessageStore messageStore;
+
+    /**
+     * Writes staging batches. Shared with the staging areas of other transactions.
+     */
+    private final ExecutorService stagingExecutor;
+
+    /**
+     * Storage queue messages are staged under
+     */
+    private final String stagingQueueName;
+
+    /**
+     * Maximum content size kept in memory. Messages held in memory are staged once this limit is exceeded.
+     */
+    private final int maxInMemoryContentSize;
+
+    /**
+     * Messages held in memory which are not handed over for staging yet
+     */
+    private List<AndesMessage> inMemoryMessages;
+
+    /**
+     * Content size of {@link #inMemoryMessages}
+     */
+    private int inMemoryContentSize;
+
+    /**
+     * Ids of the messages written to the staging queue
+     */
+    private final List<Long> stagedMessageIDs;
+
+    /**
+     * Staging batches which are not written yet
+     */
+    private final List<Future<?>> pendingBatches;
+
+    /**
+     * Create a staging area for a transaction
+     *
+     * @param messageStore           store messages are staged in
+     * @param stagingQueueName       storage queue messages are staged under
+     * @param maxInMemoryContentSize maximum content size kept in memory
+     * @param stagingExecutor        executor staging batches are written on
+     */
+    TransactionStagingArea(MessageStore messageStore, String stagingQueueName, int maxInMemoryContentSize,
+            ExecutorService stagingExecutor) {
+        this.messageStore = messageStore;
+        this.stagingExecutor = stagingExecutor;
+        this.stagingQueueName = stagingQueueName;
+        this.maxInMemoryContentSize = maxInMemoryContentSize;
+        inMemoryMessages = new ArrayList<>();
+        stagedMessageIDs = new ArrayList<>();
+        pendingBatches = new ArrayList<>();
+    }
+
+    /**
+     * Name of the storage queue the local node stages transaction messages under. Every message in this queue
+     * belongs to an open transaction of the local node, hence the queue can be cleared while the node starts.
+     *
+     * @return staging queue name
+     */
+    public static String getStagingQueueName() {
+        return STAGING_QUEUE_PREFIX + ClusterResourceHolder.getInstance().getClusterManager().getMyNodeID();
+    }
+
+    /**
+     * Add a message of the transaction. Once the content held in memory exceeds the limit, the messages held in
+     * memory are handed over to be staged in the background.
+     *
+     * @param message enqueued message
+     */
+    synchronized void add(AndesMessage message) {
+        inMemoryMessages.add(message);
+        inMemoryContentSize = inMemoryContentSize + message.getMetadata().getMessageContentLength();
+
+        if (inMemoryContentSize > maxInMemoryContentSize) {
+            final List<AndesMessage> batch = inMemoryMessages;
+            final int batchContentSize = inMemoryContentSize;
+            inMemoryMessages = new ArrayList<>();
+            inMemoryContentSize = 0;
+
+            for (AndesMessage messageToStage : batch) {
+                messageToStage.setStagedMessageID(nextStagedMessageID());
+            }
+
+            pendingBatches.add(stagingExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    stage(batch, batchContentSize);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Wait until every staging batch handed over so far is written. Content of messages is not touched by the
+     * staging executor once this returns.
+     *
+     * @throws AndesException if interrupted while waiting
+     */
+    void awaitPendingBatches() throws AndesException {
+        List<Future<?>> batches;
+        synchronized (this) {
+            batches = new ArrayList<>(pendingBatches);
+        }
+
+        for (Future<?> batch : batches) {
+            try {
+                batch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AndesException("Interrupted while waiting for transaction messages to be staged", e);
+            } catch (ExecutionException e) {
+                // Failures are handled by the staging task, messages of a failed batch stay in memory
+                log.error("Error occurred while staging transaction messages", e);
+            }
+        }
+
+        synchronized (this) {
+            pendingBatches.removeAll(batches);
+        }
+    }
+
+    /**
+     * Get the ids of the messages written to the staging queue. Pending batches should be awaited before.
+     *
+     * @return staged message ids
+     */
+    synchronized List<Long> getStagedMessageIDs() {
+        return new ArrayList<>(stagedMessageIDs);
+    }
+
+    /**
+     * Discard the given staged messages from the message store and forget all messages of the transaction.
+     * Pending batches should be awaited before.
+     *
+     * @param messageIDs staged message ids to discard
+     * @throws AndesException if staged messages cannot be deleted
+     */
+    void discard(List<Long> messageIDs) throws AndesException {
+        try {
+            if (!messageIDs.isEmpty()) {
+                messageStore.deleteMessages(messageIDs);
+            }
+        } finally {
+            clear();
+        }
+    }
+
+    /**
+     * Forget all messages of the transaction without touching the message store
+     */
+    synchronized void clear() {
+        inMemoryMessages.clear();
+        inMemoryContentSize = 0;
+        stagedMessageIDs.clear();
+    }
+
+    /**
+     * Generate an id to stage a message under
+     *
+     * @return negative staged message id
+     */
+    long nextStagedMessageID() {
+        synchronized (stagedMessageIDGenerator) {
+            return -stagedMessageIDGenerator.getNextId();
+        }
+    }
+
+    /**
+     * Write a batch to the staging queue and release its content. If staging fails, the messages are kept in memory
+     * and are staged again with the next batch.
+     *
+     * @param batch            messages to stage, with staged message ids assigned
+     * @param batchContentSize content size of the batch
+     */
+    private void stage(List<AndesMessage> batch, int batchContentSize) {
+        try {
+            messageStore.stageMessages(stagingQueueName, batch);
+
+            synchronized (this) {
+                for (AndesMessage message : batch) {
+                    stagedMessageIDs.add(message.getStagedMessageID());
+                    message.setChunkList(new ArrayList<AndesMessagePart>());
+                }
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug(batch.size() + " messages staged in store for transaction.");
+            }
+        } catch (AndesException e) {
+            synchronized (this) {
+                for (AndesMessage message : batch) {
+                    message.setStagedMessageID(0);
+                }
+                batch.addAll(inMemoryMessages);
+                inMemoryMessages = batch;
+                inMemoryContentSize = inMemoryContentSize + batchContentSize;
+            }
+            log.warn("Error occurred while staging transaction messages in store. Messages are kept in memory.", e);
+        }
+    }
+}
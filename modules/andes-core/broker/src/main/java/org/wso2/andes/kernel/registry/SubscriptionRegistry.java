@@ -20,10 +20,13 @@ import com.googlecode.cqengine.IndexedCollection;
 import com.googlecode.cqengine.index.navigable.NavigableIndex;
 import com.googlecode.cqengine.query.Query;
 import org.wso2.andes.kernel.subscription.AndesSubscription;
+import org.wso2.andes.kernel.subscription.SubscriberConnection;
 
+import java.util.Collections;
 import java.util.Iterator;
-
-import static com.googlecode.cqengine.query.QueryFactory.equal;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -35,6 +38,11 @@ import static com.googlecode.cqengine.query.QueryFactory.equal;
  * will also be registered here.
  * <p/>
  * Thus this will provide full view of subscription distribution in the cluster
+ * <p/>
+ * Lookups by protocol channel and subscription ID happen on acknowledgement and delivery paths, hence they are
+ * served from concurrent maps. Other queries are run against a CQEngine collection which only indexes the selective
+ * attributes, queries on the remaining attributes are rare management operations which scan the candidates instead
+ * of every registration maintaining an index for them.
  */
 public class SubscriptionRegistry {
 
@@ -46,32 +54,43 @@ public class SubscriptionRegistry {
      */
     private IndexedCollection<AndesSubscription> subscriptions;
 
+    /**
+     * Registered subscriptions by subscription ID
+     */
+    private final ConcurrentHashMap<String, AndesSubscription> subscriptionsById;
+
+    /**
+     * Registered subscriptions by the ID of the protocol channel they are bound to. A channel may carry several
+     * subscriptions, e.g. several consumers on one session or one subscription per storage queue of a binding.
+     * A set is only modified while holding its lock, and is removed from the map under the same lock once empty.
+     */
+    private final ConcurrentHashMap<UUID, Set<AndesSubscription>> subscriptionsByChannel;
 
     /**
      * Create a registry for keeping subscriptions in-memory. Introduce indexing needed.
      */
     public SubscriptionRegistry() {
 
+        subscriptionsById = new ConcurrentHashMap<>();
+        subscriptionsByChannel = new ConcurrentHashMap<>();
+
         subscriptions = new ConcurrentIndexedCollection<>();
 
-        subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.SUB_ID));
-        subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.NODE_ID));
-        subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.CHANNEL_ID));
-        subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.PROTOCOL));
         subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.ROUTER_NAME));
         subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.STORAGE_QUEUE_NAME));
-        subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.STATE));
-        subscriptions.addIndex(NavigableIndex.onAttribute(AndesSubscription.ROUTING_KEY));
 
     }
 
     /**
-     * Register subscription in registry
+     * Register subscription in registry. A subscription with the same ID as a registered one is ignored.
      *
      * @param subscription subscription to register
      */
     public void registerSubscription(AndesSubscription subscription) {
-        subscriptions.add(subscription);
+        if (null == subscriptionsById.putIfAbsent(subscription.getSubscriptionId(), subscription)) {
+            subscriptions.add(subscription);
+            addToChannel(subscription.getSubscriberConnection().getProtocolChannelID(), subscription);
+        }
     }
 
     /**
@@ -80,7 +99,7 @@ public class SubscriptionRegistry {
      * @param subscription subscription to remove
      */
     public void removeSubscription(AndesSubscription subscription) {
-        subscriptions.remove(subscription);
+        removeSubscription(subscription.getSubscriptionId());
     }
 
     /**
@@ -89,11 +108,87 @@ public class SubscriptionRegistry {
      * @param subID ID of the subscription
      */
     public void removeSubscription(String subID) {
+        AndesSubscription registeredSubscription = subscriptionsById.remove(subID);
+        if (null != registeredSubscription) {
+            subscriptions.remove(registeredSubscription);
+            SubscriberConnection connection = registeredSubscription.getSubscriberConnection();
+            if (null != connection) {
+                removeFromChannel(connection.getProtocolChannelID(), registeredSubscription);
+            } else {
+                // Connection of a closed subscription is released, hence the channel is not known
+                for (UUID channelID : subscriptionsByChannel.keySet()) {
+                    removeFromChannel(channelID, registeredSubscription);
+                }
+            }
+        }
+    }
 
-        Query<AndesSubscription> query = equal(AndesSubscription.SUB_ID, subID);
-        for (AndesSubscription sub : subscriptions.retrieve(query)) {
-            subscriptions.remove(sub);
+    /**
+     * Get the subscriptions bound to a protocol channel
+     *
+     * @param channelID ID of the protocol channel
+     * @return the subscriptions, empty if there is no subscription bound to the channel
+     */
+    public Set<AndesSubscription> getSubscriptionsByChannel(UUID channelID) {
+        Set<AndesSubscription> subscriptionsOfChannel = subscriptionsByChannel.get(channelID);
+        if (null == subscriptionsOfChannel) {
+            return Collections.emptySet();
         }
+        return Collections.unmodifiableSet(subscriptionsOfChannel);
+    }
+
+    /**
+     * Add a subscription to the subscriptions of a channel
+     *
+     * @param channelID    ID of the protocol channel
+     * @param subscription subscription to add
+     */
+    private void addToChannel(UUID channelID, AndesSubscription subscription) {
+        while (true) {
+            Set<AndesSubscription> subscriptionsOfChannel = subscriptionsByChannel.get(channelID);
+            if (null == subscriptionsOfChannel) {
+                Set<AndesSubscription> newSet = Collections.newSetFromMap(
+                        new ConcurrentHashMap<AndesSubscription, Boolean>(2));
+                subscriptionsOfChannel = subscriptionsByChannel.putIfAbsent(channelID, newSet);
+                if (null == subscriptionsOfChannel) {
+                    subscriptionsOfChannel = newSet;
+                }
+            }
+            synchronized (subscriptionsOfChannel) {
+                // The set may have been removed after being emptied, retry with a new one in that case
+                if (subscriptionsByChannel.get(channelID) == subscriptionsOfChannel) {
+                    subscriptionsOfChannel.add(subscription);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a subscription from the subscriptions of a channel, dropping the channel once it has none
+     *
+     * @param channelID    ID of the protocol channel
+     * @param subscription subscription to remove
+     */
+    private void removeFromChannel(UUID channelID, AndesSubscription subscription) {
+        Set<AndesSubscription> subscriptionsOfChannel = subscriptionsByChannel.get(channelID);
+        if (null != subscriptionsOfChannel) {
+            synchronized (subscriptionsOfChannel) {
+                if (subscriptionsOfChannel.remove(subscription) && subscriptionsOfChannel.isEmpty()) {
+                    subscriptionsByChannel.remove(channelID, subscriptionsOfChannel);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a subscription by ID
+     *
+     * @param subID ID of the subscription
+     * @return the subscription or null if there is no subscription with the ID
+     */
+    public AndesSubscription getSubscriptionById(String subID) {
+        return subscriptionsById.get(subID);
     }
 
     /**
@@ -32,6 +32,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
 /**
@@ -85,6 +87,12 @@ public class TopicRoutingMatcher {
      */
     private List<Map<String, BitSet>> constituentTables = new ArrayList<>();
 
+    /**
+     * Guards the tables above. Storage queues are matched by several inbound message routing handlers concurrently
+     * while queues are added and removed by other threads.
+     */
+    private final ReadWriteLock tableLock = new ReentrantReadWriteLock();
+
     /**
      * Initialize BitMapHandler with the protocol type.
      *
@@ -112,58 +120,75 @@ public class TopicRoutingMatcher {
         String bindingKey = storageQueue.getMessageRouterBindingKey();
 
         if (StringUtils.isNotEmpty(bindingKey)) {
-            if (!isStorageQueueAvailable(storageQueue)) {
-                int newQueueIndex = storageQueueList.size();
+            tableLock.writeLock().lock();
+            try {
+                addStorageQueue(storageQueue, bindingKey);
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+        } else {
+            throw new AndesException("Error adding a new storageQueue. Subscribed bindingKey is empty.");
+        }
+    }
 
-                // The index is added to make it clear to which index this is being inserted
-                storageQueueList.add(newQueueIndex, storageQueue);
+    /**
+     * Add storage queue to the tables. Write lock should be held by the caller
+     *
+     * @param storageQueue storage queue to add
+     * @param bindingKey   binding key of the storage queue
+     * @throws AndesException
+     */
+    private void addStorageQueue(StorageQueue storageQueue, String bindingKey) throws AndesException {
+        if (!isStorageQueueAvailable(storageQueue)) {
+            int newQueueIndex = storageQueueList.size();
 
-                String constituents[] = bindingKey.split(Pattern.quote(constituentsDelimiter));
+            // The index is added to make it clear to which index this is being inserted
+            storageQueueList.add(newQueueIndex, storageQueue);
 
-                queueConstituents.put(newQueueIndex, constituents);
+            String constituents[] = bindingKey.split(Pattern.quote(constituentsDelimiter));
 
+            queueConstituents.put(newQueueIndex, constituents);
 
-                for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
-                    String constituent = constituents[constituentIndex];
 
-                    Map<String, BitSet> constituentTable;
+            for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
+                String constituent = constituents[constituentIndex];
 
-                    if ((constituentIndex + 1) > constituentTables.size()) {
-                        // No tables exist for this constituent index need to create
-                        constituentTable = addConstituentTable(constituentIndex);
-                    } else {
-                        constituentTable = constituentTables.get(constituentIndex);
-                    }
+                Map<String, BitSet> constituentTable;
 
-                    if (!constituentTable.keySet().contains(constituent)) {
-                        // This constituent is not available in this table. Need to add a new row
-                        addConstituentRow(constituent, constituentIndex);
-                    }
+                if ((constituentIndex + 1) > constituentTables.size()) {
+                    // No tables exist for this constituent index need to create
+                    constituentTable = addConstituentTable(constituentIndex);
+                } else {
+                    constituentTable = constituentTables.get(constituentIndex);
                 }
 
-                addStorageQueueColumn(bindingKey, newQueueIndex);
-            } else {
-                updateStorageQueue(storageQueue);
+                if (!constituentTable.keySet().contains(constituent)) {
+                    // This constituent is not available in this table. Need to add a new row
+                    addConstituentRow(constituent, constituentIndex);
+                }
             }
 
+            addStorageQueueColumn(bindingKey, newQueueIndex);
         } else {
-            throw new AndesException("Error adding a new storageQueue. Subscribed bindingKey is empty.");
+            updateStorageQueue(storageQueue);
         }
     }
 
 
 
     public void updateStorageQueue(StorageQueue storageQueue) {
-        if (isStorageQueueAvailable(storageQueue)) {
-            // Need to add the new entry to the same index since bitmap logic is dependent on this index
-            int index = storageQueueList.indexOf(storageQueue);
-
-            // Should not allow to modify this list until the update is complete
-            // Otherwise the storageQueue indexes will be invalid
-            synchronized (storageQueueList) {
+        // Should not allow to modify this list until the update is complete
+        // Otherwise the storageQueue indexes will be invalid
+        tableLock.writeLock().lock();
+        try {
+            if (isStorageQueueAvailable(storageQueue)) {
+                // Need to add the new entry to the same index since bitmap logic is dependent on this index
+                int index = storageQueueList.indexOf(storageQueue);
                 storageQueueList.remove(index);
                 storageQueueList.add(index, storageQueue);
             }
+        } finally {
+            tableLock.writeLock().unlock();
         }
     }
 
@@ -381,7 +406,7 @@ public class TopicRoutingMatcher {
         if (noOfqueues > 0) {
 
             // Null constituent will always be true for empty constituents, hence need to flip
-            nullBitSet.flip(0, noOfqueues - 1);
+            nullBitSet.flip(0, noOfqueues);
 
             for (int queueIndex = 0; queueIndex < noOfqueues; queueIndex++) {
                 // For 'other', if subscribers last constituent is multi level wild card then matching
@@ -408,6 +433,20 @@ public class TopicRoutingMatcher {
      * @param storageQueue The storageQueue to remove
      */
     public void removeStorageQueue(StorageQueue storageQueue) {
+        tableLock.writeLock().lock();
+        try {
+            removeStorageQueueFromTables(storageQueue);
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove storage queue from the tables. Write lock should be held by the caller
+     *
+     * @param storageQueue The storageQueue to remove
+     */
+    private void removeStorageQueueFromTables(StorageQueue storageQueue) {
         int queueIndex = storageQueueList.indexOf(storageQueue);
 
         if (queueIndex > -1) {
@@ -444,7 +483,12 @@ public class TopicRoutingMatcher {
 
 
     public boolean isStorageQueueAvailable(StorageQueue storageQueue) {
-        return storageQueueList.contains(storageQueue);
+        tableLock.readLock().lock();
+        try {
+            return storageQueueList.contains(storageQueue);
+        } finally {
+            tableLock.readLock().unlock();
+        }
     }
 
 
@@ -461,57 +505,75 @@ public class TopicRoutingMatcher {
             // constituentDelimiter is quoted to avoid making the delimiter a regex symbol
             String[] constituents = routingKey.split(Pattern.quote(constituentsDelimiter),-1);
 
-            int noOfCurrentMaxConstituents = constituentTables.size();
-
             // If given routingKey has more constituents than any subscriber has, then create constituent tables
             // for those before collecting matching subscribers
-            if (constituents.length > noOfCurrentMaxConstituents) {
-                for (int i = noOfCurrentMaxConstituents; i < constituents.length; i++) {
-                    addEmptyConstituentTable();
+            if (constituents.length > constituentTables.size()) {
+                tableLock.writeLock().lock();
+                try {
+                    for (int i = constituentTables.size(); i < constituents.length; i++) {
+                        addEmptyConstituentTable();
+                    }
+                } finally {
+                    tableLock.writeLock().unlock();
                 }
             }
 
-            // Keeps the results of 'AND' operations between each bit sets
-            BitSet andBitSet = new BitSet(storageQueueList.size());
-
-            // Since BitSet is initialized with false for each element we need to flip
-            andBitSet.flip(0, storageQueueList.size());
+            tableLock.readLock().lock();
+            try {
+                collectMatchingStorageQueues(constituents, matchingQueues);
+            } finally {
+                tableLock.readLock().unlock();
+            }
 
-            // Get corresponding bit set for each constituent in the routingKey and operate bitwise AND operation
-            for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
-                String constituent = constituents[constituentIndex];
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
+        } else {
+            log.warn("Cannot retrieve storage queues via bitmap handler since routingKey to match is empty");
+        }
 
-                BitSet bitSetForAnd = constituentTable.get(constituent);
+        return matchingQueues;
+    }
 
-                if (null == bitSetForAnd) {
-                    // The constituent is not found in the table, hence matching with 'other' constituent
-                    bitSetForAnd = constituentTable.get(OTHER_CONSTITUENT);
-                }
+    /**
+     * Collect storage queues matching the given routing key constituents. Read lock should be held by the caller
+     *
+     * @param constituents   constituents of the routing key
+     * @param matchingQueues set to add matching storage queues to
+     */
+    private void collectMatchingStorageQueues(String[] constituents, Set<StorageQueue> matchingQueues) {
+        // Keeps the results of 'AND' operations between each bit sets
+        BitSet andBitSet = new BitSet(storageQueueList.size());
 
-                andBitSet.and(bitSetForAnd);
-            }
+        // Since BitSet is initialized with false for each element we need to flip
+        andBitSet.flip(0, storageQueueList.size());
 
-            // If there are more constituent tables, get the null constituent in each of them and operate bitwise AND
-            for (int constituentIndex = constituents.length; constituentIndex < constituentTables.size();
-                 constituentIndex++) {
-                Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
-                andBitSet.and(constituentTable.get(NULL_CONSTITUENT));
-            }
+        // Get corresponding bit set for each constituent in the routingKey and operate bitwise AND operation
+        for (int constituentIndex = 0; constituentIndex < constituents.length; constituentIndex++) {
+            String constituent = constituents[constituentIndex];
+            Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
 
+            BitSet bitSetForAnd = constituentTable.get(constituent);
 
-            // Valid queues are filtered, need to pick from queue pool
-            int nextSetBitIndex = andBitSet.nextSetBit(0);
-            while (nextSetBitIndex > -1) {
-                matchingQueues.add(storageQueueList.get(nextSetBitIndex));
-                nextSetBitIndex = andBitSet.nextSetBit(nextSetBitIndex + 1);
+            if (null == bitSetForAnd) {
+                // The constituent is not found in the table, hence matching with 'other' constituent
+                bitSetForAnd = constituentTable.get(OTHER_CONSTITUENT);
             }
 
-        } else {
-            log.warn("Cannot retrieve storage queues via bitmap handler since routingKey to match is empty");
+            andBitSet.and(bitSetForAnd);
         }
 
-        return matchingQueues;
+        // If there are more constituent tables, get the null constituent in each of them and operate bitwise AND
+        for (int constituentIndex = constituents.length; constituentIndex < constituentTables.size();
+             constituentIndex++) {
+            Map<String, BitSet> constituentTable = constituentTables.get(constituentIndex);
+            andBitSet.and(constituentTable.get(NULL_CONSTITUENT));
+        }
+
+
+        // Valid queues are filtered, need to pick from queue pool
+        int nextSetBitIndex = andBitSet.nextSetBit(0);
+        while (nextSetBitIndex > -1) {
+            matchingQueues.add(storageQueueList.get(nextSetBitIndex));
+            nextSetBitIndex = andBitSet.nextSetBit(nextSetBitIndex + 1);
+        }
     }
 
     /**
@@ -532,7 +594,22 @@ public class TopicRoutingMatcher {
     public Set<String> getAllBindingKeys() {
         Set<String> topics = new HashSet<>();
 
+        tableLock.readLock().lock();
+        try {
+            collectBindingKeys(topics);
+        } finally {
+            tableLock.readLock().unlock();
+        }
 
+        return topics;
+    }
+
+    /**
+     * Collect binding keys of all storage queues. Read lock should be held by the caller
+     *
+     * @param topics set to add binding keys to
+     */
+    private void collectBindingKeys(Set<String> topics) {
         for (Map.Entry<Integer, String[]> subcriberConstituent : queueConstituents.entrySet()) {
 
             StringBuilder topic = new StringBuilder();
@@ -556,8 +633,6 @@ public class TopicRoutingMatcher {
 
             topics.add(topic.toString());
         }
-
-        return topics;
     }
 
 }
@@ -386,4 +386,13 @@ public class Slot implements Serializable, Comparable<Slot> {
     public void incrementPendingMessageCount(int amount) {
         pendingMessageCount.addAndGet(amount);
     }
+
+    /**
+     * Check if messages buffered from this slot are still waiting to be acknowledged
+     *
+     * @return true if there are pending messages in the slot
+     */
+    public boolean hasPendingMessages() {
+        return pendingMessageCount.get() > 0;
+    }
 }
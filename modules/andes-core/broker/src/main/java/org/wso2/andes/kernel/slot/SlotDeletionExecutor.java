@@ -22,10 +22,19 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.MessagingEngine;
 import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.metrics.MetricsConstants;
 import org.wso2.andes.server.cluster.error.detection.NetworkPartitionListener;
-
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -40,8 +49,18 @@ public class SlotDeletionExecutor implements NetworkPartitionListener {
     private static Log log = LogFactory.getLog(SlotDeletionExecutor.class);
 
 
+    /**
+     * Interval in milliseconds between attempts to delete slots which could not be deleted earlier
+     */
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
     private LinkedBlockingQueue<Slot> slotsToDelete = new LinkedBlockingQueue<>();
 
+    /**
+     * True if the safe zone has to pass a slot before the coordinator deletes it
+     */
+    private boolean isClusteringEnabled;
+
     /**
      * Slot deletion thread factory in one MB node
      */
@@ -75,7 +94,8 @@ public class SlotDeletionExecutor implements NetworkPartitionListener {
      */
     public void init() {
 
-        if (AndesContext.getInstance().isClusteringEnabled()) { // network partition detection works only when
+        isClusteringEnabled = AndesContext.getInstance().isClusteringEnabled();
+        if (isClusteringEnabled) { // network partition detection works only when
             // clustered.
             AndesContext.getInstance().getClusterAgent().addNetworkPartitionListener(40, this);
         }
@@ -95,6 +115,22 @@ public class SlotDeletionExecutor implements NetworkPartitionListener {
          */
         boolean isLive = true;
 
+        /**
+         * Slots waiting to be deleted, mapped to the time their deletion was first requested. A slot scheduled
+         * again while it is still waiting is kept once.
+         */
+        private final Map<Slot, Long> pendingSlots = new LinkedHashMap<>();
+
+        /**
+         * Slots taken from the request queue in the current round
+         */
+        private final List<Slot> newSlots = new ArrayList<>();
+
+        /**
+         * Last time slots which could not be deleted were re-checked
+         */
+        private long lastRetryTime = 0;
+
         void setLive(boolean live) {
             isLive = live;
         }
@@ -105,40 +141,92 @@ public class SlotDeletionExecutor implements NetworkPartitionListener {
         public void run() {
             while (isLive) {
                 try {
-                    // Slot to attempt current deletion
                     Slot slot = slotsToDelete.poll(1, TimeUnit.SECONDS);
-
-                    // Check current slot to delete is not null
                     if (slot != null) {
+                        newSlots.add(slot);
+                        slotsToDelete.drainTo(newSlots);
+                    }
 
-                        // Check DB for any remaining messages. (JIRA FIX: MB-1612)
-                        // If there are any remaining messages wait till overlapped slot delivers the messages
-                        if (MessagingEngine.getInstance().getMessageCountForQueueInRange(
-                                slot.getStorageQueueName(), slot.getStartMessageId(), slot.getEndMessageId()) == 0) {
-                            // Invoke coordinator to delete slot
-                            boolean deleteSuccess = deleteSlotAtCoordinator(slot);
-                            if (!deleteSuccess) {
-                                // Delete attempt not success, therefore adding slot to the queue
-                                slotsToDelete.put(slot);
-                            } else {
-                                StorageQueue storageQueue = AndesContext.getInstance().getStorageQueueRegistry()
-                                        .getStorageQueue(slot.getStorageQueueName());
-                                storageQueue.deleteSlot(slot);
-
+                    long currentTime = System.currentTimeMillis();
+                    boolean retryDue = (currentTime - lastRetryTime) >= RETRY_INTERVAL_MILLIS;
+
+                    // Slots that were already waiting are only re-checked once per retry interval. Otherwise a slot
+                    // within the safe zone is counted in the store and sent to the coordinator in a tight loop.
+                    if (retryDue) {
+                        lastRetryTime = currentTime;
+                        Iterator<Map.Entry<Slot, Long>> iterator = pendingSlots.entrySet().iterator();
+                        while (iterator.hasNext()) {
+                            Map.Entry<Slot, Long> entry = iterator.next();
+                            if (tryToDeleteSlot(entry.getKey(), entry.getValue())) {
+                                iterator.remove();
                             }
-                        } else {
-                            slotsToDelete.put(slot); // Not deleted. Hence putting back in queue
                         }
                     }
 
+                    for (Slot newSlot : newSlots) {
+                        if (!pendingSlots.containsKey(newSlot) && !tryToDeleteSlot(newSlot, currentTime)) {
+                            pendingSlots.put(newSlot, currentTime);
+                        }
+                    }
+                    newSlots.clear();
+
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     log.error("SlotDeletionTask was interrupted while trying to delete the slot.", e);
                 } catch (Throwable throwable) {
+                    newSlots.clear();
                     log.error("Unexpected error occurred while trying to delete the slot.", throwable);
                 }
             }
-            log.info("SlotDeletionExecutor has shutdown with " + slotsToDelete.size() + " slots to delete.");
+            log.info("SlotDeletionExecutor has shutdown with " + (slotsToDelete.size() + pendingSlots.size())
+                    + " slots to delete.");
+        }
+
+        /**
+         * Try to delete the slot. Checks are done from cheapest to most expensive so that the message store and
+         * the coordinator are only consulted for slots that can actually be deleted.
+         *
+         * @param slot          slot to be removed from cluster
+         * @param scheduledTime time deletion of the slot was first requested
+         * @return true if the slot no longer needs to be tracked for deletion
+         * @throws AndesException on an error while counting messages in the slot
+         */
+        private boolean tryToDeleteSlot(Slot slot, long scheduledTime) throws AndesException {
+
+            // Messages of an overlapped slot were buffered after the deletion request. The slot is scheduled again
+            // when those messages are acknowledged.
+            if (slot.hasPendingMessages()) {
+                return true;
+            }
+
+            // The coordinator only deletes slots below the cluster wide safe zone, which never passes the safe zone
+            // of this node. No point asking it before that.
+            if (isClusteringEnabled
+                    && slot.getEndMessageId() >= SlotMessageCounter.getInstance().getCurrentNodeSafeZoneId()) {
+                return false;
+            }
+
+            // Check DB for any remaining messages. (JIRA FIX: MB-1612)
+            // If there are any remaining messages wait till overlapped slot delivers the messages
+            MetricManager.counter(Level.INFO, MetricsConstants.SLOT_DELETION_STORE_CHECKS).inc();
+            if (MessagingEngine.getInstance().getMessageCountForQueueInRange(
+                    slot.getStorageQueueName(), slot.getStartMessageId(), slot.getEndMessageId()) != 0) {
+                return false;
+            }
+
+            // Invoke coordinator to delete slot
+            if (!deleteSlotAtCoordinator(slot)) {
+                return false;
+            }
+
+            StorageQueue storageQueue = AndesContext.getInstance().getStorageQueueRegistry()
+                    .getStorageQueue(slot.getStorageQueueName());
+            if (storageQueue != null) {
+                storageQueue.deleteSlot(slot);
+            }
+            MetricManager.histogram(Level.INFO, MetricsConstants.SLOT_DELETION_LAG)
+                    .update(System.currentTimeMillis() - scheduledTime);
+            return true;
         }
 
         /**
@@ -64,7 +64,11 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
         ThreadFactory threadFactory = new ThreadFactoryBuilder()
                 .setNameFormat("MessageDeliveryTaskThreadPool-%d").build();
 
-        taskManager = new TaskExecutorService<>(numberOfThreads, IDLE_TASK_DELAY_MILLIS, threadFactory);
+        long maxIdleTaskDelayMillis = AndesConfigurationManager
+                .readValue(AndesConfiguration.PERFORMANCE_TUNING_SLOTS_MAX_IDLE_TASK_DELAY);
+
+        taskManager = new TaskExecutorService<>(numberOfThreads, IDLE_TASK_DELAY_MILLIS, maxIdleTaskDelayMillis,
+                threadFactory);
         taskManager.setExceptionHandler(new DeliveryTaskExceptionHandler());
         AndesContext andesContext = AndesContext.getInstance();
 
@@ -96,6 +100,19 @@ public final class SlotDeliveryWorkerManager implements StoreHealthListener, Net
                                     MessagingEngine.getInstance().getSlotCoordinator(),
                                         MessageFlusher.getInstance());
         taskManager.add(messageDeliveryTask);
+        // Task is already there if another subscriber is bound to the queue
+        taskManager.wakeUp(storageQueue.getName());
+    }
+
+    /**
+     * Notify the delivery task of the given storage queue that there may be messages to deliver. This is called
+     * when a slot is submitted, a message is buffered or a message is acknowledged, so that an idle delivery task
+     * doesn't wait for its idle delay to expire.
+     *
+     * @param storageQueueName name of the storage queue
+     */
+    public void wakeUpDeliveryForQueue(String storageQueueName) {
+        taskManager.wakeUp(storageQueueName);
     }
 
     /**
@@ -28,6 +28,7 @@ import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.server.cluster.coordination.SlotAgent;
 import org.wso2.andes.server.cluster.coordination.hazelcast.HazelcastAgent;
 import org.wso2.andes.server.cluster.coordination.rdbms.DatabaseSlotAgent;
+import org.wso2.andes.server.cluster.coordination.rdbms.WriteBehindSlotAgent;
 
 import java.util.Collections;
 import java.util.Set;
@@ -80,7 +81,13 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
         String slotMgtMode = AndesConfigurationManager.readValue(AndesConfiguration.SLOT_MANAGEMENT_STORAGE);
         if ("RDBMS".equalsIgnoreCase(slotMgtMode)) {
             // Use RDBMS slot information storing
-            slotAgent = new DatabaseSlotAgent();
+            int writeBehindInterval = AndesConfigurationManager.readValue(
+                    AndesConfiguration.SLOT_MANAGEMENT_WRITE_BEHIND_INTERVAL);
+            if (writeBehindInterval > 0) {
+                slotAgent = new WriteBehindSlotAgent(new DatabaseSlotAgent(), writeBehindInterval);
+            } else {
+                slotAgent = new DatabaseSlotAgent();
+            }
         } else if ("HAZELCAST".equalsIgnoreCase(slotMgtMode)) {
             // Use Hazelcast slot information storing
             slotAgent = HazelcastAgent.getInstance();
@@ -512,6 +519,9 @@ public class SlotManagerClusterMode extends AbstractSlotManager {
      */
     public void shutDownSlotManager() {
         slotDeleteSafeZoneCalc.setRunning(false);
+        if (slotAgent instanceof WriteBehindSlotAgent) {
+            ((WriteBehindSlotAgent) slotAgent).stop();
+        }
     }
 
     /**
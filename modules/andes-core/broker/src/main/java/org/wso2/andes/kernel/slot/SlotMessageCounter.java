@@ -193,6 +193,8 @@ public class SlotMessageCounter {
                     queueToSlotMap.remove(storageQueueName);
                     slotCoordinator.updateMessageId(storageQueueName, slot.getStartMessageId(), slot.getEndMessageId(),
                             localSafeZone);
+                    // Local subscribers need not wait for the delivery task idle delay to see the new slot
+                    SlotDeliveryWorkerManager.getInstance().wakeUpDeliveryForQueue(storageQueueName);
                 } catch (ConnectionException e) {
                     // we only log here since this is called again from timer task if previous attempt failed
                     log.error("Error occurred while connecting to the thrift coordinator.", e);
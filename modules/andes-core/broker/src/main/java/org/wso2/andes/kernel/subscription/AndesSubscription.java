@@ -88,12 +88,27 @@ public class AndesSubscription {
      */
     public AndesSubscription(String subscriptionId, StorageQueue storageQueue,
                              ProtocolType protocol, SubscriberConnection subscriberConnection) {
+        this(subscriptionId, storageQueue, protocol, subscriberConnection, true);
+    }
+
+    /**
+     * Create a AndesSubscription with a given activity state. This is used to represent subscriptions
+     * notified by other nodes.
+     *
+     * @param subscriptionId       ID of subscription. This is unique cluster-wide for a subscription
+     * @param storageQueue         queue the subscription is bound to
+     * @param protocol             protocol of the subscription (AMQP/MQTT)
+     * @param subscriberConnection connection information of the subscriber
+     * @param isActive             true if the subscription is active
+     */
+    public AndesSubscription(String subscriptionId, StorageQueue storageQueue, ProtocolType protocol,
+                             SubscriberConnection subscriberConnection, boolean isActive) {
 
         this.subscriptionId = subscriptionId;
         this.storageQueue = storageQueue;
         this.protocolType = protocol;
         this.subscriberConnection = subscriberConnection;
-        this.isActive = true;
+        this.isActive = isActive;
 
     }
 
@@ -208,6 +223,8 @@ public class AndesSubscription {
      */
     public void onMessageAck(long messageID) throws AndesException {
         subscriberConnection.onMessageAck(messageID);
+        // Subscriber has room for another message
+        storageQueue.wakeUpMessageDelivery();
     }
 
     /**
@@ -44,6 +44,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.UUID;
 
@@ -185,31 +186,50 @@ public class AndesSubscriptionManager implements NetworkPartitionListener {
         if (isNetworkPartitioned) {
             throw new SubscriptionException("Cannot add new subscription due to network partition");
         }
-        AndesSubscription remoteSubscription = new AndesSubscription(subscriptionEvent.getEncodedSubscription());
-        registerSubscription(remoteSubscription);
-        log.info("Sync subscription [create] " + remoteSubscription.getProtocolType() + " " + remoteSubscription
-                .toString());
+        for (AndesSubscription remoteSubscription : subscriptionEvent.getSubscriptions()) {
+            registerSubscription(remoteSubscription);
+            log.info("Sync subscription [create] " + remoteSubscription.getProtocolType() + " " + remoteSubscription
+                    .toString());
+        }
 
     }
 
     public void closeLocalSubscription(InboundSubscriptionEvent closeSubscriptionEvent) throws AndesException {
 
         UUID protocolChannel = closeSubscriptionEvent.getSubscriber().getProtocolChannelID();
-        AndesSubscription subscription = getSubscriptionByProtocolChannel(protocolChannel);
+        String storageQueueName = closeSubscriptionEvent.getBoundStorageQueueName();
+        AndesSubscription subscription = null;
+
+        // A channel may carry a subscription per storage queue, close only the one bound to the queue of the event
+        for (AndesSubscription subscriptionOfChannel : subscriptionRegistry.getSubscriptionsByChannel(protocolChannel)) {
+            if (subscriptionOfChannel.getStorageQueue().getName().equals(storageQueueName)) {
+                subscription = subscriptionOfChannel;
+                break;
+            }
+        }
 
+        if (null == subscription) {
+            log.warn("No subscription found for channel ID " + protocolChannel + " and storage queue "
+                    + storageQueueName + " to close");
+            return;
+        }
         removeLocalSubscriptionAndNotify(subscription);
     }
 
     public void closeRemoteSubscription(InboundSubscriptionSyncEvent closeSubscriptionEvent) throws AndesException {
-        AndesSubscription closedSubRepresentation =
-                new AndesSubscription(closeSubscriptionEvent.getEncodedSubscription());
-
-        UUID protocolChannel = closedSubRepresentation.getSubscriberConnection().getProtocolChannelID();
-        AndesSubscription subscription = getSubscriptionByProtocolChannel(protocolChannel);
+        for (AndesSubscription closedSubRepresentation : closeSubscriptionEvent.getSubscriptions()) {
+            AndesSubscription subscription = subscriptionRegistry
+                    .getSubscriptionById(closedSubRepresentation.getSubscriptionId());
+            if (null == subscription) {
+                log.warn("No subscription found for subscription ID " + closedSubRepresentation.getSubscriptionId()
+                        + " to close");
+                continue;
+            }
 
-        subscriptionRegistry.removeSubscription(subscription);
+            subscriptionRegistry.removeSubscription(subscription);
 
-        log.info("Sync subscription [close] " + subscription.getProtocolType() + " " + subscription.toString());
+            log.info("Sync subscription [close] " + subscription.getProtocolType() + " " + subscription.toString());
+        }
     }
 
     /**
@@ -280,11 +300,13 @@ public class AndesSubscriptionManager implements NetworkPartitionListener {
      * @param nodeID    ID of the node subscription bound to
      */
     public void removeSubscriptionFromRegistry(UUID channelID, String nodeID) throws AndesException {
-        Query<AndesSubscription> subscriptionQuery = and
-                (equal(AndesSubscription.CHANNEL_ID, channelID), equal(AndesSubscription
-                        .NODE_ID, nodeID));
-        for (AndesSubscription sub : subscriptionRegistry.exucuteQuery(subscriptionQuery)) {
-            removeLocalSubscriptionAndNotify(sub);
+        // Copy, since closing a subscription removes it from the subscriptions of the channel
+        List<AndesSubscription> subscriptionsOfChannel =
+                new ArrayList<>(subscriptionRegistry.getSubscriptionsByChannel(channelID));
+        for (AndesSubscription sub : subscriptionsOfChannel) {
+            if (nodeID.equals(sub.getSubscriberConnection().getConnectedNode())) {
+                removeLocalSubscriptionAndNotify(sub);
+            }
         }
     }
 
@@ -301,19 +323,21 @@ public class AndesSubscriptionManager implements NetworkPartitionListener {
 
     public AndesSubscription getSubscriptionByProtocolChannel(UUID channelID, ProtocolType
             protocolType) {
-        Query<AndesSubscription> subscriptionQuery = and
-                (equal(AndesSubscription.CHANNEL_ID, channelID), equal(AndesSubscription
-                        .NODE_ID, localNodeId), equal(AndesSubscription
-                        .PROTOCOL, protocolType));
-        return subscriptionRegistry.exucuteQuery(subscriptionQuery).iterator().next();
+        for (AndesSubscription subscription : subscriptionRegistry.getSubscriptionsByChannel(channelID)) {
+            if (protocolType == subscription.getProtocolType()
+                    && localNodeId.equals(subscription.getSubscriberConnection().getConnectedNode())) {
+                return subscription;
+            }
+        }
+        throw new NoSuchElementException("No local " + protocolType + " subscription found for channel ID "
+                + channelID);
     }
 
     public AndesSubscription getSubscriptionByProtocolChannel(UUID channelID) {
-        Query<AndesSubscription> subscriptionQuery = equal(AndesSubscription.CHANNEL_ID, channelID);
-        Iterable<AndesSubscription> subscriptions = subscriptionRegistry.exucuteQuery(subscriptionQuery);
-        Iterator<AndesSubscription> subIterator = subscriptions.iterator();
-        if (subIterator.hasNext()) {
-            return subIterator.next();
+        Iterator<AndesSubscription> subscriptions = subscriptionRegistry.getSubscriptionsByChannel(channelID)
+                .iterator();
+        if (subscriptions.hasNext()) {
+            return subscriptions.next();
         } else {
             log.warn("No subscription found for channel ID " + channelID);
             return null;
@@ -326,15 +350,11 @@ public class AndesSubscriptionManager implements NetworkPartitionListener {
      * @return matching subscription
      */
     public AndesSubscription getSubscriptionById(String  subscriptionId) {
-        Query<AndesSubscription> subscriptionQuery = equal(AndesSubscription.SUB_ID, subscriptionId);
-        Iterable<AndesSubscription> subscriptions = subscriptionRegistry.exucuteQuery(subscriptionQuery);
-        Iterator<AndesSubscription> subIterator = subscriptions.iterator();
-        if (subIterator.hasNext()) {
-            return subIterator.next();
-        } else {
+        AndesSubscription subscription = subscriptionRegistry.getSubscriptionById(subscriptionId);
+        if (null == subscription) {
             log.warn("No subscription found for subscription ID " + subscriptionId);
-            return null;
         }
+        return subscription;
     }
 
     public AndesSubscription getSubscriptionByNode(String nodeID, ProtocolType
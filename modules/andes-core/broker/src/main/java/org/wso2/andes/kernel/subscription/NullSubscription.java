@@ -51,6 +51,12 @@ public class NullSubscription implements OutboundSubscription {
         return false;
     }
 
+    @Override
+    public boolean hasRoomToAcceptMessages() {
+        log.warn("NullSubscription  hasRoomToAcceptMessages() method invoked");
+        return false;
+    }
+
     @Override
     public boolean isOutboundConnectionLive() {
         log.warn("NullSubscription  isOutboundConnectionLive() method invoked");
@@ -56,6 +56,15 @@ public interface OutboundSubscription {
     boolean sendMessageToSubscriber(ProtocolMessage messageMetadata, AndesContent content) throws
             AndesException;
 
+    /**
+     * Check if the protocol side of the subscription could accept more messages. This is consulted in addition to
+     * the un-acknowledged message limit of the subscriber connection, for protocols which impose their own limits
+     * across subscriptions.
+     *
+     * @return true if the subscription could accept messages
+     */
+    boolean hasRoomToAcceptMessages();
+
     /**
      * Check if subscription is active. If the underlying channel can accept
      * messages it is considered as live
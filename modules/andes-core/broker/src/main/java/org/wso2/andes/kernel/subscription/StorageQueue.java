@@ -110,6 +110,28 @@ public class StorageQueue {
         this.messageHandler = new MessageHandler(name);
     }
 
+    /**
+     * Create a representation of a storage queue notified by another node. Unlike a registered queue this
+     * has no message handler, it only carries the queue information.
+     *
+     * @param name                name of the storage queue
+     * @param isDurable           indicate if queue should be preserved on subscription close
+     * @param isShared            indicates if messages should be shared by subscribers bound
+     * @param queueOwner          owner of the queue (virtualhost)
+     * @param isExclusive         is the queue exclusive
+     * @param lastPurgedTimestamp time last purge is performed on the queue
+     */
+    public StorageQueue(String name, boolean isDurable, boolean isShared, String queueOwner, boolean isExclusive,
+                        long lastPurgedTimestamp) {
+        this.name = name;
+        this.isDurable = isDurable;
+        this.isShared = isShared;
+        this.queueOwner = queueOwner;
+        this.isExclusive = isExclusive;
+        this.lastPurgedTimestamp = lastPurgedTimestamp;
+        this.boundedSubscriptions = new ArrayList<>(1);
+    }
+
     /**
      * create an instance of andes queue
      *
@@ -355,6 +377,16 @@ public class StorageQueue {
      */
     public void bufferMessageForDelivery(DeliverableAndesMetadata message) {
         messageHandler.bufferMessage(message);
+        messageHandler.wakeUpMessageDelivery(this);
+    }
+
+    /**
+     * Notify the delivery task of the queue that messages may be deliverable. Delivery task is idle
+     * when it has nothing to deliver or subscribers have no room, and it is not checked
+     * again until notified or the idle delay expires.
+     */
+    public void wakeUpMessageDelivery() {
+        messageHandler.wakeUpMessageDelivery(this);
     }
 
     /**
@@ -34,6 +34,11 @@ import java.util.UUID;
  */
 public class SubscriberConnection {
 
+    /**
+     * Default maximum number of sent but un-acknowledged messages a connection could have
+     */
+    public static final int DEFAULT_MAX_UNACKED_MESSAGES = 10000;
+
     private String connectedIP;
 
     private UUID protocolChannelID;
@@ -63,14 +68,45 @@ public class SubscriberConnection {
      */
     public SubscriberConnection(String connectedIP, String connectedNode, UUID protocolChannelID,
                                 OutboundSubscription outboundSubscription) {
+        this(connectedIP, connectedNode, protocolChannelID, outboundSubscription, DEFAULT_MAX_UNACKED_MESSAGES);
+    }
+
+    /**
+     * Create a subscriber connection to deliver messages in Andes kernel with a protocol specific limit on
+     * un-acknowledged messages. Once the limit is reached the connection will not accept messages until
+     * acknowledgements arrive.
+     *
+     * @param connectedIP          IP address of subscriber host machine
+     * @param connectedNode        Node ID of node subscriber connection is created
+     * @param protocolChannelID    ID of protocol channel of the connection
+     * @param outboundSubscription Protocol specific subscriber
+     * @param maxUnackedMessages   maximum number of sent but un-acknowledged messages
+     */
+    public SubscriberConnection(String connectedIP, String connectedNode, UUID protocolChannelID,
+                                OutboundSubscription outboundSubscription, int maxUnackedMessages) {
         this.connectedIP = connectedIP;
         this.connectedNode = connectedNode;
         this.protocolChannelID = protocolChannelID;
         //create a tracker with maximum number of messages to keep in memory
-        this.outBoundMessageTracker = new OutBoundMessageTracker(10000);
+        this.outBoundMessageTracker = new OutBoundMessageTracker(maxUnackedMessages);
         this.outboundSubscription = outboundSubscription;
     }
 
+    /**
+     * Create a representation of a subscriber connection made to another node. Messages are never sent
+     * through such a connection, hence it does not track outbound messages.
+     *
+     * @param connectedIP       IP address of subscriber host machine
+     * @param connectedNode     Node ID of node subscriber connection is created
+     * @param protocolChannelID ID of protocol channel of the connection
+     */
+    public SubscriberConnection(String connectedIP, String connectedNode, UUID protocolChannelID) {
+        this.connectedIP = connectedIP;
+        this.connectedNode = connectedNode;
+        this.protocolChannelID = protocolChannelID;
+        this.outboundSubscription = new NullSubscription();
+    }
+
     /**
      * Create a SubscriberConnection object from encoded information
      *
@@ -186,12 +222,13 @@ public class SubscriberConnection {
      * Check if subscriber has room to accept messages. This indicates
      * consumer side flow control. If there is a lot of sent but
      * unacknowledged messages it is not ready to accept messages.
+     * Protocol specific limits of the outbound subscription are also considered.
      *
      * @return true if subscriber is ready to accept the messages to send to
      * client side.
      */
     public boolean hasRoomToAcceptMessages() {
-        return outBoundMessageTracker.hasRoomToAcceptMessages();
+        return outBoundMessageTracker.hasRoomToAcceptMessages() && outboundSubscription.hasRoomToAcceptMessages();
     }
 
     /**
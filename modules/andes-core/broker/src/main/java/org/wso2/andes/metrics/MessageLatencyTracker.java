@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+import org.wso2.carbon.metrics.manager.Gauge;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps latency histograms of messages per destination, broken down by the stage of the message flow. A message is
+ * sampled or not purely based on its message id so that the same messages are tracked through every stage,
+ * including stages that run on a different node than the publisher, without carrying any state with the message.
+ * <p/>
+ * Stages measured from the publish time use the arrival time persisted with the message metadata, therefore they
+ * have millisecond precision. Dispatch to acknowledgement is measured locally with {@link System#nanoTime()}.
+ * All values are recorded in micro seconds.
+ * <p/>
+ * When sampling is disabled (sampling rate 0) every hook costs a single volatile read.
+ */
+public class MessageLatencyTracker {
+
+    private static Log log = LogFactory.getLog(MessageLatencyTracker.class);
+
+    /**
+     * Stages of the message flow for which latency is recorded
+     */
+    public enum Stage {
+
+        /**
+         * From message arrival at the broker until the message is written to the message store
+         */
+        PUBLISH_TO_STORE,
+
+        /**
+         * From message arrival until the message metadata is read from the store for delivery
+         */
+        PUBLISH_TO_READ,
+
+        /**
+         * From reading the metadata from the store until the message is handed over to the protocol
+         */
+        READ_TO_DISPATCH,
+
+        /**
+         * From message arrival until the message is handed over to the protocol for delivery
+         */
+        PUBLISH_TO_DISPATCH,
+
+        /**
+         * From handing over the message to the protocol until the subscriber acknowledges it
+         */
+        DISPATCH_TO_ACK
+    }
+
+    /**
+     * Name under which destinations beyond the configured maximum are accumulated
+     */
+    public static final String OTHER_DESTINATIONS = "[other]";
+
+    /**
+     * Name under which latencies of all destinations are accumulated
+     */
+    public static final String ALL_DESTINATIONS = "[all]";
+
+    private static final int STAGE_COUNT = Stage.values().length;
+
+    private static final LatencyHistogram[] allDestinationHistograms = createHistograms();
+
+    private static final LatencyHistogram[] otherDestinationHistograms = createHistograms();
+
+    private static final ConcurrentMap<String, LatencyHistogram[]> destinationHistograms =
+            new ConcurrentHashMap<>();
+
+    /**
+     * One in samplingRate messages is tracked. 0 disables tracking
+     */
+    private static volatile int samplingRate = 0;
+
+    private static int maxDestinations = 100;
+
+    private MessageLatencyTracker() {
+    }
+
+    /**
+     * Initialize latency tracking and register the end to end latency gauges with the metrics manager
+     *
+     * @param rate            one in this number of messages is tracked, 0 to disable
+     * @param destinationLimit maximum number of destinations to keep separate histograms for
+     */
+    public static void initialize(int rate, int destinationLimit) {
+        setSamplingRate(rate);
+        maxDestinations = Math.max(0, destinationLimit);
+
+        MetricManager.gauge(Level.INFO, MetricsConstants.LATENCY_END_TO_END_P50, new PercentileGauge(50));
+        MetricManager.gauge(Level.INFO, MetricsConstants.LATENCY_END_TO_END_P99, new PercentileGauge(99));
+    }
+
+    /**
+     * Set the sampling rate. One in the given number of messages is tracked, 0 disables tracking
+     *
+     * @param rate sampling rate
+     */
+    public static void setSamplingRate(int rate) {
+        samplingRate = Math.max(0, rate);
+        log.info("Message latency sampling rate set to " + samplingRate);
+    }
+
+    /**
+     * @return current sampling rate. 0 if tracking is disabled
+     */
+    public static int getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * @return true if latency tracking is enabled
+     */
+    public static boolean isEnabled() {
+        return samplingRate != 0;
+    }
+
+    /**
+     * Called when a message is written to the message store
+     *
+     * @param metadata metadata of the stored message
+     */
+    public static void onMessageStored(AndesMessageMetadata metadata) {
+        if (isSampled(metadata.getMessageID()) && metadata.getArrivalTime() > 0) {
+            record(metadata.getDestination(), Stage.PUBLISH_TO_STORE,
+                    millisToMicros(System.currentTimeMillis() - metadata.getArrivalTime()));
+        }
+    }
+
+    /**
+     * Called when a message is handed over to the protocol to be written to the subscriber
+     *
+     * @param metadata metadata of the dispatched message
+     */
+    public static void onMessageDispatched(DeliverableAndesMetadata metadata) {
+        if (!isSampled(metadata.getMessageID())) {
+            return;
+        }
+
+        metadata.setTimeMessageIsDispatched(System.nanoTime());
+
+        long now = System.currentTimeMillis();
+        long readTime = metadata.getTimeMessageIsRead();
+        String destination = metadata.getDestination();
+
+        record(destination, Stage.READ_TO_DISPATCH, millisToMicros(now - readTime));
+        if (metadata.getArrivalTime() > 0) {
+            record(destination, Stage.PUBLISH_TO_READ, millisToMicros(readTime - metadata.getArrivalTime()));
+            record(destination, Stage.PUBLISH_TO_DISPATCH, millisToMicros(now - metadata.getArrivalTime()));
+        }
+    }
+
+    /**
+     * Called when the subscriber acknowledges a message
+     *
+     * @param metadata metadata of the acknowledged message
+     */
+    public static void onMessageAcknowledged(DeliverableAndesMetadata metadata) {
+        long dispatchTime = metadata.getTimeMessageIsDispatched();
+        if (dispatchTime != 0 && isSampled(metadata.getMessageID())) {
+            record(metadata.getDestination(), Stage.DISPATCH_TO_ACK,
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dispatchTime));
+        }
+    }
+
+    /**
+     * @return names of destinations for which latency is tracked, including {@link #ALL_DESTINATIONS} and
+     * {@link #OTHER_DESTINATIONS}
+     */
+    public static List<String> getDestinations() {
+        List<String> destinations = new ArrayList<>(destinationHistograms.size() + 2);
+        destinations.add(ALL_DESTINATIONS);
+        destinations.addAll(destinationHistograms.keySet());
+        destinations.add(OTHER_DESTINATIONS);
+        return destinations;
+    }
+
+    /**
+     * Get the latency histogram of a destination for a given stage
+     *
+     * @param destination destination name, {@link #ALL_DESTINATIONS} or {@link #OTHER_DESTINATIONS}
+     * @param stage       stage of the message flow
+     * @return histogram, null if nothing is tracked for the destination
+     */
+    public static LatencyHistogram getHistogram(String destination, Stage stage) {
+        LatencyHistogram[] histograms;
+        if (ALL_DESTINATIONS.equals(destination)) {
+            histograms = allDestinationHistograms;
+        } else if (OTHER_DESTINATIONS.equals(destination)) {
+            histograms = otherDestinationHistograms;
+        } else {
+            histograms = destinationHistograms.get(destination);
+        }
+        return (null == histograms) ? null : histograms[stage.ordinal()];
+    }
+
+    /**
+     * Clear all recorded latencies
+     */
+    public static void reset() {
+        destinationHistograms.clear();
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            allDestinationHistograms[i].reset();
+            otherDestinationHistograms[i].reset();
+        }
+    }
+
+    /**
+     * Decide whether a message is sampled. The message id is mixed first since consecutive ids generated by a node
+     * share their lower bits
+     */
+    private static boolean isSampled(long messageId) {
+        int rate = samplingRate;
+        if (rate == 0) {
+            return false;
+        }
+        long mixed = (messageId * 0x9E3779B97F4A7C15L) >>> 33;
+        return (mixed % rate) == 0;
+    }
+
+    private static void record(String destination, Stage stage, long latencyInMicros) {
+        allDestinationHistograms[stage.ordinal()].record(latencyInMicros);
+        histogramsOf(destination)[stage.ordinal()].record(latencyInMicros);
+    }
+
+    /**
+     * Get histograms of a destination, creating them if the destination limit is not reached yet
+     */
+    private static LatencyHistogram[] histogramsOf(String destination) {
+        if (null == destination) {
+            return otherDestinationHistograms;
+        }
+        LatencyHistogram[] histograms = destinationHistograms.get(destination);
+        if (null == histograms) {
+            if (destinationHistograms.size() >= maxDestinations) {
+                return otherDestinationHistograms;
+            }
+            LatencyHistogram[] newHistograms = createHistograms();
+            histograms = destinationHistograms.putIfAbsent(destination, newHistograms);
+            if (null == histograms) {
+                histograms = newHistograms;
+            }
+        }
+        return histograms;
+    }
+
+    private static LatencyHistogram[] createHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[STAGE_COUNT];
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    private static long millisToMicros(long millis) {
+        return TimeUnit.MILLISECONDS.toMicros(millis);
+    }
+
+    /**
+     * Gauge reporting a percentile of the end to end latency of all destinations in micro seconds
+     */
+    private static class PercentileGauge implements Gauge<Long> {
+
+        private final double percentile;
+
+        PercentileGauge(double percentile) {
+            this.percentile = percentile;
+        }
+
+        @Override
+        public Long getValue() {
+            return allDestinationHistograms[Stage.PUBLISH_TO_DISPATCH.ordinal()].getValueAtPercentile(percentile);
+        }
+    }
+}
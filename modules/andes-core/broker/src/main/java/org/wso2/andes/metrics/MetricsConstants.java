@@ -39,6 +39,16 @@ public class MetricsConstants {
      */
     public static final String DB_READ = PREFIX + "database.read";
 
+    /**
+     * Number of statements prepared per statement shape. Shape name is appended to the metric name
+     */
+    public static final String DB_STATEMENT_PREPARE = PREFIX + "database.statement.prepare.";
+
+    /**
+     * Time taken to execute statements per statement shape. Shape name is appended to the metric name
+     */
+    public static final String DB_STATEMENT_EXECUTE = PREFIX + "database.statement.execute.";
+
     /**
      * Add message content to the message store
      */
@@ -138,6 +148,18 @@ public class MetricsConstants {
      */
     public static final String UPDATE_META_DATA_INFORMATION = PREFIX + "store.metadata.update";
 
+    /*Slot deletion*/
+
+    /**
+     * Number of times the message store was checked for remaining messages before deleting a slot
+     */
+    public static final String SLOT_DELETION_STORE_CHECKS = PREFIX + "slot.deletion.storeCheck.count";
+
+    /**
+     * Time in milliseconds from a slot being scheduled for deletion until it is deleted at the coordinator
+     */
+    public static final String SLOT_DELETION_LAG = PREFIX + "slot.deletion.lag";
+
     /*Buffer Values*/
 
     /**
@@ -215,4 +237,16 @@ public class MetricsConstants {
      */
     public static final String REJECT_MESSAGES = PREFIX + "reject.count";
 
+    /*Latency*/
+
+    /**
+     * 50th percentile of the time from message arrival until dispatch to a subscriber, in micro seconds
+     */
+    public static final String LATENCY_END_TO_END_P50 = PREFIX + "latency.endToEnd.p50";
+
+    /**
+     * 99th percentile of the time from message arrival until dispatch to a subscriber, in micro seconds
+     */
+    public static final String LATENCY_END_TO_END_P99 = PREFIX + "latency.endToEnd.p99";
+
 }
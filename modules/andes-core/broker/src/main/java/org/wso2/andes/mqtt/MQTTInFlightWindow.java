@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.mqtt;
+
+import com.gs.collections.impl.map.mutable.primitive.LongIntHashMap;
+import org.wso2.andes.kernel.DeliverableAndesMetadata;
+
+import java.util.Arrays;
+
+/**
+ * Tracks QoS 1 and QoS 2 messages which are on flight to a single MQTT client.
+ * <p>
+ * Each client owns its own packet id space. Packet ids are handed out from a ring of free ids, and the state of an
+ * on flight message is kept in primitive arrays indexed by (packet id - 1), so that correlating an acknowledgement
+ * back to the cluster message is a plain array access. The arrays grow on demand up to the maximum number of on flight
+ * messages allowed for the client, which keeps the footprint of idle clients small.
+ * </p>
+ * <p><b>Note: </b>All operations are guarded by the window itself. Since there is one window per client, publishers
+ * and subscribers of different clients never contend with each other.</p>
+ */
+public class MQTTInFlightWindow {
+
+    /**
+     * MQTT packet ids are unsigned shorts, zero is not a valid id
+     */
+    public static final int MAX_PACKET_ID = 65535;
+
+    /**
+     * Returned when there is no packet id available for a new message
+     */
+    public static final int NO_PACKET_ID = 0;
+
+    /**
+     * Number of slots allocated when the first message is sent to the client
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Marks a message for which a rejection was already raised, it will not be reported again until it is resent
+     */
+    private static final int REJECTED = Integer.MAX_VALUE;
+
+    /**
+     * Maximum number of messages which can be on flight at a given time
+     */
+    private final int maxInFlightMessages;
+
+    /**
+     * Cluster specific message id of the message holding each packet id
+     */
+    private long[] clusterMessageIDs;
+
+    /**
+     * Topic subscription of the client the message holding each packet id was sent through
+     */
+    private MQTTSubscription[] subscriptions;
+
+    /**
+     * Message information which is required to reject the message holding each packet id
+     */
+    private DeliverableAndesMetadata[] metadata;
+
+    /**
+     * The ping generation in which each message was sent out
+     */
+    private int[] sentGenerations;
+
+    /**
+     * Ring of packet ids which are free to be handed out
+     */
+    private int[] freePacketIDs;
+
+    /**
+     * Position of the next free packet id in the ring
+     */
+    private int freeHead;
+
+    /**
+     * Number of free packet ids in the ring
+     */
+    private int freeCount;
+
+    /**
+     * Number of packet ids created so far, ids from 1 to this value are either free or on flight
+     */
+    private int capacity;
+
+    /**
+     * Correlates a cluster message id to the packet id it was sent with, required to identify resends
+     */
+    private final LongIntHashMap packetIDByClusterMessageID = new LongIntHashMap();
+
+    /**
+     * Incremented on every ping request received from the client
+     */
+    private int currentGeneration;
+
+    /**
+     * Creates an empty window, no memory is allocated until the first message is sent
+     *
+     * @param maxInFlightMessages maximum number of messages which can be on flight, should be <= MAX_PACKET_ID
+     */
+    public MQTTInFlightWindow(int maxInFlightMessages) {
+        this.maxInFlightMessages = Math.max(1, Math.min(maxInFlightMessages, MAX_PACKET_ID));
+        this.clusterMessageIDs = new long[0];
+        this.subscriptions = new MQTTSubscription[0];
+        this.metadata = new DeliverableAndesMetadata[0];
+        this.sentGenerations = new int[0];
+        this.freePacketIDs = new int[0];
+    }
+
+    /**
+     * Records a message which is sent out to the client. If the message is being resent the packet id it was given
+     * before will be reused.
+     *
+     * @param clusterMessageID the id generated by andes for cluster representation of the message
+     * @param subscription     the topic subscription the message is delivered through
+     * @param messageMetadata  message information relevant that should be used when sending a nack
+     * @return packet id to be used for the message or {@link #NO_PACKET_ID} if the window is full
+     */
+    public synchronized int add(long clusterMessageID, MQTTSubscription subscription,
+                                DeliverableAndesMetadata messageMetadata) {
+
+        int packetID = packetIDByClusterMessageID.getIfAbsent(clusterMessageID, NO_PACKET_ID);
+
+        if (NO_PACKET_ID == packetID) {
+            packetID = nextFreePacketID();
+            if (NO_PACKET_ID == packetID) {
+                return NO_PACKET_ID;
+            }
+            packetIDByClusterMessageID.put(clusterMessageID, packetID);
+        }
+
+        int index = packetID - 1;
+        clusterMessageIDs[index] = clusterMessageID;
+        subscriptions[index] = subscription;
+        metadata[index] = messageMetadata;
+        sentGenerations[index] = currentGeneration;
+
+        return packetID;
+    }
+
+    /**
+     * Releases the packet id of an acknowledged message so that it could be reused. The cluster message id and the
+     * subscription are taken out together, so that a concurrent resend could not hand the packet id to another
+     * message in between.
+     *
+     * @param packetID the packet id the acknowledgement was received for
+     * @return the released message or null if the packet id is not on flight
+     */
+    public synchronized ReleasedMessage release(int packetID) {
+        if (!isOnFlight(packetID)) {
+            return null;
+        }
+
+        int index = packetID - 1;
+        ReleasedMessage releasedMessage = new ReleasedMessage(clusterMessageIDs[index], subscriptions[index]);
+
+        packetIDByClusterMessageID.remove(releasedMessage.getClusterMessageID());
+        subscriptions[index] = null;
+        metadata[index] = null;
+
+        freePacketIDs[(freeHead + freeCount) % freePacketIDs.length] = packetID;
+        freeCount++;
+
+        return releasedMessage;
+    }
+
+    /**
+     * Returns the subscription the message holding the given packet id was sent through
+     *
+     * @param packetID the packet id of the message
+     * @return the subscription or null if the packet id is not on flight
+     */
+    public synchronized MQTTSubscription getSubscription(int packetID) {
+        return isOnFlight(packetID) ? subscriptions[packetID - 1] : null;
+    }
+
+    /**
+     * Returns the message information of the message holding the given packet id
+     *
+     * @param packetID the packet id of the message
+     * @return the message information or null if the packet id is not on flight
+     */
+    public synchronized DeliverableAndesMetadata getMetadata(int packetID) {
+        return isOnFlight(packetID) ? metadata[packetID - 1] : null;
+    }
+
+    /**
+     * Called upon a ping request from the client. Returns the packet ids of messages which were on flight during the
+     * whole interval between the previous ping and this one, these are the messages which should be rejected. A
+     * message is reported only once until it is resent.
+     *
+     * @return packet ids of the messages which have not been acknowledged within a ping interval
+     */
+    public synchronized int[] onPingRequest() {
+        int[] stalePacketIDs = new int[capacity - freeCount];
+        int staleCount = 0;
+
+        for (int index = 0; index < capacity; index++) {
+            if (null != subscriptions[index] && sentGenerations[index] < currentGeneration) {
+                stalePacketIDs[staleCount++] = index + 1;
+                sentGenerations[index] = REJECTED;
+            }
+        }
+
+        currentGeneration++;
+
+        return Arrays.copyOf(stalePacketIDs, staleCount);
+    }
+
+    /**
+     * @return number of messages which are on flight
+     */
+    public synchronized int size() {
+        return capacity - freeCount;
+    }
+
+    /**
+     * Checks whether another message could be sent to the client without exceeding the maximum number of on flight
+     * messages
+     *
+     * @return true if a packet id is available for a new message
+     */
+    public synchronized boolean hasRoom() {
+        return (capacity - freeCount) < maxInFlightMessages;
+    }
+
+    /**
+     * Checks whether a given packet id is currently held by a message
+     *
+     * @param packetID the packet id
+     * @return true if the packet id is held by a message
+     */
+    private boolean isOnFlight(int packetID) {
+        return packetID > NO_PACKET_ID && packetID <= capacity && null != subscriptions[packetID - 1];
+    }
+
+    /**
+     * Takes the next packet id off the free ring, growing the window if it has not reached its maximum size
+     *
+     * @return a free packet id or {@link #NO_PACKET_ID} if the window is full
+     */
+    private int nextFreePacketID() {
+        if (0 == freeCount && !grow()) {
+            return NO_PACKET_ID;
+        }
+
+        int packetID = freePacketIDs[freeHead];
+        freeHead = (freeHead + 1) % freePacketIDs.length;
+        freeCount--;
+
+        return packetID;
+    }
+
+    /**
+     * Doubles the number of packet ids the window could hand out, bounded by the maximum on flight messages
+     *
+     * @return false if the window has already reached its maximum size
+     */
+    private boolean grow() {
+        if (capacity >= maxInFlightMessages) {
+            return false;
+        }
+
+        int newCapacity = Math.min(Math.max(capacity * 2, INITIAL_CAPACITY), maxInFlightMessages);
+
+        clusterMessageIDs = Arrays.copyOf(clusterMessageIDs, newCapacity);
+        subscriptions = Arrays.copyOf(subscriptions, newCapacity);
+        metadata = Arrays.copyOf(metadata, newCapacity);
+        sentGenerations = Arrays.copyOf(sentGenerations, newCapacity);
+
+        //Free ids are kept in order so that recently released ids are not handed out before the older ones
+        int[] newFreePacketIDs = new int[newCapacity];
+        for (int i = 0; i < freeCount; i++) {
+            newFreePacketIDs[i] = freePacketIDs[(freeHead + i) % freePacketIDs.length];
+        }
+        for (int packetID = capacity + 1; packetID <= newCapacity; packetID++) {
+            newFreePacketIDs[freeCount++] = packetID;
+        }
+
+        freePacketIDs = newFreePacketIDs;
+        freeHead = 0;
+        capacity = newCapacity;
+
+        return true;
+    }
+
+    /**
+     * A message which was taken off the window upon an acknowledgement
+     */
+    public static class ReleasedMessage {
+
+        /**
+         * Cluster specific message id of the acknowledged message
+         */
+        private final long clusterMessageID;
+
+        /**
+         * Topic subscription the acknowledged message was sent through
+         */
+        private final MQTTSubscription subscription;
+
+        ReleasedMessage(long clusterMessageID, MQTTSubscription subscription) {
+            this.clusterMessageID = clusterMessageID;
+            this.subscription = subscription;
+        }
+
+        /**
+         * @return the id generated by andes for cluster representation of the message
+         */
+        public long getClusterMessageID() {
+            return clusterMessageID;
+        }
+
+        /**
+         * @return the topic subscription the message was delivered through
+         */
+        public MQTTSubscription getSubscription() {
+            return subscription;
+        }
+    }
+}
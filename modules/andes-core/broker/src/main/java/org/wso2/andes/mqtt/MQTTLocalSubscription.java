@@ -184,11 +184,16 @@ public class MQTTLocalSubscription implements OutboundSubscription {
             try {
 
                 //TODO:review - instead of getSubscribedDestination() used message destination
-                mqqtServerChannel.distributeMessageToSubscriber(wildcardDestination, message,
+                boolean dispatched = mqqtServerChannel.distributeMessageToSubscriber(wildcardDestination, message,
                         messageMetadata.getMessageID(), messageMetadata.getQosLevel(),
                         messageMetadata.isPersistent(), getMqttSubscriptionID(),
                         getSubscriberQOS(), messageMetadata);
 
+                //The client has reached its maximum number of on flight messages through another subscription
+                if (!dispatched) {
+                    return false;
+                }
+
                 //We will indicate the ack to the kernel at this stage
                 //For MQTT QOS 0 we do not get ack from subscriber, hence will be implicitly creating an ack
                 if (QOSLevel.AT_MOST_ONCE.getValue() == getSubscriberQOS() ||
@@ -220,6 +225,17 @@ public class MQTTLocalSubscription implements OutboundSubscription {
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The MQTT on flight limit is shared among all topic subscriptions of the client, hence the client channel is
+     * checked
+     */
+    @Override
+    public boolean hasRoomToAcceptMessages() {
+        return null == mqqtServerChannel || mqqtServerChannel.hasRoomToAcceptMessages(mqttSubscriptionID);
+    }
+
     @Override
     public boolean isOutboundConnectionLive() {
         return true;
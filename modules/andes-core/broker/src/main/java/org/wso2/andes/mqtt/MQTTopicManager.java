@@ -21,6 +21,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dna.mqtt.wso2.AndesMQTTBridge;
 import org.dna.mqtt.wso2.QOSLevel;
+import org.wso2.andes.configuration.AndesConfigurationManager;
+import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.kernel.AndesException;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 import org.wso2.andes.kernel.SubscriptionAlreadyExistsException;
@@ -31,11 +33,9 @@ import org.wso2.andes.mqtt.utils.MQTTUtils;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.dna.mqtt.wso2.AndesMQTTBridge.SubscriptionEvent;
 import static org.dna.mqtt.wso2.AndesMQTTBridge.getBridgeInstance;
@@ -53,11 +53,10 @@ public class MQTTopicManager {
     private static Log log = LogFactory.getLog(MQTTopicManager.class);
     /**
      * Channel id will be defined as the key and the value will hold the topic<->subscription information
-     * We could go with the hash map since we don't need immediate reflection of values being added during the runtime
-     * i.e subscription getting bound when a message is given out for distribution, for topicSubscriptions we only need
-     * to deliver messages to subscribers who were bound before the message was published to the broker
+     * The map is read by the delivery threads of the kernel when checking whether a channel could accept more
+     * messages, while subscriptions are bound and unbound through the protocol threads, hence a concurrent map is used
      */
-    private Map<String, MQTTopics> topicSubscriptions = new HashMap<>();
+    private Map<String, MQTTopics> topicSubscriptions = new ConcurrentHashMap<>();
     /**
      * The instance which will be referred
      */
@@ -73,16 +72,19 @@ public class MQTTopicManager {
      */
     private MQTTConnector connector = new PersistenceStoreConnector();
 
-    private final Set<Integer> messageIdList = new LinkedHashSet<>();
+    /**
+     * Maximum number of QoS 1/2 messages which could be on flight to a given channel
+     */
+    private final int maxInFlightMessages;
 
     /**
      * The class will be declared as singleton since the state will be centralized
-     * <p><b>Note:</b> The constrictor will also initialize the values of the message ids a channel could have</p>
+     * <p><b>Note:</b> The constructor will also read the number of message ids a channel could have on flight</p>
      */
     private MQTTopicManager() {
-        for(Integer counter=1;counter!=Short.MAX_VALUE;counter++){
-            messageIdList.add(counter);
-        }
+        int configuredInFlightMessages = AndesConfigurationManager.readValue(
+                AndesConfiguration.TRANSPORTS_MQTT_MAX_INFLIGHT_MESSAGES);
+        maxInFlightMessages = Math.min(configuredInFlightMessages, MQTTInFlightWindow.MAX_PACKET_ID);
     }
 
     /**
@@ -94,6 +96,16 @@ public class MQTTopicManager {
         return instance;
     }
 
+    /**
+     * Maximum number of messages which could be on flight to a given channel. Andes will stop delivering messages
+     * to a subscription which has reached this limit until acknowledgements arrive.
+     *
+     * @return maximum number of on flight messages
+     */
+    public int getMaxInFlightMessages() {
+        return maxInFlightMessages;
+    }
+
     /**
      * Will initialize the bridge which will connect with the MQTT protocol handler
      *
@@ -165,7 +177,7 @@ public class MQTTopicManager {
             if (null == topics) {
                 //First the topic should be registered in the cluster
                 //Once the cluster registration is successful the topic will be created
-                topics = new MQTTopics(mqttClientChannelID,messageIdList);
+                topics = new MQTTopics(mqttClientChannelID, maxInFlightMessages);
                 //Will set the topic specific subscription id generated
                 topicSubscriptions.put(mqttClientChannelID, topics);
 
@@ -292,9 +304,11 @@ public class MQTTopicManager {
      * @param publishedQOS  the level of qos the message was published
      * @param shouldRetain  whether the message should retain after it was published
      * @param subscriberQOS the level of QOS of the subscription
+     * @return false if the channel has reached its maximum number of on flight messages, the message is not sent in
+     * that case and should be dispatched again once acknowledgements arrive
      * @throws MQTTException during a failure to deliver the message to the subscribers
      */
-    public void distributeMessageToSubscriber(String subscribeDestination, ByteBuffer message, long messageID,
+    public boolean distributeMessageToSubscriber(String subscribeDestination, ByteBuffer message, long messageID,
                                               int publishedQOS, boolean shouldRetain, String channelID, int subscriberQOS
                                               ,DeliverableAndesMetadata metaData)
             throws MQTTException {
@@ -312,7 +326,15 @@ public class MQTTopicManager {
             //There could be a situation where the message was published, but before it arrived to the subscription
             //The subscriber has disconnected at a situation as such we have to indicate the disconnection
             if (null != topicSubscriptions) {
-                Integer mid = topicSubscriptions.addOnFlightMessage(subscribeDestination, messageID,metaData);
+                int mid = topicSubscriptions.addOnFlightMessage(subscribeDestination, messageID,metaData);
+
+                if (MQTTInFlightWindow.NO_PACKET_ID == mid) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Maximum number of on flight messages has been reached for subscriber " +
+                                channelID + ", message " + messageID + " will be dispatched later");
+                    }
+                    return false;
+                }
 
                 if (log.isDebugEnabled()) {
                     log.debug("The message with id " + mid + " is sent for delivery to subscriber, " + channelID +
@@ -328,6 +350,20 @@ public class MQTTopicManager {
             getBridgeInstance().distributeMessageToSubscriptions(subscribeDestination, metaData.getDestination(),
                     publishedQOS, message, shouldRetain, mqttLocalMessageID, channelID);
         }
+
+        return true;
+    }
+
+    /**
+     * Checks whether a given channel could accept another message. The on flight limit is shared by all the topic
+     * subscriptions of the channel, hence it is applied here rather than per subscription.
+     *
+     * @param channelID the identifier of the channel
+     * @return false if the channel has reached its maximum number of on flight messages
+     */
+    public boolean hasRoomToAcceptMessages(String channelID) {
+        MQTTopics subscriptions = null != channelID ? topicSubscriptions.get(channelID) : null;
+        return null == subscriptions || subscriptions.hasRoomForOnFlightMessages();
     }
 
     /**
@@ -344,16 +380,12 @@ public class MQTTopicManager {
        MQTTopics subscriptions = topicSubscriptions.get(mqttChannelID);
 
         if (null != subscriptions) {
-            MQTTSubscription subscription = subscriptions.removeOnFlightMessage(messageID);
-            if (null != subscription) {
-                long clusterSpecificMessageID = subscription.ackReceived(messageID);
-                //String subscribedTopic = subscription.getTopicName();
-                //String storageQueueIdentifier = subscription.getStorageIdentifier();
-                UUID subscriptionChannel = subscription.getSubscriptionChannel();
-                //Informs the cluster regarding the subscription
-                messageAck(clusterSpecificMessageID,subscriptionChannel);
-                //Finally we could reuse the message id since the state is no longer required
-                subscriptions.addMessageId(messageID);
+            MQTTInFlightWindow.ReleasedMessage releasedMessage = subscriptions.removeOnFlightMessage(messageID);
+            if (null != releasedMessage) {
+                UUID subscriptionChannel = releasedMessage.getSubscription().getSubscriptionChannel();
+                //Informs the cluster regarding the subscription, the message id is already released for reuse
+                //since the state is no longer required
+                messageAck(releasedMessage.getClusterMessageID(), subscriptionChannel);
             } else {
                 String error = "Could not find information to get subscription information for message ack with id " +
                         messageID + " for channel " + mqttChannelID;
@@ -447,11 +479,15 @@ public class MQTTopicManager {
 
         //This could be a publisher based topic subscription that processed the ping
         if (null != mqtTopics) {
-            Set<Integer> unackedMessages = mqtTopics.getUnackedMessages(messageIdList);
+            int[] unackedMessages = mqtTopics.getUnackedMessages();
 
-            for (Integer messageID : unackedMessages) {
+            for (int messageID : unackedMessages) {
                 MQTTSubscription subscription = mqtTopics.getSubscription(messageID);
-                DeliverableAndesMetadata mataInformation = subscription.getMessageMetaInformation(messageID);
+                DeliverableAndesMetadata mataInformation = mqtTopics.getMessageMetaInformation(messageID);
+                if (null == subscription || null == mataInformation) {
+                    //The ack has arrived in the meantime
+                    continue;
+                }
                 onMessageNack(mataInformation, subscription.getSubscriptionChannel());
 
                 if(log.isDebugEnabled()){
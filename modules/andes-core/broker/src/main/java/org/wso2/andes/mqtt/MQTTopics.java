@@ -24,11 +24,8 @@ import org.dna.mqtt.wso2.QOSLevel;
 import org.wso2.andes.kernel.DeliverableAndesMetadata;
 
 import java.util.Collection;
-import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * Mapped against the channel id, a given channel could subscribe to 1..* topics
@@ -56,31 +53,20 @@ public class MQTTopics {
     private Map<String, MQTTSubscription> subscriptions = new ConcurrentHashMap<String, MQTTSubscription>();
 
     /**
-     * Holds the onFlightMessages that are on flight - in the process of delivering them to its subscribers
-     * Key - the id of the message, at a given time the id of the message will be unique across all subscriptions
-     * Value - mqtt subscription which holds information relevant to co-relate to identify the cluster specific info
-     * A given channel (subscription could be involved in multiple topics)
+     * Holds the messages that are on flight - in the process of delivering them to its subscribers
+     * The packet ids are unique across all subscriptions of the channel, hence the window is maintained per channel
      */
-    private Map<Integer, MQTTSubscription> onFlightMessages = new ConcurrentHashMap<Integer, MQTTSubscription>();
-
-    /**
-     * At a given time the message id should be unique a across a given channel
-     * This will be used to maintain a counter
-     * In MQTT a message id should be a short value, need to ensure the id will not exceed this limit
-     */
-    //private AtomicInteger currentMessageId = new AtomicInteger(0);
-
-    private Set<Integer> messageIds = new ConcurrentSkipListSet<Integer>();
+    private final MQTTInFlightWindow inFlightWindow;
 
     /**
      * Will construct the channel which will hold references to all subscriptions
      *
-     * @param channelID the name of the channelId registered
-     * @param mIds      the list of possibilities for message ids set of Integers with numbers < SHORT.MAX
+     * @param channelID           the name of the channelId registered
+     * @param maxInFlightMessages maximum number of QoS 1/2 messages which could be on flight to the channel
      */
-    public MQTTopics(String channelID, Set<Integer> mIds) {
+    public MQTTopics(String channelID, int maxInFlightMessages) {
         this.channelId = channelID;
-        this.messageIds.addAll(mIds);
+        this.inFlightWindow = new MQTTInFlightWindow(maxInFlightMessages);
     }
 
     /**
@@ -180,118 +166,84 @@ public class MQTTopics {
         return subscriptions.values();
     }
 
-    /**
-     * Generates a unique message id for a message that's ready for distribution
-     * Across a channel this id should be unique until the ack is received, the maximum value the id could holds is
-     * SHORT.MAX
-     *
-     * @return the unique id generated for on-flight message, this should be < SHORT.MAX
-     */
-    private Integer getNextMessageID() {
-
-        Integer messageId = null;
-
-        if (!messageIds.isEmpty()) {
-            messageId = messageIds.iterator().next();
-            messageIds.remove(messageId);
-        } else {
-            log.warn("Message ids cannot be generated, since it has reached its maximum");
-        }
-
-        return messageId;
-    }
-
     /**
      * When a message is sent out for distribution among the subscribers the cluster specific id will be maintained
-     * <p><b>Note : <b/>MQTT message id could contain a maximum length of SHORT.MAX and the cluster id will be LONG
+     * <p><b>Note : <b/>MQTT message id could contain a maximum length of 65535 and the cluster id will be LONG
      * When the acknowledgment for a particular message is received the cluster specific id needs to be taken out to
      * indicate the acknowledgment to the cluster</p>
      *
      * @param topic            the destination in which the message should be distributed
      * @param clusterMessageID the id generated by andes for cluster representation of the message
      * @param metadata         message information relevant that should be used when sending a nack
-     * @return the mqtt specific id generated co-relating the cluster specific id < SHORT.MAX
-     * @throws org.wso2.andes.mqtt.MQTTException
+     * @return the mqtt specific id generated co-relating the cluster specific id or
+     * {@link MQTTInFlightWindow#NO_PACKET_ID} if the channel has reached its maximum number of on flight messages
+     * @throws org.wso2.andes.mqtt.MQTTException if the subscription is disconnected
      */
     public int addOnFlightMessage(String topic, long clusterMessageID, DeliverableAndesMetadata metadata)
             throws MQTTException {
 
         MQTTSubscription subscription = subscriptions.get(topic);
 
-        Integer messageID;
-
-        if (null != subscription) {
-            //If the message is being resent
-            messageID = subscription.getMessageID(clusterMessageID);
-
-            if (null == messageID) {
-                //This means the message id has not be generated for this message
-                //Here a new message id will be generated
-                messageID = getNextMessageID();
-            }
-
-            //Indicates that the message was dispatched for the distribution
-            onFlightMessages.put(messageID, subscription);
-            //unAckedMessages.add(messageID);
-            //messageIdTime.put(System.currentTimeMillis(), messageID);
-            //Each subscription holds the cluster id <-> messages id in order to co-relate when ack is received
-            subscription.markSent(clusterMessageID, messageID, metadata);
-        } else {
+        if (null == subscription) {
             String error = "A subscriber has been disconnected while dispatching the message for channel id " +
                     channelId + " for topic " + topic;
             throw new MQTTException(error);
         }
 
-        return messageID;
+        //If the message is being resent the id generated before will be returned
+        return inFlightWindow.add(clusterMessageID, subscription, metadata);
+    }
+
+    /**
+     * Checks whether another message could be dispatched to the channel. The limit applies to the channel as a whole
+     * irrespective of the number of topics it has subscribed to.
+     *
+     * @return true if the channel has not reached its maximum number of on flight messages
+     */
+    public boolean hasRoomForOnFlightMessages() {
+        return inFlightWindow.hasRoom();
     }
 
     /**
-     * This is called when retrieving values to send rejection ack
+     * This is called when retrieving values to send rejection ack. Messages which were not acknowledged within a
+     * ping interval will be returned, a given message is returned only once until its resent.
      *
-     * @param allMessages list of messages that has all the integer values < SHORT.MAX
-     * @return the set messages that are on flight and had not being
+     * @return the ids of the messages that are on flight and had not being acknowledged
      */
-    public Set<Integer> getUnackedMessages(Set<Integer> allMessages) {
-        //We take the allMessages/messageIds since message id holds messages which have not being dispatched
-        Set<Integer> unAcknowledgedMessages = new LinkedHashSet<Integer>();
-        unAcknowledgedMessages.addAll(messageIds);
-        unAcknowledgedMessages.removeAll(allMessages);
-        return unAcknowledgedMessages;
+    public int[] getUnackedMessages() {
+        return inFlightWindow.onPingRequest();
     }
 
     /**
-     * Returns the subscription information, the information will include the correlations between the locally generated
-     * message ids and cluster specific ids
+     * Returns the subscription a given on flight message was dispatched through
      *
      * @param messageID the id of the message the information is required
-     * @return the subscription information
+     * @return the subscription information, null if the message is not on flight
      */
-    public MQTTSubscription getSubscription(Integer messageID) {
-        return onFlightMessages.get(messageID);
+    public MQTTSubscription getSubscription(int messageID) {
+        return inFlightWindow.getSubscription(messageID);
     }
 
     /**
-     * Removes a given message from the tacking list
-     * This operation is called when an ack is received for a particular message
+     * Gets message meta information for a given on flight message, meta information is required to send rejection
+     * for un-acked messages.
      *
-     * @param messageId the id of the message
-     * @return MQTTSubscription holds information relevant for the subscription
+     * @param messageID the local message id generated before dispatching the message to its subscriptions
+     * @return the meta information relevant for the message, null if the message is not on flight
      */
-    public MQTTSubscription removeOnFlightMessage(int messageId) {
-        return onFlightMessages.remove(messageId);
+    public DeliverableAndesMetadata getMessageMetaInformation(int messageID) {
+        return inFlightWindow.getMetadata(messageID);
     }
 
     /**
-     * Adds the message id to be reused
-     * <p>This method is invoked when an ack is received for a given message, so that its id could be reused
-     * </p>
-     * <p><b>Note: </b> This should be called after calling call necessary operations related to ack handling, so that
-     * there will not be any state inconsistencies</p>
+     * Removes a given message from the tracking window so that its id could be reused
+     * This operation is called when an ack is received for a particular message
      *
-     * @param messageId the id the message which was acked
+     * @param messageId the id of the message
+     * @return the cluster specific id and the subscription of the message, null if the message is not on flight
      */
-    public void addMessageId(int messageId) {
-        messageIds.add(messageId);
+    public MQTTInFlightWindow.ReleasedMessage removeOnFlightMessage(int messageId) {
+        return inFlightWindow.release(messageId);
     }
 
 }
@@ -188,9 +188,10 @@ public class PersistenceStoreConnector implements MQTTConnector {
 
             //create open subscription event
             String subscribedNode = ClusterResourceHolder.getInstance().getClusterManager().getMyNodeID();
+            //Andes will stop delivering once the subscriber has reached its on flight message limit
             SubscriberConnection connection = new SubscriberConnection("127.0.0.1",
                     subscribedNode, mqttTopicSubscriber
-                    .getChannelID(), mqttTopicSubscriber);
+                    .getChannelID(), mqttTopicSubscriber, channel.getMaxInFlightMessages());
 
             InboundSubscriptionEvent openSubscriptionEvent = new InboundSubscriptionEvent(ProtocolType.MQTT,
                     "", localSubscription.getStorageQueue().getName(),
@@ -419,7 +420,7 @@ public class PersistenceStoreConnector implements MQTTConnector {
 
         SubscriberConnection connection = new SubscriberConnection("127.0.0.1",
                 subscribedNode, mqttLocalSubscription
-                .getChannelID(), mqttLocalSubscription);
+                .getChannelID(), mqttLocalSubscription, MQTTopicManager.getInstance().getMaxInFlightMessages());
 
         String subscriptionID = mqttLocalSubscription.getMqttSubscriptionID();
 
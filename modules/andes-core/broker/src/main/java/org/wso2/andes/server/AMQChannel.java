@@ -71,6 +71,7 @@ import org.wso2.andes.server.queue.DLCQueueUtils;
 import org.wso2.andes.server.queue.IncomingMessage;
 import org.wso2.andes.server.queue.QueueEntry;
 import org.wso2.andes.server.registry.ApplicationRegistry;
+import org.wso2.andes.server.security.PublishAuthorisationCache;
 import org.wso2.andes.server.store.MessageStore;
 import org.wso2.andes.server.store.StorableMessageMetaData;
 import org.wso2.andes.server.store.StoredMessage;
@@ -203,6 +204,11 @@ public class AMQChannel implements SessionConfig, AMQSessionModel
 
     private AMQChannelMBean _managedObject;
 
+    /**
+     * Publish authorisation decisions of this channel, frames of a channel are processed by a single thread at a time
+     */
+    private final PublishAuthorisationCache _publishAuthorisations = new PublishAuthorisationCache();
+
     public AMQChannel(AMQProtocolSession session, int channelId, MessageStore messageStore)
             throws AMQException {
         _session = session;
@@ -368,7 +374,7 @@ public class AMQChannel implements SessionConfig, AMQSessionModel
      */
     public void setPublishFrame(MessagePublishInfo info, final Exchange exchange) throws AMQSecurityException {
         if (!getVirtualHost().getSecurityManager().authorisePublish(info.isImmediate(),
-                info.getRoutingKey().asString(), exchange.getName()) ||
+                info.getRoutingKey().asString(), exchange.getName(), _publishAuthorisations) ||
                 DLCQueueUtils.isDeadLetterQueue(info.getRoutingKey().asString())) {
             throw new AMQSecurityException("Permission denied: " + exchange.getName());
         }
@@ -998,13 +1004,7 @@ public class AMQChannel implements SessionConfig, AMQSessionModel
 
     private Collection<QueueEntry> getAckedMessages(long deliveryTag, boolean multiple)
     {
-
-        Map<Long, QueueEntry> ackedMessageMap = new LinkedHashMap<Long,QueueEntry>();
-        synchronized (_unacknowledgedMessageMap) {
-            _unacknowledgedMessageMap.collect(deliveryTag, multiple, ackedMessageMap);
-            _unacknowledgedMessageMap.remove(ackedMessageMap);
-        }
-        return ackedMessageMap.values();
+        return _unacknowledgedMessageMap.acknowledge(deliveryTag, multiple);
     }
 
     /**
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.ack;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps values which are keyed by a monotonically increasing tag, such as the delivery tags of a channel.
+ * <p>
+ * Values are held in a ring of slots indexed by (tag - base), where base is the tag of the oldest value held. Adding,
+ * getting and removing a value is an array access and removing all values up to a tag walks the ring from its head,
+ * hence acknowledgements do not box tags or allocate map entries. The ring doubles its size while it is at least half
+ * full. When a few old values hold back the base of a sparse ring, such as a message that is never acknowledged,
+ * those values are moved to an ordered overflow map instead of growing the ring.
+ * </p>
+ * <p><b>Note: </b>Not thread safe, callers should guard the ring. Visitors should not modify the ring.</p>
+ *
+ * @param <T> type of the values
+ */
+public class DeliveryTagRing<T> {
+
+    /**
+     * Number of slots of a new ring
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Visits tags and values held in the ring, in tag order
+     *
+     * @param <T> type of the values
+     */
+    public interface Visitor<T> {
+
+        /**
+         * @param tag   tag of the value
+         * @param value the value
+         */
+        void visit(long tag, T value);
+    }
+
+    /**
+     * Values in tag order, starting from the slot at head
+     */
+    private Object[] slots;
+
+    /**
+     * Index of the slot holding the base tag
+     */
+    private int head;
+
+    /**
+     * Tag of the slot at head
+     */
+    private long base;
+
+    /**
+     * Number of slots from head that are in use, the last one holds the largest tag in the ring
+     */
+    private int span;
+
+    /**
+     * Number of values held in the ring
+     */
+    private int ringSize;
+
+    /**
+     * Values with tags older than the base of the ring, created when first required
+     */
+    private NavigableMap<Long, T> overflow;
+
+    /**
+     * Creates an empty ring
+     */
+    public DeliveryTagRing() {
+        slots = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a value, replacing the value already held with the same tag if any
+     *
+     * @param tag   tag of the value
+     * @param value the value, not null
+     */
+    public void add(long tag, T value) {
+        if (0 == ringSize && (null == overflow || overflow.isEmpty() || tag > overflow.lastKey())) {
+            base = tag;
+            span = 0;
+        }
+
+        if (tag < base) {
+            getOverflow().put(tag, value);
+            return;
+        }
+
+        if (tag >= base + slots.length) {
+            makeRoom(tag);
+        }
+
+        int offset = (int) (tag - base);
+        int index = indexOf(offset);
+        if (null == slots[index]) {
+            ringSize++;
+        }
+        slots[index] = value;
+
+        if (offset >= span) {
+            span = offset + 1;
+        }
+    }
+
+    /**
+     * @param tag tag of the value
+     * @return the value held with the tag or null if there is none
+     */
+    public T get(long tag) {
+        if (tag < base) {
+            return (null == overflow) ? null : overflow.get(tag);
+        }
+        return (tag < base + span) ? valueAt((int) (tag - base)) : null;
+    }
+
+    /**
+     * @param tag tag of the value
+     * @return the removed value or null if there was no value with the tag
+     */
+    public T remove(long tag) {
+        if (tag < base) {
+            return (null == overflow) ? null : overflow.remove(tag);
+        }
+
+        if (tag >= base + span) {
+            return null;
+        }
+
+        int index = indexOf((int) (tag - base));
+        T value = valueAt((int) (tag - base));
+        if (null != value) {
+            slots[index] = null;
+            ringSize--;
+            trimHead();
+        }
+        return value;
+    }
+
+    /**
+     * Removes all values with tags within the given bounds, both inclusive
+     *
+     * @param lower   the lower bound
+     * @param upper   the upper bound
+     * @param visitor visits the removed values in tag order
+     */
+    public void removeRange(long lower, long upper, Visitor<? super T> visitor) {
+        if (lower > upper) {
+            return;
+        }
+
+        if (null != overflow && !overflow.isEmpty() && lower < base) {
+            Iterator<Map.Entry<Long, T>> iterator =
+                    overflow.subMap(lower, true, Math.min(upper, base - 1), true).entrySet().iterator();
+            while (iterator.hasNext()) {
+                // The entry may be reused by the map once removed, hence it is read first
+                Map.Entry<Long, T> entry = iterator.next();
+                long tag = entry.getKey();
+                T value = entry.getValue();
+                iterator.remove();
+                visitor.visit(tag, value);
+            }
+        }
+
+        if (0 == ringSize || upper < base) {
+            return;
+        }
+
+        int from = (lower <= base) ? 0 : (int) Math.min(span, lower - base);
+        int to = (upper >= base + span - 1) ? span - 1 : (int) (upper - base);
+        for (int offset = from; offset <= to && ringSize > 0; offset++) {
+            int index = indexOf(offset);
+            T value = valueAt(offset);
+            if (null != value) {
+                slots[index] = null;
+                ringSize--;
+                visitor.visit(base + offset, value);
+            }
+        }
+        trimHead();
+    }
+
+    /**
+     * Visits all values with tags within the given bounds, both inclusive
+     *
+     * @param lower   the lower bound
+     * @param upper   the upper bound
+     * @param visitor visits the values in tag order
+     */
+    public void visitRange(long lower, long upper, Visitor<? super T> visitor) {
+        if (lower > upper) {
+            return;
+        }
+
+        if (null != overflow && !overflow.isEmpty() && lower < base) {
+            for (Map.Entry<Long, T> entry
+                    : overflow.subMap(lower, true, Math.min(upper, base - 1), true).entrySet()) {
+                visitor.visit(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (0 == ringSize || upper < base) {
+            return;
+        }
+
+        int from = (lower <= base) ? 0 : (int) Math.min(span, lower - base);
+        int to = (upper >= base + span - 1) ? span - 1 : (int) (upper - base);
+        for (int offset = from; offset <= to; offset++) {
+            T value = valueAt(offset);
+            if (null != value) {
+                visitor.visit(base + offset, value);
+            }
+        }
+    }
+
+    /**
+     * Visits all values in tag order
+     *
+     * @param visitor visits the values
+     */
+    public void visit(Visitor<? super T> visitor) {
+        visitRange(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * @return the value with the smallest tag or null if the ring is empty
+     */
+    public T first() {
+        if (null != overflow && !overflow.isEmpty()) {
+            return overflow.firstEntry().getValue();
+        }
+        return (0 == ringSize) ? null : valueAt(0);
+    }
+
+    /**
+     * @return the smallest tag held, only valid when the ring is not empty
+     */
+    public long firstTag() {
+        if (null != overflow && !overflow.isEmpty()) {
+            return overflow.firstKey();
+        }
+        return base;
+    }
+
+    /**
+     * @return number of values held
+     */
+    public int size() {
+        return ringSize + ((null == overflow) ? 0 : overflow.size());
+    }
+
+    /**
+     * @return true if no values are held
+     */
+    public boolean isEmpty() {
+        return 0 == size();
+    }
+
+    /**
+     * Removes all values
+     */
+    public void clear() {
+        Arrays.fill(slots, null);
+        head = 0;
+        span = 0;
+        ringSize = 0;
+        if (null != overflow) {
+            overflow.clear();
+        }
+    }
+
+    /**
+     * Makes room for a tag beyond the end of the ring. A ring which is at least half full grows, unless the tag is
+     * too far ahead for it to be contiguous. Otherwise values at the head are moved to the overflow map until the tag
+     * fits.
+     *
+     * @param tag the tag to make room for
+     */
+    private void makeRoom(long tag) {
+        while (tag >= base + slots.length) {
+            if (ringSize * 2 >= slots.length && tag < base + slots.length * 2L) {
+                grow();
+            } else {
+                while (span > 0 && tag >= base + slots.length) {
+                    T value = valueAt(0);
+                    if (null != value) {
+                        getOverflow().put(base, value);
+                        slots[head] = null;
+                        ringSize--;
+                    }
+                    advanceHead();
+                }
+                trimHead();
+                if (0 == ringSize) {
+                    base = tag;
+                    span = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Doubles the number of slots, moving the head to the first slot
+     */
+    private void grow() {
+        Object[] newSlots = new Object[slots.length * 2];
+        for (int offset = 0; offset < span; offset++) {
+            newSlots[offset] = slots[indexOf(offset)];
+        }
+        slots = newSlots;
+        head = 0;
+    }
+
+    /**
+     * Moves the head past empty slots so that the base is the smallest tag held in the ring
+     */
+    private void trimHead() {
+        if (0 == ringSize) {
+            span = 0;
+            return;
+        }
+        while (span > 0 && null == slots[head]) {
+            advanceHead();
+        }
+    }
+
+    private void advanceHead() {
+        head = (head + 1) & (slots.length - 1);
+        base++;
+        span--;
+    }
+
+    private int indexOf(int offset) {
+        return (head + offset) & (slots.length - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T valueAt(int offset) {
+        return (T) slots[indexOf(offset)];
+    }
+
+    private NavigableMap<Long, T> getOverflow() {
+        if (null == overflow) {
+            overflow = new TreeMap<>();
+        }
+        return overflow;
+    }
+}
@@ -45,6 +45,15 @@ public interface UnacknowledgedMessageMap
 
     void collect(long deliveryTag, boolean multiple, Map<Long, QueueEntry> msgs);
 
+    /**
+     * Remove the messages acknowledged by an acknowledgement.
+     *
+     * @param deliveryTag the delivery tag of the acknowledgement
+     * @param multiple    whether all messages up to and including the delivery tag are acknowledged
+     * @return the acknowledged messages in delivery order
+     */
+    Collection<QueueEntry> acknowledge(long deliveryTag, boolean multiple);
+
     void remove(Map<Long,QueueEntry> msgs);
 
     QueueEntry remove(long deliveryTag);
@@ -17,67 +17,119 @@
  */
 package org.wso2.andes.server.ack;
 
+import org.apache.log4j.Logger;
 import org.wso2.andes.AMQException;
+import org.wso2.andes.amqp.QpidAndesBridge;
 import org.wso2.andes.configuration.AndesConfigurationManager;
 import org.wso2.andes.configuration.enums.AndesConfiguration;
 import org.wso2.andes.configuration.util.TopicMessageDeliveryStrategy;
 import org.wso2.andes.server.AMQChannel;
 import org.wso2.andes.server.queue.QueueEntry;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Unacknowledged messages of a channel, kept in a {@link DeliveryTagRing} since delivery tags of a channel are
+ * monotonically increasing.
+ */
 public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 {
+    private static final Logger _logger = Logger.getLogger(UnacknowledgedMessageMapImpl.class);
+
     private final Object _lock = new Object();
 
     private long _unackedSize;
 
-    private Map<Long, QueueEntry> _map;
+    private final DeliveryTagRing<QueueEntry> _entries = new DeliveryTagRing<QueueEntry>();
 
     private long _lastDeliveryTag;
 
-    private final int _prefetchLimit;
+    /**
+     * Whether timely disposable messages could be dropped once there are too many unacknowledged messages
+     */
+    private final boolean _discardAllowed;
+
+    /**
+     * After the number of unacknowledged messages reach this limit the eldest message is considered to be dropped
+     */
+    private final int _growLimit;
+
+    private final AMQChannel _amqChannel;
 
     /**
      * Data structure to keep track of messages which are sent but not yet acknowledged.
      *
-     * @param prefetchLimit Initial size of the data structure
+     * @param prefetchLimit Prefetch limit of the channel, slots are allocated on demand rather than up front
      * @param amqChannel    The channel which this data structure belongs to
      * @param isDurable     Is this structure for created to keep durable messages (queues/durable topics)
      */
     public UnacknowledgedMessageMapImpl(int prefetchLimit, AMQChannel amqChannel, boolean isDurable) {
-        _prefetchLimit = prefetchLimit;
+        _amqChannel = amqChannel;
 
         TopicMessageDeliveryStrategy messageDeliveryStrategy = AndesConfigurationManager.readValue
                 (AndesConfiguration.PERFORMANCE_TUNING_TOPIC_MESSAGE_DELIVERY_STRATEGY);
 
-        if (!isDurable && messageDeliveryStrategy.equals(TopicMessageDeliveryStrategy.DISCARD_ALLOWED)) {
-            int growLimit = AndesConfigurationManager.readValue
+        _discardAllowed = !isDurable && messageDeliveryStrategy.equals(TopicMessageDeliveryStrategy.DISCARD_ALLOWED);
+        if (_discardAllowed) {
+            _growLimit = AndesConfigurationManager.readValue
                     (AndesConfiguration.PERFORMANCE_TUNING_ACK_HANDLING_MAX_UNACKED_MESSAGES);
-            _map = new LimitedSizeQueueEntryHolder(_prefetchLimit, growLimit, amqChannel);
         } else {
-            _map = new LinkedHashMap<Long, QueueEntry>(prefetchLimit);
+            _growLimit = Integer.MAX_VALUE;
         }
     }
 
-    public void collect(long deliveryTag, boolean multiple, Map<Long, QueueEntry> msgs)
+    public void collect(long deliveryTag, boolean multiple, final Map<Long, QueueEntry> msgs)
     {
-        if (multiple)
+        synchronized (_lock)
         {
-            collect(deliveryTag, msgs);
+            if (multiple)
+            {
+                _entries.visitRange(Long.MIN_VALUE, upperBound(deliveryTag), new DeliveryTagRing.Visitor<QueueEntry>()
+                {
+                    public void visit(long tag, QueueEntry entry)
+                    {
+                        msgs.put(tag, entry);
+                    }
+                });
+            }
+            else
+            {
+                final QueueEntry entry = _entries.get(deliveryTag);
+                if (entry != null)
+                {
+                    msgs.put(deliveryTag, entry);
+                }
+            }
         }
-        else
+    }
+
+    public Collection<QueueEntry> acknowledge(long deliveryTag, boolean multiple)
+    {
+        synchronized (_lock)
         {
-            final QueueEntry entry = get(deliveryTag);
-            if(entry != null)
+            if (!multiple)
             {
-                msgs.put(deliveryTag, entry);
+                QueueEntry entry = remove(deliveryTag);
+                return (entry == null) ? Collections.<QueueEntry>emptyList() : Collections.singletonList(entry);
             }
-        }
 
+            final List<QueueEntry> acknowledged = new ArrayList<QueueEntry>();
+            _entries.removeRange(Long.MIN_VALUE, upperBound(deliveryTag), new DeliveryTagRing.Visitor<QueueEntry>()
+            {
+                public void visit(long tag, QueueEntry entry)
+                {
+                    acknowledged.add(entry);
+                    _unackedSize -= entry.getMessage().getSize();
+                }
+            });
+            return acknowledged;
+        }
     }
 
     public void remove(Map<Long,QueueEntry> msgs)
@@ -96,7 +148,7 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         synchronized (_lock)
         {
 
-            QueueEntry message = _map.remove(deliveryTag);
+            QueueEntry message = _entries.remove(deliveryTag);
             if(message != null)
             {
                 _unackedSize -= message.getMessage().getSize();
@@ -111,10 +163,20 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            Set<Map.Entry<Long, QueueEntry>> currentEntries = _map.entrySet();
-            for (Map.Entry<Long, QueueEntry> entry : currentEntries)
+            final List<Long> deliveryTags = new ArrayList<Long>(_entries.size());
+            final List<QueueEntry> entries = new ArrayList<QueueEntry>(_entries.size());
+            _entries.visit(new DeliveryTagRing.Visitor<QueueEntry>()
             {
-                visitor.callback(entry.getKey().longValue(), entry.getValue());
+                public void visit(long tag, QueueEntry entry)
+                {
+                    deliveryTags.add(tag);
+                    entries.add(entry);
+                }
+            });
+
+            for (int i = 0; i < entries.size(); i++)
+            {
+                visitor.callback(deliveryTags.get(i), entries.get(i));
             }
             visitor.visitComplete();
         }
@@ -124,9 +186,14 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            _map.put(deliveryTag, message);
+            _entries.add(deliveryTag, message);
             _unackedSize += message.getMessage().getSize();
             _lastDeliveryTag = deliveryTag;
+
+            if (_discardAllowed && _entries.size() > _growLimit)
+            {
+                removeEldestEntry();
+            }
         }
     }
 
@@ -134,8 +201,14 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            Collection<QueueEntry> currentEntries = _map.values();
-            _map = new LinkedHashMap<Long, QueueEntry>(_prefetchLimit);
+            final List<QueueEntry> currentEntries = new ArrayList<QueueEntry>(_entries.size());
+            _entries.removeRange(Long.MIN_VALUE, Long.MAX_VALUE, new DeliveryTagRing.Visitor<QueueEntry>()
+            {
+                public void visit(long tag, QueueEntry entry)
+                {
+                    currentEntries.add(entry);
+                }
+            });
             _unackedSize = 0l;
             return currentEntries;
         }
@@ -145,7 +218,7 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            return _map.size();
+            return _entries.size();
         }
     }
 
@@ -153,7 +226,7 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            _map.clear();
+            _entries.clear();
             _unackedSize = 0l;
         }
     }
@@ -162,7 +235,7 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            return _map.get(key);
+            return _entries.get(key);
         }
     }
 
@@ -170,22 +243,58 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
     {
         synchronized (_lock)
         {
-            return _map.keySet();
+            final Set<Long> deliveryTags = new LinkedHashSet<Long>(_entries.size());
+            _entries.visit(new DeliveryTagRing.Visitor<QueueEntry>()
+            {
+                public void visit(long tag, QueueEntry entry)
+                {
+                    deliveryTags.add(tag);
+                }
+            });
+            return deliveryTags;
         }
     }
 
-    private void collect(long key, Map<Long, QueueEntry> msgs)
+    /**
+     * Upper bound of the delivery tags acknowledged by a multiple acknowledgement, a delivery tag of zero
+     * acknowledges all outstanding messages.
+     */
+    private long upperBound(long deliveryTag)
     {
-        synchronized (_lock)
+        return (deliveryTag == 0) ? Long.MAX_VALUE : deliveryTag;
+    }
+
+    /**
+     * Drops the eldest message if it is timely disposable, simulating an acknowledgement for it. Called with the
+     * lock held once the number of unacknowledged messages exceeds the grow limit.
+     */
+    private void removeEldestEntry()
+    {
+        QueueEntry eldestQueueEntry = _entries.first();
+        if (eldestQueueEntry.isTimelyDisposable())
         {
-            for (Map.Entry<Long, QueueEntry> entry : _map.entrySet())
-            {
-                msgs.put(entry.getKey(),entry.getValue());
-                if (entry.getKey() == key)
-                {
-                    break;
-                }
-            }
+            _entries.remove(_entries.firstTag());
+            _unackedSize -= eldestQueueEntry.getMessage().getSize();
+            _logger.warn("Simulating Acknowledgement and removing queue entry id= " + eldestQueueEntry.getMessage()
+                    .getMessageNumber() + " as it is growing");
+            simulateAcknowledgement(eldestQueueEntry);
+        }
+    }
+
+    /**
+     * Simulate an acknowledgement for the queue entry
+     * @param queueEntry queue entry to simulate the acknowledgement
+     */
+    private void simulateAcknowledgement(QueueEntry queueEntry)
+    {
+        try
+        {
+            QpidAndesBridge.ackReceived(_amqChannel.getId(), queueEntry.getMessage().getMessageNumber());
+        }
+        catch (AMQException e)
+        {
+            _logger.error("Error while simulating acknowledgement for message id= " + queueEntry.getMessage()
+                    .getMessageNumber(), e);
         }
     }
 
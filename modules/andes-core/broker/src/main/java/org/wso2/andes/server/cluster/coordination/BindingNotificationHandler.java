@@ -52,7 +52,7 @@ public class BindingNotificationHandler implements ClusterNotificationListener {
     public void handleClusterNotification(ClusterNotification notification) {
         try {
             InboundBindingSyncEvent bindingSyncEvent = new InboundBindingSyncEvent
-                    (notification.getEncodedObjectAsString());
+                    (notification.getEncodedObject());
             BindingChange changeType = BindingChange.valueOf(notification.getChangeType());
             switch (changeType) {
                 case Added:
@@ -18,12 +18,29 @@
 
 package org.wso2.andes.server.cluster.coordination;
 
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
- * This class represents a cluster notification to be transfer via HazelCast
+ * This class represents a cluster notification to be transfer via HazelCast. The notified artifacts are
+ * carried as a frame encoded by {@link ClusterNotificationCodec}.
+ * <p>
+ * Nodes of earlier versions send this class Java serialized, carrying the artifact as a string. It remains
+ * {@link Serializable} with their serial version so that such notifications can still be read. Notifications sent
+ * by this version are written as {@link DataSerializable}, which nodes of earlier versions cannot read.
+ * </p>
  */
-public class ClusterNotification implements Serializable {
+public class ClusterNotification implements DataSerializable, Serializable {
+
+    /**
+     * Implicit serial version of the string based notification of earlier versions
+     */
+    private static final long serialVersionUID = 8946050362435608534L;
+
     /**
      * The artifact carried in the notification
      * (i.e queue, messageRouter, binding, subscription)
@@ -36,7 +53,13 @@ public class ClusterNotification implements Serializable {
     private String changeType;
 
     /**
-     * The notification encoded as a string.
+     * The notified artifacts encoded by {@link ClusterNotificationCodec}.
+     */
+    private byte[] encodedObject;
+
+    /**
+     * The notified artifact encoded as a string. Only set on notifications Java serialized by nodes of earlier
+     * versions.
      */
     private String encodedObjectAsString;
 
@@ -51,19 +74,25 @@ public class ClusterNotification implements Serializable {
     private String description;
 
 
+    /**
+     * Required for deserialization
+     */
+    public ClusterNotification() {
+    }
+
     /**
      * Create an instance of cluster notification given the notification, the change type and the node from which the
      * cluster notification originated.
      *
-     * @param encodedAsString  encoded string to transfer thro
+     * @param encodedObject    artifacts encoded by {@link ClusterNotificationCodec}
      * @param notifiedArtifact artifact that is notified by this notification
      * @param changeType       change happened (added/deleted etc)
      * @param description      human readable description of the notification
      * @param originatedNode   ID of the node notification originated from
      */
-    public ClusterNotification(String encodedAsString, String notifiedArtifact, String changeType, String
+    public ClusterNotification(byte[] encodedObject, String notifiedArtifact, String changeType, String
             description, String originatedNode) {
-        this.encodedObjectAsString = encodedAsString;
+        this.encodedObject = encodedObject;
         this.notifiedArtifact = notifiedArtifact;
         this.changeType = changeType;
         this.description = description;
@@ -72,12 +101,15 @@ public class ClusterNotification implements Serializable {
 
 
     /**
-     * Get encoded string notification carries
+     * Get encoded artifacts notification carries
      *
-     * @return encoded notification
+     * @return frame encoded by {@link ClusterNotificationCodec}
      */
-    public String getEncodedObjectAsString() {
-        return encodedObjectAsString;
+    public byte[] getEncodedObject() {
+        if ((null == encodedObject) && (null != encodedObjectAsString)) {
+            encodedObject = ClusterNotificationCodec.fromLegacyString(encodedObjectAsString);
+        }
+        return encodedObject;
     }
 
     /**
@@ -117,4 +149,34 @@ public class ClusterNotification implements Serializable {
     public String getDescription() {
         return description;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeByteArray(getEncodedObject());
+        out.writeUTF(notifiedArtifact);
+        out.writeUTF(changeType);
+        out.writeUTF(originatedNode);
+        out.writeUTF(description);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        encodedObject = in.readByteArray();
+        notifiedArtifact = in.readUTF();
+        changeType = in.readUTF();
+        originatedNode = in.readUTF();
+        description = in.readUTF();
+    }
+
+    @Override
+    public String toString() {
+        byte[] encoded = getEncodedObject();
+        return description + " from " + originatedNode + " (" + (null == encoded ? 0 : encoded.length) + " bytes)";
+    }
 }
@@ -0,0 +1,530 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.wso2.andes.kernel.AndesBinding;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.router.MessageRouterFactory;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.kernel.subscription.SubscriberConnection;
+import org.wso2.andes.kernel.subscription.SubscriptionException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes broker artifacts carried by cluster notifications into a compact binary frame and decodes them back.
+ * <p>
+ * A frame is laid out as [version][artifact][entry count][entries]. Boolean properties and the presence of optional
+ * strings of an entry are packed into a single flags byte, strings are written as modified UTF-8 and channel IDs
+ * as two longs. A frame can carry any number of artifacts of the same kind, so that a batch of changes travels as
+ * one notification.
+ * </p>
+ * Queues and routers are decoded as plain representations. Bindings and subscriptions refer to the storage queue
+ * they are bound to, which is looked up from the storage queue registry while decoding. Hence decoding of those
+ * should happen in the order notifications are processed.
+ * <p>
+ * Nodes of earlier versions notify a single artifact as a "key=value,..." string, and such notifications may also
+ * be pending in the cluster event table after an upgrade. They are carried as the UTF-8 bytes of the string, see
+ * {@link #fromLegacyString(String)}, and decoded with the string constructors of the artifacts. A legacy string
+ * starts with a property name, hence its first byte is a letter, while a frame starts with {@link #VERSION}.
+ * </p>
+ */
+public final class ClusterNotificationCodec {
+
+    /**
+     * Version of the frame layout. Bump when the layout of any artifact changes. Must stay below the ASCII letters,
+     * which mark legacy string notifications.
+     */
+    private static final byte VERSION = 1;
+
+    private static final byte MESSAGE_ROUTER = 1;
+
+    private static final byte QUEUE = 2;
+
+    private static final byte BINDING = 3;
+
+    private static final byte SUBSCRIPTION = 4;
+
+    /**
+     * Bits of the flags byte of an entry. Presence bits of optional strings are interpreted per artifact.
+     */
+    private static final int FLAG_DURABLE = 1;
+
+    private static final int FLAG_SHARED = 1 << 1;
+
+    private static final int FLAG_EXCLUSIVE = 1 << 2;
+
+    private static final int FLAG_AUTO_DELETE = 1 << 3;
+
+    private static final int FLAG_ACTIVE = 1 << 4;
+
+    private static final int FLAG_HAS_OWNER = 1 << 5;
+
+    private static final int FLAG_HAS_TYPE = 1 << 5;
+
+    private static final int FLAG_HAS_BINDING_KEY = 1 << 5;
+
+    private static final int FLAG_HAS_IP = 1 << 5;
+
+    private static final int FLAG_HAS_NODE = 1 << 6;
+
+    /**
+     * Codes of protocol types on the wire. These are fixed so that reordering {@link ProtocolType} does not change
+     * the encoding.
+     */
+    private static final int PROTOCOL_MQTT = 0;
+
+    private static final int PROTOCOL_AMQP = 1;
+
+    /**
+     * Charset of notifications encoded as strings by nodes of earlier versions
+     */
+    private static final Charset LEGACY_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Message routers are created according to their names, same as when they are read from the store
+     */
+    private static final MessageRouterFactory messageRouterFactory = new MessageRouterFactory();
+
+    private ClusterNotificationCodec() {
+    }
+
+    /**
+     * Encode a single message router
+     *
+     * @param messageRouter message router to encode
+     * @return encoded frame
+     */
+    public static byte[] encode(AndesMessageRouter messageRouter) {
+        return encodeMessageRouters(Collections.singletonList(messageRouter));
+    }
+
+    /**
+     * Encode a single storage queue
+     *
+     * @param storageQueue queue to encode
+     * @return encoded frame
+     */
+    public static byte[] encode(StorageQueue storageQueue) {
+        return encodeQueues(Collections.singletonList(storageQueue));
+    }
+
+    /**
+     * Encode a single binding
+     *
+     * @param binding binding to encode
+     * @return encoded frame
+     */
+    public static byte[] encode(AndesBinding binding) {
+        return encodeBindings(Collections.singletonList(binding));
+    }
+
+    /**
+     * Encode a single subscription
+     *
+     * @param subscription subscription to encode
+     * @return encoded frame
+     */
+    public static byte[] encode(AndesSubscription subscription) {
+        return encodeSubscriptions(Collections.singletonList(subscription));
+    }
+
+    /**
+     * Encode a batch of message routers into one frame
+     *
+     * @param messageRouters message routers to encode
+     * @return encoded frame
+     */
+    public static byte[] encodeMessageRouters(Collection<AndesMessageRouter> messageRouters) {
+        FrameWriter writer = new FrameWriter(MESSAGE_ROUTER, messageRouters.size());
+        try {
+            for (AndesMessageRouter messageRouter : messageRouters) {
+                DataOutputStream out = writer.out;
+                int flags = (messageRouter.isAutoDelete() ? FLAG_AUTO_DELETE : 0)
+                        | (null != messageRouter.getType() ? FLAG_HAS_TYPE : 0);
+                out.writeByte(flags);
+                out.writeUTF(messageRouter.getName());
+                if (null != messageRouter.getType()) {
+                    out.writeUTF(messageRouter.getType());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while encoding message routers", e);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a batch of storage queues into one frame
+     *
+     * @param storageQueues queues to encode
+     * @return encoded frame
+     */
+    public static byte[] encodeQueues(Collection<StorageQueue> storageQueues) {
+        FrameWriter writer = new FrameWriter(QUEUE, storageQueues.size());
+        try {
+            for (StorageQueue storageQueue : storageQueues) {
+                DataOutputStream out = writer.out;
+                Long lastPurgedTimestamp = storageQueue.getLastPurgedTimestamp();
+                int flags = (storageQueue.isDurable() ? FLAG_DURABLE : 0)
+                        | (storageQueue.isShared() ? FLAG_SHARED : 0)
+                        | (storageQueue.isExclusive() ? FLAG_EXCLUSIVE : 0)
+                        | (null != storageQueue.getQueueOwner() ? FLAG_HAS_OWNER : 0);
+                out.writeByte(flags);
+                out.writeUTF(storageQueue.getName());
+                if (null != storageQueue.getQueueOwner()) {
+                    out.writeUTF(storageQueue.getQueueOwner());
+                }
+                out.writeLong(null == lastPurgedTimestamp ? 0L : lastPurgedTimestamp);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while encoding storage queues", e);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a batch of bindings into one frame
+     *
+     * @param bindings bindings to encode
+     * @return encoded frame
+     */
+    public static byte[] encodeBindings(Collection<AndesBinding> bindings) {
+        FrameWriter writer = new FrameWriter(BINDING, bindings.size());
+        try {
+            for (AndesBinding binding : bindings) {
+                DataOutputStream out = writer.out;
+                out.writeByte(null != binding.getBindingKey() ? FLAG_HAS_BINDING_KEY : 0);
+                out.writeUTF(binding.getMessageRouterName());
+                out.writeUTF(binding.getBoundQueue().getName());
+                if (null != binding.getBindingKey()) {
+                    out.writeUTF(binding.getBindingKey());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while encoding bindings", e);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a batch of subscriptions into one frame
+     *
+     * @param subscriptions subscriptions to encode
+     * @return encoded frame
+     */
+    public static byte[] encodeSubscriptions(Collection<AndesSubscription> subscriptions) {
+        FrameWriter writer = new FrameWriter(SUBSCRIPTION, subscriptions.size());
+        try {
+            for (AndesSubscription subscription : subscriptions) {
+                DataOutputStream out = writer.out;
+                SubscriberConnection connection = subscription.getSubscriberConnection();
+                int flags = (subscription.isActive() ? FLAG_ACTIVE : 0)
+                        | (null != connection.getConnectedIP() ? FLAG_HAS_IP : 0)
+                        | (null != connection.getConnectedNode() ? FLAG_HAS_NODE : 0);
+                out.writeByte(flags);
+                out.writeUTF(subscription.getSubscriptionId());
+                out.writeUTF(subscription.getStorageQueue().getName());
+                out.writeByte(encodeProtocol(subscription.getProtocolType()));
+                if (null != connection.getConnectedIP()) {
+                    out.writeUTF(connection.getConnectedIP());
+                }
+                if (null != connection.getConnectedNode()) {
+                    out.writeUTF(connection.getConnectedNode());
+                }
+                UUID protocolChannelID = connection.getProtocolChannelID();
+                out.writeLong(protocolChannelID.getMostSignificantBits());
+                out.writeLong(protocolChannelID.getLeastSignificantBits());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while encoding subscriptions", e);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decode message routers of a frame encoded by {@link #encodeMessageRouters(Collection)}
+     *
+     * @param frame encoded frame
+     * @return message routers in the order they were encoded
+     * @throws AndesException if the frame is malformed
+     */
+    public static List<AndesMessageRouter> decodeMessageRouters(byte[] frame) throws AndesException {
+        if (isLegacy(frame)) {
+            return Collections.singletonList(messageRouterFactory.createMessageRouter(toLegacyString(frame)));
+        }
+        FrameReader reader = new FrameReader(frame, MESSAGE_ROUTER);
+        List<AndesMessageRouter> messageRouters = new ArrayList<>(reader.count);
+        try {
+            for (int i = 0; i < reader.count; i++) {
+                DataInputStream in = reader.in;
+                int flags = in.readUnsignedByte();
+                String name = in.readUTF();
+                String type = hasFlag(flags, FLAG_HAS_TYPE) ? in.readUTF() : null;
+                messageRouters.add(messageRouterFactory.createMessageRouter(name, type,
+                        hasFlag(flags, FLAG_AUTO_DELETE)));
+            }
+        } catch (IOException e) {
+            throw new AndesException("Malformed message router notification", e);
+        }
+        return messageRouters;
+    }
+
+    /**
+     * Decode storage queues of a frame encoded by {@link #encodeQueues(Collection)}. Decoded queues are not
+     * registered and do not have a message handler.
+     *
+     * @param frame encoded frame
+     * @return storage queues in the order they were encoded
+     * @throws AndesException if the frame is malformed
+     */
+    public static List<StorageQueue> decodeQueues(byte[] frame) throws AndesException {
+        if (isLegacy(frame)) {
+            return Collections.singletonList(new StorageQueue(toLegacyString(frame)));
+        }
+        FrameReader reader = new FrameReader(frame, QUEUE);
+        List<StorageQueue> storageQueues = new ArrayList<>(reader.count);
+        try {
+            for (int i = 0; i < reader.count; i++) {
+                DataInputStream in = reader.in;
+                int flags = in.readUnsignedByte();
+                String name = in.readUTF();
+                String queueOwner = hasFlag(flags, FLAG_HAS_OWNER) ? in.readUTF() : null;
+                storageQueues.add(new StorageQueue(name, hasFlag(flags, FLAG_DURABLE), hasFlag(flags, FLAG_SHARED),
+                        queueOwner, hasFlag(flags, FLAG_EXCLUSIVE), in.readLong()));
+            }
+        } catch (IOException e) {
+            throw new AndesException("Malformed queue notification", e);
+        }
+        return storageQueues;
+    }
+
+    /**
+     * Decode bindings of a frame encoded by {@link #encodeBindings(Collection)}. Bound queues are resolved from
+     * the storage queue registry.
+     *
+     * @param frame encoded frame
+     * @return bindings in the order they were encoded
+     * @throws AndesException if the frame is malformed or a bound queue is not registered
+     */
+    public static List<AndesBinding> decodeBindings(byte[] frame) throws AndesException {
+        if (isLegacy(frame)) {
+            return Collections.singletonList(new AndesBinding(toLegacyString(frame)));
+        }
+        FrameReader reader = new FrameReader(frame, BINDING);
+        List<AndesBinding> bindings = new ArrayList<>(reader.count);
+        try {
+            for (int i = 0; i < reader.count; i++) {
+                DataInputStream in = reader.in;
+                int flags = in.readUnsignedByte();
+                String messageRouterName = in.readUTF();
+                String boundQueueName = in.readUTF();
+                String bindingKey = hasFlag(flags, FLAG_HAS_BINDING_KEY) ? in.readUTF() : null;
+                StorageQueue boundQueue = AndesContext.getInstance().
+                        getStorageQueueRegistry().getStorageQueue(boundQueueName);
+                if (null == boundQueue) {
+                    throw new AndesException("Queue to bind is not found " + boundQueueName);
+                }
+                bindings.add(new AndesBinding(messageRouterName, boundQueue, bindingKey));
+            }
+        } catch (IOException e) {
+            throw new AndesException("Malformed binding notification", e);
+        }
+        return bindings;
+    }
+
+    /**
+     * Decode subscriptions of a frame encoded by {@link #encodeSubscriptions(Collection)}. Storage queues of the
+     * subscriptions are resolved from the storage queue registry.
+     *
+     * @param frame encoded frame
+     * @return subscriptions in the order they were encoded
+     * @throws SubscriptionException if the frame is malformed or a storage queue is not registered
+     */
+    public static List<AndesSubscription> decodeSubscriptions(byte[] frame) throws SubscriptionException {
+        if (isLegacy(frame)) {
+            return Collections.singletonList(new AndesSubscription(toLegacyString(frame)));
+        }
+        FrameReader reader;
+        try {
+            reader = new FrameReader(frame, SUBSCRIPTION);
+        } catch (AndesException e) {
+            throw new SubscriptionException(e.getMessage(), e);
+        }
+        List<AndesSubscription> subscriptions = new ArrayList<>(reader.count);
+        try {
+            for (int i = 0; i < reader.count; i++) {
+                DataInputStream in = reader.in;
+                int flags = in.readUnsignedByte();
+                String subscriptionId = in.readUTF();
+                String storageQueueName = in.readUTF();
+                int protocolCode = in.readUnsignedByte();
+                String connectedIP = hasFlag(flags, FLAG_HAS_IP) ? in.readUTF() : null;
+                String connectedNode = hasFlag(flags, FLAG_HAS_NODE) ? in.readUTF() : null;
+                UUID protocolChannelID = new UUID(in.readLong(), in.readLong());
+
+                ProtocolType protocol = decodeProtocol(protocolCode);
+                if (null == protocol) {
+                    throw new SubscriptionException("Unknown protocol " + protocolCode + " of subscription id="
+                            + subscriptionId);
+                }
+                StorageQueue storageQueue = AndesContext.getInstance().
+                        getStorageQueueRegistry().getStorageQueue(storageQueueName);
+                if (null == storageQueue) {
+                    throw new SubscriptionException("StorageQueue " + storageQueueName
+                            + " is not registered while creating "
+                            + "subscription id=" + subscriptionId);
+                }
+                SubscriberConnection connection =
+                        new SubscriberConnection(connectedIP, connectedNode, protocolChannelID);
+                subscriptions.add(new AndesSubscription(subscriptionId, storageQueue,
+                        protocol, connection, hasFlag(flags, FLAG_ACTIVE)));
+            }
+        } catch (IOException e) {
+            throw new SubscriptionException("Malformed subscription notification", e);
+        }
+        return subscriptions;
+    }
+
+    /**
+     * Wrap an artifact encoded as a string by a node of an earlier version, so that it can be passed to the decode
+     * methods of this codec
+     *
+     * @param legacyEncoded artifact encoded as a "key=value,..." string
+     * @return bytes recognised as a legacy notification by the decode methods
+     */
+    public static byte[] fromLegacyString(String legacyEncoded) {
+        return legacyEncoded.getBytes(LEGACY_CHARSET);
+    }
+
+    /**
+     * Check whether notification details read back as text are an artifact encoded as a string by a node of an
+     * earlier version, rather than a Base64 encoded frame. Base64 never contains a comma, while a legacy string
+     * always separates its properties with one.
+     *
+     * @param eventDetails notification details as stored
+     * @return true if the details are a legacy string
+     */
+    public static boolean isLegacyString(String eventDetails) {
+        return eventDetails.indexOf(',') >= 0;
+    }
+
+    private static boolean isLegacy(byte[] frame) {
+        return (null != frame) && (frame.length > 0) && Character.isLetter((char) frame[0]);
+    }
+
+    private static String toLegacyString(byte[] frame) {
+        return new String(frame, LEGACY_CHARSET);
+    }
+
+    private static int encodeProtocol(ProtocolType protocolType) {
+        switch (protocolType) {
+            case MQTT:
+                return PROTOCOL_MQTT;
+            case AMQP:
+                return PROTOCOL_AMQP;
+            default:
+                throw new IllegalArgumentException("No wire code for protocol " + protocolType);
+        }
+    }
+
+    private static ProtocolType decodeProtocol(int protocolCode) {
+        switch (protocolCode) {
+            case PROTOCOL_MQTT:
+                return ProtocolType.MQTT;
+            case PROTOCOL_AMQP:
+                return ProtocolType.AMQP;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean hasFlag(int flags, int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * Writes the frame header and collects the entries written after it
+     */
+    private static final class FrameWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private FrameWriter(byte artifact, int count) {
+            try {
+                out.writeByte(VERSION);
+                out.writeByte(artifact);
+                out.writeInt(count);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error while writing notification header", e);
+            }
+        }
+
+        private byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Validates the frame header and exposes the entries following it
+     */
+    private static final class FrameReader {
+
+        private final DataInputStream in;
+
+        private final int count;
+
+        private FrameReader(byte[] frame, byte artifact) throws AndesException {
+            if (null == frame) {
+                throw new AndesException("Cluster notification does not carry an encoded artifact");
+            }
+            this.in = new DataInputStream(new ByteArrayInputStream(frame));
+            try {
+                byte version = in.readByte();
+                if (VERSION != version) {
+                    throw new AndesException("Unsupported cluster notification version " + version);
+                }
+                byte encodedArtifact = in.readByte();
+                if (artifact != encodedArtifact) {
+                    throw new AndesException("Cluster notification carries artifact " + encodedArtifact
+                            + " while " + artifact + " is expected");
+                }
+                this.count = in.readInt();
+            } catch (IOException e) {
+                throw new AndesException("Malformed cluster notification header", e);
+            }
+        }
+    }
+}
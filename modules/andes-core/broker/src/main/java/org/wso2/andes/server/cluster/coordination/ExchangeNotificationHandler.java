@@ -59,7 +59,7 @@ public class ExchangeNotificationHandler implements ClusterNotificationListener
     public void handleClusterNotification(ClusterNotification notification) {
         try {
             InboundExchangeSyncEvent exchangeSyncEvent =
-                    new InboundExchangeSyncEvent(notification.getEncodedObjectAsString());
+                    new InboundExchangeSyncEvent(notification.getEncodedObject());
             MessageRouterChange changeType = MessageRouterChange.valueOf(notification.getChangeType());
             switch (changeType) {
                 case Added:
@@ -61,7 +61,7 @@ public class QueueNotificationHandler implements ClusterNotificationListener {
     public void handleClusterNotification(ClusterNotification notification) {
         try {
             InboundQueueSyncEvent queueSyncEvent =
-                    new InboundQueueSyncEvent(notification.getEncodedObjectAsString());
+                    new InboundQueueSyncEvent(notification.getEncodedObject());
             QueueChange changeType = QueueChange.valueOf(notification.getChangeType());
             switch (changeType) {
                 case Added:
@@ -52,7 +52,7 @@ public class SubscriptionNotificationHandler implements ClusterNotificationListe
     public void handleClusterNotification(ClusterNotification notification) {
         try {
             InboundSubscriptionSyncEvent subscriptionSyncEvent =
-                    new InboundSubscriptionSyncEvent(notification.getEncodedObjectAsString());
+                    new InboundSubscriptionSyncEvent(notification.getEncodedObject());
             SubscriptionChange changeType = SubscriptionChange.valueOf(notification.getChangeType());
             switch (changeType) {
                 case Added:
@@ -73,4 +73,15 @@ public class TimeStampBasedMessageIdGenerator implements MessageIdGenerator {
         lastID = id;
         return id;
     }
+
+    /**
+     * Returns the smallest id any node could generate at the given time. Since ids start with the timestamp, every
+     * id generated at or after the given time is greater than or equal to the returned id.
+     *
+     * @param timestamp time in milliseconds
+     * @return smallest id for the timestamp
+     */
+    public static long getFirstIdForTimestamp(long timestamp) {
+        return (timestamp - REFERENCE_START) * 256 * 1024;
+    }
 }
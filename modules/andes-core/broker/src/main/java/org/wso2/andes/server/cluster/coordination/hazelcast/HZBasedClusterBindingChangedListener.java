@@ -51,8 +51,7 @@ public class HZBasedClusterBindingChangedListener implements MessageListener {
         if (!(message.getPublishingMember().localMember())) {
             ClusterNotification clusterNotification = (ClusterNotification) message.getMessageObject();
             if (log.isDebugEnabled()) {
-                log.debug("Handling cluster gossip: received a binding change notification " + clusterNotification
-                        .getEncodedObjectAsString());
+                log.debug("Handling cluster gossip: received a binding change notification " + clusterNotification);
             }
             for (BindingNotificationHandler bindingListener : bindingListeners) {
                 bindingListener.handleClusterNotification(clusterNotification);
@@ -51,8 +51,7 @@ public class HZBasedClusterExchangeChangedListener implements MessageListener {
         if (!(message.getPublishingMember().localMember())) {
             ClusterNotification clusterNotification = (ClusterNotification) message.getMessageObject();
             if (log.isDebugEnabled()) {
-                log.debug("Handling cluster gossip: received a exchange change notification " + clusterNotification
-                        .getEncodedObjectAsString());
+                log.debug("Handling cluster gossip: received a exchange change notification " + clusterNotification);
             }
             for (ExchangeNotificationHandler exchangeListener : exchangeListeners) {
                 exchangeListener.handleClusterNotification(clusterNotification);
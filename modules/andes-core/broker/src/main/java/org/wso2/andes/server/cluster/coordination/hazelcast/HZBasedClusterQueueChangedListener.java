@@ -51,8 +51,7 @@ public class HZBasedClusterQueueChangedListener implements MessageListener {
         if (!(message.getPublishingMember().localMember())) {
             ClusterNotification clusterNotification = (ClusterNotification) message.getMessageObject();
             if (log.isDebugEnabled()) {
-                log.debug("Handling cluster gossip: received a queue change notification " + clusterNotification
-                        .getEncodedObjectAsString());
+                log.debug("Handling cluster gossip: received a queue change notification " + clusterNotification);
             }
             for (QueueNotificationHandler queueListener : queueListeners) {
                 queueListener.handleClusterNotification(clusterNotification);
@@ -58,7 +58,7 @@ public class HZBasedClusterSubscriptionChangedListener implements MessageListene
             ClusterNotification clusterNotification = (ClusterNotification) message.getMessageObject();
             if (log.isDebugEnabled()) {
                 log.debug("Handling cluster gossip: received a subscription change notification "
-                        + clusterNotification.getEncodedObjectAsString());
+                        + clusterNotification);
             }
             for (SubscriptionNotificationHandler subscriptionListener : subscriptionListeners) {
                 subscriptionListener.handleClusterNotification(clusterNotification);
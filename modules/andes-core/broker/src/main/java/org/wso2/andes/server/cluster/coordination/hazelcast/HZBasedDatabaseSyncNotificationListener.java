@@ -58,8 +58,7 @@ public class HZBasedDatabaseSyncNotificationListener implements MessageListener
 
         ClusterNotification clusterNotification = (ClusterNotification) message.getMessageObject();
         if (log.isDebugEnabled()) {
-            log.debug("Handling cluster gossip: received a DB sync request " + clusterNotification
-                    .getEncodedObjectAsString());
+            log.debug("Handling cluster gossip: received a DB sync request " + clusterNotification);
         }
         log.info("DB sync request received after a split brain recovery from cluster " + message
                 .getPublishingMember());
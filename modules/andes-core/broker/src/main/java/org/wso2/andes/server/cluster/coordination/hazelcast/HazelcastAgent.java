@@ -18,6 +18,8 @@
 package org.wso2.andes.server.cluster.coordination.hazelcast;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
 import com.hazelcast.config.ReliableTopicConfig;
 import com.hazelcast.config.RingbufferConfig;
 import com.hazelcast.core.HazelcastInstance;
@@ -37,6 +39,9 @@ import org.wso2.andes.server.cluster.CoordinationConfigurableClusterAgent;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.CoordinationConstants;
 import org.wso2.andes.server.cluster.coordination.SlotAgent;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.MessageIdSetProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.NodeSlotMapProcessor;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.SlotSetProcessor;
 import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.HashmapStringTreeSetWrapper;
 import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
 import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
@@ -144,6 +149,14 @@ public class HazelcastAgent implements SlotAgent {
         CoordinationConfigurableClusterAgent clusterAgent = new CoordinationConfigurableClusterAgent(hazelcastInstance);
         AndesContext.getInstance().setClusterAgent(clusterAgent);
 
+        /**
+         * Slot coordination maps are changed through entry processors, hence keep them in object format
+         */
+        addObjectFormatMapConfig(CoordinationConstants.UNASSIGNED_SLOT_MAP_NAME);
+        addObjectFormatMapConfig(CoordinationConstants.SLOT_ID_MAP_NAME);
+        addObjectFormatMapConfig(CoordinationConstants.SLOT_ASSIGNMENT_MAP_NAME);
+        addObjectFormatMapConfig(CoordinationConstants.OVERLAPPED_SLOT_MAP_NAME);
+
         /**
          * Initialize hazelcast maps for slots
          */
@@ -256,43 +269,14 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public boolean deleteSlot(String nodeId, String queueName, long startMessageId, long endMessageId)
             throws AndesException {
-        boolean slotDeleted = false;
         try {
-            HashMap<String, TreeSet<Slot>> queueToSlotMap = null;
-            HashmapStringTreeSetWrapper wrapper = this.slotAssignmentMap.get(nodeId);
-            if (null != wrapper) {
-                queueToSlotMap = wrapper.getStringListHashMap();
-            }
-            if (null != queueToSlotMap) {
-                TreeSet<Slot> currentSlotList = queueToSlotMap.get(queueName);
-                if (null != currentSlotList) {
-                    // com.google.gson.Gson gson = new GsonBuilder().create();
-                    //get the actual reference of the slot to be removed
-                    Slot matchingSlot = null; //currentSlotList.ceiling(emptySlot);
-                    for (Slot slot : currentSlotList) {
-                        if (slot.getStartMessageId() == startMessageId) {
-                            matchingSlot = slot;
-                        }
-                    }
-                    if (null != matchingSlot) {
-                        if (matchingSlot.addState(SlotState.DELETED)) {
-                            currentSlotList.remove(matchingSlot);
-                            queueToSlotMap.put(queueName, currentSlotList);
-                            wrapper.setStringListHashMap(queueToSlotMap);
-                            slotAssignmentMap.set(nodeId, wrapper);
-                            slotDeleted = true;
-                        }
-                    } else {
-                        // We can say slot deleted since the slot does not exist
-                        slotDeleted = true;
-                    }
-                }
-            }
+            Object slotDeleted = slotAssignmentMap.executeOnKey(nodeId,
+                    NodeSlotMapProcessor.deleteSlot(queueName, startMessageId));
+            return Boolean.TRUE.equals(slotDeleted);
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to delete slot for queue : " +
                     queueName + " from node " + nodeId, ex);
         }
-        return slotDeleted;
     }
 
     /**
@@ -301,62 +285,24 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public void deleteSlotAssignmentByQueueName(String nodeId, String queueName) throws AndesException {
         try {
+            //Remove assigned and overlapped slots of the queue for the node
             TreeSet<Slot> slotListToReturn = new TreeSet<>();
-            //Get assigned slots from Hazelcast, delete all belonging to queue
-            //and set back
-            HashmapStringTreeSetWrapper wrapper = this.slotAssignmentMap.get(nodeId);
-            HashMap<String, TreeSet<Slot>> queueToSlotMap = null;
-            if (null != wrapper) {
-                queueToSlotMap = wrapper.getStringListHashMap();
-            }
-            if (null != queueToSlotMap) {
-                TreeSet<Slot> assignedSlotList = queueToSlotMap.remove(queueName);
-                if (null != assignedSlotList) {
-                    slotListToReturn.addAll(assignedSlotList);
-                }
-                wrapper.setStringListHashMap(queueToSlotMap);
-                this.slotAssignmentMap.set(nodeId, wrapper);
-            }
-
-            //Get overlapped slots from Hazelcast, delete all belonging to queue and
-            //set back
-            HashmapStringTreeSetWrapper overlappedSlotWrapper = this.overlappedSlotMap.get(nodeId);
-            HashMap<String, TreeSet<Slot>> queueToOverlappedSlotMap = null;
-            if (null != overlappedSlotWrapper) {
-                queueToOverlappedSlotMap = overlappedSlotWrapper.getStringListHashMap();
-            }
-            if (null != queueToOverlappedSlotMap) {
-                TreeSet<Slot> assignedOverlappedSlotList = queueToOverlappedSlotMap.remove(queueName);
-                if (null != assignedOverlappedSlotList) {
-                    slotListToReturn.addAll(assignedOverlappedSlotList);
-                }
-                overlappedSlotWrapper.setStringListHashMap(queueToOverlappedSlotMap);
-                this.overlappedSlotMap.set(nodeId, overlappedSlotWrapper);
-            }
+            slotListToReturn.addAll(removeSlotsOfQueue(slotAssignmentMap, nodeId, queueName));
+            slotListToReturn.addAll(removeSlotsOfQueue(overlappedSlotMap, nodeId, queueName));
 
             //add the deleted slots to un-assigned slot map, so that they can be assigned again.
-            if (!(slotListToReturn.isEmpty())) {
-                TreeSetSlotWrapper treeSetStringWrapper = unAssignedSlotMap.get(queueName);
-                TreeSet<Slot> unAssignedSlotSet = new TreeSet<>();
-                if (null != treeSetStringWrapper) {
-                    unAssignedSlotSet = treeSetStringWrapper.getSlotTreeSet();
-                } else {
-                    treeSetStringWrapper = new TreeSetSlotWrapper();
-                }
-                if (null == unAssignedSlotSet) {
-                    unAssignedSlotSet = new TreeSet<>();
-                }
-                for (Slot returnSlot : slotListToReturn) {
-                    //Reassign only if the slot is not empty
-                    if (!(SlotUtils.checkSlotEmptyFromMessageStore(returnSlot))) {
-                        if (returnSlot.addState(SlotState.RETURNED)) {
-                            unAssignedSlotSet.add(returnSlot);
-                        }
+            TreeSet<Slot> slotsToReassign = new TreeSet<>();
+            for (Slot returnSlot : slotListToReturn) {
+                //Reassign only if the slot is not empty
+                if (!(SlotUtils.checkSlotEmptyFromMessageStore(returnSlot))) {
+                    if (returnSlot.addState(SlotState.RETURNED)) {
+                        slotsToReassign.add(returnSlot);
                     }
-                    treeSetStringWrapper.setSlotTreeSet(unAssignedSlotSet);
-                    unAssignedSlotMap.set(queueName, treeSetStringWrapper);
                 }
             }
+            if (!slotsToReassign.isEmpty()) {
+                unAssignedSlotMap.executeOnKey(queueName, SlotSetProcessor.addSlots(slotsToReassign));
+            }
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to delete slot assignment for queue : " +
                     queueName + " from node " + nodeId, ex);
@@ -368,23 +314,13 @@ public class HazelcastAgent implements SlotAgent {
      */
     @Override
     public Slot getUnAssignedSlot(String queueName) throws AndesException {
-        Slot slotToBeAssigned = null;
         try {
-            TreeSetSlotWrapper unAssignedSlotWrapper = unAssignedSlotMap.get(queueName);
-            if (null != unAssignedSlotWrapper) {
-                TreeSet<Slot> slotsFromUnassignedSlotMap = unAssignedSlotWrapper.getSlotTreeSet();
-                if (null != slotsFromUnassignedSlotMap && !(slotsFromUnassignedSlotMap.isEmpty())) {
-                    //Get and remove slot and update hazelcast map
-                    slotToBeAssigned = slotsFromUnassignedSlotMap.pollFirst();
-                    unAssignedSlotWrapper.setSlotTreeSet(slotsFromUnassignedSlotMap);
-                    unAssignedSlotMap.set(queueName, unAssignedSlotWrapper);
-                }
-            }
+            //Get and remove slot in place at the owner of the entry
+            return (Slot) unAssignedSlotMap.executeOnKey(queueName, SlotSetProcessor.pollFirst());
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to get unassigned slot for queue : " +
                     queueName, ex);
         }
-        return slotToBeAssigned;
     }
 
     /**
@@ -392,32 +328,11 @@ public class HazelcastAgent implements SlotAgent {
      */
     @Override
     public void updateSlotAssignment(String nodeId, String queueName, Slot allocatedSlot) throws AndesException {
-        TreeSet<Slot> currentSlotList;
-        HashMap<String, TreeSet<Slot>> queueToSlotMap;
-
         try {
-            HashmapStringTreeSetWrapper wrapper = this.slotAssignmentMap.get(nodeId);
-            if (null == wrapper) {
-                wrapper = new HashmapStringTreeSetWrapper();
-                queueToSlotMap = new HashMap<>();
-                wrapper.setStringListHashMap(queueToSlotMap);
-                this.slotAssignmentMap.putIfAbsent(nodeId, wrapper);
-            }
-            wrapper = this.slotAssignmentMap.get(nodeId);
-            queueToSlotMap = wrapper.getStringListHashMap();
-            currentSlotList = queueToSlotMap.get(queueName);
-            if (null == currentSlotList) {
-                currentSlotList = new TreeSet<>();
-            }
-
             //update slot state
             if (allocatedSlot.addState(SlotState.ASSIGNED)) {
                 //remove any similar slot from hazelcast and add the updated one
-                currentSlotList.remove(allocatedSlot);
-                currentSlotList.add(allocatedSlot);
-                queueToSlotMap.put(queueName, currentSlotList);
-                wrapper.setStringListHashMap(queueToSlotMap);
-                this.slotAssignmentMap.set(nodeId, wrapper);
+                slotAssignmentMap.executeOnKey(nodeId, NodeSlotMapProcessor.addSlot(queueName, allocatedSlot));
             }
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to update slot assignment for queue : " +
@@ -491,28 +406,13 @@ public class HazelcastAgent implements SlotAgent {
      */
     @Override
     public Slot getOverlappedSlot(String nodeId, String queueName) throws AndesException {
-        Slot slotToBeAssigned = null;
-        TreeSet<Slot> currentSlotList;
-        HashMap<String, TreeSet<Slot>> queueToSlotMap;
         try {
-            HashmapStringTreeSetWrapper wrapper = this.overlappedSlotMap.get(nodeId);
-            if (null != wrapper) {
-                queueToSlotMap = wrapper.getStringListHashMap();
-                currentSlotList = queueToSlotMap.get(queueName);
-                if (null != currentSlotList && !(currentSlotList.isEmpty())) {
-                    //get and remove slot
-                    slotToBeAssigned = currentSlotList.pollFirst();
-                    queueToSlotMap.put(queueName, currentSlotList);
-                    //update hazelcast map
-                    wrapper.setStringListHashMap(queueToSlotMap);
-                    this.overlappedSlotMap.set(nodeId, wrapper);
-                }
-            }
+            //get and remove slot in place at the owner of the entry
+            return (Slot) overlappedSlotMap.executeOnKey(nodeId, NodeSlotMapProcessor.pollFirst(queueName));
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to getOverlappedSlot for queue : " +
                     queueName + " from node " + nodeId, ex);
         }
-        return slotToBeAssigned;
     }
 
     /**
@@ -521,11 +421,7 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public void addMessageId(String queueName, long messageId) throws AndesException {
         try {
-            TreeSet<Long> messageIdSet = this.getSlotBasedMessageIds(queueName);
-            TreeSetLongWrapper wrapper = this.slotIdMap.get(queueName);
-            messageIdSet.add(messageId);
-            wrapper.setLongTreeSet(messageIdSet);
-            this.slotIdMap.set(queueName, wrapper);
+            this.slotIdMap.executeOnKey(queueName, MessageIdSetProcessor.add(messageId));
         }  catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to addMessageId for queue : " +
                     queueName, ex);
@@ -557,15 +453,8 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public void deleteMessageId(String queueName, long messageId) throws AndesException {
         try {
-            TreeSetLongWrapper wrapper = this.slotIdMap.get(queueName);
-            TreeSet<Long> messageIDSet;
-            messageIDSet = wrapper.getLongTreeSet();
-            if (null != messageIDSet && !(messageIDSet.isEmpty())) {
-                messageIDSet.pollFirst();
-                //set modified published ID map to hazelcast
-                wrapper.setLongTreeSet(messageIDSet);
-                this.slotIdMap.set(queueName, wrapper);
-            }
+            //remove the first message id of the published ID set in place
+            this.slotIdMap.executeOnKey(queueName, MessageIdSetProcessor.pollFirst());
         }  catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to deleteMessageId for queue : " +
                     queueName, ex);
@@ -587,30 +476,9 @@ public class HazelcastAgent implements SlotAgent {
 
             for (String nodeID : nodeIDs) {
                 if (null != nodeID) {
-                    HashmapStringTreeSetWrapper wrapper = slotAssignmentMap.get(nodeID);
-                    HashMap<String, TreeSet<Slot>> queueToSlotMap = null;
-                    if (null != wrapper) {
-                        queueToSlotMap = wrapper.getStringListHashMap();
-                    }
-                    if (null != queueToSlotMap) {
-                        queueToSlotMap.remove(queueName);
-                        wrapper.setStringListHashMap(queueToSlotMap);
-                        slotAssignmentMap.set(nodeID, wrapper);
-                    }
-
+                    removeSlotsOfQueue(slotAssignmentMap, nodeID, queueName);
                     //clear overlapped slot map
-                    HashmapStringTreeSetWrapper overlappedSlotsWrapper = overlappedSlotMap.get(nodeID);
-                    if (null != overlappedSlotsWrapper) {
-                        HashMap<String, TreeSet<Slot>> queueToOverlappedSlotMap = null;
-                        if (null != wrapper) {
-                            queueToOverlappedSlotMap = overlappedSlotsWrapper.getStringListHashMap();
-                        }
-                        if (null != queueToSlotMap) {
-                            queueToOverlappedSlotMap.remove(queueName);
-                            overlappedSlotsWrapper.setStringListHashMap(queueToOverlappedSlotMap);
-                            overlappedSlotMap.set(nodeID, overlappedSlotsWrapper);
-                        }
-                    }
+                    removeSlotsOfQueue(overlappedSlotMap, nodeID, queueName);
                 }
             }
         } catch (HazelcastInstanceNotActiveException ex) {
@@ -663,34 +531,9 @@ public class HazelcastAgent implements SlotAgent {
         TreeSet<String> messagePublishedNodes = getMessagePublishedNodes();
 
         for (String nodeId : messagePublishedNodes) {
-            if (!(overlappedSlotMap.containsKey(nodeId))) {
-                overlappedSlotMap.put(nodeId, new HashmapStringTreeSetWrapper());
-            }
-            HashmapStringTreeSetWrapper olWrapper = overlappedSlotMap.get(nodeId);
-            if (null != olWrapper) {
-                HashMap<String, TreeSet<Slot>> olSlotMap = olWrapper.getStringListHashMap();
-                if (null != olSlotMap) {
-                    if (!(olSlotMap.containsKey(queueName))) {
-                        olSlotMap.put(queueName, new TreeSet<Slot>());
-                        olWrapper.setStringListHashMap(olSlotMap);
-                        overlappedSlotMap.set(nodeId, olWrapper);
-                    } else {
-                        resultSet.addAll(olSlotMap.get(queueName));
-                    }
-                }
-            }
-
-
-            HashmapStringTreeSetWrapper wrapper = slotAssignmentMap.get(nodeId);
-            if (null != wrapper) {
-                HashMap<String, TreeSet<Slot>> queueToSlotMap = wrapper.getStringListHashMap();
-                if (queueToSlotMap != null) {
-                    TreeSet<Slot> slotListForQueueOnNode = queueToSlotMap.get(queueName);
-                    if (null != slotListForQueueOnNode) {
-                        resultSet.addAll(slotListForQueueOnNode);
-                    }
-                }
-            }
+            // Only the slots of the queue are read from each node entry
+            resultSet.addAll(getSlotsOfQueue(overlappedSlotMap, nodeId, queueName));
+            resultSet.addAll(getSlotsOfQueue(slotAssignmentMap, nodeId, queueName));
         }
 
         TreeSetSlotWrapper treeSetStringWrapper = unAssignedSlotMap.get(queueName);
@@ -712,20 +555,11 @@ public class HazelcastAgent implements SlotAgent {
     @Override
     public void reassignSlot(Slot slotToBeReassigned) throws AndesException {
         try {
-            TreeSet<Slot> freeSlotTreeSet = new TreeSet<>();
-            TreeSetSlotWrapper treeSetStringWrapper = new TreeSetSlotWrapper();
-
-            treeSetStringWrapper.setSlotTreeSet(freeSlotTreeSet);
-
-            this.unAssignedSlotMap.putIfAbsent(slotToBeReassigned.getStorageQueueName(),
-                    treeSetStringWrapper);
-
             if (slotToBeReassigned.addState(SlotState.RETURNED)) {
-                treeSetStringWrapper = this.unAssignedSlotMap.get(slotToBeReassigned.getStorageQueueName());
-                freeSlotTreeSet = treeSetStringWrapper.getSlotTreeSet();
-                freeSlotTreeSet.add(slotToBeReassigned);
-                treeSetStringWrapper.setSlotTreeSet(freeSlotTreeSet);
-                this.unAssignedSlotMap.set(slotToBeReassigned.getStorageQueueName(), treeSetStringWrapper);
+                TreeSet<Slot> freeSlots = new TreeSet<>();
+                freeSlots.add(slotToBeReassigned);
+                this.unAssignedSlotMap.executeOnKey(slotToBeReassigned.getStorageQueueName(),
+                        SlotSetProcessor.addSlots(freeSlots));
             }
         } catch (HazelcastInstanceNotActiveException ex) {
             throw new AndesException("Failed to reassign slot", ex);
@@ -745,36 +579,18 @@ public class HazelcastAgent implements SlotAgent {
      * {@inheritDoc}
      */
     @Override
-    public void updateOverlappedSlots( String queueName, TreeSet<Slot> overlappedSlots)
+    public void updateOverlappedSlots(String queueName, TreeSet<Slot> overlappedSlots)
             throws AndesException {
         TreeSet<String> messagePublishedNodes = getMessagePublishedNodes();
 
         for (String nodeId : messagePublishedNodes) {
-            HashmapStringTreeSetWrapper wrapper = slotAssignmentMap.get(nodeId);
-            HashMap<String, TreeSet<Slot>> queueToSlotMap = new HashMap<>();
-            if (null == wrapper) {
-                wrapper = new HashmapStringTreeSetWrapper();
-            } else {
-                queueToSlotMap = wrapper.getStringListHashMap();
-            }
-
-            HashmapStringTreeSetWrapper olWrapper = overlappedSlotMap.get(nodeId);
-            HashMap<String, TreeSet<Slot>> olSlotMap = olWrapper.getStringListHashMap();
-            for (Slot slot : overlappedSlots) {
-                TreeSet<Slot> slotsForNode = queueToSlotMap.get(queueName);
-                if (slotsForNode.contains(slot)) {
-                    //Add to global overlappedSlotMap
-                    olSlotMap.get(queueName).remove(slot);
-                    olSlotMap.get(queueName).add(slot);
-
-                    slotsForNode.remove(slot);
-                }
+            //Move the overlapped slots assigned to the node into the overlapped slot map of the node
+            TreeSetSlotWrapper removedSlots = (TreeSetSlotWrapper) slotAssignmentMap.executeOnKey(nodeId,
+                    NodeSlotMapProcessor.removeSlots(queueName, overlappedSlots));
+            if (null != removedSlots && !removedSlots.getSlotTreeSet().isEmpty()) {
+                overlappedSlotMap.executeOnKey(nodeId,
+                        NodeSlotMapProcessor.addSlots(queueName, removedSlots.getSlotTreeSet()));
             }
-            wrapper.setStringListHashMap(queueToSlotMap);
-            slotAssignmentMap.set(nodeId, wrapper);
-            // Add all marked slots collected into the olSlot to global overlappedSlotsMap.
-            olWrapper.setStringListHashMap(olSlotMap);
-            overlappedSlotMap.set(nodeId, olWrapper);
         }
     }
 
@@ -802,6 +618,55 @@ public class HazelcastAgent implements SlotAgent {
         // Maps will be automatically cleared.
     }
 
+    /**
+     * Remove all slots of a queue from a node entry of a node to slot map, in place at the owner of the entry
+     *
+     * @param nodeToSlotMap slot assignment map or overlapped slot map
+     * @param nodeId        node id
+     * @param queueName     name of the queue
+     * @return slots removed
+     */
+    private TreeSet<Slot> removeSlotsOfQueue(IMap<String, HashmapStringTreeSetWrapper> nodeToSlotMap,
+                                             String nodeId, String queueName) {
+        TreeSetSlotWrapper removedSlots = (TreeSetSlotWrapper) nodeToSlotMap.executeOnKey(nodeId,
+                NodeSlotMapProcessor.removeQueue(queueName));
+        if (null == removedSlots || null == removedSlots.getSlotTreeSet()) {
+            return new TreeSet<>();
+        }
+        return removedSlots.getSlotTreeSet();
+    }
+
+    /**
+     * Read the slots of a queue from a node entry of a node to slot map, without reading slots of other queues
+     *
+     * @param nodeToSlotMap slot assignment map or overlapped slot map
+     * @param nodeId        node id
+     * @param queueName     name of the queue
+     * @return slots of the queue
+     */
+    private TreeSet<Slot> getSlotsOfQueue(IMap<String, HashmapStringTreeSetWrapper> nodeToSlotMap,
+                                          String nodeId, String queueName) {
+        TreeSetSlotWrapper slots = (TreeSetSlotWrapper) nodeToSlotMap.executeOnKey(nodeId,
+                NodeSlotMapProcessor.getQueue(queueName));
+        if (null == slots || null == slots.getSlotTreeSet()) {
+            return new TreeSet<>();
+        }
+        return slots.getSlotTreeSet();
+    }
+
+    /**
+     * Keep the values of a slot coordination map as objects. Entry processors then change the sets in place
+     * instead of deserializing and serializing the whole set on every change. Should be called before the map
+     * is first used.
+     *
+     * @param mapName name of the map
+     */
+    private void addObjectFormatMapConfig(String mapName) {
+        Config config = hazelcastInstance.getConfig();
+        MapConfig mapConfig = config.getMapConfig(mapName);
+        mapConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+    }
+
     /**
      * Method to configure a given reliable topic of the Hazelcast instance. Refer to Hazelcast Reliable
      * Topic Configurations for more information on the configuration parameters
@@ -25,6 +25,7 @@ import org.wso2.andes.kernel.subscription.AndesSubscription;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
 
 import java.util.Map;
 
@@ -70,22 +71,22 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
             AndesException {
 
         ClusterNotification clusterNotification = new ClusterNotification(
-                messageRouter.encodeAsString(),
+                ClusterNotificationCodec.encode(messageRouter),
                 ClusterNotificationListener.NotifiedArtifact.MessageRouter.toString(),
                 changeType.toString(),
                 "Message Router Notification Message : " + changeType.toString(),
                 localNodeID);
 
         if (log.isDebugEnabled()) {
-            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("Sending GOSSIP: " + clusterNotification);
         }
         try {
             channelMAP.get(ClusterNotificationListener.NotifiedArtifact.MessageRouter).publish(clusterNotification);
         } catch (Exception e) {
             log.error("Error while sending exchange change notification"
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
             throw new AndesException("Error while sending exchange change notification"
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
         }
     }
 
@@ -101,22 +102,22 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
             throws AndesException {
 
         ClusterNotification clusterNotification = new ClusterNotification(
-                andesQueue.encodeAsString(),
+                ClusterNotificationCodec.encode(andesQueue),
                 ClusterNotificationListener.NotifiedArtifact.Queue.toString(),
                 changeType.toString(),
                 "Queue Notification Message : " + changeType.toString(),
                 localNodeID);
 
         if (log.isDebugEnabled()) {
-            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("Sending GOSSIP: " + clusterNotification);
         }
         try {
             channelMAP.get(ClusterNotificationListener.NotifiedArtifact.Queue).publish(clusterNotification);
         } catch (Exception e) {
             log.error("Error while sending queue change notification : "
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
             throw new AndesException("Error while sending queue change notification : "
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
         }
     }
 
@@ -127,22 +128,22 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
             throws AndesException {
 
         ClusterNotification clusterNotification = new ClusterNotification(
-                binding.encodeAsString(),
+                ClusterNotificationCodec.encode(binding),
                 ClusterNotificationListener.NotifiedArtifact.Binding.toString(),
                 changeType.toString(),
                 "Binding Notification Message : " + changeType.toString(),
                 localNodeID);
 
         if (log.isDebugEnabled()) {
-            log.debug("GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("GOSSIP: " + clusterNotification);
         }
         try {
             channelMAP.get(ClusterNotificationListener.NotifiedArtifact.Binding).publish(clusterNotification);
         } catch (Exception e) {
             log.error("Error while sending binding change notification"
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
             throw new AndesException("Error while sending binding change notification"
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
         }
     }
 
@@ -156,7 +157,7 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
             AndesException {
 
         ClusterNotification clusterNotification = new ClusterNotification(
-                subscription.encodeAsStr(),
+                ClusterNotificationCodec.encode(subscription),
                 ClusterNotificationListener.NotifiedArtifact.Subscription.toString(),
                 changeType.toString(),
                 "Subscription Notification Message : " + changeType.toString(),
@@ -164,16 +165,16 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
 
         //check hazelcast instance active because hazelcast bundle get deactivated before notification send
         if (log.isDebugEnabled()) {
-            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("Sending GOSSIP: " + clusterNotification);
         }
         try {
             this.channelMAP.get(ClusterNotificationListener.NotifiedArtifact.Subscription).
                     publish(clusterNotification);
         } catch (Exception ex) {
             log.error("Error while sending subscription change notification : "
-                    + clusterNotification.getEncodedObjectAsString(), ex);
+                    + clusterNotification, ex);
             throw new AndesException("Error while sending queue change notification : "
-                    + clusterNotification.getEncodedObjectAsString(), ex);
+                    + clusterNotification, ex);
         }
     }
 
@@ -182,7 +183,7 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
      */
     @Override
     public void notifyAnyDBChange() throws AndesException {
-        ClusterNotification clusterNotification = new ClusterNotification("", ClusterNotificationListener
+        ClusterNotification clusterNotification = new ClusterNotification(new byte[0], ClusterNotificationListener
                 .NotifiedArtifact.DBUpdate.toString(), "", "DBSyncEvent", localNodeID);
         try {
             channelMAP.get(ClusterNotificationListener.NotifiedArtifact.DBUpdate).publish(clusterNotification);
@@ -191,9 +192,9 @@ public class HazelcastBasedNotificationAgentImpl implements ClusterNotificationA
             }
         } catch (Exception e) {
             log.error("Error while sending db sync notification"
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
             throw new AndesException("Error while sending db sync notification"
-                    + clusterNotification.getEncodedObjectAsString(), e);
+                    + clusterNotification, e);
         }
     }
 }
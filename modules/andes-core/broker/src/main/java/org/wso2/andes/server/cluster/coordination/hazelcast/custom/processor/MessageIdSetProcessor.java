@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Changes the set of submitted slot message ids of a queue in place, on the member owning the entry. Only the
+ * operation and the message id travel across the cluster instead of the whole set.
+ */
+public class MessageIdSetProcessor implements EntryProcessor<String, TreeSetLongWrapper>,
+        EntryBackupProcessor<String, TreeSetLongWrapper>, DataSerializable {
+
+    /**
+     * Operations supported on a message id set
+     */
+    private enum Operation {
+        /**
+         * Add a message id
+         */
+        ADD,
+
+        /**
+         * Remove the smallest message id
+         */
+        POLL_FIRST
+    }
+
+    private Operation operation;
+
+    private long messageId;
+
+    /**
+     * Required for deserialization
+     */
+    public MessageIdSetProcessor() {
+    }
+
+    private MessageIdSetProcessor(Operation operation, long messageId) {
+        this.operation = operation;
+        this.messageId = messageId;
+    }
+
+    /**
+     * Create a processor adding the given message id to the set
+     *
+     * @param messageId message id to add
+     * @return {@link MessageIdSetProcessor}
+     */
+    public static MessageIdSetProcessor add(long messageId) {
+        return new MessageIdSetProcessor(Operation.ADD, messageId);
+    }
+
+    /**
+     * Create a processor removing the smallest message id of the set
+     *
+     * @return {@link MessageIdSetProcessor}
+     */
+    public static MessageIdSetProcessor pollFirst() {
+        return new MessageIdSetProcessor(Operation.POLL_FIRST, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return message id removed for {@link Operation#POLL_FIRST}, null otherwise
+     */
+    @Override
+    public Object process(Map.Entry<String, TreeSetLongWrapper> entry) {
+        TreeSetLongWrapper wrapper = entry.getValue();
+        Object result = null;
+
+        switch (operation) {
+            case ADD:
+                if (null == wrapper) {
+                    wrapper = new TreeSetLongWrapper();
+                }
+                wrapper.getLongTreeSet().add(messageId);
+                entry.setValue(wrapper);
+                break;
+            case POLL_FIRST:
+                if (null != wrapper) {
+                    TreeSet<Long> messageIdSet = wrapper.getLongTreeSet();
+                    if (null != messageIdSet && !messageIdSet.isEmpty()) {
+                        result = messageIdSet.pollFirst();
+                        entry.setValue(wrapper);
+                    }
+                }
+                break;
+        }
+        return result;
+    }
+
+    @Override
+    public EntryBackupProcessor<String, TreeSetLongWrapper> getBackupProcessor() {
+        return this;
+    }
+
+    @Override
+    public void processBackup(Map.Entry<String, TreeSetLongWrapper> entry) {
+        process(entry);
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeByte(operation.ordinal());
+        out.writeLong(messageId);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        operation = Operation.values()[in.readByte()];
+        messageId = in.readLong();
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.HashmapStringTreeSetWrapper;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Changes the slots of a single queue held in a node entry (queue name to slot set) in place, on the member owning
+ * the entry. Used for the slot assignment map and the overlapped slot map. Only the operation, the queue name and the
+ * slots involved travel across the cluster instead of all slots of the node.
+ */
+public class NodeSlotMapProcessor implements EntryProcessor<String, HashmapStringTreeSetWrapper>,
+        EntryBackupProcessor<String, HashmapStringTreeSetWrapper>, DataSerializable {
+
+    /**
+     * Operations supported on the slots of a queue
+     */
+    private enum Operation {
+        /**
+         * Add slots replacing any equal slot. Returns null
+         */
+        ADD_SLOTS,
+
+        /**
+         * Mark the slot starting at the given message id as deleted and remove it. Returns whether the slot is gone
+         */
+        DELETE_SLOT,
+
+        /**
+         * Remove and return the first slot, null if there is none
+         */
+        POLL_FIRST,
+
+        /**
+         * Remove the given slots if present. Returns the slots removed
+         */
+        REMOVE_SLOTS,
+
+        /**
+         * Remove all slots of the queue. Returns the slots removed
+         */
+        REMOVE_QUEUE,
+
+        /**
+         * Return all slots of the queue without changing them
+         */
+        GET_QUEUE
+    }
+
+    private Operation operation;
+
+    private String queueName;
+
+    private long startMessageId;
+
+    private TreeSet<Slot> slots;
+
+    /**
+     * Required for deserialization
+     */
+    public NodeSlotMapProcessor() {
+    }
+
+    private NodeSlotMapProcessor(Operation operation, String queueName, long startMessageId, TreeSet<Slot> slots) {
+        this.operation = operation;
+        this.queueName = queueName;
+        this.startMessageId = startMessageId;
+        this.slots = slots;
+    }
+
+    /**
+     * Create a processor adding a slot to a queue, replacing an equal slot if there is one
+     *
+     * @param queueName name of the queue
+     * @param slot      slot to add
+     * @return {@link NodeSlotMapProcessor}
+     */
+    public static NodeSlotMapProcessor addSlot(String queueName, Slot slot) {
+        return addSlots(queueName, new TreeSet<>(Collections.singleton(slot)));
+    }
+
+    /**
+     * Create a processor adding slots to a queue, replacing equal slots
+     *
+     * @param queueName name of the queue
+     * @param slots     slots to add
+     * @return {@link NodeSlotMapProcessor}
+     */
+    public static NodeSlotMapProcessor addSlots(String queueName, TreeSet<Slot> slots) {
+        return new NodeSlotMapProcessor(Operation.ADD_SLOTS, queueName, 0, slots);
+    }
+
+    /**
+     * Create a processor deleting the slot of a queue starting at the given message id. Processor returns true if
+     * the slot is deleted or does not exist, false if the queue has no slots or the slot can not move to
+     * {@link SlotState#DELETED}.
+     *
+     * @param queueName      name of the queue
+     * @param startMessageId start message id of the slot
+     * @return {@link NodeSlotMapProcessor}
+     */
+    public static NodeSlotMapProcessor deleteSlot(String queueName, long startMessageId) {
+        return new NodeSlotMapProcessor(Operation.DELETE_SLOT, queueName, startMessageId, new TreeSet<Slot>());
+    }
+
+    /**
+     * Create a processor removing and returning the first slot of a queue
+     *
+     * @param queueName name of the queue
+     * @return {@link NodeSlotMapProcessor}
+     */
+    public static NodeSlotMapProcessor pollFirst(String queueName) {
+        return new NodeSlotMapProcessor(Operation.POLL_FIRST, queueName, 0, new TreeSet<Slot>());
+    }
+
+    /**
+     * Create a processor removing the given slots of a queue if they are present. Processor returns a
+     * {@link TreeSetSlotWrapper} with the slots removed.
+     *
+     * @param queueName name of the queue
+     * @param slots     slots to remove
+     * @return {@link NodeSlotMapProcessor}
+     */
+    public static NodeSlotMapProcessor removeSlots(String queueName, TreeSet<Slot> slots) {
+        return new NodeSlotMapProcessor(Operation.REMOVE_SLOTS, queueName, 0, slots);
+    }
+
+    /**
+     * Create a processor removing all slots of a queue. Processor returns a {@link TreeSetSlotWrapper} with the
+     * slots removed.
+     *
+     * @param queueName name of the queue
+     * @return {@link NodeSlotMapProcessor}
+     */
+    public static NodeSlotMapProcessor removeQueue(String queueName) {
+        return new NodeSlotMapProcessor(Operation.REMOVE_QUEUE, queueName, 0, new TreeSet<Slot>());
+    }
+
+    /**
+     * Create a processor returning all slots of a queue in a {@link TreeSetSlotWrapper}
+     *
+     * @param queueName name of the queue
+     * @return {@link NodeSlotMapProcessor}
+     */
+    public static NodeSlotMapProcessor getQueue(String queueName) {
+        return new NodeSlotMapProcessor(Operation.GET_QUEUE, queueName, 0, new TreeSet<Slot>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object process(Map.Entry<String, HashmapStringTreeSetWrapper> entry) {
+        HashmapStringTreeSetWrapper wrapper = entry.getValue();
+        HashMap<String, TreeSet<Slot>> queueToSlotMap = null;
+        if (null != wrapper) {
+            queueToSlotMap = wrapper.getStringListHashMap();
+        }
+        TreeSet<Slot> queueSlots = null;
+        if (null != queueToSlotMap) {
+            queueSlots = queueToSlotMap.get(queueName);
+        }
+
+        switch (operation) {
+            case ADD_SLOTS:
+                if (null == wrapper) {
+                    wrapper = new HashmapStringTreeSetWrapper();
+                }
+                if (null == wrapper.getStringListHashMap()) {
+                    wrapper.setStringListHashMap(new HashMap<String, TreeSet<Slot>>());
+                }
+                if (null == queueSlots) {
+                    queueSlots = new TreeSet<>();
+                    wrapper.getStringListHashMap().put(queueName, queueSlots);
+                }
+                for (Slot slot : slots) {
+                    queueSlots.remove(slot);
+                    queueSlots.add(slot);
+                }
+                entry.setValue(wrapper);
+                return null;
+            case DELETE_SLOT:
+                if (null == queueSlots) {
+                    return false;
+                }
+                Slot matchingSlot = null;
+                for (Slot slot : queueSlots) {
+                    if (slot.getStartMessageId() == startMessageId) {
+                        matchingSlot = slot;
+                    }
+                }
+                if (null == matchingSlot) {
+                    // Slot deleted since it doesn't exist
+                    return true;
+                }
+                if (matchingSlot.addState(SlotState.DELETED)) {
+                    queueSlots.remove(matchingSlot);
+                    entry.setValue(wrapper);
+                    return true;
+                }
+                return false;
+            case POLL_FIRST:
+                if (null == queueSlots || queueSlots.isEmpty()) {
+                    return null;
+                }
+                Slot firstSlot = queueSlots.pollFirst();
+                entry.setValue(wrapper);
+                return firstSlot;
+            case REMOVE_SLOTS:
+                TreeSet<Slot> removedSlots = new TreeSet<>();
+                if (null != queueSlots) {
+                    for (Slot slot : slots) {
+                        if (queueSlots.remove(slot)) {
+                            removedSlots.add(slot);
+                        }
+                    }
+                    if (!removedSlots.isEmpty()) {
+                        entry.setValue(wrapper);
+                    }
+                }
+                return wrap(removedSlots);
+            case REMOVE_QUEUE:
+                if (null == queueSlots) {
+                    return wrap(new TreeSet<Slot>());
+                }
+                queueToSlotMap.remove(queueName);
+                entry.setValue(wrapper);
+                return wrap(queueSlots);
+            case GET_QUEUE:
+                if (null == queueSlots) {
+                    return wrap(new TreeSet<Slot>());
+                }
+                return wrap(new TreeSet<>(queueSlots));
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * Only operations changing the entry are applied on backups
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public EntryBackupProcessor<String, HashmapStringTreeSetWrapper> getBackupProcessor() {
+        if (Operation.GET_QUEUE == operation) {
+            return null;
+        }
+        return this;
+    }
+
+    @Override
+    public void processBackup(Map.Entry<String, HashmapStringTreeSetWrapper> entry) {
+        process(entry);
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeByte(operation.ordinal());
+        out.writeUTF(queueName);
+        out.writeLong(startMessageId);
+        SlotCodec.writeSlots(out, slots);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        operation = Operation.values()[in.readByte()];
+        queueName = in.readUTF();
+        startMessageId = in.readLong();
+        slots = SlotCodec.readSlots(in);
+    }
+
+    private static TreeSetSlotWrapper wrap(TreeSet<Slot> slots) {
+        TreeSetSlotWrapper wrapper = new TreeSetSlotWrapper();
+        wrapper.setSlotTreeSet(slots);
+        return wrapper;
+    }
+}
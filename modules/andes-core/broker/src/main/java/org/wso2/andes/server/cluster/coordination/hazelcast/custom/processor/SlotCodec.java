@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import org.wso2.andes.kernel.slot.Slot;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Writes and reads the coordination state of {@link Slot}s carried by entry processors. Only the fields kept by the
+ * slot coordinator are written, messages read by a slot are local to the node and not included.
+ */
+final class SlotCodec {
+
+    private SlotCodec() {
+    }
+
+    /**
+     * Write a collection of slots
+     *
+     * @param out   output to write to
+     * @param slots slots to write
+     * @throws IOException
+     */
+    static void writeSlots(ObjectDataOutput out, Collection<Slot> slots) throws IOException {
+        out.writeInt(slots.size());
+        for (Slot slot : slots) {
+            writeSlot(out, slot);
+        }
+    }
+
+    /**
+     * Read a collection of slots written by {@link #writeSlots(ObjectDataOutput, Collection)}
+     *
+     * @param in input to read from
+     * @return slots read
+     * @throws IOException
+     */
+    static TreeSet<Slot> readSlots(ObjectDataInput in) throws IOException {
+        int size = in.readInt();
+        TreeSet<Slot> slots = new TreeSet<>();
+        for (int i = 0; i < size; i++) {
+            slots.add(readSlot(in));
+        }
+        return slots;
+    }
+
+    /**
+     * Write a single slot
+     *
+     * @param out  output to write to
+     * @param slot slot to write
+     * @throws IOException
+     */
+    static void writeSlot(ObjectDataOutput out, Slot slot) throws IOException {
+        out.writeLong(slot.getMessageCount());
+        out.writeLong(slot.getStartMessageId());
+        out.writeLong(slot.getEndMessageId());
+        writeNullableString(out, slot.getStorageQueueName());
+        writeNullableString(out, slot.getDestinationOfMessagesInSlot());
+        out.writeUTF(slot.encodeSlotStates());
+        out.writeBoolean(slot.isAnOverlappingSlot());
+        out.writeBoolean(slot.isSlotActive());
+    }
+
+    /**
+     * Read a single slot written by {@link #writeSlot(ObjectDataOutput, Slot)}
+     *
+     * @param in input to read from
+     * @return slot read
+     * @throws IOException
+     */
+    static Slot readSlot(ObjectDataInput in) throws IOException {
+        Slot slot = new Slot();
+        slot.setMessageCount(in.readLong());
+        slot.setStartMessageId(in.readLong());
+        slot.setEndMessageId(in.readLong());
+        slot.setStorageQueueName(readNullableString(in));
+        slot.setDestinationOfMessagesInSlot(readNullableString(in));
+        String encodedStates = in.readUTF();
+        slot.decodeAndSetSlotStates(encodedStates);
+        if (in.readBoolean()) {
+            // Marking the slot as overlapping adds a state, hence the written states are restored afterwards
+            slot.setAnOverlappingSlot(true);
+            slot.decodeAndSetSlotStates(encodedStates);
+        }
+        if (!in.readBoolean()) {
+            slot.setSlotInactive();
+        }
+        return slot;
+    }
+
+    private static void writeNullableString(ObjectDataOutput out, String value) throws IOException {
+        out.writeBoolean(null != value);
+        if (null != value) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(ObjectDataInput in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+        return null;
+    }
+}
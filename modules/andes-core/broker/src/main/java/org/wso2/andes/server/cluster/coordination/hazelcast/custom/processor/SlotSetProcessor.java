@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Changes the unassigned slots of a queue in place, on the member owning the entry. Only the operation and the
+ * slots involved travel across the cluster instead of all unassigned slots of the queue.
+ */
+public class SlotSetProcessor implements EntryProcessor<String, TreeSetSlotWrapper>,
+        EntryBackupProcessor<String, TreeSetSlotWrapper>, DataSerializable {
+
+    /**
+     * Operations supported on a slot set
+     */
+    private enum Operation {
+        /**
+         * Add slots. Returns null
+         */
+        ADD_SLOTS,
+
+        /**
+         * Remove and return the first slot, null if there is none
+         */
+        POLL_FIRST
+    }
+
+    private Operation operation;
+
+    private TreeSet<Slot> slots;
+
+    /**
+     * Required for deserialization
+     */
+    public SlotSetProcessor() {
+    }
+
+    private SlotSetProcessor(Operation operation, TreeSet<Slot> slots) {
+        this.operation = operation;
+        this.slots = slots;
+    }
+
+    /**
+     * Create a processor adding the given slots to the set
+     *
+     * @param slots slots to add
+     * @return {@link SlotSetProcessor}
+     */
+    public static SlotSetProcessor addSlots(TreeSet<Slot> slots) {
+        return new SlotSetProcessor(Operation.ADD_SLOTS, slots);
+    }
+
+    /**
+     * Create a processor removing and returning the first slot of the set
+     *
+     * @return {@link SlotSetProcessor}
+     */
+    public static SlotSetProcessor pollFirst() {
+        return new SlotSetProcessor(Operation.POLL_FIRST, new TreeSet<Slot>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object process(Map.Entry<String, TreeSetSlotWrapper> entry) {
+        TreeSetSlotWrapper wrapper = entry.getValue();
+        TreeSet<Slot> slotSet = null;
+        if (null != wrapper) {
+            slotSet = wrapper.getSlotTreeSet();
+        }
+
+        switch (operation) {
+            case ADD_SLOTS:
+                if (null == wrapper) {
+                    wrapper = new TreeSetSlotWrapper();
+                }
+                if (null == slotSet) {
+                    slotSet = new TreeSet<>();
+                    wrapper.setSlotTreeSet(slotSet);
+                }
+                slotSet.addAll(slots);
+                entry.setValue(wrapper);
+                return null;
+            case POLL_FIRST:
+                if (null == slotSet || slotSet.isEmpty()) {
+                    return null;
+                }
+                Slot firstSlot = slotSet.pollFirst();
+                entry.setValue(wrapper);
+                return firstSlot;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    @Override
+    public EntryBackupProcessor<String, TreeSetSlotWrapper> getBackupProcessor() {
+        return this;
+    }
+
+    @Override
+    public void processBackup(Map.Entry<String, TreeSetSlotWrapper> entry) {
+        process(entry);
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeByte(operation.ordinal());
+        SlotCodec.writeSlots(out, slots);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        operation = Operation.values()[in.readByte()];
+        slots = SlotCodec.readSlots(in);
+    }
+}
@@ -18,7 +18,6 @@
 
 package org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer;
 
-import com.google.gson.*;
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
 import com.hazelcast.nio.serialization.StreamSerializer;
@@ -29,37 +28,85 @@ import java.util.TreeSet;
 
 /**
  * This class implements the custom serialization methods for TreeSetLongWrapper objects.
+ * <p>
+ * Message ids are written in ascending order as the first id followed by the gap to each next id. Gaps are written
+ * as variable length integers, since ids of a slot are close to each other a gap usually takes one or two bytes
+ * instead of a full long.
  */
 @SuppressWarnings("unused")
 public class TreeSetLongWrapperSerializer implements StreamSerializer<TreeSetLongWrapper> {
 
-
     @Override
     public void write(ObjectDataOutput objectDataOutput, TreeSetLongWrapper treeSetLongWrapper)
             throws IOException {
-        //Convert the TreeSetLongWrapper object to a json string and save it in hazelcast map
-        JsonArray jsonArray = new JsonArray();
-        for (long elem : treeSetLongWrapper.getLongTreeSet()) {
-            JsonPrimitive jsonPrimitive = new JsonPrimitive(elem);
-            jsonArray.add(jsonPrimitive);
+        TreeSet<Long> messageIds = treeSetLongWrapper.getLongTreeSet();
+        if (null == messageIds || messageIds.isEmpty()) {
+            objectDataOutput.writeInt(0);
+            return;
+        }
+
+        objectDataOutput.writeInt(messageIds.size());
+        long previousId = messageIds.first();
+        objectDataOutput.writeLong(previousId);
+        for (long messageId : messageIds.tailSet(previousId, false)) {
+            writeGap(objectDataOutput, messageId - previousId);
+            previousId = messageId;
         }
-        objectDataOutput.writeUTF(jsonArray.toString());
     }
 
     @Override
     public TreeSetLongWrapper read(ObjectDataInput objectDataInput) throws IOException {
-        //Build TreeSetLongWrapper object using json string.
-        String jsonString = objectDataInput.readUTF();
-        JsonArray jsonArray = new JsonParser().parse(jsonString).getAsJsonArray();
-        TreeSet<Long> treeSet = new TreeSet<Long>();
-        for (JsonElement jsonElement : jsonArray) {
-            treeSet.add(Long.valueOf(jsonElement.toString()));
+        TreeSet<Long> treeSet = new TreeSet<>();
+        int size = objectDataInput.readInt();
+        if (size > 0) {
+            long messageId = objectDataInput.readLong();
+            treeSet.add(messageId);
+            for (int i = 1; i < size; i++) {
+                messageId = messageId + readGap(objectDataInput);
+                treeSet.add(messageId);
+            }
         }
         TreeSetLongWrapper wrapper = new TreeSetLongWrapper();
         wrapper.setLongTreeSet(treeSet);
         return wrapper;
     }
 
+    /**
+     * Write a positive gap as a variable length integer, seven bits per byte with the high bit set on all bytes
+     * but the last
+     *
+     * @param out output to write to
+     * @param gap gap between two consecutive message ids
+     * @throws IOException on a write failure
+     */
+    private static void writeGap(ObjectDataOutput out, long gap) throws IOException {
+        long remaining = gap;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining = remaining >>> 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    /**
+     * Read a gap written by {@link #writeGap(ObjectDataOutput, long)}
+     *
+     * @param in input to read from
+     * @return gap between two consecutive message ids
+     * @throws IOException on a read failure
+     */
+    private static long readGap(ObjectDataInput in) throws IOException {
+        long gap = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = in.readByte();
+            gap = gap | ((long) (current & 0x7F) << shift);
+            shift = shift + 7;
+        } while ((current & 0x80) != 0);
+        return gap;
+    }
+
     @Override
     public int getTypeId() {
         return 19900128;
@@ -34,7 +34,9 @@ import org.wso2.andes.store.HealthAwareStore;
 import org.wso2.andes.store.StoreHealthListener;
 import org.wso2.andes.store.FailureObservingStoreManager;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.TreeSet;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -499,6 +501,30 @@ public class DatabaseSlotAgent implements SlotAgent, StoreHealthListener {
         return allSlotsForQueue;
     }
 
+    /**
+     * Get all slots of a given queue along with the node each slot is assigned to
+     *
+     * @param queueName name of queue
+     * @return map of slot to the id of the assigned node, null if the slot is not assigned
+     * @throws AndesException
+     */
+    public Map<Slot, String> getSlotAssignmentsByQueueName(String queueName) throws AndesException {
+
+        String task = "retrieve slot assignments for queue: " + queueName;
+
+        Map<Slot, String> slotAssignments = new HashMap<>();
+        for (int attemptCount = 1; attemptCount <= MAX_STORE_FAILURE_TOLERANCE_COUNT; attemptCount++) {
+            waitUntilStoresBecomeAvailable(task);
+            try {
+                slotAssignments = andesContextStore.getSlotAssignmentsByQueueName(queueName);
+                break;
+            } catch (AndesStoreUnavailableException e) {
+                handleFailure(attemptCount, task, e);
+            }
+        }
+        return slotAssignments;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Slot information of a single storage queue held in memory by the coordinator. This mirrors the rows of the slot
+ * tables for the queue, so that slot requests can be served without a database round trip.
+ * <p>
+ * Submitted message ids are kept in a sorted primitive list, and slots are kept in the order they were created which
+ * is the same order slots are read from the database.
+ * </p>
+ * <p><b>Note: </b>Not thread safe. Callers should synchronize on the instance.</p>
+ */
+final class QueueSlotState {
+
+    /**
+     * Name of the storage queue
+     */
+    private final String queueName;
+
+    /**
+     * Last message id assigned to a slot of the queue, 0 if none
+     */
+    private long lastAssignedId;
+
+    /**
+     * Submitted message ids in ascending order, without duplicates
+     */
+    private final LongArrayList messageIds;
+
+    /**
+     * Slots of the queue by start message id, in the order they were created
+     */
+    private final LinkedHashMap<Long, SlotEntry> slots;
+
+    /**
+     * Number of slots in {@link SlotState#RETURNED} state, used to skip the scan for an unassigned slot
+     */
+    private int returnedSlotCount;
+
+    /**
+     * Number of slots in {@link SlotState#OVERLAPPED} state, used to skip the scan for an overlapped slot
+     */
+    private int overlappedSlotCount;
+
+    /**
+     * Create queue state from information read from the database
+     *
+     * @param queueName       name of the storage queue
+     * @param lastAssignedId  last assigned message id of the queue
+     * @param messageIds      submitted message ids of the queue
+     * @param slotAssignments slots of the queue mapped to the id of the assigned node, in the order created
+     */
+    QueueSlotState(String queueName, long lastAssignedId, TreeSet<Long> messageIds,
+                   Map<Slot, String> slotAssignments) {
+        this.queueName = queueName;
+        this.lastAssignedId = lastAssignedId;
+        this.messageIds = new LongArrayList(messageIds.size());
+        for (long messageId : messageIds) {
+            this.messageIds.add(messageId);
+        }
+        this.slots = new LinkedHashMap<>();
+        for (Map.Entry<Slot, String> slotAssignment : slotAssignments.entrySet()) {
+            Slot slot = slotAssignment.getKey();
+            putSlot(slot.getStartMessageId(), slot.getEndMessageId(), slot.getCurrentState(),
+                    slotAssignment.getValue());
+        }
+    }
+
+    long getLastAssignedId() {
+        return lastAssignedId;
+    }
+
+    void setLastAssignedId(long lastAssignedId) {
+        this.lastAssignedId = lastAssignedId;
+    }
+
+    /**
+     * Add a submitted message id
+     *
+     * @param messageId message id
+     * @return false if the message id is already present
+     */
+    boolean addMessageId(long messageId) {
+        int size = messageIds.size();
+        // Message ids are mostly submitted in ascending order
+        if (0 == size || messageIds.getLast() < messageId) {
+            messageIds.add(messageId);
+            return true;
+        }
+        int index = messageIds.binarySearch(messageId);
+        if (index >= 0) {
+            return false;
+        }
+        messageIds.addAtIndex(-(index + 1), messageId);
+        return true;
+    }
+
+    /**
+     * Remove a submitted message id
+     *
+     * @param messageId message id
+     * @return false if the message id is not present
+     */
+    boolean removeMessageId(long messageId) {
+        int index = messageIds.binarySearch(messageId);
+        if (index < 0) {
+            return false;
+        }
+        messageIds.removeAtIndex(index);
+        return true;
+    }
+
+    /**
+     * @return copy of the submitted message ids
+     */
+    TreeSet<Long> getMessageIds() {
+        TreeSet<Long> messageIdSet = new TreeSet<>();
+        for (int i = 0; i < messageIds.size(); i++) {
+            messageIdSet.add(messageIds.get(i));
+        }
+        return messageIdSet;
+    }
+
+    /**
+     * Remove all submitted message ids
+     */
+    void clearMessageIds() {
+        messageIds.clear();
+    }
+
+    /**
+     * Add a newly created slot assigned to the given node
+     *
+     * @param startMessageId start message id
+     * @param endMessageId   end message id
+     * @param nodeId         id of the assigned node
+     */
+    void createSlot(long startMessageId, long endMessageId, String nodeId) {
+        removeSlot(startMessageId);
+        putSlot(startMessageId, endMessageId, SlotState.ASSIGNED, nodeId);
+    }
+
+    /**
+     * Delete a slot unless it is overlapped
+     *
+     * @param startMessageId start message id
+     * @param endMessageId   end message id
+     * @return true if the slot is deleted or does not exist
+     */
+    boolean deleteSlot(long startMessageId, long endMessageId) {
+        SlotEntry slotEntry = getSlot(startMessageId, endMessageId);
+        if (null == slotEntry) {
+            return true;
+        }
+        if (SlotState.OVERLAPPED == slotEntry.state) {
+            return false;
+        }
+        removeSlot(startMessageId);
+        return true;
+    }
+
+    /**
+     * Assign a slot to a node
+     *
+     * @param startMessageId start message id
+     * @param endMessageId   end message id
+     * @param nodeId         id of the node
+     */
+    void assignSlot(long startMessageId, long endMessageId, String nodeId) {
+        SlotEntry slotEntry = getSlot(startMessageId, endMessageId);
+        if (null != slotEntry) {
+            slotEntry.assignedNodeId = nodeId;
+            setState(slotEntry, SlotState.ASSIGNED);
+        }
+    }
+
+    /**
+     * Return a slot to the unassigned pool
+     *
+     * @param startMessageId start message id
+     * @param endMessageId   end message id
+     */
+    void unassignSlot(long startMessageId, long endMessageId) {
+        SlotEntry slotEntry = getSlot(startMessageId, endMessageId);
+        if (null != slotEntry) {
+            slotEntry.assignedNodeId = null;
+            setState(slotEntry, SlotState.RETURNED);
+        }
+    }
+
+    /**
+     * Return all slots assigned to a node to the unassigned pool
+     *
+     * @param nodeId id of the node
+     */
+    void unassignSlotsOfNode(String nodeId) {
+        for (SlotEntry slotEntry : slots.values()) {
+            if (nodeId.equals(slotEntry.assignedNodeId)) {
+                slotEntry.assignedNodeId = null;
+                setState(slotEntry, SlotState.RETURNED);
+            }
+        }
+    }
+
+    /**
+     * Change the state of a slot
+     *
+     * @param startMessageId start message id
+     * @param endMessageId   end message id
+     * @param slotState      new state
+     * @return false if the slot does not exist
+     */
+    boolean setSlotState(long startMessageId, long endMessageId, SlotState slotState) {
+        SlotEntry slotEntry = getSlot(startMessageId, endMessageId);
+        if (null == slotEntry) {
+            return false;
+        }
+        setState(slotEntry, slotState);
+        return true;
+    }
+
+    /**
+     * @return oldest slot in {@link SlotState#RETURNED} state, or null if there is none
+     */
+    Slot getUnAssignedSlot() {
+        if (0 == returnedSlotCount) {
+            return null;
+        }
+        for (SlotEntry slotEntry : slots.values()) {
+            if (SlotState.RETURNED == slotEntry.state) {
+                return toSlot(slotEntry, SlotState.RETURNED);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the oldest overlapped slot assigned to a node
+     *
+     * @param nodeId id of the node
+     * @return overlapped slot or null if there is none
+     */
+    Slot getOverlappedSlot(String nodeId) {
+        if (0 == overlappedSlotCount) {
+            return null;
+        }
+        for (SlotEntry slotEntry : slots.values()) {
+            if (SlotState.OVERLAPPED == slotEntry.state && nodeId.equals(slotEntry.assignedNodeId)) {
+                Slot overlappedSlot = toSlot(slotEntry, SlotState.OVERLAPPED);
+                overlappedSlot.setAnOverlappingSlot(true);
+                return overlappedSlot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return all slots of the queue
+     */
+    TreeSet<Slot> getAllSlots() {
+        TreeSet<Slot> slotSet = new TreeSet<>();
+        for (SlotEntry slotEntry : slots.values()) {
+            Slot slot = toSlot(slotEntry, slotEntry.state);
+            slot.setSlotInactive();
+            slotSet.add(slot);
+        }
+        return slotSet;
+    }
+
+    /**
+     * Remove all slots of the queue
+     */
+    void clearSlots() {
+        slots.clear();
+        returnedSlotCount = 0;
+        overlappedSlotCount = 0;
+    }
+
+    private SlotEntry getSlot(long startMessageId, long endMessageId) {
+        SlotEntry slotEntry = slots.get(startMessageId);
+        if (null != slotEntry && slotEntry.endMessageId == endMessageId) {
+            return slotEntry;
+        }
+        return null;
+    }
+
+    private void putSlot(long startMessageId, long endMessageId, SlotState slotState, String nodeId) {
+        SlotEntry slotEntry = new SlotEntry(startMessageId, endMessageId);
+        slotEntry.assignedNodeId = nodeId;
+        slots.put(startMessageId, slotEntry);
+        setState(slotEntry, slotState);
+    }
+
+    private void removeSlot(long startMessageId) {
+        SlotEntry slotEntry = slots.remove(startMessageId);
+        if (null != slotEntry) {
+            setState(slotEntry, null);
+        }
+    }
+
+    /**
+     * Change the state of a slot keeping the state counters in sync
+     */
+    private void setState(SlotEntry slotEntry, SlotState slotState) {
+        if (SlotState.RETURNED == slotEntry.state) {
+            returnedSlotCount--;
+        } else if (SlotState.OVERLAPPED == slotEntry.state) {
+            overlappedSlotCount--;
+        }
+        slotEntry.state = slotState;
+        if (SlotState.RETURNED == slotState) {
+            returnedSlotCount++;
+        } else if (SlotState.OVERLAPPED == slotState) {
+            overlappedSlotCount++;
+        }
+    }
+
+    private Slot toSlot(SlotEntry slotEntry, SlotState slotState) {
+        Slot slot = new Slot(slotState);
+        slot.setStartMessageId(slotEntry.startMessageId);
+        slot.setEndMessageId(slotEntry.endMessageId);
+        slot.setStorageQueueName(queueName);
+        return slot;
+    }
+
+    /**
+     * A row of the slot table
+     */
+    private static final class SlotEntry {
+
+        private final long startMessageId;
+
+        private final long endMessageId;
+
+        private SlotState state;
+
+        private String assignedNodeId;
+
+        private SlotEntry(long startMessageId, long endMessageId) {
+            this.startMessageId = startMessageId;
+            this.endMessageId = endMessageId;
+        }
+    }
+}
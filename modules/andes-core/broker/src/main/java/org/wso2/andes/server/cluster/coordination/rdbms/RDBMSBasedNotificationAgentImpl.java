@@ -28,6 +28,7 @@ import org.wso2.andes.kernel.subscription.StorageQueue;
 import org.wso2.andes.server.ClusterResourceHolder;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
 import org.wso2.andes.server.cluster.coordination.ClusterNotificationAgent;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
 
 import java.util.List;
 
@@ -70,14 +71,14 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     public void notifyMessageRouterChange(AndesMessageRouter messageRouter, ClusterNotificationListener
             .MessageRouterChange changeType) throws AndesException {
         ClusterNotification clusterNotification = new ClusterNotification(
-                messageRouter.encodeAsString(),
+                ClusterNotificationCodec.encode(messageRouter),
                 ClusterNotificationListener.NotifiedArtifact.MessageRouter.toString(),
                 changeType.toString(),
                 "Message Router Notification Message : " + changeType.toString(),
                 localNodeID);
 
         if (log.isDebugEnabled()) {
-            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("Sending GOSSIP: " + clusterNotification);
         }
         publishNotificationToDB(clusterNotification);
     }
@@ -89,14 +90,14 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     public void notifyQueueChange(StorageQueue storageQueue, ClusterNotificationListener.QueueChange changeType)
             throws AndesException {
         ClusterNotification clusterNotification = new ClusterNotification(
-                storageQueue.encodeAsString(),
+                ClusterNotificationCodec.encode(storageQueue),
                 ClusterNotificationListener.NotifiedArtifact.Queue.toString(),
                 changeType.toString(),
                 "Queue Notification Message : " + changeType.toString(),
                 localNodeID);
 
         if (log.isDebugEnabled()) {
-            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("Sending GOSSIP: " + clusterNotification);
         }
         publishNotificationToDB(clusterNotification);
     }
@@ -108,14 +109,14 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     public void notifyBindingsChange(AndesBinding binding, ClusterNotificationListener.BindingChange changeType)
             throws AndesException {
         ClusterNotification clusterNotification = new ClusterNotification(
-                binding.encodeAsString(),
+                ClusterNotificationCodec.encode(binding),
                 ClusterNotificationListener.NotifiedArtifact.Binding.toString(),
                 changeType.toString(),
                 "Binding Notification Message : " + changeType.toString(),
                 localNodeID);
 
         if (log.isDebugEnabled()) {
-            log.debug("GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("GOSSIP: " + clusterNotification);
         }
         publishNotificationToDB(clusterNotification);
     }
@@ -127,14 +128,14 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     public void notifySubscriptionsChange(AndesSubscription subscription, ClusterNotificationListener.
             SubscriptionChange changeType) throws AndesException {
         ClusterNotification clusterNotification = new ClusterNotification(
-                subscription.encodeAsStr(),
+                ClusterNotificationCodec.encode(subscription),
                 ClusterNotificationListener.NotifiedArtifact.Subscription.toString(),
                 changeType.toString(),
                 "Subscription Notification Message : " + changeType.toString(),
                 localNodeID);
 
         if (log.isDebugEnabled()) {
-            log.debug("Sending GOSSIP: " + clusterNotification.getEncodedObjectAsString());
+            log.debug("Sending GOSSIP: " + clusterNotification);
         }
         publishNotificationToDB(clusterNotification);
     }
@@ -144,7 +145,7 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
      */
     @Override
     public void notifyAnyDBChange() throws AndesException {
-        ClusterNotification clusterNotification = new ClusterNotification("", ClusterNotificationListener
+        ClusterNotification clusterNotification = new ClusterNotification(new byte[0], ClusterNotificationListener
                 .NotifiedArtifact.DBUpdate.toString(), "", "DBSyncEvent", localNodeID);
         publishNotificationToDB(clusterNotification);
     }
@@ -159,9 +160,9 @@ public class RDBMSBasedNotificationAgentImpl implements ClusterNotificationAgent
     private void publishNotificationToDB(ClusterNotification event) throws AndesException {
         List<String> clusterNodes = AndesContext.getInstance().getClusterAgent().getAllNodeIdentifiers();
         contextStore.storeClusterNotification(clusterNodes, localNodeID, event.getNotifiedArtifact(), event
-                .getChangeType(), event.getEncodedObjectAsString(), event.getDescription());
+                .getChangeType(), event.getEncodedObject(), event.getDescription());
         if (log.isDebugEnabled()) {
-            log.debug("Cluster notification " + event.getEncodedObjectAsString() + " stored in Database");
+            log.debug("Cluster notification " + event + " stored in Database");
         }
     }
 }
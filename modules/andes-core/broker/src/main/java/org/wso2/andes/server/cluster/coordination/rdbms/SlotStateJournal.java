@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gs.collections.impl.map.mutable.primitive.LongIntHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write behind journal of slot changes made in memory by the coordinator. Changes are appended without touching the
+ * database and are written to the slot tables in order, in batches, by a single flusher thread.
+ * <p>
+ * Before a batch is written, changes which cancel each other within the batch are dropped. A message id submitted and
+ * taken into a slot, or a slot created and deleted, within the same batch never reaches the database. Only the latest
+ * last assigned id of a queue and the latest safe zone of a node are written.
+ * </p>
+ */
+final class SlotStateJournal {
+
+    private static final Log log = LogFactory.getLog(SlotStateJournal.class);
+
+    private static final int NOT_FOUND = -1;
+
+    /**
+     * Writes changes to the database
+     */
+    private final DatabaseSlotAgent databaseSlotAgent;
+
+    /**
+     * Changes which are not written yet, in the order they were made
+     */
+    private List<JournalEntry> pendingEntries;
+
+    /**
+     * Guards {@link #pendingEntries}
+     */
+    private final Object pendingEntriesLock = new Object();
+
+    /**
+     * Makes sure batches are written one after the other
+     */
+    private final Object flushLock = new Object();
+
+    private final ScheduledExecutorService flushExecutor;
+
+    /**
+     * Create a journal writing changes at a fixed interval
+     *
+     * @param databaseSlotAgent slot agent writing to the database
+     * @param flushInterval     interval between two writes in milliseconds
+     */
+    SlotStateJournal(DatabaseSlotAgent databaseSlotAgent, int flushInterval) {
+        this.databaseSlotAgent = databaseSlotAgent;
+        this.pendingEntries = new ArrayList<>();
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("SlotStateJournalFlusher-%d").build();
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory);
+        flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (Throwable e) {
+                    log.error("Error occurred while writing slot changes to the database. Unwritten changes will be "
+                            + "written again in the next attempt.", e);
+                }
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    void createSlot(long startMessageId, long endMessageId, String queueName, String nodeId) {
+        append(new JournalEntry(Operation.CREATE_SLOT, queueName, nodeId, startMessageId, endMessageId, null));
+    }
+
+    void deleteSlot(long startMessageId, long endMessageId, String queueName, String nodeId) {
+        append(new JournalEntry(Operation.DELETE_SLOT, queueName, nodeId, startMessageId, endMessageId, null));
+    }
+
+    void assignSlot(long startMessageId, long endMessageId, String queueName, String nodeId) {
+        append(new JournalEntry(Operation.ASSIGN_SLOT, queueName, nodeId, startMessageId, endMessageId, null));
+    }
+
+    void unassignSlot(long startMessageId, long endMessageId) {
+        append(new JournalEntry(Operation.UNASSIGN_SLOT, null, null, startMessageId, endMessageId, null));
+    }
+
+    void unassignSlotsOfNode(String queueName, String nodeId) {
+        append(new JournalEntry(Operation.UNASSIGN_SLOTS_OF_NODE, queueName, nodeId, 0, 0, null));
+    }
+
+    void setSlotState(long startMessageId, long endMessageId, SlotState slotState) {
+        append(new JournalEntry(Operation.SET_SLOT_STATE, null, null, startMessageId, endMessageId, slotState));
+    }
+
+    void deleteSlotsOfQueue(String queueName) {
+        append(new JournalEntry(Operation.DELETE_SLOTS_OF_QUEUE, queueName, null, 0, 0, null));
+    }
+
+    void addMessageId(String queueName, long messageId) {
+        append(new JournalEntry(Operation.ADD_MESSAGE_ID, queueName, null, messageId, 0, null));
+    }
+
+    void deleteMessageId(String queueName, long messageId) {
+        append(new JournalEntry(Operation.DELETE_MESSAGE_ID, queueName, null, messageId, 0, null));
+    }
+
+    void deleteMessageIdsOfQueue(String queueName) {
+        append(new JournalEntry(Operation.DELETE_MESSAGE_IDS_OF_QUEUE, queueName, null, 0, 0, null));
+    }
+
+    void setLastAssignedId(String queueName, long lastAssignedId) {
+        append(new JournalEntry(Operation.SET_LAST_ASSIGNED_ID, queueName, null, lastAssignedId, 0, null));
+    }
+
+    void setLocalSafeZone(String nodeId, long localSafeZone) {
+        append(new JournalEntry(Operation.SET_LOCAL_SAFE_ZONE, null, nodeId, localSafeZone, 0, null));
+    }
+
+    /**
+     * Write all changes appended so far to the database. Returns after the changes are written.
+     * <p>
+     * Writing stops at the first change which cannot be written. That change and the changes after it are kept in
+     * front of changes appended meanwhile, in the order they were made, and are written again by the next flush.
+     * </p>
+     *
+     * @throws AndesException if a change cannot be written to the database
+     */
+    void flush() throws AndesException {
+        synchronized (flushLock) {
+            List<JournalEntry> batch;
+            synchronized (pendingEntriesLock) {
+                if (pendingEntries.isEmpty()) {
+                    return;
+                }
+                batch = pendingEntries;
+                pendingEntries = new ArrayList<>();
+            }
+
+            int cancelledCount = cancelOffsettingEntries(batch);
+
+            for (int index = 0; index < batch.size(); index++) {
+                JournalEntry entry = batch.get(index);
+                if (!entry.cancelled) {
+                    try {
+                        write(entry);
+                    } catch (AndesException e) {
+                        requeue(batch.subList(index, batch.size()));
+                        throw new AndesException("Error occurred while writing slot change " + entry
+                                + " to the database. Unwritten changes are kept to be written again.", e);
+                    }
+                }
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote " + (batch.size() - cancelledCount) + " slot changes to the database. "
+                        + cancelledCount + " changes cancelled each other.");
+            }
+        }
+    }
+
+    /**
+     * Check whether there are changes which are not written to the database yet
+     *
+     * @return true if there are changes to be written
+     */
+    boolean hasPendingChanges() {
+        synchronized (pendingEntriesLock) {
+            return !pendingEntries.isEmpty();
+        }
+    }
+
+    /**
+     * Write pending changes and stop the flusher thread
+     *
+     * @throws AndesException if pending changes cannot be written to the database
+     */
+    void stop() throws AndesException {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    /**
+     * Put changes which could not be written in front of the pending changes. Cancelled changes are dropped, since
+     * every change cancelling them is dropped as well.
+     *
+     * @param unwrittenEntries changes not written, in the order they were made
+     */
+    private void requeue(List<JournalEntry> unwrittenEntries) {
+        List<JournalEntry> retryEntries = new ArrayList<>(unwrittenEntries.size());
+        for (JournalEntry entry : unwrittenEntries) {
+            if (!entry.cancelled) {
+                retryEntries.add(entry);
+            }
+        }
+        synchronized (pendingEntriesLock) {
+            retryEntries.addAll(pendingEntries);
+            pendingEntries = retryEntries;
+        }
+    }
+
+    private void append(JournalEntry entry) {
+        synchronized (pendingEntriesLock) {
+            pendingEntries.add(entry);
+        }
+    }
+
+    /**
+     * Mark changes which do not need to reach the database as cancelled
+     *
+     * @param batch changes in the order they were made
+     * @return number of changes cancelled
+     */
+    private int cancelOffsettingEntries(List<JournalEntry> batch) {
+        int cancelledCount = 0;
+        LongIntHashMap addedMessageIds = new LongIntHashMap();
+        LongIntHashMap createdSlots = new LongIntHashMap();
+        Map<String, Integer> lastAssignedIds = new HashMap<>();
+        Map<String, Integer> localSafeZones = new HashMap<>();
+
+        for (int index = 0; index < batch.size(); index++) {
+            JournalEntry entry = batch.get(index);
+            switch (entry.operation) {
+                case ADD_MESSAGE_ID:
+                    addedMessageIds.put(entry.startMessageId, index);
+                    break;
+                case DELETE_MESSAGE_ID:
+                    int addedIndex = addedMessageIds.getIfAbsent(entry.startMessageId, NOT_FOUND);
+                    if (NOT_FOUND != addedIndex) {
+                        batch.get(addedIndex).cancelled = true;
+                        entry.cancelled = true;
+                        cancelledCount = cancelledCount + 2;
+                        addedMessageIds.remove(entry.startMessageId);
+                    }
+                    break;
+                case CREATE_SLOT:
+                    createdSlots.put(entry.startMessageId, index);
+                    break;
+                case DELETE_SLOT:
+                    int createdIndex = createdSlots.getIfAbsent(entry.startMessageId, NOT_FOUND);
+                    if (NOT_FOUND != createdIndex) {
+                        // The slot never reached the database, drop every change made to it
+                        for (int i = createdIndex; i <= index; i++) {
+                            JournalEntry slotEntry = batch.get(i);
+                            if (!slotEntry.cancelled && slotEntry.isChangeOfSlot(entry.startMessageId,
+                                    entry.endMessageId)) {
+                                slotEntry.cancelled = true;
+                                cancelledCount++;
+                            }
+                        }
+                        createdSlots.remove(entry.startMessageId);
+                    }
+                    break;
+                case SET_LAST_ASSIGNED_ID:
+                    cancelledCount = cancelledCount + replaceLatest(batch, lastAssignedIds, entry.queueName, index);
+                    break;
+                case SET_LOCAL_SAFE_ZONE:
+                    cancelledCount = cancelledCount + replaceLatest(batch, localSafeZones, entry.nodeId, index);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return cancelledCount;
+    }
+
+    /**
+     * Cancel the previous change of a value which is overwritten by the change at the given index
+     *
+     * @return number of changes cancelled
+     */
+    private int replaceLatest(List<JournalEntry> batch, Map<String, Integer> latestIndexes, String key, int index) {
+        Integer previousIndex = latestIndexes.put(key, index);
+        if (null != previousIndex) {
+            batch.get(previousIndex).cancelled = true;
+            return 1;
+        }
+        return 0;
+    }
+
+    private void write(JournalEntry entry) throws AndesException {
+        switch (entry.operation) {
+            case CREATE_SLOT:
+                databaseSlotAgent.createSlot(entry.startMessageId, entry.endMessageId, entry.queueName,
+                        entry.nodeId);
+                break;
+            case DELETE_SLOT:
+                databaseSlotAgent.deleteSlot(entry.nodeId, entry.queueName, entry.startMessageId,
+                        entry.endMessageId);
+                break;
+            case ASSIGN_SLOT:
+                databaseSlotAgent.updateSlotAssignment(entry.nodeId, entry.queueName, entry.toSlot());
+                break;
+            case UNASSIGN_SLOT:
+                databaseSlotAgent.reassignSlot(entry.toSlot());
+                break;
+            case UNASSIGN_SLOTS_OF_NODE:
+                databaseSlotAgent.deleteSlotAssignmentByQueueName(entry.nodeId, entry.queueName);
+                break;
+            case SET_SLOT_STATE:
+                databaseSlotAgent.setSlotState(entry.startMessageId, entry.endMessageId, entry.slotState);
+                break;
+            case DELETE_SLOTS_OF_QUEUE:
+                databaseSlotAgent.deleteSlotsByQueueName(entry.queueName);
+                break;
+            case ADD_MESSAGE_ID:
+                databaseSlotAgent.addMessageId(entry.queueName, entry.startMessageId);
+                break;
+            case DELETE_MESSAGE_ID:
+                databaseSlotAgent.deleteMessageId(entry.queueName, entry.startMessageId);
+                break;
+            case DELETE_MESSAGE_IDS_OF_QUEUE:
+                databaseSlotAgent.deleteMessageIdsByQueueName(entry.queueName);
+                break;
+            case SET_LAST_ASSIGNED_ID:
+                databaseSlotAgent.setQueueToLastAssignedId(entry.queueName, entry.startMessageId);
+                break;
+            case SET_LOCAL_SAFE_ZONE:
+                databaseSlotAgent.setLocalSafeZoneOfNode(entry.nodeId, entry.startMessageId);
+                break;
+            default:
+                throw new IllegalStateException("Unknown slot journal operation " + entry.operation);
+        }
+    }
+
+    /**
+     * Changes recorded in the journal
+     */
+    private enum Operation {
+        CREATE_SLOT,
+        DELETE_SLOT,
+        ASSIGN_SLOT,
+        UNASSIGN_SLOT,
+        UNASSIGN_SLOTS_OF_NODE,
+        SET_SLOT_STATE,
+        DELETE_SLOTS_OF_QUEUE,
+        ADD_MESSAGE_ID,
+        DELETE_MESSAGE_ID,
+        DELETE_MESSAGE_IDS_OF_QUEUE,
+        SET_LAST_ASSIGNED_ID,
+        SET_LOCAL_SAFE_ZONE
+    }
+
+    /**
+     * A single change. Message id, last assigned id and safe zone values are kept in the start message id field.
+     */
+    private static final class JournalEntry {
+
+        private final Operation operation;
+
+        private final String queueName;
+
+        private final String nodeId;
+
+        private final long startMessageId;
+
+        private final long endMessageId;
+
+        private final SlotState slotState;
+
+        private boolean cancelled;
+
+        private JournalEntry(Operation operation, String queueName, String nodeId, long startMessageId,
+                             long endMessageId, SlotState slotState) {
+            this.operation = operation;
+            this.queueName = queueName;
+            this.nodeId = nodeId;
+            this.startMessageId = startMessageId;
+            this.endMessageId = endMessageId;
+            this.slotState = slotState;
+        }
+
+        /**
+         * Check whether this entry changes the row of the given slot
+         */
+        private boolean isChangeOfSlot(long slotStartMessageId, long slotEndMessageId) {
+            switch (operation) {
+                case CREATE_SLOT:
+                case DELETE_SLOT:
+                case ASSIGN_SLOT:
+                case UNASSIGN_SLOT:
+                case SET_SLOT_STATE:
+                    return startMessageId == slotStartMessageId && endMessageId == slotEndMessageId;
+                default:
+                    return false;
+            }
+        }
+
+        private Slot toSlot() {
+            Slot slot = new Slot();
+            slot.setStartMessageId(startMessageId);
+            slot.setEndMessageId(endMessageId);
+            slot.setStorageQueueName(queueName);
+            return slot;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " [queue: " + queueName + ", node: " + nodeId + ", start: " + startMessageId
+                    + ", end: " + endMessageId + ", state: " + slotState + "]";
+        }
+    }
+}
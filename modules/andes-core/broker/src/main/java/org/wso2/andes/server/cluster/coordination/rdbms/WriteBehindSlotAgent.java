@@ -0,0 +1,541 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+import org.wso2.andes.server.cluster.ClusterAgent;
+import org.wso2.andes.server.cluster.coordination.SlotAgent;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RDBMS based slot agent which keeps slot information in memory while the local node is the coordinator.
+ * <p>
+ * The coordinator is the only node serving slot requests. While the local node is the coordinator, slot information
+ * of a queue is read from the database once, and from then on requests are served from memory. Changes are recorded
+ * in a {@link SlotStateJournal} and written to the slot tables in batches in the background.
+ * </p>
+ * <p>
+ * When the local node becomes the coordinator, slot information is rebuilt from the slot tables, which hold every
+ * change the previous coordinator was able to write. When the local node is no longer the coordinator, pending
+ * changes are written and all calls go to the database through {@link DatabaseSlotAgent}. Changes which could not be
+ * written are kept in the journal and written again, in order, until they reach the database.
+ * </p>
+ * <p>
+ * Operations which are rare or need information of all queues are served from the database after writing pending
+ * changes.
+ * </p>
+ */
+public class WriteBehindSlotAgent implements SlotAgent {
+
+    private static final Log log = LogFactory.getLog(WriteBehindSlotAgent.class);
+
+    /**
+     * Reads and writes slot information in the database
+     */
+    private final DatabaseSlotAgent databaseSlotAgent;
+
+    /**
+     * Changes made in memory which are not written to the database yet
+     */
+    private final SlotStateJournal journal;
+
+    /**
+     * Slot information of queues read so far, by storage queue name
+     */
+    private final ConcurrentMap<String, QueueSlotState> queueSlotStates;
+
+    /**
+     * Local safe zones of nodes updated while the local node is the coordinator
+     */
+    private final ConcurrentMap<String, Long> localSafeZones;
+
+    /**
+     * Whether slot information in memory is the latest. True while the local node is the coordinator
+     */
+    private volatile boolean authoritative;
+
+    /**
+     * Create a slot agent keeping slot information in memory
+     *
+     * @param databaseSlotAgent slot agent used to read and write the database
+     * @param flushInterval     interval between two writes of changes to the database in milliseconds
+     */
+    public WriteBehindSlotAgent(DatabaseSlotAgent databaseSlotAgent, int flushInterval) {
+        this.databaseSlotAgent = databaseSlotAgent;
+        this.journal = new SlotStateJournal(databaseSlotAgent, flushInterval);
+        this.queueSlotStates = new ConcurrentHashMap<>();
+        this.localSafeZones = new ConcurrentHashMap<>();
+        this.authoritative = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createSlot(long startMessageId, long endMessageId, String storageQueueName, String assignedNodeId)
+            throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.createSlot(startMessageId, endMessageId, storageQueueName, assignedNodeId);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(storageQueueName);
+        synchronized (queueSlotState) {
+            queueSlotState.createSlot(startMessageId, endMessageId, assignedNodeId);
+            journal.createSlot(startMessageId, endMessageId, storageQueueName, assignedNodeId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteSlot(String nodeId, String queueName, long startMessageId, long endMessageId)
+            throws AndesException {
+        if (!isAuthoritative()) {
+            return databaseSlotAgent.deleteSlot(nodeId, queueName, startMessageId, endMessageId);
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            boolean slotDeleted = queueSlotState.deleteSlot(startMessageId, endMessageId);
+            if (slotDeleted) {
+                journal.deleteSlot(startMessageId, endMessageId, queueName, nodeId);
+            }
+            return slotDeleted;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteSlotAssignmentByQueueName(String nodeId, String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.deleteSlotAssignmentByQueueName(nodeId, queueName);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            queueSlotState.unassignSlotsOfNode(nodeId);
+            journal.unassignSlotsOfNode(queueName, nodeId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slot getUnAssignedSlot(String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            return databaseSlotAgent.getUnAssignedSlot(queueName);
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            return queueSlotState.getUnAssignedSlot();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateSlotAssignment(String nodeId, String queueName, Slot allocatedSlot) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.updateSlotAssignment(nodeId, queueName, allocatedSlot);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            queueSlotState.assignSlot(allocatedSlot.getStartMessageId(), allocatedSlot.getEndMessageId(), nodeId);
+            journal.assignSlot(allocatedSlot.getStartMessageId(), allocatedSlot.getEndMessageId(), queueName,
+                    nodeId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getQueueToLastAssignedId(String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            return databaseSlotAgent.getQueueToLastAssignedId(queueName);
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            return queueSlotState.getLastAssignedId();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setQueueToLastAssignedId(String queueName, long lastAssignedId) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.setQueueToLastAssignedId(queueName, lastAssignedId);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            queueSlotState.setLastAssignedId(lastAssignedId);
+            journal.setLastAssignedId(queueName, lastAssignedId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getLocalSafeZoneOfNode(String nodeId) throws AndesException {
+        if (isAuthoritative()) {
+            Long localSafeZone = localSafeZones.get(nodeId);
+            if (null != localSafeZone) {
+                return localSafeZone;
+            }
+        }
+        return databaseSlotAgent.getLocalSafeZoneOfNode(nodeId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLocalSafeZoneOfNode(String nodeId, long localSafeZone) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.setLocalSafeZoneOfNode(nodeId, localSafeZone);
+            return;
+        }
+        synchronized (localSafeZones) {
+            localSafeZones.put(nodeId, localSafeZone);
+            journal.setLocalSafeZone(nodeId, localSafeZone);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removePublisherNode(String nodeId) throws AndesException {
+        synchronized (localSafeZones) {
+            journal.flush();
+            localSafeZones.remove(nodeId);
+            databaseSlotAgent.removePublisherNode(nodeId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TreeSet<String> getMessagePublishedNodes() throws AndesException {
+        if (isAuthoritative()) {
+            journal.flush();
+        }
+        return databaseSlotAgent.getMessagePublishedNodes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reassignSlot(Slot slotToBeReAssigned) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.reassignSlot(slotToBeReAssigned);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(slotToBeReAssigned.getStorageQueueName());
+        synchronized (queueSlotState) {
+            queueSlotState.unassignSlot(slotToBeReAssigned.getStartMessageId(),
+                    slotToBeReAssigned.getEndMessageId());
+            journal.unassignSlot(slotToBeReAssigned.getStartMessageId(), slotToBeReAssigned.getEndMessageId());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSlotState(long startMessageId, long endMessageId, SlotState slotState) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.setSlotState(startMessageId, endMessageId, slotState);
+            return;
+        }
+        // The queue of the slot is not known, hence look through the queues in memory
+        for (QueueSlotState queueSlotState : queueSlotStates.values()) {
+            synchronized (queueSlotState) {
+                if (queueSlotState.setSlotState(startMessageId, endMessageId, slotState)) {
+                    break;
+                }
+            }
+        }
+        journal.setSlotState(startMessageId, endMessageId, slotState);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slot getOverlappedSlot(String nodeId, String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            return databaseSlotAgent.getOverlappedSlot(nodeId, queueName);
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            return queueSlotState.getOverlappedSlot(nodeId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteOverlappedSlots(String nodeId) throws AndesException {
+        //Not necessary in RDBMS mode, because RDBMS mode uses single table to store information
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addMessageId(String queueName, long messageId) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.addMessageId(queueName, messageId);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            //Same message id can be added when slots are overlapped, it is recorded only once
+            if (queueSlotState.addMessageId(messageId)) {
+                journal.addMessageId(queueName, messageId);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TreeSet<Long> getSlotBasedMessageIds(String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            return databaseSlotAgent.getSlotBasedMessageIds(queueName);
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            return queueSlotState.getMessageIds();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessageId(String queueName, long messageId) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.deleteMessageId(queueName, messageId);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            if (queueSlotState.removeMessageId(messageId)) {
+                journal.deleteMessageId(queueName, messageId);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteSlotsByQueueName(String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.deleteSlotsByQueueName(queueName);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            queueSlotState.clearSlots();
+            journal.deleteSlotsOfQueue(queueName);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteMessageIdsByQueueName(String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.deleteMessageIdsByQueueName(queueName);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            queueSlotState.clearMessageIds();
+            journal.deleteMessageIdsOfQueue(queueName);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TreeSet<Slot> getAssignedSlotsByNodeId(String nodeId) throws AndesException {
+        // Assigned slots of all queues are required, once pending changes are written the database is up to date
+        if (isAuthoritative()) {
+            journal.flush();
+        }
+        return databaseSlotAgent.getAssignedSlotsByNodeId(nodeId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TreeSet<Slot> getAllSlotsByQueueName(String queueName) throws AndesException {
+        if (!isAuthoritative()) {
+            return databaseSlotAgent.getAllSlotsByQueueName(queueName);
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            return queueSlotState.getAllSlots();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateOverlappedSlots(String queueName, TreeSet<Slot> overlappedSlots) throws AndesException {
+        if (!isAuthoritative()) {
+            databaseSlotAgent.updateOverlappedSlots(queueName, overlappedSlots);
+            return;
+        }
+        QueueSlotState queueSlotState = getQueueSlotState(queueName);
+        synchronized (queueSlotState) {
+            for (Slot slot : overlappedSlots) {
+                queueSlotState.setSlotState(slot.getStartMessageId(), slot.getEndMessageId(), SlotState.OVERLAPPED);
+                journal.setSlotState(slot.getStartMessageId(), slot.getEndMessageId(), SlotState.OVERLAPPED);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getAllQueues() throws AndesException {
+        if (isAuthoritative()) {
+            journal.flush();
+        }
+        return databaseSlotAgent.getAllQueues();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getAllQueuesInSubmittedSlots() throws AndesException {
+        if (isAuthoritative()) {
+            journal.flush();
+        }
+        return databaseSlotAgent.getAllQueuesInSubmittedSlots();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearSlotStorage() throws AndesException {
+        journal.flush();
+        queueSlotStates.clear();
+        localSafeZones.clear();
+        databaseSlotAgent.clearSlotStorage();
+    }
+
+    /**
+     * Write pending changes to the database and stop writing in the background. Should be called when shutting
+     * down the slot manager.
+     */
+    public void stop() {
+        try {
+            journal.stop();
+        } catch (AndesException e) {
+            log.error("Error occurred while writing pending slot changes to the database at shutdown", e);
+        }
+    }
+
+    /**
+     * Check whether slot information in memory can be used. Slot information in memory is dropped whenever the
+     * local node becomes the coordinator or stops being the coordinator.
+     *
+     * @return true if the local node is the coordinator
+     * @throws AndesException if changes left from a previous term cannot be written to the database
+     */
+    private boolean isAuthoritative() throws AndesException {
+        ClusterAgent clusterAgent = AndesContext.getInstance().getClusterAgent();
+        boolean isCoordinator = null != clusterAgent && clusterAgent.isCoordinator();
+
+        if (isCoordinator != authoritative) {
+            synchronized (this) {
+                if (isCoordinator != authoritative) {
+                    // Write what is left from a previous term before slot information is read again. If writing
+                    // fails the term is not switched, so the changes are written again by the next call.
+                    journal.flush();
+                    queueSlotStates.clear();
+                    localSafeZones.clear();
+                    authoritative = isCoordinator;
+                    log.info((isCoordinator ? "Serving" : "Stopped serving")
+                            + " slot information from memory with write behind to the database");
+                }
+            }
+        }
+        return isCoordinator;
+    }
+
+    /**
+     * Get slot information of a queue, reading it from the database if it is not in memory yet
+     *
+     * @param queueName name of the storage queue
+     * @return slot information of the queue
+     * @throws AndesException if slot information cannot be read from the database
+     */
+    private QueueSlotState getQueueSlotState(String queueName) throws AndesException {
+        QueueSlotState queueSlotState = queueSlotStates.get(queueName);
+        if (null == queueSlotState) {
+            synchronized (queueSlotStates) {
+                queueSlotState = queueSlotStates.get(queueName);
+                if (null == queueSlotState) {
+                    queueSlotState = new QueueSlotState(queueName,
+                            databaseSlotAgent.getQueueToLastAssignedId(queueName),
+                            databaseSlotAgent.getSlotBasedMessageIds(queueName),
+                            databaseSlotAgent.getSlotAssignmentsByQueueName(queueName));
+                    queueSlotStates.put(queueName, queueSlotState);
+                }
+            }
+        }
+        return queueSlotState;
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.information.management;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.andes.amqp.AMQPUtils;
+import org.wso2.andes.kernel.Andes;
+import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.AndesUtils;
+import org.wso2.andes.kernel.DisablePubAckImpl;
+import org.wso2.andes.kernel.FlowControlListener;
+import org.wso2.andes.kernel.disruptor.inbound.PubAckHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Restores or deletes all messages of a queue within a message id range from the dead letter channel. Messages are
+ * read from the store a chunk at a time and the operation sleeps between chunks, so that a large dead letter channel
+ * can be processed in the background without holding the management call or starving regular traffic.
+ * <p>
+ * Deleted chunks are removed with a single range delete. Restored messages are handed over to Andes as new messages,
+ * hence slots for them are created through the regular publishing path, and the originals are removed from the dead
+ * letter channel once the chunk is published.
+ */
+class DLCBulkOperation implements Runnable {
+
+    private static Log log = LogFactory.getLog(DLCBulkOperation.class);
+
+    /**
+     * Time to wait before checking again whether flow control is lifted
+     */
+    private static final long FLOW_CONTROL_WAIT_MILLIS = 1000;
+
+    /**
+     * Kind of bulk operation
+     */
+    enum Type {
+        RESTORE,
+        DELETE
+    }
+
+    /**
+     * Lifecycle of a bulk operation
+     */
+    enum State {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final String operationId;
+
+    private final Type type;
+
+    /**
+     * Queue the messages belonged to before moving to the dead letter channel
+     */
+    private final String queueName;
+
+    private final String dlcQueueName;
+
+    /**
+     * Queue to restore messages to. Messages are restored to their original destination if null
+     */
+    private final String newDestinationQueueName;
+
+    private final long firstMessageId;
+
+    private final long lastMessageId;
+
+    /**
+     * Maximum number of messages processed at a time
+     */
+    private final int chunkSize;
+
+    /**
+     * Time to sleep between two chunks
+     */
+    private final long chunkIntervalMillis;
+
+    private volatile State state = State.PENDING;
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Set while publishing restored messages is blocked by flow control
+     */
+    private volatile boolean blockedByFlowControl = false;
+
+    /**
+     * Number of messages of the queue in the dead letter channel when the operation started
+     */
+    private volatile long estimatedMessageCount = -1;
+
+    private volatile long processedMessageCount = 0;
+
+    private volatile String failureReason;
+
+    DLCBulkOperation(String operationId, Type type, String queueName, String dlcQueueName,
+            String newDestinationQueueName, long firstMessageId, long lastMessageId, int chunkSize,
+            long chunkIntervalMillis) {
+        this.operationId = operationId;
+        this.type = type;
+        this.queueName = queueName;
+        this.dlcQueueName = dlcQueueName;
+        this.newDestinationQueueName = newDestinationQueueName;
+        this.firstMessageId = firstMessageId;
+        this.lastMessageId = lastMessageId;
+        this.chunkSize = chunkSize;
+        this.chunkIntervalMillis = chunkIntervalMillis;
+    }
+
+    @Override
+    public void run() {
+        if (cancelled) {
+            return;
+        }
+        state = State.RUNNING;
+        AndesChannel andesChannel = null;
+
+        try {
+            estimatedMessageCount = getMessageCount();
+
+            if (Type.RESTORE == type) {
+                andesChannel = createChannel(new FlowControlListener() {
+                    @Override
+                    public void block() {
+                        blockedByFlowControl = true;
+                    }
+
+                    @Override
+                    public void unblock() {
+                        blockedByFlowControl = false;
+                    }
+
+                    @Override
+                    public void disconnect() {
+                        // Do nothing. since its not applicable.
+                    }
+                });
+            }
+
+            processChunks(andesChannel);
+            state = cancelled ? State.CANCELLED : State.COMPLETED;
+
+            log.info(type + " of messages of queue " + queueName + " from " + dlcQueueName + " " + state
+                    + ". Messages processed : " + processedMessageCount);
+        } catch (InterruptedException e) {
+            state = State.CANCELLED;
+            Thread.currentThread().interrupt();
+        } catch (AndesException | RuntimeException e) {
+            failureReason = e.getMessage();
+            state = State.FAILED;
+            log.error("Error while performing " + type + " of messages of queue " + queueName + " from "
+                    + dlcQueueName + ". Messages processed : " + processedMessageCount, e);
+        } finally {
+            if (null != andesChannel) {
+                deleteChannel(andesChannel);
+            }
+        }
+    }
+
+    /**
+     * Read the range chunk by chunk and restore or delete each chunk until the range is exhausted or the operation is
+     * cancelled
+     *
+     * @param andesChannel channel to publish restored messages through. Null for delete operations
+     * @throws AndesException
+     * @throws InterruptedException
+     */
+    private void processChunks(AndesChannel andesChannel) throws AndesException, InterruptedException {
+        long nextMessageId = firstMessageId;
+
+        while (!cancelled) {
+            if (blockedByFlowControl) {
+                waitForFlowControl();
+                continue;
+            }
+
+            List<AndesMessageMetadata> chunk = readChunk(nextMessageId);
+            boolean lastChunk = chunk.size() < chunkSize;
+
+            // Drop messages beyond the range
+            while (!chunk.isEmpty() && chunk.get(chunk.size() - 1).getMessageID() > lastMessageId) {
+                chunk.remove(chunk.size() - 1);
+                lastChunk = true;
+            }
+
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            long lastProcessedId;
+            if (Type.RESTORE == type) {
+                List<AndesMessageMetadata> restoredMessages = restore(chunk, andesChannel);
+                if (restoredMessages.isEmpty()) {
+                    // Blocked by flow control before anything was published. Retry the chunk once unblocked
+                    continue;
+                }
+                deleteRestoredMessages(restoredMessages);
+                processedMessageCount += restoredMessages.size();
+                lastProcessedId = restoredMessages.get(restoredMessages.size() - 1).getMessageID();
+                lastChunk = lastChunk && restoredMessages.size() == chunk.size();
+            } else {
+                lastProcessedId = chunk.get(chunk.size() - 1).getMessageID();
+                processedMessageCount += deleteChunk(chunk.get(0).getMessageID(), lastProcessedId);
+            }
+
+            if (lastChunk) {
+                break;
+            }
+            nextMessageId = lastProcessedId + 1;
+            Thread.sleep(chunkIntervalMillis);
+        }
+    }
+
+    /**
+     * Hand over messages of a chunk to Andes as new messages. Stops at the first message found blocked by flow
+     * control.
+     *
+     * @param chunk        messages to restore, in message id order
+     * @param andesChannel channel to publish through
+     * @return messages handed over to Andes, which should be removed from the dead letter channel
+     * @throws AndesException
+     */
+    private List<AndesMessageMetadata> restore(List<AndesMessageMetadata> chunk, AndesChannel andesChannel)
+            throws AndesException {
+        LongArrayList messageIds = new LongArrayList(chunk.size());
+        for (AndesMessageMetadata metadata : chunk) {
+            messageIds.add(metadata.getMessageID());
+        }
+        LongObjectHashMap<List<AndesMessagePart>> messageContent = getContent(messageIds);
+
+        List<AndesMessageMetadata> restoredMessages = new ArrayList<>(chunk.size());
+        DisablePubAckImpl disablePubAck = new DisablePubAckImpl();
+
+        for (AndesMessageMetadata metadata : chunk) {
+            if (blockedByFlowControl) {
+                break;
+            }
+
+            setRestoreDestination(metadata);
+
+            AndesMessageMetadata clonedMetadata = metadata.shallowCopy(metadata.getMessageID());
+            AndesMessage andesMessage = new AndesMessage(clonedMetadata);
+
+            List<AndesMessagePart> messageParts = messageContent.get(metadata.getMessageID());
+            if (null != messageParts) {
+                for (AndesMessagePart messagePart : messageParts) {
+                    andesMessage.addMessagePart(messagePart);
+                }
+            }
+
+            // Handover message to Andes. This will generate a new message ID and store it
+            publish(andesMessage, andesChannel, disablePubAck);
+            restoredMessages.add(metadata);
+        }
+        return restoredMessages;
+    }
+
+    /**
+     * Point a message being restored to its original destination, or to the new destination if one is given
+     *
+     * @param metadata metadata of the message being restored
+     */
+    void setRestoreDestination(AndesMessageMetadata metadata) {
+        if (null == newDestinationQueueName) {
+            String destination = metadata.getDestination();
+            metadata.setStorageQueueName(AndesUtils.getStorageQueueForDestination(destination,
+                    AMQPUtils.DIRECT_EXCHANGE_NAME, destination, true));
+        } else {
+            metadata.setDestination(newDestinationQueueName);
+            metadata.setStorageQueueName(AndesUtils.getStorageQueueForDestination(newDestinationQueueName,
+                    AMQPUtils.DIRECT_EXCHANGE_NAME, newDestinationQueueName, true));
+            metadata.setMessageRouterName(AMQPUtils.DIRECT_EXCHANGE_NAME);
+            metadata.updateMetadata(newDestinationQueueName, AMQPUtils.DIRECT_EXCHANGE_NAME);
+        }
+    }
+
+    /*
+     * Access to Andes used by the operation. Tests override these to run the operation without a running broker.
+     */
+
+    long getMessageCount() throws AndesException {
+        return Andes.getInstance().getMessageCountInDLCForQueue(queueName, dlcQueueName);
+    }
+
+    List<AndesMessageMetadata> readChunk(long nextMessageId) throws AndesException {
+        return Andes.getInstance().getNextNMessageMetadataInDLCForQueue(queueName, dlcQueueName, nextMessageId,
+                chunkSize);
+    }
+
+    LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIds) throws AndesException {
+        return Andes.getInstance().getContent(messageIds);
+    }
+
+    int deleteChunk(long firstChunkMessageId, long lastChunkMessageId) throws AndesException {
+        return Andes.getInstance().deleteMessagesFromDLCInRange(queueName, dlcQueueName, firstChunkMessageId,
+                lastChunkMessageId);
+    }
+
+    void deleteRestoredMessages(List<AndesMessageMetadata> restoredMessages) throws AndesException {
+        Andes.getInstance().deleteMessagesFromDLC(restoredMessages);
+    }
+
+    void publish(AndesMessage andesMessage, AndesChannel andesChannel, PubAckHandler pubAckHandler) {
+        Andes.getInstance().messageReceived(andesMessage, andesChannel, pubAckHandler);
+    }
+
+    AndesChannel createChannel(FlowControlListener flowControlListener) throws AndesException {
+        return Andes.getInstance().createChannel(flowControlListener);
+    }
+
+    void deleteChannel(AndesChannel andesChannel) {
+        Andes.getInstance().deleteChannel(andesChannel);
+    }
+
+    /**
+     * Wait for a while before checking again whether flow control is lifted
+     *
+     * @throws InterruptedException
+     */
+    void waitForFlowControl() throws InterruptedException {
+        Thread.sleep(FLOW_CONTROL_WAIT_MILLIS);
+    }
+
+    /**
+     * Stop the operation after the chunk being processed
+     */
+    void cancel() {
+        cancelled = true;
+        if (State.PENDING == state) {
+            state = State.CANCELLED;
+        }
+    }
+
+    String getOperationId() {
+        return operationId;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * @return human readable progress of the operation
+     */
+    String getStatus() {
+        StringBuilder status = new StringBuilder();
+        status.append(type).append(" of messages of queue ").append(queueName).append(" from ").append(dlcQueueName)
+              .append(" in range ").append(firstMessageId).append(" - ").append(lastMessageId).append(" : ")
+              .append(state).append(". Processed ").append(processedMessageCount);
+        if (estimatedMessageCount >= 0) {
+            status.append(" of about ").append(estimatedMessageCount);
+        }
+        status.append(" messages");
+        if (blockedByFlowControl && State.RUNNING == state) {
+            status.append(", waiting on flow control");
+        }
+        if (null != failureReason) {
+            status.append(". Failure : ").append(failureReason);
+        }
+        return status.toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.information.management;
+
+import org.wso2.andes.management.common.mbeans.LatencyInformation;
+import org.wso2.andes.management.common.mbeans.annotations.MBeanConstructor;
+import org.wso2.andes.management.common.mbeans.annotations.MBeanOperationParameter;
+import org.wso2.andes.metrics.LatencyHistogram;
+import org.wso2.andes.metrics.MessageLatencyTracker;
+import org.wso2.andes.server.management.AMQManagedObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+
+/**
+ * MBean exposing latency statistics recorded by {@link MessageLatencyTracker}
+ */
+public class LatencyInformationMBean extends AMQManagedObject implements LatencyInformation {
+
+    @MBeanConstructor("Creates an MBean exposing message latency statistics")
+    public LatencyInformationMBean() throws JMException {
+        super(LatencyInformation.class, LatencyInformation.TYPE);
+    }
+
+    @Override
+    public String getObjectInstanceName() {
+        return LatencyInformation.TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getDestinations() {
+        List<String> destinations = MessageLatencyTracker.getDestinations();
+        return destinations.toArray(new String[destinations.size()]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getLatencyStatistics(
+            @MBeanOperationParameter(name = "destination", description = "destination name") String destination) {
+        List<String> statistics = new ArrayList<>();
+        for (MessageLatencyTracker.Stage stage : MessageLatencyTracker.Stage.values()) {
+            LatencyHistogram histogram = MessageLatencyTracker.getHistogram(destination, stage);
+            if (null != histogram) {
+                statistics.add(stage + " count=" + histogram.getCount()
+                        + " p50=" + histogram.getValueAtPercentile(50)
+                        + " p90=" + histogram.getValueAtPercentile(90)
+                        + " p99=" + histogram.getValueAtPercentile(99)
+                        + " p999=" + histogram.getValueAtPercentile(99.9)
+                        + " max=" + histogram.getMax()
+                        + " mean=" + Math.round(histogram.getMean()));
+            }
+        }
+        return statistics.toArray(new String[statistics.size()]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSamplingRate() {
+        return MessageLatencyTracker.getSamplingRate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSamplingRate(
+            @MBeanOperationParameter(name = "samplingRate", description = "one in this number of messages is " +
+                    "tracked, 0 to disable") int samplingRate) {
+        MessageLatencyTracker.setSamplingRate(samplingRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetLatencyStatistics() {
+        MessageLatencyTracker.reset();
+    }
+}
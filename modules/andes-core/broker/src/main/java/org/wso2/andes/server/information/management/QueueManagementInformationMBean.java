@@ -18,6 +18,7 @@
 
 package org.wso2.andes.server.information.management;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.gs.collections.api.iterator.MutableLongIterator;
 import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
@@ -79,9 +80,14 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class contains all operations such as addition, deletion, purging, browsing, etc. that are invoked by the UI
@@ -177,6 +183,23 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
      */
     AndesChannel andesChannel;
 
+    /**
+     * Maximum number of finished bulk dead letter channel operations kept to report their status
+     */
+    private static final int MAX_TRACKED_DLC_OPERATIONS = 100;
+
+    /**
+     * Runs bulk dead letter channel operations one at a time in the background
+     */
+    private final ExecutorService dlcOperationExecutor;
+
+    /**
+     * Bulk dead letter channel operations started through this MBean, by operation id
+     */
+    private final Map<String, DLCBulkOperation> dlcOperations;
+
+    private final AtomicLong dlcOperationIdGenerator = new AtomicLong();
+
     /***
      * Virtual host information are needed in the constructor to evaluate user permissions for
      * queue management actions.(e.g. purge)
@@ -225,6 +248,18 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
                         .toArray(new String[VIEW_MSG_CONTENT_COMPOSITE_ITEM_NAMES_DESC.size()]),
                 _msgContentAttributeTypes);
         lz4CompressionHelper = new LZ4CompressionHelper();
+
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("DLCBulkOperationExecutor-%d").setDaemon(true).build();
+        dlcOperationExecutor = Executors.newSingleThreadExecutor(namedThreadFactory);
+        dlcOperations = new LinkedHashMap<String, DLCBulkOperation>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DLCBulkOperation> eldest) {
+                DLCBulkOperation.State state = eldest.getValue().getState();
+                return size() > MAX_TRACKED_DLC_OPERATIONS
+                       && DLCBulkOperation.State.PENDING != state && DLCBulkOperation.State.RUNNING != state;
+            }
+        };
     }
 
     public String getObjectInstanceName() {
@@ -509,6 +544,115 @@ public class QueueManagementInformationMBean extends AMQManagedObject implements
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String restoreMessageRangeFromDeadLetterQueue(@MBeanOperationParameter(name = "queueName",
+                                                                                  description = "Name of the queue the messages belonged to") String queueName,
+            @MBeanOperationParameter(name = "destination",
+                                     description = "Destination of the messages to be restored") String newDestinationQueueName,
+            @MBeanOperationParameter(name = "firstMsgId",
+                                     description = "First message id of the range") long firstMsgId,
+            @MBeanOperationParameter(name = "lastMsgId",
+                                     description = "Last message id of the range") long lastMsgId)
+            throws MBeanException {
+
+        String newDestination = StringUtils.isBlank(newDestinationQueueName) ? null : newDestinationQueueName;
+        return startDLCBulkOperation(DLCBulkOperation.Type.RESTORE, queueName, newDestination, firstMsgId,
+                lastMsgId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String deleteMessageRangeFromDeadLetterQueue(@MBeanOperationParameter(name = "queueName",
+                                                                                 description = "Name of the queue the messages belonged to") String queueName,
+            @MBeanOperationParameter(name = "firstMsgId",
+                                     description = "First message id of the range") long firstMsgId,
+            @MBeanOperationParameter(name = "lastMsgId",
+                                     description = "Last message id of the range") long lastMsgId)
+            throws MBeanException {
+        return startDLCBulkOperation(DLCBulkOperation.Type.DELETE, queueName, null, firstMsgId, lastMsgId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDeadLetterQueueOperationStatus(@MBeanOperationParameter(name = "operationId",
+                                                                             description = "Id of the operation") String operationId)
+            throws MBeanException {
+        return getDLCBulkOperation(operationId).getStatus();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancelDeadLetterQueueOperation(@MBeanOperationParameter(name = "operationId",
+                                                                        description = "Id of the operation") String operationId)
+            throws MBeanException {
+        getDLCBulkOperation(operationId).cancel();
+    }
+
+    /**
+     * Schedule a bulk dead letter channel operation on the background executor
+     *
+     * @param type                    restore or delete
+     * @param queueName               queue the messages belonged to
+     * @param newDestinationQueueName queue to restore to, null to restore to the original queue
+     * @param firstMsgId              first message id of the range
+     * @param lastMsgId               last message id of the range
+     * @return id of the scheduled operation
+     * @throws MBeanException if the range is invalid
+     */
+    private String startDLCBulkOperation(DLCBulkOperation.Type type, String queueName,
+            String newDestinationQueueName, long firstMsgId, long lastMsgId) throws MBeanException {
+
+        if (StringUtils.isBlank(queueName) || firstMsgId > lastMsgId) {
+            throw new MBeanException(new IllegalArgumentException("Invalid queue " + queueName + " or message id "
+                    + "range " + firstMsgId + " - " + lastMsgId), "Error starting " + type + " of messages from "
+                    + "dead letter channel");
+        }
+
+        Integer chunkSize = AndesConfigurationManager
+                .readValue(AndesConfiguration.MANAGEMENT_CONSOLE_DLC_BULK_OPERATION_CHUNK_SIZE);
+        Integer chunkInterval = AndesConfigurationManager
+                .readValue(AndesConfiguration.MANAGEMENT_CONSOLE_DLC_BULK_OPERATION_CHUNK_INTERVAL);
+
+        String operationId = type.name().toLowerCase() + "-" + dlcOperationIdGenerator.incrementAndGet();
+        DLCBulkOperation operation = new DLCBulkOperation(operationId, type, queueName,
+                DLCQueueUtils.identifyTenantInformationAndGenerateDLCString(queueName), newDestinationQueueName,
+                firstMsgId, lastMsgId, chunkSize, chunkInterval);
+
+        synchronized (dlcOperations) {
+            dlcOperations.put(operationId, operation);
+        }
+        dlcOperationExecutor.submit(operation);
+        return operationId;
+    }
+
+    /**
+     * Find a bulk dead letter channel operation started through this MBean
+     *
+     * @param operationId id of the operation
+     * @return the operation
+     * @throws MBeanException if no such operation is known
+     */
+    private DLCBulkOperation getDLCBulkOperation(String operationId) throws MBeanException {
+        DLCBulkOperation operation;
+        synchronized (dlcOperations) {
+            operation = dlcOperations.get(operationId);
+        }
+        if (null == operation) {
+            throw new MBeanException(new IllegalArgumentException("Unknown operation " + operationId),
+                    "Error retrieving dead letter channel operation " + operationId);
+        }
+        return operation;
+    }
+
     /**
      * {@inheritDoc}
      */
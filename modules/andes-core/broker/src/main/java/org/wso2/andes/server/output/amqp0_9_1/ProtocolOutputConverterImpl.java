@@ -24,6 +24,7 @@ import org.wso2.andes.AMQException;
 import org.wso2.andes.framing.*;
 import org.wso2.andes.framing.abstraction.MessagePublishInfo;
 import org.wso2.andes.framing.abstraction.ProtocolVersionMethodConverter;
+import org.wso2.andes.framing.amqp_0_91.BasicDeliverBodyImpl;
 import org.wso2.andes.framing.amqp_0_91.BasicGetBodyImpl;
 import org.wso2.andes.protocol.AMQConstant;
 import org.wso2.andes.protocol.AMQVersionAwareProtocolSession;
@@ -198,25 +199,10 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
 
         final boolean isRedelivered = entry.isRedelivered();
 
+        // Encode the deliver method straight into the output buffer instead of creating a method body per delivery
         final AMQBody returnBlock = new AMQBody()
         {
 
-            public AMQBody _underlyingBody;
-
-            public AMQBody createAMQBody()
-            {
-                return METHOD_REGISTRY.createBasicDeliverBody(consumerTag,
-                                                              deliveryTag,
-                                                              isRedelivered,
-                                                              exchangeName,
-                                                              routingKey);
-
-
-
-
-
-            }
-
             public byte getFrameType()
             {
                 return AMQMethodBody.TYPE;
@@ -224,20 +210,14 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
 
             public int getSize()
             {
-                if(_underlyingBody == null)
-                {
-                    _underlyingBody = createAMQBody();
-                }
-                return _underlyingBody.getSize();
+                return BasicDeliverBodyImpl.getEncodedSize(consumerTag, deliveryTag, isRedelivered, exchangeName,
+                                                           routingKey);
             }
 
             public void writePayload(ByteBuffer buffer)
             {
-                if(_underlyingBody == null)
-                {
-                    _underlyingBody = createAMQBody();
-                }
-                _underlyingBody.writePayload(buffer);
+                BasicDeliverBodyImpl.encode(buffer, consumerTag, deliveryTag, isRedelivered, exchangeName,
+                                            routingKey);
             }
 
             public void handle(final int channelId, final AMQVersionAwareProtocolSession amqMinaProtocolSession)
@@ -44,6 +44,7 @@ public abstract class AbstractPlugin implements SecurityPlugin
     public void configure(ConfigurationPlugin config)
     {
         _config = config;
+        SecurityManager.invalidateAllAuthorisations();
     }
 
 }
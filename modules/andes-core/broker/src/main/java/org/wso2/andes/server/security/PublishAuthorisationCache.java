@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.security;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publish authorisation decisions of a single channel, keyed by exchange name and routing key.
+ * <p>
+ * Decisions are only valid for the subject of the channel and for the plugin version they were made with, the
+ * cache clears itself once {@link SecurityManager} reports a different version. The number of decisions is bounded,
+ * the cache is cleared when it fills up so that publishers using unique routing keys do not hold on to memory.
+ * </p>
+ * <p><b>Note: </b>Not thread safe, the cache should only be used by the thread processing frames of the channel.</p>
+ */
+public class PublishAuthorisationCache
+{
+    /**
+     * Maximum number of decisions held by a channel
+     */
+    private static final int MAX_ENTRIES = 1000;
+
+    /**
+     * Decisions by routing key, grouped by exchange name
+     */
+    private final Map<String, Map<String, Boolean>> _decisions = new HashMap<String, Map<String, Boolean>>();
+
+    /**
+     * Plugin version the held decisions were made with
+     */
+    private int _version;
+
+    /**
+     * Number of decisions held
+     */
+    private int _size;
+
+    /**
+     * Returns a cached decision
+     *
+     * @param exchangeName name of the exchange
+     * @param routingKey   routing key of the message
+     * @param version      current plugin version of the security manager
+     * @return the decision or null if there is no valid decision for the exchange and routing key
+     */
+    Boolean get(String exchangeName, String routingKey, int version)
+    {
+        if (version != _version)
+        {
+            clear();
+            _version = version;
+            return null;
+        }
+
+        Map<String, Boolean> decisionsOfExchange = _decisions.get(exchangeName);
+        return decisionsOfExchange == null ? null : decisionsOfExchange.get(routingKey);
+    }
+
+    /**
+     * Caches a decision
+     *
+     * @param exchangeName name of the exchange
+     * @param routingKey   routing key of the message
+     * @param version      plugin version the decision was made with
+     * @param allowed      the decision
+     */
+    void put(String exchangeName, String routingKey, int version, boolean allowed)
+    {
+        if (version != _version || _size >= MAX_ENTRIES)
+        {
+            clear();
+            _version = version;
+        }
+
+        Map<String, Boolean> decisionsOfExchange = _decisions.get(exchangeName);
+        if (decisionsOfExchange == null)
+        {
+            decisionsOfExchange = new HashMap<String, Boolean>();
+            _decisions.put(exchangeName, decisionsOfExchange);
+        }
+
+        if (decisionsOfExchange.put(routingKey, allowed) == null)
+        {
+            _size++;
+        }
+    }
+
+    /**
+     * Discards all decisions
+     */
+    public void clear()
+    {
+        _decisions.clear();
+        _size = 0;
+    }
+}
@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.wso2.andes.server.security.access.ObjectType.*;
 import static org.wso2.andes.server.security.access.Operation.*;
@@ -60,6 +61,18 @@ public class SecurityManager
     private Map<String, SecurityPlugin> _globalPlugins = new HashMap<String, SecurityPlugin>();
     private Map<String, SecurityPlugin> _hostPlugins = new HashMap<String, SecurityPlugin>();
 
+    /** The security manager whose host plugins are the global plugins of this one, if any. */
+    private SecurityManager _parent;
+
+    /** Incremented whenever the plugins change, so that cached decisions and the plugin chain are discarded. */
+    private final AtomicInteger _pluginVersion = new AtomicInteger();
+
+    /** Incremented whenever the access rules of any plugin change, so that cached decisions of all security managers are discarded. */
+    private static final AtomicInteger _ruleVersion = new AtomicInteger();
+
+    /** Order in which plugins are consulted, rebuilt when the plugins change. */
+    private volatile PluginChain _pluginChain;
+
     public static class SecurityConfiguration extends ConfigurationPlugin
     {
         public static final ConfigurationPluginFactory FACTORY = new ConfigurationPluginFactory()
@@ -97,6 +110,7 @@ public class SecurityManager
     {
         _pluginManager = parent._pluginManager;
         _pluginFactories = parent._pluginFactories;
+        _parent = parent;
         
         // our global plugins are the parent's host plugins
         _globalPlugins = parent._hostPlugins;
@@ -137,11 +151,13 @@ public class SecurityManager
     public void configureHostPlugins(ConfigurationPlugin hostConfig) throws ConfigurationException
     {
         _hostPlugins = configurePlugins(hostConfig);
+        invalidateAuthorisations();
     }
     
     public void configureGlobalPlugins(ConfigurationPlugin configuration) throws ConfigurationException
     {
         _globalPlugins = configurePlugins(configuration);
+        invalidateAuthorisations();
     }
 
     public Map<String, SecurityPlugin> configurePlugins(ConfigurationPlugin hostConfig) throws ConfigurationException
@@ -167,6 +183,40 @@ public class SecurityManager
     public void addHostPlugin(SecurityPlugin plugin)
     {
         _hostPlugins.put(plugin.getClass().getName(), plugin);
+        invalidateAuthorisations();
+    }
+
+    /**
+     * Discards cached authorisation decisions of this security manager and the ones using its host plugins as global
+     * plugins.
+     */
+    public void invalidateAuthorisations()
+    {
+        _pluginVersion.incrementAndGet();
+    }
+
+    /**
+     * Discards cached authorisation decisions of all security managers. Must be called by plugins whenever their
+     * access rules change in place, e.g. when a rule is added, enabled, disabled or removed, since the plugins do not
+     * know which security managers they are registered with.
+     */
+    public static void invalidateAllAuthorisations()
+    {
+        _ruleVersion.incrementAndGet();
+    }
+
+    /**
+     * The current version of the plugins, changes whenever the plugins of this security manager or its parent change,
+     * or the access rules of any plugin change.
+     */
+    private int getPluginVersion()
+    {
+        return _ruleVersion.get() + getLocalPluginVersion();
+    }
+
+    private int getLocalPluginVersion()
+    {
+        return _parent == null ? _pluginVersion.get() : _pluginVersion.get() + _parent.getLocalPluginVersion();
     }
 
     public static Logger getLogger()
@@ -179,20 +229,57 @@ public class SecurityManager
         abstract Result allowed(SecurityPlugin plugin);
     }
 
+    /**
+     * Plugins in the order they are consulted. Host plugins are paired with the global plugin of the same name, if
+     * any, and global plugins without a host plugin of the same name are consulted last.
+     */
+    private static final class PluginChain
+    {
+        private final int _version;
+        private final SecurityPlugin[] _hostPlugins;
+        private final SecurityPlugin[] _pairedGlobalPlugins;
+        private final SecurityPlugin[] _globalOnlyPlugins;
+
+        private PluginChain(int version, Map<String, SecurityPlugin> hostPlugins, Map<String, SecurityPlugin> globalPlugins)
+        {
+            _version = version;
+            HashMap<String, SecurityPlugin> remainingPlugins = new HashMap<String, SecurityPlugin>(globalPlugins);
+            _hostPlugins = new SecurityPlugin[hostPlugins.size()];
+            _pairedGlobalPlugins = new SecurityPlugin[hostPlugins.size()];
+
+            int index = 0;
+            for (Entry<String, SecurityPlugin> hostEntry : hostPlugins.entrySet())
+            {
+                _hostPlugins[index] = hostEntry.getValue();
+                _pairedGlobalPlugins[index] = remainingPlugins.remove(hostEntry.getKey());
+                index++;
+            }
+            _globalOnlyPlugins = remainingPlugins.values().toArray(new SecurityPlugin[remainingPlugins.size()]);
+        }
+    }
+
+    private PluginChain getPluginChain()
+    {
+        int version = getPluginVersion();
+        PluginChain chain = _pluginChain;
+        if (chain == null || chain._version != version)
+        {
+            chain = new PluginChain(version, _hostPlugins, _globalPlugins);
+            _pluginChain = chain;
+        }
+        return chain;
+    }
+
     private boolean checkAllPlugins(AccessCheck checker)
     {
-        HashMap<String, SecurityPlugin> remainingPlugins = new HashMap<String, SecurityPlugin>(_globalPlugins);
-		
-		for (Entry<String, SecurityPlugin> hostEntry : _hostPlugins.entrySet())
+        PluginChain chain = getPluginChain();
+
+        for (int i = 0; i < chain._hostPlugins.length; i++)
         {
-		    // Create set of global only plugins
-			SecurityPlugin globalPlugin = remainingPlugins.get(hostEntry.getKey());
-			if (globalPlugin != null)
-			{
-				remainingPlugins.remove(hostEntry.getKey());
-			}
-			
-            Result host = checker.allowed(hostEntry.getValue());
+            SecurityPlugin hostPlugin = chain._hostPlugins[i];
+            SecurityPlugin globalPlugin = chain._pairedGlobalPlugins[i];
+
+            Result host = checker.allowed(hostPlugin);
 			
 			if (host == Result.DENIED)
 			{
@@ -207,7 +294,7 @@ public class SecurityManager
 				{
 				    if (host == Result.DEFER)
 				    {
-				        host = hostEntry.getValue().getDefault();
+				        host = hostPlugin.getDefault();
                     }
                     if (host == Result.DENIED)
                     {
@@ -223,7 +310,7 @@ public class SecurityManager
 					}
 					if (global == Result.ABSTAIN && host == Result.DEFER)
 					{
-					    global = hostEntry.getValue().getDefault();
+					    global = hostPlugin.getDefault();
 					}
 					if (global == Result.DENIED)
                     {
@@ -233,7 +320,7 @@ public class SecurityManager
 			}
         }
 
-        for (SecurityPlugin plugin : remainingPlugins.values())
+        for (SecurityPlugin plugin : chain._globalOnlyPlugins)
         {
             Result remaining = checker.allowed(plugin);
 			if (remaining == Result.DEFER)
@@ -396,6 +483,36 @@ public class SecurityManager
         });
     }
 
+    /**
+     * Authorise a publish, reusing a previous decision of the channel for the same exchange and routing key. The
+     * cache is owned by the channel, hence decisions are made for the subject of the channel. Cached decisions are
+     * discarded when the plugins change.
+     *
+     * @param immediate    whether the message is published with the immediate flag
+     * @param routingKey   routing key of the message
+     * @param exchangeName name of the exchange the message is published to
+     * @param cache        publish decisions of the channel
+     * @return true if the publish is allowed
+     */
+    public boolean authorisePublish(boolean immediate, String routingKey, String exchangeName,
+                                    PublishAuthorisationCache cache)
+    {
+        // Immediate publishes are rare, and may be controlled separately by the access control rules
+        if (immediate || routingKey == null || exchangeName == null)
+        {
+            return authorisePublish(immediate, routingKey, exchangeName);
+        }
+
+        int version = getPluginVersion();
+        Boolean allowed = cache.get(exchangeName, routingKey, version);
+        if (allowed == null)
+        {
+            allowed = authorisePublish(false, routingKey, exchangeName);
+            cache.put(exchangeName, routingKey, version, allowed);
+        }
+        return allowed;
+    }
+
     public boolean authorisePurge(final AMQQueue queue)
     {
         return checkAllPlugins(new AccessCheck()
@@ -18,20 +18,16 @@
 package org.wso2.andes.server.transport;
 
 import static org.wso2.andes.server.logging.subjects.LogSubjectFormat.CHANNEL_FORMAT;
-import static org.wso2.andes.util.Serial.gt;
 
 import java.lang.ref.WeakReference;
 import java.security.Principal;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -45,6 +41,7 @@ import org.wso2.andes.configuration.qpid.ConfiguredObject;
 import org.wso2.andes.configuration.qpid.ConnectionConfig;
 import org.wso2.andes.configuration.qpid.SessionConfig;
 import org.wso2.andes.configuration.qpid.SessionConfigType;
+import org.wso2.andes.server.ack.DeliveryTagRing;
 import org.wso2.andes.server.logging.LogActor;
 import org.wso2.andes.server.logging.LogSubject;
 import org.wso2.andes.server.logging.actors.CurrentActor;
@@ -57,6 +54,7 @@ import org.wso2.andes.server.queue.AMQQueue;
 import org.wso2.andes.server.queue.BaseQueue;
 import org.wso2.andes.server.queue.QueueEntry;
 import org.wso2.andes.server.security.AuthorizationHolder;
+import org.wso2.andes.server.security.PublishAuthorisationCache;
 import org.wso2.andes.server.store.MessageStore;
 import org.wso2.andes.server.subscription.Subscription_0_10;
 import org.wso2.andes.server.txn.AutoCommitTransaction;
@@ -104,8 +102,15 @@ public class ServerSession extends Session implements AuthorizationHolder, Sessi
     }
 
 
-    private final SortedMap<Integer, MessageDispositionChangeListener> _messageDispositionListenerMap =
-            new ConcurrentSkipListMap<Integer, MessageDispositionChangeListener>();
+    /**
+     * Listeners of messages which are sent but not yet accepted, keyed by the command id of the transfer unwrapped to a
+     * sequence. Guarded by itself.
+     */
+    private final DeliveryTagRing<MessageDispositionChangeListener> _messageDispositionListeners =
+            new DeliveryTagRing<MessageDispositionChangeListener>();
+
+    /** Sequence of the latest transfer a listener was added for, command ids are unwrapped relative to it */
+    private long _lastDispositionSequence;
 
     private ServerTransaction _transaction;
     
@@ -121,6 +126,9 @@ public class ServerSession extends Session implements AuthorizationHolder, Sessi
 
     private final WeakReference<Session> _reference;
 
+    /** Publish authorisation decisions of this session, transfers of a session are processed one at a time */
+    private final PublishAuthorisationCache _publishAuthorisations = new PublishAuthorisationCache();
+
     ServerSession(Connection connection, SessionDelegate delegate, Binary name, long expiry)
     {
         this(connection, delegate, name, expiry, ((ServerConnection)connection).getConfig());
@@ -203,7 +211,21 @@ public class ServerSession extends Session implements AuthorizationHolder, Sessi
 
     public void onMessageDispositionChange(MessageTransfer xfr, MessageDispositionChangeListener acceptListener)
     {
-        _messageDispositionListenerMap.put(xfr.getId(), acceptListener);
+        synchronized (_messageDispositionListeners)
+        {
+            long sequence = toSequence(xfr.getId());
+            _messageDispositionListeners.add(sequence, acceptListener);
+            _lastDispositionSequence = Math.max(_lastDispositionSequence, sequence);
+        }
+    }
+
+    /**
+     * Command ids are serial numbers which wrap around, this maps a command id to the sequence closest to the latest
+     * transfer so that ids of outstanding transfers stay in order.
+     */
+    private long toSequence(int commandId)
+    {
+        return _lastDispositionSequence + (commandId - (int) _lastDispositionSequence);
     }
 
 
@@ -250,45 +272,33 @@ public class ServerSession extends Session implements AuthorizationHolder, Sessi
     {
         RangeSet acquired = new RangeSet();
 
-        if(!_messageDispositionListenerMap.isEmpty())
+        final List<Integer> commandIds = new ArrayList<Integer>();
+        final List<MessageDispositionChangeListener> listeners = new ArrayList<MessageDispositionChangeListener>();
+        synchronized (_messageDispositionListeners)
         {
-            Iterator<Integer> unacceptedMessages = _messageDispositionListenerMap.keySet().iterator();
-            Iterator<Range> rangeIter = transfers.iterator();
-
-            if(rangeIter.hasNext())
+            if (!_messageDispositionListeners.isEmpty())
             {
-                Range range = rangeIter.next();
-
-                while(range != null && unacceptedMessages.hasNext())
+                for (Range range : transfers)
                 {
-                    int next = unacceptedMessages.next();
-                    while(gt(next, range.getUpper()))
-                    {
-                        if(rangeIter.hasNext())
-                        {
-                            range = rangeIter.next();
-                        }
-                        else
-                        {
-                            range = null;
-                            break;
-                        }
-                    }
-                    if(range != null && range.includes(next))
-                    {
-                        MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.get(next);
-                        if(changeListener != null && changeListener.acquire())
-                        {
-                            acquired.add(next);
-                        }
-                    }
-
-
+                    _messageDispositionListeners.visitRange(toSequence(range.getLower()), toSequence(range.getUpper()),
+                            new DeliveryTagRing.Visitor<MessageDispositionChangeListener>()
+                            {
+                                public void visit(long sequence, MessageDispositionChangeListener listener)
+                                {
+                                    commandIds.add((int) sequence);
+                                    listeners.add(listener);
+                                }
+                            });
                 }
-
             }
+        }
 
-
+        for (int i = 0; i < listeners.size(); i++)
+        {
+            if (listeners.get(i).acquire())
+            {
+                acquired.add(commandIds.get(i));
+            }
         }
 
         return acquired;
@@ -296,57 +306,64 @@ public class ServerSession extends Session implements AuthorizationHolder, Sessi
 
     public void dispositionChange(RangeSet ranges, MessageDispositionAction action)
     {
-        if(ranges != null && !_messageDispositionListenerMap.isEmpty())
+        if (ranges == null)
         {
-            Iterator<Integer> unacceptedMessages = _messageDispositionListenerMap.keySet().iterator();
-            Iterator<Range> rangeIter = ranges.iterator();
+            return;
+        }
 
-            if(rangeIter.hasNext())
+        final List<MessageDispositionChangeListener> listeners = new ArrayList<MessageDispositionChangeListener>();
+        synchronized (_messageDispositionListeners)
+        {
+            if (!_messageDispositionListeners.isEmpty())
             {
-                Range range = rangeIter.next();
-
-                while(range != null && unacceptedMessages.hasNext())
+                for (Range range : ranges)
                 {
-                    int next = unacceptedMessages.next();
-                    while(gt(next, range.getUpper()))
-                    {
-                        if(rangeIter.hasNext())
-                        {
-                            range = rangeIter.next();
-                        }
-                        else
-                        {
-                            range = null;
-                            break;
-                        }
-                    }
-                    if(range != null && range.includes(next))
-                    {
-                        MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.remove(next);
-                        action.performAction(changeListener);
-                    }
-
-
+                    _messageDispositionListeners.removeRange(toSequence(range.getLower()), toSequence(range.getUpper()),
+                            new DeliveryTagRing.Visitor<MessageDispositionChangeListener>()
+                            {
+                                public void visit(long sequence, MessageDispositionChangeListener listener)
+                                {
+                                    listeners.add(listener);
+                                }
+                            });
                 }
-
             }
+        }
 
+        // Listeners are invoked outside the lock since they acknowledge or release messages
+        for (MessageDispositionChangeListener listener : listeners)
+        {
+            action.performAction(listener);
         }
     }
 
     public void removeDispositionListener(Method method)                               
     {
-        _messageDispositionListenerMap.remove(method.getId());
+        synchronized (_messageDispositionListeners)
+        {
+            _messageDispositionListeners.remove(toSequence(method.getId()));
+        }
     }
 
     public void onClose()
     {
         _transaction.rollback();
-        for(MessageDispositionChangeListener listener : _messageDispositionListenerMap.values())
+        final List<MessageDispositionChangeListener> listeners = new ArrayList<MessageDispositionChangeListener>();
+        synchronized (_messageDispositionListeners)
+        {
+            _messageDispositionListeners.removeRange(Long.MIN_VALUE, Long.MAX_VALUE,
+                    new DeliveryTagRing.Visitor<MessageDispositionChangeListener>()
+                    {
+                        public void visit(long sequence, MessageDispositionChangeListener listener)
+                        {
+                            listeners.add(listener);
+                        }
+                    });
+        }
+        for(MessageDispositionChangeListener listener : listeners)
         {
             listener.onRelease();
         }
-        _messageDispositionListenerMap.clear();
 
         getConfigStore().removeConfiguredObject(this);
 
@@ -531,6 +548,11 @@ public class ServerSession extends Session implements AuthorizationHolder, Sessi
         _taskList.remove(task);
     }
 
+    public PublishAuthorisationCache getPublishAuthorisations()
+    {
+        return _publishAuthorisations;
+    }
+
     public WeakReference<Session> getReference()
      {
          return _reference;
@@ -264,7 +264,8 @@ public class ServerSessionDelegate extends SessionDelegate
 
         MessageMetaData_0_10 messageMetaData = new MessageMetaData_0_10(xfr);
         
-        if (!getVirtualHost(ssn).getSecurityManager().authorisePublish(messageMetaData.isImmediate(), messageMetaData.getRoutingKey(), exchange.getName()))
+        if (!getVirtualHost(ssn).getSecurityManager().authorisePublish(messageMetaData.isImmediate(), messageMetaData.getRoutingKey(), exchange.getName(),
+                                                                       ((ServerSession) ssn).getPublishAuthorisations()))
         {
             ExecutionErrorCode errorCode = ExecutionErrorCode.UNAUTHORIZED_ACCESS;
             String description = "Permission denied: exchange-name '" + exchange.getName() + "'";
@@ -829,6 +829,19 @@ public class FailureObservingAndesContextStore implements AndesContextStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Slot, String> getSlotAssignmentsByQueueName(String queueName) throws AndesException {
+        try {
+            return wrappedAndesContextStoreInstance.getSlotAssignmentsByQueueName(queueName);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1094,7 +1107,7 @@ public class FailureObservingAndesContextStore implements AndesContextStore {
      * {@inheritDoc}
      */
     public void storeClusterNotification(List<String> clusterNodes, String originatedNode, String artifactType, String
-            clusterNotificationType, String notification, String description) throws AndesException {
+            clusterNotificationType, byte[] notification, String description) throws AndesException {
         try {
             wrappedAndesContextStoreInstance.storeClusterNotification(clusterNodes, originatedNode,
                     artifactType, clusterNotificationType, notification, description);
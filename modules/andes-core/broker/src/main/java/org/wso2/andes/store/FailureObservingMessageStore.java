@@ -126,6 +126,19 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stageMessages(String stagingQueueName, List<AndesMessage> messageList) throws AndesException {
+        try {
+            wrappedInstance.stageMessages(stagingQueueName, messageList);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -209,6 +222,33 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteMessageMetadataInRange(final String storageQueueName, long firstMsgId, long lastMsgId)
+            throws AndesException {
+        try {
+            return wrappedInstance.deleteMessageMetadataInRange(storageQueueName, firstMsgId, lastMsgId);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long reclaimSharedContent(long lastSharedContentID, int batchSize) throws AndesException {
+        try {
+            return wrappedInstance.reclaimSharedContent(lastSharedContentID, batchSize);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -349,6 +389,21 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteDLCMessagesForQueueInRange(String storageQueueName, String dlcQueueName, long firstMsgId,
+            long lastMsgId) throws AndesException {
+        try {
+            return wrappedInstance.deleteDLCMessagesForQueueInRange(storageQueueName, dlcQueueName, firstMsgId,
+                    lastMsgId);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -375,6 +430,20 @@ public class FailureObservingMessageStore implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getExpiringMessages(long lowerBoundMessageID, long expiryTimeFrom,
+                                                          long expiryTimeTo, int limit) throws AndesException {
+        try {
+            return wrappedInstance.getExpiringMessages(lowerBoundMessageID, expiryTimeFrom, expiryTimeTo, limit);
+        } catch (AndesStoreUnavailableException exception) {
+            notifyFailures(exception);
+            throw exception;
+        }
+    }
+
 
     /**
      * {@inheritDoc}
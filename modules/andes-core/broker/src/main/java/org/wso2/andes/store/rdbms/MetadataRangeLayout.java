@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.wso2.andes.configuration.util.ConfigurationProperties;
+import org.wso2.andes.kernel.AndesException;
+
+/**
+ * Describes how message metadata is laid out in MB_METADATA.
+ * <p>
+ * In the shared layout metadata of all queues lives in a single table and queue scans read from a given message id
+ * onwards through the shared indexes. In the range partitioned layout MB_METADATA is expected to be partitioned by
+ * message id ranges of a fixed width (i.e. PARTITION BY RANGE on MESSAGE_ID) with the QUEUE_ID, DLC_QUEUE_ID,
+ * MESSAGE_ID index local to each partition. Queue scans are then issued one range at a time so that each statement
+ * touches a single partition, and a fully acknowledged id range of a queue can be removed with a single DELETE.
+ * </p>
+ * <p>
+ * Message ids are time based, hence a range corresponds to a window of publish time and old ranges stop receiving
+ * inserts once the window has passed.
+ * </p>
+ */
+final class MetadataRangeLayout {
+
+    /**
+     * Width of a message id range. Zero for the shared layout
+     */
+    private final long rangeSize;
+
+    /**
+     * Create layout with the given range width
+     *
+     * @param rangeSize width of a message id range, zero or less selects the shared layout
+     */
+    MetadataRangeLayout(long rangeSize) {
+        this.rangeSize = Math.max(0, rangeSize);
+    }
+
+    /**
+     * Create the layout configured for the message store
+     *
+     * @param connectionProperties message store properties
+     * @return {@link MetadataRangeLayout}
+     * @throws AndesException if the configured range size is not a number
+     */
+    static MetadataRangeLayout fromProperties(ConfigurationProperties connectionProperties) throws AndesException {
+        String value = connectionProperties.getProperty(RDBMSConstants.PROP_METADATA_RANGE_SIZE);
+        if (null == value || value.trim().isEmpty()) {
+            return new MetadataRangeLayout(0);
+        }
+
+        try {
+            return new MetadataRangeLayout(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new AndesException("Invalid value " + value + " for message store property "
+                    + RDBMSConstants.PROP_METADATA_RANGE_SIZE, e);
+        }
+    }
+
+    /**
+     * @return true if MB_METADATA is range partitioned
+     */
+    boolean isPartitioned() {
+        return rangeSize > 0;
+    }
+
+    /**
+     * @return width of a message id range
+     */
+    long getRangeSize() {
+        return rangeSize;
+    }
+
+    /**
+     * Last message id of the range the given message id belongs to
+     *
+     * @param messageId message id, should not be negative
+     * @return last message id of the range
+     */
+    long getRangeEnd(long messageId) {
+        long rangeStart = messageId - (messageId % rangeSize);
+        if (rangeStart > Long.MAX_VALUE - rangeSize) {
+            return Long.MAX_VALUE;
+        }
+        return rangeStart + rangeSize - 1;
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.wso2.andes.store.rdbms;
 
+import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Logger;
 import org.wso2.andes.configuration.util.ConfigurationProperties;
 import org.wso2.andes.kernel.AndesBinding;
@@ -35,6 +36,7 @@ import org.wso2.andes.server.cluster.NodeHeartBeatData;
 import org.wso2.andes.server.cluster.coordination.rdbms.MembershipEvent;
 import org.wso2.andes.server.cluster.coordination.rdbms.MembershipEventType;
 import org.wso2.andes.server.cluster.coordination.ClusterNotification;
+import org.wso2.andes.server.cluster.coordination.ClusterNotificationCodec;
 import org.wso2.andes.store.AndesDataIntegrityViolationException;
 import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.MetricManager;
@@ -47,6 +49,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -1838,6 +1841,43 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Slot, String> getSlotAssignmentsByQueueName(String queueName) throws AndesException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        Map<Slot, String> slotAssignments = new LinkedHashMap<>();
+
+        try {
+            connection = getConnection();
+
+            preparedStatement =
+                    connection.prepareStatement(RDBMSConstants.PS_SELECT_SLOT_ASSIGNMENTS_BY_QUEUE_NAME);
+            preparedStatement.setString(1, queueName);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                Slot slot = new Slot(SlotState.getById(resultSet.getInt(RDBMSConstants.SLOT_STATE)));
+                slot.setStartMessageId(resultSet.getLong(RDBMSConstants.START_MESSAGE_ID));
+                slot.setEndMessageId(resultSet.getLong(RDBMSConstants.END_MESSAGE_ID));
+                slot.setStorageQueueName(resultSet.getString(RDBMSConstants.STORAGE_QUEUE_NAME));
+                slotAssignments.put(slot, resultSet.getString(RDBMSConstants.ASSIGNED_NODE_ID));
+            }
+            return slotAssignments;
+        } catch (SQLException e) {
+            String errMsg =
+                    RDBMSConstants.TASK_GET_SLOT_ASSIGNMENTS_BY_QUEUE_NAME + " queueName: " + queueName;
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while " + errMsg, e);
+        } finally {
+            close(resultSet, RDBMSConstants.TASK_GET_SLOT_ASSIGNMENTS_BY_QUEUE_NAME);
+            close(preparedStatement, RDBMSConstants.TASK_GET_SLOT_ASSIGNMENTS_BY_QUEUE_NAME);
+            close(connection, RDBMSConstants.TASK_GET_SLOT_ASSIGNMENTS_BY_QUEUE_NAME);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -2563,12 +2603,14 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
      */
     @Override
     public void storeClusterNotification(List<String> clusterNodes, String originatedNode, String notifiedArtifact,
-                                         String clusterNotificationType, String notification, String description)
+                                         String clusterNotificationType, byte[] notification, String description)
             throws AndesException {
 
         Connection connection = null;
         PreparedStatement storeMembershipEventPreparedStatement = null;
-        String task = "Storing cluster notification: " + notification + " of type: " + clusterNotificationType;
+        String task = "Storing cluster notification: " + description + " of type: " + clusterNotificationType;
+        // Event details column is a character column, hence the binary frame is stored Base64 encoded
+        String encodedNotification = new String(Base64.encodeBase64(notification));
         try {
             connection = getConnection();
             storeMembershipEventPreparedStatement =
@@ -2579,7 +2621,7 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
                 storeMembershipEventPreparedStatement.setString(2, originatedNode);
                 storeMembershipEventPreparedStatement.setString(3, notifiedArtifact);
                 storeMembershipEventPreparedStatement.setString(4, clusterNotificationType);
-                storeMembershipEventPreparedStatement.setString(5, notification);
+                storeMembershipEventPreparedStatement.setString(5, encodedNotification);
                 storeMembershipEventPreparedStatement.setString(6, description);
                 storeMembershipEventPreparedStatement.addBatch();
             }
@@ -2589,7 +2631,7 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
         } catch (SQLException e) {
             rollback(connection, task);
             throw rdbmsStoreUtils.convertSQLException(
-                    "Error cluster notification: " + notification + " with change type: " + clusterNotificationType, e);
+                    "Error cluster notification: " + description + " with change type: " + clusterNotificationType, e);
         } finally {
             close(storeMembershipEventPreparedStatement, task);
             close(connection, task);
@@ -2616,8 +2658,19 @@ public class RDBMSAndesContextStoreImpl implements AndesContextStore {
             resultSet = preparedStatement.executeQuery();
 
             while (resultSet.next()) {
+                // Notifications without an artifact (DB sync requests) could be read back as null. Notifications
+                // stored by nodes of earlier versions carry the artifact as a string rather than a Base64 frame
+                String eventDetails = resultSet.getString(RDBMSConstants.EVENT_DETAILS);
+                byte[] encodedObject;
+                if (null == eventDetails) {
+                    encodedObject = new byte[0];
+                } else if (ClusterNotificationCodec.isLegacyString(eventDetails)) {
+                    encodedObject = ClusterNotificationCodec.fromLegacyString(eventDetails);
+                } else {
+                    encodedObject = Base64.decodeBase64(eventDetails.getBytes());
+                }
                 ClusterNotification notification = new ClusterNotification(
-                        resultSet.getString(RDBMSConstants.EVENT_DETAILS),
+                        encodedObject,
                         resultSet.getString(RDBMSConstants.EVENT_ARTIFACT),
                         resultSet.getString(RDBMSConstants.EVENT_TYPE),
                         resultSet.getString(RDBMSConstants.EVENT_DESCRIPTION),
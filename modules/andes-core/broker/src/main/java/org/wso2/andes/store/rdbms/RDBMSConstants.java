@@ -80,6 +80,19 @@ public class RDBMSConstants {
 
     protected static final String TRANSACTION_ROLLBACK_ERROR_SQL_STATE_CLASSES = "transactionRollbackSQLStateClasses";
 
+    /**
+     * Configuration name used to enable the range partitioned metadata layout. Value is the width of a message id
+     * range, i.e the span of message ids held by one partition of MB_METADATA. Zero or absence of the property
+     * selects the shared layout.
+     * <p>
+     * configuration is configured in broker.xml,
+     * <ul>
+     * <li>persistence/messageStore/</li>
+     * </ul>
+     * </p>
+     */
+    protected static final String PROP_METADATA_RANGE_SIZE = "metadataRangeSize";
+
     // Message Store tables
     protected static final String CONTENT_TABLE = "MB_CONTENT";
     protected static final String METADATA_TABLE = "MB_METADATA";
@@ -90,6 +103,18 @@ public class RDBMSConstants {
     protected static final String RETAINED_CONTENT_TABLE = "MB_RETAINED_CONTENT";
 
 
+    /**
+     * Storage queue under which content shared by messages routed to several queues is stored. Metadata of a shared
+     * content row holds the ids of the messages referring to it. No subscriber is bound to this queue.
+     */
+    protected static final String SHARED_CONTENT_QUEUE = "AndesSharedContentQueue";
+
+    /**
+     * Content offset of the row that refers a message to its shared content. Content of the row is the shared
+     * content id.
+     */
+    protected static final int SHARED_CONTENT_REFERENCE_OFFSET = -1;
+
     // Message Store table columns
     protected static final String MESSAGE_ID = "MESSAGE_ID";
     protected static final String QUEUE_ID = "QUEUE_ID";
@@ -180,6 +205,28 @@ public class RDBMSConstants {
             + MSG_OFFSET + ","
             + MESSAGE_CONTENT + ") VALUES (?, ?, ?)";
 
+    /**
+     * Copies content staged under a staged message id to a published message id. Used only when messages of a commit
+     * are stored one at a time after the batch failed, content is copied within the database.
+     */
+    protected static final String PS_COPY_STAGED_MESSAGE_CONTENT =
+            "INSERT INTO " + CONTENT_TABLE + "("
+            + MESSAGE_ID + ","
+            + MSG_OFFSET + ","
+            + MESSAGE_CONTENT + ")"
+            + " SELECT ?," + MSG_OFFSET + "," + MESSAGE_CONTENT
+            + " FROM " + CONTENT_TABLE
+            + " WHERE " + MESSAGE_ID + "=?";
+
+    /**
+     * Turns a staged message into shared content of the messages published from it. Content stays under the staged
+     * message id, hence commit does not write the content of staged messages again.
+     */
+    protected static final String PS_CONVERT_STAGED_MESSAGE =
+            "UPDATE " + METADATA_TABLE
+            + " SET " + QUEUE_ID + "=?," + METADATA + "=?"
+            + " WHERE " + MESSAGE_ID + "=?";
+
     protected static final String PS_RETRIEVE_MESSAGE_PART =
             "SELECT " + MESSAGE_CONTENT
             + " FROM " + CONTENT_TABLE
@@ -298,6 +345,23 @@ public class RDBMSConstants {
             + " AND " + DLC_QUEUE_ID + "=-1"
             + " ORDER BY " + MESSAGE_ID;
 
+    protected static final String PS_SELECT_MESSAGE_IDS_RANGE_FROM_QUEUE =
+            "SELECT " + MESSAGE_ID
+            + " FROM " + METADATA_TABLE
+            + " WHERE " + QUEUE_ID + "=?"
+            + " AND " + DLC_QUEUE_ID + "=-1"
+            + " AND " + MESSAGE_ID + " BETWEEN ? AND ?"
+            + " ORDER BY " + MESSAGE_ID;
+
+    protected static final String PS_ALIAS_FOR_MIN_MESSAGE_ID = "minMessageId";
+
+    protected static final String PS_SELECT_NEXT_MESSAGE_ID_FROM_QUEUE =
+            "SELECT MIN(" + MESSAGE_ID + ") AS " + PS_ALIAS_FOR_MIN_MESSAGE_ID
+            + " FROM " + METADATA_TABLE
+            + " WHERE " + QUEUE_ID + "=?"
+            + " AND " + DLC_QUEUE_ID + "=-1"
+            + " AND " + MESSAGE_ID + ">=?";
+
     protected static final String PS_SELECT_METADATA_IN_DLC_FOR_QUEUE =
             "SELECT " + MESSAGE_ID + "," + METADATA
             + " FROM " + METADATA_TABLE
@@ -333,6 +397,30 @@ public class RDBMSConstants {
             "DELETE  FROM " + METADATA_TABLE
             + " WHERE " + MESSAGE_ID + "=?";
 
+    protected static final String PS_DELETE_METADATA_RANGE_FROM_QUEUE =
+            "DELETE  FROM " + METADATA_TABLE
+            + " WHERE " + QUEUE_ID + "=?"
+            + " AND " + DLC_QUEUE_ID + "=-1"
+            + " AND " + MESSAGE_ID + " BETWEEN ? AND ?";
+
+    protected static final String PS_DELETE_EXPIRY_DATA_RANGE_FROM_QUEUE =
+            "DELETE  FROM " + EXPIRATION_TABLE
+            + " WHERE " + DESTINATION_QUEUE + "=?"
+            + " AND " + DLC_QUEUE_ID + "=-1"
+            + " AND " + MESSAGE_ID + " BETWEEN ? AND ?";
+
+    protected static final String PS_DELETE_EXPIRY_DATA_RANGE_FROM_QUEUE_IN_DLC =
+            "DELETE  FROM " + EXPIRATION_TABLE
+            + " WHERE " + DESTINATION_QUEUE + "=?"
+            + " AND " + DLC_QUEUE_ID + "=?"
+            + " AND " + MESSAGE_ID + " BETWEEN ? AND ?";
+
+    protected static final String PS_DELETE_METADATA_RANGE_FROM_QUEUE_IN_DLC =
+            "DELETE  FROM " + METADATA_TABLE
+            + " WHERE " + QUEUE_ID + "=?"
+            + " AND " + DLC_QUEUE_ID + "=?"
+            + " AND " + MESSAGE_ID + " BETWEEN ? AND ?";
+
     protected static final String PS_CLEAR_QUEUE_FROM_METADATA =
             "DELETE  FROM " + METADATA_TABLE
             + " WHERE " + QUEUE_ID + "=?";
@@ -353,6 +441,14 @@ public class RDBMSConstants {
             + " WHERE " + EXPIRATION_TIME + "<?"
             + " AND " + DLC_QUEUE_ID + " != -1";
 
+    protected static final String PS_SELECT_EXPIRING_MESSAGES =
+            "SELECT " + MESSAGE_ID + "," + EXPIRATION_TIME + "," + DESTINATION_QUEUE
+            + " FROM " + EXPIRATION_TABLE
+            + " WHERE " + MESSAGE_ID + ">=?"
+            + " AND " + EXPIRATION_TIME + ">=?"
+            + " AND " + EXPIRATION_TIME + "<?"
+            + " ORDER BY " + MESSAGE_ID;
+
 
     protected static final String PS_SELECT_QUEUE_ID =
             "SELECT " + QUEUE_ID
@@ -676,6 +772,16 @@ public class RDBMSConstants {
             + " WHERE " + STORAGE_QUEUE_NAME + " =?"
             + " ORDER BY " + SLOT_ID;
 
+    /**
+     * Prepared statement for selecting all slots of a queue along with the assigned node
+     */
+    protected static final String PS_SELECT_SLOT_ASSIGNMENTS_BY_QUEUE_NAME =
+            "SELECT " + START_MESSAGE_ID + "," + END_MESSAGE_ID + "," + STORAGE_QUEUE_NAME + "," + SLOT_STATE + ","
+            + ASSIGNED_NODE_ID
+            + " FROM " + SLOT_TABLE
+            + " WHERE " + STORAGE_QUEUE_NAME + " =?"
+            + " ORDER BY " + SLOT_ID;
+
     protected static final String PS_SELECT_UNASSIGNED_SLOT =
             "SELECT " + START_MESSAGE_ID + "," + END_MESSAGE_ID + "," + STORAGE_QUEUE_NAME
             + " FROM " + SLOT_TABLE
@@ -1054,6 +1160,9 @@ public class RDBMSConstants {
     protected static final String TASK_ADDING_METADATA = "adding metadata.";
     protected static final String TASK_ADDING_MESSAGE = "adding message.";
     protected static final String TASK_ADDING_MESSAGES = "adding messages";
+    protected static final String TASK_STAGING_MESSAGES = "staging transaction messages";
+    protected static final String TASK_DISCARDING_STAGED_MESSAGES = "discarding staged transaction messages";
+    protected static final String TASK_RECLAIMING_SHARED_CONTENT = "reclaiming shared message content";
     protected static final String TASK_DELETING_MESSAGES = "deleting messages";
     protected static final String TASK_MOVING_METADATA_TO_DLC = "moving message metadata to dlc.";
 
@@ -1079,7 +1188,11 @@ public class RDBMSConstants {
                                                                                 + "queue. ";
     protected static final String TASK_DELETING_FROM_EXPIRY_TABLE = "deleting from expiry table.";
     protected static final String TASK_DELETING_METADATA_FROM_QUEUE = "deleting metadata from queue. ";
+    protected static final String TASK_DELETING_METADATA_RANGE_FROM_QUEUE = "deleting metadata within a range "
+                                                                            + "from queue. ";
     protected static final String TASK_DELETING_MESSAGE_FROM_DLC = "deleting message from dlc. ";
+    protected static final String TASK_DELETING_METADATA_RANGE_FROM_QUEUE_IN_DLC = "deleting metadata within a range "
+                                                                                   + "from dlc for queue. ";
     protected static final String TASK_CLEARING_DLC_QUEUE = "clearing dlc queue. " ;
     protected static final String TASK_RESETTING_MESSAGE_COUNTER = "Resetting message counter for queue";
     protected static final String TASK_RETRIEVING_EXPIRED_MESSAGES = "retrieving expired messages.";
@@ -1146,6 +1259,7 @@ public class RDBMSConstants {
     protected static final String TASK_GET_MESSAGE_IDS = "getting message ids";
     protected static final String TASK_GET_ASSIGNED_SLOTS_BY_NODE_ID = "getting assigned slots by node id";
     protected static final String TASK_GET_ALL_SLOTS_BY_QUEUE_NAME = "getting all slots by queue name";
+    protected static final String TASK_GET_SLOT_ASSIGNMENTS_BY_QUEUE_NAME = "getting slot assignments by queue name";
     protected static final String TASK_GET_OVERLAPPED_SLOT = "getting overlapped slot";
     protected static final String TASK_GET_ALL_QUEUES = "getting all queues";
     protected static final String TASK_GET_ALL_QUEUES_IN_SUBMITTED_SLOTS = "getting all queues in submitted slots";
@@ -45,6 +45,7 @@ import org.wso2.carbon.metrics.manager.Level;
 import org.wso2.carbon.metrics.manager.MetricManager;
 import org.wso2.carbon.metrics.manager.Timer.Context;
 
+import java.nio.ByteBuffer;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -52,13 +53,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import static org.wso2.andes.store.rdbms.RDBMSConstants.CONTENT_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_CONTENT;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MESSAGE_ID;
+import static org.wso2.andes.store.rdbms.RDBMSConstants.METADATA_TABLE;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.MSG_OFFSET;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_EXPIRY_DATA;
 import static org.wso2.andes.store.rdbms.RDBMSConstants.PS_INSERT_MESSAGE_PART;
@@ -90,13 +94,20 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     private AndesMessageCache messageCache;
 
     /**
-     * Partially created prepared statement to retrieve content of multiple messages using IN operator
-     * this will be completed on the fly when the request comes
+     * Statement to retrieve content of multiple messages using IN operator. The parameter list is
+     * normalised to a few fixed sizes so that the same statements are reused by the database
      */
-    private static final String PS_SELECT_CONTENT_PART =
+    private static final VariableArityStatement PS_SELECT_CONTENT_PART = new VariableArityStatement("selectContent",
             "SELECT " + MESSAGE_CONTENT + ", " + MESSAGE_ID + ", " + MSG_OFFSET +
                     " FROM " + CONTENT_TABLE +
-                    " WHERE " + MESSAGE_ID + " IN (";
+                    " WHERE " + MESSAGE_ID + " IN (", ")");
+
+    /**
+     * Statement to find which of the given message ids still have metadata in the store
+     */
+    private static final VariableArityStatement PS_SELECT_EXISTING_MESSAGE_IDS = new VariableArityStatement(
+            "selectExistingMessageIds",
+            "SELECT " + MESSAGE_ID + " FROM " + METADATA_TABLE + " WHERE " + MESSAGE_ID + " IN (", ")");
 
     /**
      * The cache which holds the queue mappings(queue name to queue id) in memory
@@ -104,6 +115,11 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     private LoadingCache<String, Integer> queueMappings;
 
+    /**
+     * Layout of MB_METADATA. Decides whether queue scans are issued one message id range at a time
+     */
+    private MetadataRangeLayout metadataRangeLayout;
+
     /**
      * {@inheritDoc}
      */
@@ -115,6 +131,11 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         // read data source name from config and use
         this.rdbmsConnection.initialize(connectionProperties);
         this.rdbmsStoreUtils = new RDBMSStoreUtils(connectionProperties);
+        this.metadataRangeLayout = MetadataRangeLayout.fromProperties(connectionProperties);
+        if (metadataRangeLayout.isPartitioned()) {
+            log.info("Message store uses range partitioned metadata layout with range size "
+                    + metadataRangeLayout.getRangeSize());
+        }
 
         this.messageCache = (new MessageCacheFactory()).create();
         initializeQueueMappingCache();
@@ -253,6 +274,21 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
             if (results.next()) {
                 messagePart = createMessagePart(results, messageId, offsetValue);
+            } else if (offsetValue != RDBMSConstants.SHARED_CONTENT_REFERENCE_OFFSET) {
+                // Message may refer to shared content
+                results.close();
+                preparedStatement.setInt(2, RDBMSConstants.SHARED_CONTENT_REFERENCE_OFFSET);
+                results = preparedStatement.executeQuery();
+                if (results.next()) {
+                    long sharedContentID = ByteBuffer.wrap(results.getBytes(MESSAGE_CONTENT)).getLong();
+                    results.close();
+                    preparedStatement.setLong(1, sharedContentID);
+                    preparedStatement.setInt(2, offsetValue);
+                    results = preparedStatement.executeQuery();
+                    if (results.next()) {
+                        messagePart = createMessagePart(results, messageId, offsetValue);
+                    }
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils.convertSQLException("Error occurred while retrieving message content from DB" +
@@ -282,6 +318,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
             if (!messageIDList.isEmpty()) {
                 fillContentFromStorage(messageIDList, contentList);
+                resolveSharedContent(contentList);
             }
 
         } finally {
@@ -302,28 +339,43 @@ public class RDBMSMessageStoreImpl implements MessageStore {
     private void fillContentFromStorage(LongArrayList messageIDList,
             LongObjectHashMap<List<AndesMessagePart>> contentList) throws AndesException {
         Connection connection = null;
-        PreparedStatement preparedStatement = null;
+        // Statements prepared on this connection, one per shape. A shape is reused for consecutive id chunks
+        Map<Integer, PreparedStatement> preparedStatements = new HashMap<>();
         ResultSet resultSet = null;
         Context contextRead = MetricManager.timer(Level.INFO, MetricsConstants.DB_READ).start();
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(getSelectContentPreparedStmt(messageIDList.size()));
-            for (int mesageIDCounter = 0; mesageIDCounter < messageIDList.size(); mesageIDCounter++) {
-                preparedStatement.setLong(mesageIDCounter + 1, messageIDList.get(mesageIDCounter));
-            }
-
-            resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                long messageID = resultSet.getLong(MESSAGE_ID);
-                int offset = resultSet.getInt(MSG_OFFSET);
-                List<AndesMessagePart> partList = contentList.get(messageID);
-                if (null == partList) {
-                    partList = new ArrayList<>();
-                    contentList.put(messageID, partList);
+            int messageIDIndex = 0;
+            while (messageIDIndex < messageIDList.size()) {
+                int parameterCount = VariableArityStatement.getParameterCount(messageIDList.size() - messageIDIndex);
+                PreparedStatement preparedStatement = preparedStatements.get(parameterCount);
+                if (null == preparedStatement) {
+                    preparedStatement = PS_SELECT_CONTENT_PART.prepare(connection, parameterCount);
+                    preparedStatements.put(parameterCount, preparedStatement);
+                }
+                messageIDIndex = messageIDIndex
+                        + VariableArityStatement.bind(preparedStatement, parameterCount, messageIDList, messageIDIndex);
+
+                Context executionContext = PS_SELECT_CONTENT_PART.startExecution(parameterCount);
+                try {
+                    resultSet = preparedStatement.executeQuery();
+                    while (resultSet.next()) {
+                        long messageID = resultSet.getLong(MESSAGE_ID);
+                        int offset = resultSet.getInt(MSG_OFFSET);
+                        List<AndesMessagePart> partList = contentList.get(messageID);
+                        if (null == partList) {
+                            partList = new ArrayList<>();
+                            contentList.put(messageID, partList);
+                        }
+                        AndesMessagePart msgPart = createMessagePart(resultSet, messageID, offset);
+                        partList.add(msgPart);
+                    }
+                } finally {
+                    executionContext.stop();
+                    close(resultSet, TASK_RETRIEVING_CONTENT_FOR_MESSAGES);
+                    resultSet = null;
                 }
-                AndesMessagePart msgPart = createMessagePart(resultSet, messageID, offset);
-                partList.add(msgPart);
             }
 
         } catch (SQLException e) {
@@ -331,7 +383,63 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                     messageIDList.size() + " messages ", e);
         } finally {
             contextRead.stop();
-            close(connection, preparedStatement, resultSet, TASK_RETRIEVING_CONTENT_FOR_MESSAGES);
+            for (PreparedStatement preparedStatement : preparedStatements.values()) {
+                close(preparedStatement, TASK_RETRIEVING_CONTENT_FOR_MESSAGES);
+            }
+            close(connection, TASK_RETRIEVING_CONTENT_FOR_MESSAGES);
+        }
+    }
+
+    /**
+     * Replace references to shared content in the retrieved content with the shared content. Content shared by
+     * several messages in the list is read once and the parts refer to the same data.
+     *
+     * @param contentList content retrieved from the database by message id
+     * @throws AndesException an error
+     */
+    private void resolveSharedContent(LongObjectHashMap<List<AndesMessagePart>> contentList) throws AndesException {
+        Map<Long, LongArrayList> referringMessageIDs = new HashMap<>();
+        for (List<AndesMessagePart> partList : contentList.values()) {
+            // A message referring to shared content has only the reference row
+            if (partList.size() == 1
+                    && partList.get(0).getOffset() == RDBMSConstants.SHARED_CONTENT_REFERENCE_OFFSET) {
+                AndesMessagePart reference = partList.get(0);
+                long sharedContentID = ByteBuffer.wrap(reference.getData()).getLong();
+                LongArrayList messageIDs = referringMessageIDs.get(sharedContentID);
+                if (null == messageIDs) {
+                    messageIDs = new LongArrayList();
+                    referringMessageIDs.put(sharedContentID, messageIDs);
+                }
+                messageIDs.add(reference.getMessageID());
+            }
+        }
+
+        if (referringMessageIDs.isEmpty()) {
+            return;
+        }
+
+        LongArrayList sharedContentIDs = new LongArrayList(referringMessageIDs.size());
+        for (Long sharedContentID : referringMessageIDs.keySet()) {
+            sharedContentIDs.add(sharedContentID);
+        }
+        LongObjectHashMap<List<AndesMessagePart>> sharedContent = new LongObjectHashMap<>(sharedContentIDs.size());
+        fillContentFromStorage(sharedContentIDs, sharedContent);
+
+        for (Map.Entry<Long, LongArrayList> entry : referringMessageIDs.entrySet()) {
+            List<AndesMessagePart> sharedParts = sharedContent.get(entry.getKey());
+            LongArrayList messageIDs = entry.getValue();
+            for (int i = 0; i < messageIDs.size(); i++) {
+                long messageID = messageIDs.get(i);
+                if (null == sharedParts) {
+                    contentList.remove(messageID);
+                    continue;
+                }
+                List<AndesMessagePart> partList = new ArrayList<>(sharedParts.size());
+                for (AndesMessagePart sharedPart : sharedParts) {
+                    partList.add(sharedPart.shallowCopy(messageID));
+                }
+                contentList.put(messageID, partList);
+            }
         }
     }
 
@@ -346,24 +454,6 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         return messagePart;
     }
 
-    /**
-     * Create a prepared statement with given number of ? values set to IN operator
-     *
-     * @param messageCount number of messages that content need to be retrieved from.
-     *                     CONDITION: messageCount > 0
-     * @return Prepared Statement
-     */
-    private String getSelectContentPreparedStmt(int messageCount) {
-
-        StringBuilder stmtBuilder = new StringBuilder(PS_SELECT_CONTENT_PART);
-        for (int i = 0; i < messageCount - 1; i++) {
-            stmtBuilder.append("?,");
-        }
-
-        stmtBuilder.append("?)");
-        return stmtBuilder.toString();
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -373,6 +463,8 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         PreparedStatement storeMetadataPS = null;
         PreparedStatement storeContentPS = null;
         PreparedStatement storeExpiryMetadataPS = null;
+        PreparedStatement convertStagedMessagePS = null;
+        Map<Long, LongArrayList> stagedContentReferences = getStagedContentReferences(messageList);
 
         try {
 
@@ -380,6 +472,9 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             storeMetadataPS = connection.prepareStatement(PS_INSERT_METADATA);
             storeContentPS = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
             storeExpiryMetadataPS = connection.prepareStatement(PS_INSERT_EXPIRY_DATA);
+            convertStagedMessagePS = connection.prepareStatement(RDBMSConstants.PS_CONVERT_STAGED_MESSAGE);
+
+            Map<Long, LongArrayList> sharedContentReferences = getSharedContentReferences(messageList);
 
             for (AndesMessage message : messageList) {
 
@@ -389,13 +484,36 @@ public class RDBMSMessageStoreImpl implements MessageStore {
                     addExpiryTableEntryToBatch(storeExpiryMetadataPS, message.getMetadata());
                 }
 
-                for (AndesMessagePart messagePart : message.getContentChunkList()) {
-                    addContentToBatch(storeContentPS, messagePart);
+                if (message.isContentShared()) {
+                    // Content is written once, along with the first message referring to it
+                    LongArrayList referringMessageIDs = sharedContentReferences.remove(message.getSharedContentID());
+                    if (null != referringMessageIDs) {
+                        addSharedContentToBatch(storeMetadataPS, storeContentPS, message, referringMessageIDs);
+                    }
+                    addSharedContentReferenceToBatch(storeContentPS, message.getMetadata().getMessageID(),
+                            message.getSharedContentID());
+                } else if (message.isContentStaged()) {
+                    // Staged content stays where it is, the message refers to it the same way as to shared content
+                    addSharedContentReferenceToBatch(storeContentPS, message.getMetadata().getMessageID(),
+                            message.getStagedMessageID());
+                } else {
+                    for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                        addContentToBatch(storeContentPS, messagePart);
+                    }
                 }
             }
 
+            // Staged messages become shared content of the messages referring to them. Only their metadata is
+            // updated, the staged content is not written again.
+            for (Map.Entry<Long, LongArrayList> entry : stagedContentReferences.entrySet()) {
+                addStagedMessageConversionToBatch(convertStagedMessagePS, entry.getKey(), entry.getValue());
+            }
+
             storeMetadataPS.executeBatch();
             storeContentPS.executeBatch();
+            if (!stagedContentReferences.isEmpty()) {
+                convertStagedMessagePS.executeBatch();
+            }
             storeExpiryMetadataPS.executeBatch();
             connection.commit();
 
@@ -404,10 +522,15 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             // database.
             addToCache(messageList);
         } catch (BatchUpdateException bue) {
-            // If adding some of the messages failed, add them individually
+            rollback(connection, RDBMSConstants.TASK_ADDING_METADATA);
+            // If adding some of the messages failed, add them individually. Messages stored individually keep a
+            // copy of the content each, as there is no shared content row they could refer to.
             for (AndesMessage message : messageList) {
                 storeMessage(message);
             }
+            if (!stagedContentReferences.isEmpty()) {
+                deleteMessages(new ArrayList<>(stagedContentReferences.keySet()));
+            }
         } catch (AndesException e) {
             rollback(connection, RDBMSConstants.TASK_ADDING_METADATA);
             throw e;
@@ -418,10 +541,196 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             close(storeExpiryMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGES);
             close(storeMetadataPS, RDBMSConstants.TASK_ADDING_MESSAGES);
             close(storeContentPS, RDBMSConstants.TASK_ADDING_MESSAGES);
+            close(convertStagedMessagePS, RDBMSConstants.TASK_ADDING_MESSAGES);
             close(connection, RDBMSConstants.TASK_ADDING_MESSAGES);
         }
     }
 
+    /**
+     * Group ids of the messages sharing content by their shared content id
+     *
+     * @param messageList messages to be stored
+     * @return referring message ids by shared content id
+     */
+    private Map<Long, LongArrayList> getSharedContentReferences(List<AndesMessage> messageList) {
+        Map<Long, LongArrayList> sharedContentReferences = new HashMap<>();
+        for (AndesMessage message : messageList) {
+            if (message.isContentShared()) {
+                LongArrayList referringMessageIDs = sharedContentReferences.get(message.getSharedContentID());
+                if (null == referringMessageIDs) {
+                    referringMessageIDs = new LongArrayList();
+                    sharedContentReferences.put(message.getSharedContentID(), referringMessageIDs);
+                }
+                referringMessageIDs.add(message.getMetadata().getMessageID());
+            }
+        }
+        return sharedContentReferences;
+    }
+
+    /**
+     * Group ids of the messages with staged content by their staged message id
+     *
+     * @param messageList messages to be stored
+     * @return referring message ids by staged message id
+     */
+    private Map<Long, LongArrayList> getStagedContentReferences(List<AndesMessage> messageList) {
+        Map<Long, LongArrayList> stagedContentReferences = new HashMap<>();
+        for (AndesMessage message : messageList) {
+            if (message.isContentStaged()) {
+                LongArrayList referringMessageIDs = stagedContentReferences.get(message.getStagedMessageID());
+                if (null == referringMessageIDs) {
+                    referringMessageIDs = new LongArrayList();
+                    stagedContentReferences.put(message.getStagedMessageID(), referringMessageIDs);
+                }
+                referringMessageIDs.add(message.getMetadata().getMessageID());
+            }
+        }
+        return stagedContentReferences;
+    }
+
+    /**
+     * Adds the shared content of a message to the provided prepared statement batches. Shared content is stored
+     * under {@link RDBMSConstants#SHARED_CONTENT_QUEUE} using the shared content id, with the ids of the referring
+     * messages as its metadata. The foreign key of the content table then keeps the content for as long as the
+     * shared content row exists.
+     *
+     * @param storeMetadataPS     prepared statement for storing metadata
+     * @param storeContentPS      prepared statement for storing message content
+     * @param message             message carrying the content to be shared
+     * @param referringMessageIDs ids of the messages referring to the content
+     * @throws SQLException
+     * @throws AndesException
+     */
+    private void addSharedContentToBatch(PreparedStatement storeMetadataPS, PreparedStatement storeContentPS,
+            AndesMessage message, LongArrayList referringMessageIDs) throws SQLException, AndesException {
+        long sharedContentID = message.getSharedContentID();
+
+        storeMetadataPS.setLong(1, sharedContentID);
+        storeMetadataPS.setInt(2, getCachedQueueID(RDBMSConstants.SHARED_CONTENT_QUEUE));
+        storeMetadataPS.setBytes(3, encodeSharedContentReferences(referringMessageIDs));
+        storeMetadataPS.addBatch();
+
+        for (AndesMessagePart messagePart : message.getContentChunkList()) {
+            storeContentPS.setLong(1, sharedContentID);
+            storeContentPS.setInt(2, messagePart.getOffset());
+            storeContentPS.setBytes(3, messagePart.getData());
+            storeContentPS.addBatch();
+        }
+    }
+
+    /**
+     * Adds moving a staged message to {@link RDBMSConstants#SHARED_CONTENT_QUEUE}, with the ids of the messages
+     * referring to its content as metadata, to the provided prepared statement batch. The staged message is then
+     * kept and reclaimed like any other shared content.
+     *
+     * @param convertStagedMessagePS prepared statement for converting staged messages
+     * @param stagedMessageID        id of the staged message
+     * @param referringMessageIDs    ids of the messages referring to the staged content
+     * @throws SQLException
+     * @throws AndesException
+     */
+    private void addStagedMessageConversionToBatch(PreparedStatement convertStagedMessagePS, long stagedMessageID,
+            LongArrayList referringMessageIDs) throws SQLException, AndesException {
+        convertStagedMessagePS.setInt(1, getCachedQueueID(RDBMSConstants.SHARED_CONTENT_QUEUE));
+        convertStagedMessagePS.setBytes(2, encodeSharedContentReferences(referringMessageIDs));
+        convertStagedMessagePS.setLong(3, stagedMessageID);
+        convertStagedMessagePS.addBatch();
+    }
+
+    /**
+     * Encode the ids of the messages referring to a shared content as the metadata of the shared content row
+     *
+     * @param referringMessageIDs ids of the referring messages
+     * @return encoded message ids
+     */
+    private byte[] encodeSharedContentReferences(LongArrayList referringMessageIDs) {
+        ByteBuffer references = ByteBuffer.allocate(referringMessageIDs.size() * Long.SIZE / Byte.SIZE);
+        for (int i = 0; i < referringMessageIDs.size(); i++) {
+            references.putLong(referringMessageIDs.get(i));
+        }
+        return references.array();
+    }
+
+    /**
+     * Adds the row referring a message to its shared content to the provided prepared statement batch
+     *
+     * @param storeContentPS  prepared statement for storing message content
+     * @param messageID       id of the message referring to the content
+     * @param sharedContentID id the content is stored under
+     * @throws SQLException
+     */
+    private void addSharedContentReferenceToBatch(PreparedStatement storeContentPS, long messageID,
+            long sharedContentID) throws SQLException {
+        storeContentPS.setLong(1, messageID);
+        storeContentPS.setInt(2, RDBMSConstants.SHARED_CONTENT_REFERENCE_OFFSET);
+        storeContentPS.setBytes(3, ByteBuffer.allocate(Long.SIZE / Byte.SIZE).putLong(sharedContentID).array());
+        storeContentPS.addBatch();
+    }
+
+    /**
+     * Adds copying the staged content of a message to its published message id, to the provided prepared
+     * statements batch.
+     *
+     * @param preparedStatement Prepared statement for copying staged content
+     * @param message           message with staged content
+     * @throws SQLException
+     */
+    private void addStagedContentToBatch(PreparedStatement preparedStatement, AndesMessage message)
+            throws SQLException {
+        preparedStatement.setLong(1, message.getMetadata().getMessageID());
+        preparedStatement.setLong(2, message.getStagedMessageID());
+        preparedStatement.addBatch();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Staged messages are stored under the staging queue using their staged message ids. They are not added to the
+     * message cache.
+     */
+    @Override
+    public void stageMessages(String stagingQueueName, List<AndesMessage> messageList) throws AndesException {
+        Connection connection = null;
+        PreparedStatement storeMetadataPS = null;
+        PreparedStatement storeContentPS = null;
+        Context contextWrite = MetricManager.timer(Level.INFO, MetricsConstants.DB_WRITE).start();
+
+        try {
+            connection = getConnection();
+            storeMetadataPS = connection.prepareStatement(PS_INSERT_METADATA);
+            storeContentPS = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
+            int stagingQueueID = getCachedQueueID(stagingQueueName);
+
+            for (AndesMessage message : messageList) {
+                long stagedMessageID = message.getStagedMessageID();
+
+                storeMetadataPS.setLong(1, stagedMessageID);
+                storeMetadataPS.setInt(2, stagingQueueID);
+                storeMetadataPS.setBytes(3, message.getMetadata().getMetadata());
+                storeMetadataPS.addBatch();
+
+                for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                    storeContentPS.setLong(1, stagedMessageID);
+                    storeContentPS.setInt(2, messagePart.getOffset());
+                    storeContentPS.setBytes(3, messagePart.getData());
+                    storeContentPS.addBatch();
+                }
+            }
+
+            storeMetadataPS.executeBatch();
+            storeContentPS.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_STAGING_MESSAGES);
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while staging transaction messages ", e);
+        } finally {
+            contextWrite.stop();
+            close(storeMetadataPS, RDBMSConstants.TASK_STAGING_MESSAGES);
+            close(storeContentPS, RDBMSConstants.TASK_STAGING_MESSAGES);
+            close(connection, RDBMSConstants.TASK_STAGING_MESSAGES);
+        }
+    }
+
     /**
      * Store a given Andes message to the database and the cache
      *
@@ -438,15 +747,23 @@ public class RDBMSMessageStoreImpl implements MessageStore {
             connection = getConnection();
             storeMetadataPS = connection.prepareStatement(PS_INSERT_METADATA);
             storeExpiryMetadataPS = connection.prepareStatement(PS_INSERT_EXPIRY_DATA);
-            storeContentPS = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
+            if (message.isContentStaged()) {
+                storeContentPS = connection.prepareStatement(RDBMSConstants.PS_COPY_STAGED_MESSAGE_CONTENT);
+            } else {
+                storeContentPS = connection.prepareStatement(PS_INSERT_MESSAGE_PART);
+            }
 
             AndesMessageMetadata metadata = message.getMetadata();
             storeMetadataPS.setLong(1, metadata.getMessageID());
             storeMetadataPS.setInt(2, getCachedQueueID(metadata.getStorageQueueName()));
             storeMetadataPS.setBytes(3, metadata.getMetadata());
 
-            for (AndesMessagePart messagePart : message.getContentChunkList()) {
-                addContentToBatch(storeContentPS, messagePart);
+            if (message.isContentStaged()) {
+                addStagedContentToBatch(storeContentPS, message);
+            } else {
+                for (AndesMessagePart messagePart : message.getContentChunkList()) {
+                    addContentToBatch(storeContentPS, messagePart);
+                }
             }
             if(metadata.isExpirationDefined()){
                 storeExpiryMetadataPS.setLong(1, metadata.getMessageID());
@@ -938,22 +1255,47 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_MESSAGE_IDS_FROM_QUEUE);
-            preparedStatement.setLong(1, firstMsgId - 1);
-            preparedStatement.setInt(2, getCachedQueueID(storageQueueName));
+            int queueID = getCachedQueueID(storageQueueName);
 
-            results = preparedStatement.executeQuery();
-            int resultCount = 0;
-            while (results.next()) {
+            if (metadataRangeLayout.isPartitioned()) {
+                preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_MESSAGE_IDS_RANGE_FROM_QUEUE);
+                long rangeStart = getNextMessageIdOfQueue(connection, queueID, firstMsgId);
 
-                if (resultCount == count) {
-                    break;
+                // Read range by range, skipping ranges without messages for the queue
+                while (rangeStart >= 0 && mdList.size() < count) {
+                    long rangeEnd = metadataRangeLayout.getRangeEnd(rangeStart);
+                    preparedStatement.setInt(1, queueID);
+                    preparedStatement.setLong(2, rangeStart);
+                    preparedStatement.setLong(3, rangeEnd);
+
+                    results = preparedStatement.executeQuery();
+                    while (results.next() && mdList.size() < count) {
+                        mdList.add(results.getLong(RDBMSConstants.MESSAGE_ID));
+                    }
+                    close(results, RDBMSConstants.TASK_RETRIEVING_NEXT_N_IDS_FROM_QUEUE);
+                    results = null;
+
+                    rangeStart = (rangeEnd == Long.MAX_VALUE) ? -1
+                            : getNextMessageIdOfQueue(connection, queueID, rangeEnd + 1);
                 }
+            } else {
+                preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_MESSAGE_IDS_FROM_QUEUE);
+                preparedStatement.setLong(1, firstMsgId - 1);
+                preparedStatement.setInt(2, queueID);
 
-                long messageId = results.getLong(RDBMSConstants.MESSAGE_ID);
+                results = preparedStatement.executeQuery();
+                int resultCount = 0;
+                while (results.next()) {
 
-                mdList.add(messageId);
-                resultCount++;
+                    if (resultCount == count) {
+                        break;
+                    }
+
+                    long messageId = results.getLong(RDBMSConstants.MESSAGE_ID);
+
+                    mdList.add(messageId);
+                    resultCount++;
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils.convertSQLException("error occurred while retrieving message ids from queue ", e);
@@ -983,23 +1325,51 @@ public class RDBMSMessageStoreImpl implements MessageStore {
 
         try {
             connection = getConnection();
-            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE);
-            preparedStatement.setLong(1, firstMsgId - 1);
-            preparedStatement.setInt(2, getCachedQueueID(storageQueueName));
+            int queueID = getCachedQueueID(storageQueueName);
 
-            results = preparedStatement.executeQuery();
-            int resultCount = 0;
-            while (results.next()) {
+            if (metadataRangeLayout.isPartitioned()) {
+                preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_RANGE_FROM_QUEUE);
+                long rangeStart = getNextMessageIdOfQueue(connection, queueID, firstMsgId);
+
+                // Read range by range, skipping ranges without messages for the queue
+                while (rangeStart >= 0 && mdList.size() < count) {
+                    long rangeEnd = metadataRangeLayout.getRangeEnd(rangeStart);
+                    preparedStatement.setInt(1, queueID);
+                    preparedStatement.setLong(2, rangeStart);
+                    preparedStatement.setLong(3, rangeEnd);
+
+                    results = preparedStatement.executeQuery();
+                    while (results.next() && mdList.size() < count) {
+                        AndesMessageMetadata md = new AndesMessageMetadata(results.getLong(RDBMSConstants.MESSAGE_ID),
+                                results.getBytes(RDBMSConstants.METADATA), true);
+                        md.setStorageQueueName(storageQueueName);
+                        mdList.add(md);
+                    }
+                    close(results, RDBMSConstants.TASK_RETRIEVING_NEXT_N_METADATA_FROM_QUEUE);
+                    results = null;
 
-                if (resultCount == count) {
-                    break;
+                    rangeStart = (rangeEnd == Long.MAX_VALUE) ? -1
+                            : getNextMessageIdOfQueue(connection, queueID, rangeEnd + 1);
                 }
+            } else {
+                preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE);
+                preparedStatement.setLong(1, firstMsgId - 1);
+                preparedStatement.setInt(2, queueID);
 
-                AndesMessageMetadata md = new AndesMessageMetadata(results.getLong(RDBMSConstants.MESSAGE_ID),
-                        results.getBytes(RDBMSConstants.METADATA), true);
-                md.setStorageQueueName(storageQueueName);
-                mdList.add(md);
-                resultCount++;
+                results = preparedStatement.executeQuery();
+                int resultCount = 0;
+                while (results.next()) {
+
+                    if (resultCount == count) {
+                        break;
+                    }
+
+                    AndesMessageMetadata md = new AndesMessageMetadata(results.getLong(RDBMSConstants.MESSAGE_ID),
+                            results.getBytes(RDBMSConstants.METADATA), true);
+                    md.setStorageQueueName(storageQueueName);
+                    mdList.add(md);
+                    resultCount++;
+                }
             }
         } catch (SQLException e) {
             throw rdbmsStoreUtils
@@ -1012,6 +1382,40 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         return mdList;
     }
 
+    /**
+     * Find the first message id of a queue starting from a given message id. Used to skip message id ranges
+     * which hold no messages for the queue in the range partitioned layout.
+     *
+     * @param connection    connection to use
+     * @param queueID       id of the queue
+     * @param fromMessageId message id to start from, inclusive
+     * @return first message id of the queue greater than or equal to fromMessageId, or -1 if there is none
+     * @throws SQLException
+     */
+    private long getNextMessageIdOfQueue(Connection connection, int queueID, long fromMessageId)
+            throws SQLException {
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        long nextMessageId = -1;
+        try {
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_NEXT_MESSAGE_ID_FROM_QUEUE);
+            preparedStatement.setInt(1, queueID);
+            preparedStatement.setLong(2, Math.max(0, fromMessageId));
+
+            resultSet = preparedStatement.executeQuery();
+            if (resultSet.next()) {
+                long messageId = resultSet.getLong(RDBMSConstants.PS_ALIAS_FOR_MIN_MESSAGE_ID);
+                if (!resultSet.wasNull()) {
+                    nextMessageId = messageId;
+                }
+            }
+        } finally {
+            close(resultSet, RDBMSConstants.TASK_RETRIEVING_NEXT_N_IDS_FROM_QUEUE);
+            close(preparedStatement, RDBMSConstants.TASK_RETRIEVING_NEXT_N_IDS_FROM_QUEUE);
+        }
+        return nextMessageId;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1146,6 +1550,93 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteMessageMetadataInRange(final String storageQueueName, long firstMsgId, long lastMsgId)
+            throws AndesException {
+
+        Connection connection = null;
+        int deletedCount;
+
+        Context contextWrite = MetricManager.timer(Level.INFO, MetricsConstants.DB_WRITE).start();
+
+        try {
+            int queueID = getCachedQueueID(storageQueueName);
+            LongArrayList messageIDsToRemoveFromCache = new LongArrayList();
+
+            connection = getConnection();
+            deletedCount = deleteMessageMetadataInRange(connection, queueID, storageQueueName, firstMsgId, lastMsgId,
+                    messageIDsToRemoveFromCache);
+            connection.commit();
+            removeFromCache(messageIDsToRemoveFromCache);
+
+            if (log.isDebugEnabled()) {
+                log.debug(deletedCount + " messages removed from destination " + storageQueueName
+                        + " in message id range " + firstMsgId + " - " + lastMsgId);
+            }
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+            throw rdbmsStoreUtils.convertSQLException("error occurred while deleting messages in range "
+                    + firstMsgId + " - " + lastMsgId + " from queue " + storageQueueName, e);
+        } finally {
+            contextWrite.stop();
+            close(connection, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+        }
+        return deletedCount;
+    }
+
+    /**
+     * Delete messages of a queue within a message id range along with their expiry data, without committing
+     *
+     * @param connection        connection to use
+     * @param queueID           id of the queue
+     * @param storageQueueName  name of the queue, expiry data refers to the queue by name
+     * @param firstMsgId        first message id of the range, inclusive
+     * @param lastMsgId         last message id of the range, inclusive
+     * @param deletedMessageIDs ids of the messages deleted are added to this list
+     * @return number of messages deleted
+     * @throws SQLException
+     */
+    int deleteMessageMetadataInRange(Connection connection, int queueID, String storageQueueName, long firstMsgId,
+            long lastMsgId, LongArrayList deletedMessageIDs) throws SQLException {
+        PreparedStatement selectMessageIDsPS = null;
+        PreparedStatement deleteExpiryDataPS = null;
+        PreparedStatement deleteMetadataPS = null;
+        ResultSet resultSet = null;
+
+        try {
+            // Message ids are needed to evict message content from the cache
+            selectMessageIDsPS = connection.prepareStatement(RDBMSConstants.PS_SELECT_MESSAGE_IDS_RANGE_FROM_QUEUE);
+            selectMessageIDsPS.setInt(1, queueID);
+            selectMessageIDsPS.setLong(2, firstMsgId);
+            selectMessageIDsPS.setLong(3, lastMsgId);
+            resultSet = selectMessageIDsPS.executeQuery();
+            while (resultSet.next()) {
+                deletedMessageIDs.add(resultSet.getLong(MESSAGE_ID));
+            }
+
+            deleteExpiryDataPS = connection.prepareStatement(RDBMSConstants.PS_DELETE_EXPIRY_DATA_RANGE_FROM_QUEUE);
+            deleteExpiryDataPS.setString(1, storageQueueName);
+            deleteExpiryDataPS.setLong(2, firstMsgId);
+            deleteExpiryDataPS.setLong(3, lastMsgId);
+            deleteExpiryDataPS.executeUpdate();
+
+            // Content is removed along with metadata due to referential integrity
+            deleteMetadataPS = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_RANGE_FROM_QUEUE);
+            deleteMetadataPS.setInt(1, queueID);
+            deleteMetadataPS.setLong(2, firstMsgId);
+            deleteMetadataPS.setLong(3, lastMsgId);
+            return deleteMetadataPS.executeUpdate();
+        } finally {
+            close(resultSet, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+            close(selectMessageIDsPS, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+            close(deleteExpiryDataPS, RDBMSConstants.TASK_DELETING_FROM_EXPIRY_TABLE);
+            close(deleteMetadataPS, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE + storageQueueName);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1285,6 +1776,86 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteDLCMessagesForQueueInRange(String storageQueueName, String dlcQueueName, long firstMsgId,
+            long lastMsgId) throws AndesException {
+
+        Connection connection = null;
+        int deletedCount;
+
+        Context messageDeletionContext = MetricManager
+                .timer(Level.INFO, MetricsConstants.DELETE_MESSAGE_META_DATA_AND_CONTENT).start();
+        Context contextWrite = MetricManager.timer(Level.INFO, MetricsConstants.DB_WRITE).start();
+
+        try {
+            int queueID = getCachedQueueID(storageQueueName);
+            int dlcQueueID = getCachedQueueID(dlcQueueName);
+
+            connection = getConnection();
+            deletedCount = deleteDLCMessagesForQueueInRange(connection, queueID, dlcQueueID, storageQueueName,
+                    firstMsgId, lastMsgId);
+            connection.commit();
+
+            if (log.isDebugEnabled()) {
+                log.debug(deletedCount + " messages of queue " + storageQueueName + " removed from " + dlcQueueName
+                        + " in message id range " + firstMsgId + " - " + lastMsgId);
+            }
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE_IN_DLC + storageQueueName);
+            throw rdbmsStoreUtils.convertSQLException("error occurred while deleting messages in range "
+                    + firstMsgId + " - " + lastMsgId + " of queue " + storageQueueName + " from dlc", e);
+        } finally {
+            messageDeletionContext.stop();
+            contextWrite.stop();
+            close(connection, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE_IN_DLC + storageQueueName);
+        }
+        return deletedCount;
+    }
+
+    /**
+     * Delete messages of a queue in the dead letter channel within a message id range along with their expiry data,
+     * without committing
+     *
+     * @param connection       connection to use
+     * @param queueID          id of the queue the messages originally belonged to
+     * @param dlcQueueID       id of the dead letter channel queue
+     * @param storageQueueName name of the queue the messages originally belonged to
+     * @param firstMsgId       first message id of the range, inclusive
+     * @param lastMsgId        last message id of the range, inclusive
+     * @return number of messages deleted
+     * @throws SQLException
+     */
+    int deleteDLCMessagesForQueueInRange(Connection connection, int queueID, int dlcQueueID, String storageQueueName,
+            long firstMsgId, long lastMsgId) throws SQLException {
+        PreparedStatement deleteExpiryDataPS = null;
+        PreparedStatement deleteMetadataPS = null;
+
+        try {
+            // Expiry data of a message in the dead letter channel still refers to the queue it belonged to
+            deleteExpiryDataPS = connection.prepareStatement(
+                    RDBMSConstants.PS_DELETE_EXPIRY_DATA_RANGE_FROM_QUEUE_IN_DLC);
+            deleteExpiryDataPS.setString(1, storageQueueName);
+            deleteExpiryDataPS.setInt(2, dlcQueueID);
+            deleteExpiryDataPS.setLong(3, firstMsgId);
+            deleteExpiryDataPS.setLong(4, lastMsgId);
+            deleteExpiryDataPS.executeUpdate();
+
+            // Content is removed along with metadata due to referential integrity
+            deleteMetadataPS = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA_RANGE_FROM_QUEUE_IN_DLC);
+            deleteMetadataPS.setInt(1, queueID);
+            deleteMetadataPS.setInt(2, dlcQueueID);
+            deleteMetadataPS.setLong(3, firstMsgId);
+            deleteMetadataPS.setLong(4, lastMsgId);
+            return deleteMetadataPS.executeUpdate();
+        } finally {
+            close(deleteExpiryDataPS, RDBMSConstants.TASK_DELETING_FROM_EXPIRY_TABLE);
+            close(deleteMetadataPS, RDBMSConstants.TASK_DELETING_METADATA_RANGE_FROM_QUEUE_IN_DLC + storageQueueName);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1350,6 +1921,46 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AndesMessageMetadata> getExpiringMessages(long lowerBoundMessageID, long expiryTimeFrom,
+                                                          long expiryTimeTo, int limit) throws AndesException {
+
+        Connection connection = null;
+        List<AndesMessageMetadata> list = new ArrayList<>();
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        Context contextRead = MetricManager.timer(Level.INFO, MetricsConstants.DB_READ).start();
+
+        try {
+            connection = getConnection();
+
+            preparedStatement = connection.prepareStatement(RDBMSConstants.PS_SELECT_EXPIRING_MESSAGES);
+            preparedStatement.setMaxRows(limit);
+            preparedStatement.setLong(1, lowerBoundMessageID);
+            preparedStatement.setLong(2, expiryTimeFrom);
+            preparedStatement.setLong(3, expiryTimeTo);
+            resultSet = preparedStatement.executeQuery();
+
+            while (resultSet.next()) {
+                AndesMessageMetadata metadata = new AndesMessageMetadata();
+                metadata.setMessageID(resultSet.getLong(RDBMSConstants.MESSAGE_ID));
+                metadata.setExpirationTime(resultSet.getLong(RDBMSConstants.EXPIRATION_TIME));
+                metadata.setStorageQueueName(resultSet.getString(RDBMSConstants.DESTINATION_QUEUE));
+                list.add(metadata);
+            }
+            return list;
+        } catch (SQLException e) {
+            throw rdbmsStoreUtils.convertSQLException("error occurred while retrieving expiring messages.", e);
+        } finally {
+            contextRead.stop();
+            close(connection, preparedStatement, resultSet, RDBMSConstants.TASK_RETRIEVING_EXPIRED_MESSAGES);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1578,6 +2189,142 @@ public class RDBMSMessageStoreImpl implements MessageStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A shared content row is deleted, and its content along with it through the foreign key, once none of the
+     * messages listed in its metadata exists any more.
+     */
+    @Override
+    public long reclaimSharedContent(long lastSharedContentID, int batchSize) throws AndesException {
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            return reclaimSharedContent(connection, getCachedQueueID(RDBMSConstants.SHARED_CONTENT_QUEUE),
+                    lastSharedContentID, batchSize);
+        } catch (SQLException e) {
+            rollback(connection, RDBMSConstants.TASK_RECLAIMING_SHARED_CONTENT);
+            throw rdbmsStoreUtils.convertSQLException("Error occurred while reclaiming shared message content", e);
+        } finally {
+            close(connection, RDBMSConstants.TASK_RECLAIMING_SHARED_CONTENT);
+        }
+    }
+
+    /**
+     * Inspect one batch of shared content rows and delete the ones which are no longer referred to
+     *
+     * @param connection           connection to use
+     * @param sharedContentQueueID id of the queue holding shared content rows
+     * @param lastSharedContentID  shared content id the batch starts after
+     * @param batchSize            maximum number of shared contents to inspect
+     * @return id of the last shared content inspected, 0 if no shared content is left after the batch
+     * @throws SQLException
+     */
+    long reclaimSharedContent(Connection connection, int sharedContentQueueID, long lastSharedContentID,
+            int batchSize) throws SQLException {
+        PreparedStatement selectSharedContentPS = null;
+        PreparedStatement deleteSharedContentPS = null;
+        ResultSet resultSet = null;
+
+        try {
+            // Referring message ids by shared content id
+            Map<Long, LongArrayList> sharedContentReferences = new HashMap<>();
+            selectSharedContentPS = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE);
+            selectSharedContentPS.setMaxRows(batchSize);
+            // Content staged by transactions is shared under negative ids, hence a scan starts below them
+            selectSharedContentPS.setLong(1, 0 == lastSharedContentID ? Long.MIN_VALUE : lastSharedContentID);
+            selectSharedContentPS.setInt(2, sharedContentQueueID);
+            resultSet = selectSharedContentPS.executeQuery();
+            while (resultSet.next()) {
+                lastSharedContentID = resultSet.getLong(MESSAGE_ID);
+                ByteBuffer references = ByteBuffer.wrap(resultSet.getBytes(RDBMSConstants.METADATA));
+                LongArrayList messageIDs = new LongArrayList(references.remaining() * Byte.SIZE / Long.SIZE);
+                while (references.hasRemaining()) {
+                    messageIDs.add(references.getLong());
+                }
+                sharedContentReferences.put(lastSharedContentID, messageIDs);
+            }
+
+            Set<Long> existingMessageIDs = getExistingMessageIDs(connection, sharedContentReferences.values());
+
+            int reclaimedCount = 0;
+            deleteSharedContentPS = connection.prepareStatement(RDBMSConstants.PS_DELETE_METADATA);
+            for (Map.Entry<Long, LongArrayList> entry : sharedContentReferences.entrySet()) {
+                if (!isReferred(entry.getValue(), existingMessageIDs)) {
+                    deleteSharedContentPS.setLong(1, entry.getKey());
+                    deleteSharedContentPS.addBatch();
+                    reclaimedCount++;
+                }
+            }
+            if (reclaimedCount > 0) {
+                deleteSharedContentPS.executeBatch();
+                connection.commit();
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Reclaimed " + reclaimedCount + " of " + sharedContentReferences.size()
+                        + " shared message contents inspected");
+            }
+
+            return sharedContentReferences.size() < batchSize ? 0 : lastSharedContentID;
+        } finally {
+            close(resultSet, RDBMSConstants.TASK_RECLAIMING_SHARED_CONTENT);
+            close(selectSharedContentPS, RDBMSConstants.TASK_RECLAIMING_SHARED_CONTENT);
+            close(deleteSharedContentPS, RDBMSConstants.TASK_RECLAIMING_SHARED_CONTENT);
+        }
+    }
+
+    /**
+     * Find which of the given message ids still have metadata in the store
+     *
+     * @param connection     connection to use
+     * @param messageIDLists message ids to check
+     * @return ids of existing messages
+     * @throws SQLException
+     */
+    private Set<Long> getExistingMessageIDs(Connection connection, Iterable<LongArrayList> messageIDLists)
+            throws SQLException {
+        LongArrayList messageIDs = new LongArrayList();
+        for (LongArrayList messageIDList : messageIDLists) {
+            messageIDs.addAll(messageIDList);
+        }
+
+        Set<Long> existingMessageIDs = new HashSet<>();
+        int messageIDIndex = 0;
+        while (messageIDIndex < messageIDs.size()) {
+            int parameterCount = VariableArityStatement.getParameterCount(messageIDs.size() - messageIDIndex);
+            PreparedStatement preparedStatement = null;
+            ResultSet resultSet = null;
+            try {
+                // Background housekeeping, kept out of the statement metrics of the delivery path
+                preparedStatement = connection.prepareStatement(
+                        PS_SELECT_EXISTING_MESSAGE_IDS.getSql(parameterCount));
+                messageIDIndex = messageIDIndex
+                        + VariableArityStatement.bind(preparedStatement, parameterCount, messageIDs, messageIDIndex);
+                resultSet = preparedStatement.executeQuery();
+                while (resultSet.next()) {
+                    existingMessageIDs.add(resultSet.getLong(MESSAGE_ID));
+                }
+            } finally {
+                close(resultSet, RDBMSConstants.TASK_RECLAIMING_SHARED_CONTENT);
+                close(preparedStatement, RDBMSConstants.TASK_RECLAIMING_SHARED_CONTENT);
+            }
+        }
+        return existingMessageIDs;
+    }
+
+    /**
+     * Check whether any of the referring messages still exists
+     */
+    private boolean isReferred(LongArrayList referringMessageIDs, Set<Long> existingMessageIDs) {
+        for (int i = 0; i < referringMessageIDs.size(); i++) {
+            if (existingMessageIDs.contains(referringMessageIDs.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -2275,7 +3022,10 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      * @param message the message
      */
     private void addToCache(AndesMessage message) {
-        messageCache.addToCache(message);
+        // Content of messages published from the staging area is not in memory, it is read from the store
+        if (!message.isContentStaged()) {
+            messageCache.addToCache(message);
+        }
     }
 
     /**
@@ -2285,7 +3035,7 @@ public class RDBMSMessageStoreImpl implements MessageStore {
      */
     private void addToCache(List<AndesMessage> messages) {
         for (AndesMessage message : messages) {
-            messageCache.addToCache(message);
+            addToCache(message);
         }
     }
 
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.wso2.andes.metrics.MetricsConstants;
+import org.wso2.carbon.metrics.manager.Counter;
+import org.wso2.carbon.metrics.manager.Level;
+import org.wso2.carbon.metrics.manager.MetricManager;
+import org.wso2.carbon.metrics.manager.Timer.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * A statement with a variable length list of message id parameters, i.e. a statement with an IN clause.
+ * <p>
+ * Building the statement for the exact number of parameters produces a distinct statement for each batch size,
+ * which has to be parsed and planned by the database and defeats statement caches of the driver and the connection
+ * pool. Instead the number of parameters is rounded up to one of a few shapes (powers of two up to
+ * {@link #MAX_PARAMETER_COUNT}) and the remaining parameters are padded by repeating the last id, which doesn't
+ * change the result of an IN clause. Lists longer than the largest shape should be split by the caller.
+ * </p>
+ * <p>
+ * Prepare counts and execution times are published per shape.
+ * </p>
+ */
+final class VariableArityStatement {
+
+    /**
+     * Maximum number of parameters of a single statement. Should be a power of two
+     */
+    static final int MAX_PARAMETER_COUNT = 256;
+
+    /**
+     * Name of the statement used in metric names
+     */
+    private final String name;
+
+    /**
+     * SQL of each shape, indexed by log2 of the parameter count
+     */
+    private final String[] shapes;
+
+    /**
+     * Create a statement as prefix + "?,?,...,?" + suffix
+     *
+     * @param name   name of the statement used in metric names
+     * @param prefix SQL up to the parameter list
+     * @param suffix SQL after the parameter list
+     */
+    VariableArityStatement(String name, String prefix, String suffix) {
+        this.name = name;
+        this.shapes = new String[Integer.numberOfTrailingZeros(MAX_PARAMETER_COUNT) + 1];
+
+        for (int shape = 0; shape < shapes.length; shape++) {
+            int parameterCount = 1 << shape;
+            StringBuilder sqlBuilder = new StringBuilder(prefix.length() + parameterCount * 2 + suffix.length());
+            sqlBuilder.append(prefix);
+            for (int i = 0; i < parameterCount - 1; i++) {
+                sqlBuilder.append("?,");
+            }
+            sqlBuilder.append('?').append(suffix);
+            shapes[shape] = sqlBuilder.toString();
+        }
+    }
+
+    /**
+     * Number of parameters of the shape used for the given number of ids
+     *
+     * @param idCount number of ids, should be within 1 and {@link #MAX_PARAMETER_COUNT}
+     * @return parameter count of the shape
+     */
+    static int getParameterCount(int idCount) {
+        if (idCount <= 1) {
+            return 1;
+        }
+        return Math.min(Integer.highestOneBit(idCount - 1) << 1, MAX_PARAMETER_COUNT);
+    }
+
+    /**
+     * SQL of the shape with the given number of parameters
+     *
+     * @param parameterCount parameter count returned by {@link #getParameterCount(int)}
+     * @return SQL string
+     */
+    String getSql(int parameterCount) {
+        return shapes[Integer.numberOfTrailingZeros(parameterCount)];
+    }
+
+    /**
+     * Prepare the shape with the given number of parameters
+     *
+     * @param connection     connection to prepare the statement on
+     * @param parameterCount parameter count returned by {@link #getParameterCount(int)}
+     * @return prepared statement
+     * @throws SQLException
+     */
+    PreparedStatement prepare(Connection connection, int parameterCount) throws SQLException {
+        Counter prepareCounter = MetricManager.counter(Level.INFO,
+                MetricsConstants.DB_STATEMENT_PREPARE + name + "." + parameterCount);
+        prepareCounter.inc();
+        return connection.prepareStatement(getSql(parameterCount));
+    }
+
+    /**
+     * Set ids from the given position of the list as the parameters of a statement. Parameters beyond the
+     * available ids are padded with the last id set.
+     *
+     * @param preparedStatement statement prepared for the parameter count
+     * @param parameterCount    parameter count of the statement
+     * @param ids               id list
+     * @param fromIndex         index of the first id to set
+     * @return number of ids set from the list
+     * @throws SQLException
+     */
+    static int bind(PreparedStatement preparedStatement, int parameterCount, LongArrayList ids, int fromIndex)
+            throws SQLException {
+        int idCount = Math.min(parameterCount, ids.size() - fromIndex);
+        for (int i = 0; i < idCount; i++) {
+            preparedStatement.setLong(i + 1, ids.get(fromIndex + i));
+        }
+
+        long lastId = ids.get(fromIndex + idCount - 1);
+        for (int i = idCount; i < parameterCount; i++) {
+            preparedStatement.setLong(i + 1, lastId);
+        }
+        return idCount;
+    }
+
+    /**
+     * Start timing an execution of the shape with the given number of parameters
+     *
+     * @param parameterCount parameter count of the executed statement
+     * @return timer context to be stopped once execution is over
+     */
+    Context startExecution(int parameterCount) {
+        return MetricManager.timer(Level.INFO, MetricsConstants.DB_STATEMENT_EXECUTE + name + "." + parameterCount)
+                .start();
+    }
+}
@@ -25,14 +25,19 @@ import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.DelayQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 
 /**
- * Manage processing of {@link Task}. Holds the {@link TaskHolder} ring and the {@link TaskProcessor} list that
- * process the {@link Task}
+ * Manage processing of {@link Task}. Holds the registered {@link TaskHolder}s and the {@link TaskProcessor} list that
+ * process the {@link Task}s.
+ * <p>
+ * An active task is processed continuously by the processor it is affine to. An idle task is parked until it is
+ * woken up through {@link #wakeUp(String)}, or until its idle delay expires. The idle delay doubles each time the
+ * task is found idle, up to a configured maximum.
+ * </p>
  */
 public final class TaskExecutorService<T extends Task> {
 
@@ -42,9 +47,9 @@ public final class TaskExecutorService<T extends Task> {
     private static Log log = LogFactory.getLog(TaskExecutorService.class);
 
     /**
-     * {@link DelayQueue} used by processors to schedule tasks. Idle task will be processed after a delay
+     * {@link TaskScheduler} used by processors to schedule tasks. Idle tasks are parked until woken up
      */
-    private final DelayQueue<TaskHolder> taskHolderDelayQueue;
+    private final TaskScheduler taskScheduler;
 
     /**
      * Mapping of registered tasks with its task id
@@ -67,9 +72,9 @@ public final class TaskExecutorService<T extends Task> {
     private final Queue<TaskProcessor> taskProcessorQueue;
 
     /**
-     * Executor service to process add remove requests from the editRequestQueue
+     * Executor service to process add remove requests and to wake up parked tasks after their idle delay
      */
-    private final ExecutorService taskUpdateExecutorService;
+    private final ScheduledExecutorService taskUpdateExecutorService;
 
     /**
      * Exception handler implementation defining how to handle the exceptions
@@ -77,27 +82,40 @@ public final class TaskExecutorService<T extends Task> {
     private TaskExceptionHandler taskExceptionHandler;
 
     /**
-     * Delay for processing IDLE tasks in the next iteration
+     * Create a Task manager with a given number of threads to process the tasks. Idle tasks are checked again
+     * after a fixed delay unless they are woken up earlier.
+     *
+     * @param workerCount maximum number of threads spawned to process the tasks
+     * @param idleTaskDelayMillis delay set for processing a task with IDLE {@link org.wso2.andes.task.Task.TaskHint}
+     * @param threadFactory  thread factory to be used for processing the tasks
      */
-    private long idleTaskDelayMillis;
+    public TaskExecutorService(int workerCount, long idleTaskDelayMillis, ThreadFactory threadFactory) {
+        this(workerCount, idleTaskDelayMillis, idleTaskDelayMillis, threadFactory);
+    }
 
     /**
-     * Create a Task manager with a given number of threads to process the tasks
+     * Create a Task manager with a given number of threads to process the tasks. The delay for checking an idle
+     * task again starts at idleTaskDelayMillis and doubles each time the task is found idle, up to
+     * maxIdleTaskDelayMillis. It is reset when the task is woken up or turns out active.
      *
      * @param workerCount maximum number of threads spawned to process the tasks
-     * @param idleTaskDelayMillis delay set for processing a task with IDLE {@link org.wso2.andes.task.Task.TaskHint}
+     * @param idleTaskDelayMillis initial delay set for processing a task with IDLE
+     *                            {@link org.wso2.andes.task.Task.TaskHint}
+     * @param maxIdleTaskDelayMillis maximum delay set for processing a task with IDLE
+     *                               {@link org.wso2.andes.task.Task.TaskHint}
      * @param threadFactory  thread factory to be used for processing the tasks
      */
-    public TaskExecutorService(int workerCount, long idleTaskDelayMillis, ThreadFactory threadFactory) {
+    public TaskExecutorService(int workerCount, long idleTaskDelayMillis, long maxIdleTaskDelayMillis,
+                               ThreadFactory threadFactory) {
 
         taskExecutorPool = Executors.newFixedThreadPool(workerCount, threadFactory);
         this.workerCount = workerCount;
         taskProcessorQueue = new ArrayDeque<>(workerCount);
-        taskUpdateExecutorService = Executors.newSingleThreadExecutor(threadFactory);
+        taskUpdateExecutorService = Executors.newSingleThreadScheduledExecutor(threadFactory);
         taskExceptionHandler = new DefaultExceptionHandler();
-        taskHolderDelayQueue = new DelayQueue<>();
+        taskScheduler = new TaskScheduler(workerCount, idleTaskDelayMillis, maxIdleTaskDelayMillis,
+                taskUpdateExecutorService);
         taskHolderRegistry = new ConcurrentHashMap<>();
-        this.idleTaskDelayMillis = idleTaskDelayMillis;
     }
 
     /**
@@ -126,6 +144,19 @@ public final class TaskExecutorService<T extends Task> {
         taskUpdateExecutorService.submit(new RemoveRequest(id));
     }
 
+    /**
+     * Notify that the {@link Task} with the given task id may have work to do. If the task is parked it is
+     * scheduled for processing immediately. Otherwise it is processed at least once more after this call.
+     *
+     * @param id ID of the {@link Task} to be woken up
+     */
+    public void wakeUp(String id) {
+        TaskHolder<T> taskHolder = taskHolderRegistry.get(id);
+        if (null != taskHolder) {
+            taskScheduler.wakeUp(taskHolder);
+        }
+    }
+
     /**
      * Returns the {@link Task} implementation relevant to the task id
      *
@@ -144,7 +175,7 @@ public final class TaskExecutorService<T extends Task> {
      * Stop processing the tasks
      */
     public synchronized void stop() {
-        log.info("Stopping task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Stopping task manager. Task count " + taskHolderRegistry.size());
         for (TaskProcessor taskProcessor : taskProcessorQueue) {
             taskProcessor.deactivate();
         }
@@ -155,11 +186,10 @@ public final class TaskExecutorService<T extends Task> {
      * Start processing the tasks
      */
     public synchronized void start() {
-        log.info("Starting task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Starting task manager. Task count " + taskHolderRegistry.size());
 
         for (int i = 0; i < workerCount; i++) {
-            TaskProcessor taskProcessor =
-                    new TaskProcessor(taskHolderDelayQueue, taskExceptionHandler, idleTaskDelayMillis);
+            TaskProcessor taskProcessor = new TaskProcessor(i, taskScheduler, taskExceptionHandler);
             taskProcessorQueue.add(taskProcessor);
             taskExecutorPool.submit(taskProcessor);
         }
@@ -191,13 +221,12 @@ public final class TaskExecutorService<T extends Task> {
                 if (taskHolderRegistry.containsKey(task.getId())) {
                     return;
                 }
-                TaskHolder<T> taskHolder = new TaskHolder<>(task);
-                task.onAdd(); // Invoke task callback before adding the task to the taskHolderDelayQueue
-                              // to be processed
+                TaskHolder<T> taskHolder = taskScheduler.createHolder(task);
+                task.onAdd(); // Invoke task callback before scheduling the task to be processed
                 taskHolderRegistry.put(task.getId(), taskHolder);
-                taskHolderDelayQueue.add(taskHolder);
+                taskScheduler.wakeUp(taskHolder);
                 if (log.isDebugEnabled()) {
-                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderRegistry.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while adding Task " + task, e);
@@ -221,8 +250,9 @@ public final class TaskExecutorService<T extends Task> {
             try {
                 TaskHolder taskHolder = taskHolderRegistry.remove(id);
                 taskHolder.disableProcessing(); // disable processors from processing the task
+                taskScheduler.wakeUp(taskHolder); // a processor picks the task up and completes the removal
                 if (log.isDebugEnabled()) {
-                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderRegistry.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while removing task. Task id " + id, e);
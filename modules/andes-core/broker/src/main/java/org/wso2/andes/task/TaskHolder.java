@@ -18,15 +18,39 @@
 
 package org.wso2.andes.task;
 
-import java.util.concurrent.Delayed;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Holds a single {@link Task}. Has references to the next and previous {@link TaskHolder} of the {@link TaskHolder}
- * ring
+ * Holds a single {@link Task} and its scheduling state within the {@link TaskScheduler}
  */
-final class TaskHolder<T extends Task> implements Delayed {
+final class TaskHolder<T extends Task> {
+
+    /**
+     * Task is idle and not in any worker queue. It will be scheduled by an event or by the idle timer
+     */
+    static final int PARKED = 0;
+
+    /**
+     * Task is in a worker queue waiting to be processed
+     */
+    static final int SCHEDULED = 1;
+
+    /**
+     * Task is being processed by a {@link TaskProcessor}
+     */
+    static final int RUNNING = 2;
+
+    /**
+     * Task is being processed and an event arrived meanwhile. Task will be scheduled again even if it turns out idle
+     */
+    static final int RUNNING_NOTIFIED = 3;
+
+    /**
+     * Task is removed and will not be scheduled again
+     */
+    static final int REMOVED = 4;
 
     /**
      * {@link Task} implementation related to this {@link TaskHolder}
@@ -44,20 +68,40 @@ final class TaskHolder<T extends Task> implements Delayed {
     private AtomicBoolean isProcessing;
 
     /**
-     * Task expiry time in milliseconds. Expired messages will be picked from the
-     * {@link java.util.concurrent.DelayQueue} by the {@link TaskProcessor}s
+     * Scheduling state of the task. One of {@link #PARKED}, {@link #SCHEDULED}, {@link #RUNNING},
+     * {@link #RUNNING_NOTIFIED} or {@link #REMOVED}
+     */
+    private final AtomicInteger state;
+
+    /**
+     * Index of the {@link TaskProcessor} the task is affine to. Task is always queued to this processor, other
+     * processors only steal it when they run out of work.
+     */
+    private final int homeWorker;
+
+    /**
+     * Delay before the task is checked again if it stays idle
+     */
+    private volatile long idleDelayMillis;
+
+    /**
+     * Timer which wakes the task up while it is parked
      */
-    private long expiryTime;
+    private volatile ScheduledFuture<?> idleTimer;
 
     /**
      * Create a {@link TaskHolder} instance with a {@link Task} implementation
      * @param task {@link Task} implementation
+     * @param homeWorker index of the {@link TaskProcessor} the task is affine to
+     * @param idleDelayMillis initial delay before an idle task is checked again
      */
-    TaskHolder(T task) {
+    TaskHolder(T task, int homeWorker, long idleDelayMillis) {
         this.task = task;
         this.isDisabled = new AtomicBoolean(false);
         this.isProcessing = new AtomicBoolean(false);
-        expiryTime = System.currentTimeMillis();
+        this.state = new AtomicInteger(PARKED);
+        this.homeWorker = homeWorker;
+        this.idleDelayMillis = idleDelayMillis;
     }
 
     /**
@@ -128,63 +172,72 @@ final class TaskHolder<T extends Task> implements Delayed {
     }
 
     /**
-     * {@inheritDoc}
+     * Scheduling state of the task
+     * @return {@link AtomicInteger} holding the state
      */
-    @Override
-    public long getDelay(TimeUnit unit) {
-        return unit.convert(expiryTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    AtomicInteger getState() {
+        return state;
     }
 
     /**
-     * Set the expiry time for the {@link Delayed}
-     * @param delay delay
-     * @param timeUnit {@link TimeUnit}
+     * Index of the {@link TaskProcessor} the task is affine to
+     * @return processor index
      */
-    void setDelay(long delay, TimeUnit timeUnit) {
-        this.expiryTime = System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(delay, timeUnit);
+    int getHomeWorker() {
+        return homeWorker;
     }
 
     /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
-     *
-     * {@inheritDoc}
+     * Delay before the task is checked again if it stays idle
+     * @return delay in milliseconds
      */
-    @Override
-    public int compareTo(Delayed delayedObject) {
+    long getIdleDelayMillis() {
+        return idleDelayMillis;
+    }
 
-        int order = Long.compare(expiryTime, ((TaskHolder)delayedObject).expiryTime); // order by expiryTime
-        if (order == 0 ) {
-            order = getId().compareTo(((TaskHolder) delayedObject).getId()); // order by string id
+    /**
+     * Set the delay before the task is checked again if it stays idle
+     * @param idleDelayMillis delay in milliseconds
+     */
+    void setIdleDelayMillis(long idleDelayMillis) {
+        this.idleDelayMillis = idleDelayMillis;
+    }
+
+    /**
+     * Set the timer which wakes up the task while it is parked
+     * @param idleTimer scheduled wake up, null if there is none
+     */
+    void setIdleTimer(ScheduledFuture<?> idleTimer) {
+        this.idleTimer = idleTimer;
+    }
+
+    /**
+     * Cancel the timer which wakes up the task while it is parked, if there is one
+     */
+    void cancelIdleTimer() {
+        ScheduledFuture<?> timer = idleTimer;
+        if (null != timer) {
+            timer.cancel(false);
+            idleTimer = null;
         }
-        return order;
     }
 
     /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
+     * Two {@link TaskHolder}s are equal if the ids of the underlying {@link Task}s are equal
      *
      * {@inheritDoc}
      */
     @Override
     public boolean equals(Object obj) {
-        boolean isEqual;
-        if ( obj instanceof TaskHolder) {
-            isEqual = ((TaskHolder) obj).getId().compareTo(getId()) == 0;
-        } else {
-            isEqual = this.equals(obj);
-        }
-        return isEqual;
+        return obj instanceof TaskHolder && ((TaskHolder) obj).getId().equals(getId());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return getId().hashCode();
     }
 
     /**
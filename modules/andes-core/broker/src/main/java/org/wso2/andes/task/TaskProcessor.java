@@ -22,12 +22,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Process {@link Task} by going through each {@link TaskHolder} in the {@link TaskHolder} ring
+ * Process {@link Task}s scheduled by the {@link TaskScheduler}. Each processor works on the {@link TaskHolder}s
+ * affine to it and steals from other processors when it has nothing to do.
  */
 final class TaskProcessor implements Callable<Boolean> {
 
@@ -37,9 +36,14 @@ final class TaskProcessor implements Callable<Boolean> {
     private static Log log = LogFactory.getLog(TaskProcessor.class);
 
     /**
-     * Reference to {@link TaskHolder} queue
+     * Index of the processor within the {@link TaskScheduler}
      */
-    private DelayQueue<TaskHolder> taskHolderQueue;
+    private final int workerIndex;
+
+    /**
+     * Reference to the {@link TaskScheduler} providing the tasks
+     */
+    private final TaskScheduler taskScheduler;
 
     /**
      * Whether the processor is active or not
@@ -51,16 +55,11 @@ final class TaskProcessor implements Callable<Boolean> {
      */
     private TaskExceptionHandler taskExceptionHandler;
 
-    /**
-     * Delay to be set for the IDLE tasks
-     */
-    private final long idleWaitTimeMillis;
-
-    TaskProcessor(DelayQueue<TaskHolder> taskQueue, TaskExceptionHandler exceptionHandler, long idleWaitTimeMillis) {
+    TaskProcessor(int workerIndex, TaskScheduler taskScheduler, TaskExceptionHandler exceptionHandler) {
         isActive = new AtomicBoolean(false);
+        this.workerIndex = workerIndex;
+        this.taskScheduler = taskScheduler;
         this.taskExceptionHandler = exceptionHandler;
-        this.taskHolderQueue = taskQueue;
-        this.idleWaitTimeMillis = idleWaitTimeMillis;
     }
 
     /**
@@ -68,6 +67,7 @@ final class TaskProcessor implements Callable<Boolean> {
      */
     void deactivate() {
         isActive.set(false);
+        taskScheduler.signal(workerIndex);
     }
 
     @Override
@@ -75,16 +75,16 @@ final class TaskProcessor implements Callable<Boolean> {
 
         if (isActive.compareAndSet(false, true)) {
             if (log.isDebugEnabled()) {
-                log.debug("Task processor started");
+                log.debug("Task processor " + workerIndex + " started");
             }
+            taskScheduler.registerWorker(workerIndex, Thread.currentThread());
             while (isActive.get()) {
                 TaskHolder taskHolder = null;
-                long delay = 0; // No delay
+                Task.TaskHint hint = Task.TaskHint.ACTIVE; // Retry immediately on failure
                 try {
-                    taskHolder = taskHolderQueue.take(); // Wait if queue is empty
-                    Task.TaskHint hint = taskHolder.executeTask();
-                    if (hint == Task.TaskHint.IDLE) {
-                        delay = idleWaitTimeMillis;
+                    taskHolder = taskScheduler.next(workerIndex, isActive); // Wait if there is nothing to process
+                    if (null != taskHolder) {
+                        hint = taskHolder.executeTask();
                     }
                 } catch (Throwable throwable) {
                     String id;
@@ -95,21 +95,19 @@ final class TaskProcessor implements Callable<Boolean> {
                     }
                     taskExceptionHandler.handleException(throwable, id);
                 } finally {
-                    // Disabled Tasks will get removed from the queue
-                    // Put to map if not disabled
+                    // Disabled Tasks will not be scheduled again
                     if(null != taskHolder) {
                         if (taskHolder.isDisabled() ) {
+                            taskScheduler.onTaskRemoved(taskHolder);
                             taskHolder.onRemoveTask();
                         } else {
-                            // Add a delay when adding back to the queue. This ensures the TaskHolder is added to the
-                            // end of the queue. If not TaskHolder will be added to front of the queue
-                            taskHolder.setDelay(delay, TimeUnit.MILLISECONDS);
-                            taskHolderQueue.put(taskHolder);
+                            taskScheduler.onTaskProcessed(taskHolder, hint);
                         }
                     }
                 }
             }
-            log.info("Task processor stopped. Task queue size " + taskHolderQueue.size());
+            log.info("Task processor " + workerIndex + " stopped. Queued task count "
+                    + taskScheduler.queuedTaskCount());
         } else {
             log.error("Task processor is already running ");
             throw new IllegalStateException("Task processor is already running");
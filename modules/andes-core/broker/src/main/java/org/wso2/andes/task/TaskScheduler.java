@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.andes.task;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedules {@link TaskHolder}s to {@link TaskProcessor}s.
+ * <p>
+ * Each processor owns a queue of tasks. A task is always queued to the processor it is affine to, and a processor
+ * which runs out of tasks steals from the tail of the queues of other processors. A task that reports it is idle is
+ * parked, it is not kept in any queue and costs nothing until it is woken up through {@link #wakeUp(TaskHolder)} by
+ * an event related to the task. As a safety net a parked task is also woken up by a timer, the delay of which
+ * doubles every time the task turns out idle, up to a maximum.
+ * </p>
+ */
+final class TaskScheduler {
+
+    /**
+     * Maximum time a processor without any work sleeps before it checks the queues again
+     */
+    private static final long MAX_WORKER_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * State of each processor slot, indexed by processor index
+     */
+    private final Worker[] workers;
+
+    /**
+     * Executor used to wake up parked tasks after a delay
+     */
+    private final ScheduledExecutorService idleTaskTimer;
+
+    /**
+     * Initial delay for checking a parked task again
+     */
+    private final long idleTaskDelayMillis;
+
+    /**
+     * Maximum delay for checking a parked task again
+     */
+    private final long maxIdleTaskDelayMillis;
+
+    /**
+     * Create a scheduler for the given number of processors
+     *
+     * @param workerCount            number of {@link TaskProcessor}s
+     * @param idleTaskDelayMillis    initial delay for checking a parked task again
+     * @param maxIdleTaskDelayMillis maximum delay for checking a parked task again
+     * @param idleTaskTimer          executor used to wake up parked tasks
+     */
+    TaskScheduler(int workerCount, long idleTaskDelayMillis, long maxIdleTaskDelayMillis,
+                  ScheduledExecutorService idleTaskTimer) {
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker();
+        }
+        this.idleTaskDelayMillis = idleTaskDelayMillis;
+        this.maxIdleTaskDelayMillis = Math.max(idleTaskDelayMillis, maxIdleTaskDelayMillis);
+        this.idleTaskTimer = idleTaskTimer;
+    }
+
+    /**
+     * Create a {@link TaskHolder} for the task, affine to a processor selected by the task id
+     *
+     * @param task {@link Task}
+     * @return {@link TaskHolder} in parked state
+     */
+    <T extends Task> TaskHolder<T> createHolder(T task) {
+        int homeWorker = (task.getId().hashCode() & Integer.MAX_VALUE) % workers.length;
+        return new TaskHolder<>(task, homeWorker, idleTaskDelayMillis);
+    }
+
+    /**
+     * Wake up a task due to an event related to the task. A parked task is scheduled immediately and the idle delay
+     * of the task is reset. If the task is running, it will be scheduled again once the current run is over.
+     *
+     * @param taskHolder {@link TaskHolder}
+     */
+    void wakeUp(TaskHolder taskHolder) {
+        taskHolder.setIdleDelayMillis(idleTaskDelayMillis);
+        schedule(taskHolder);
+    }
+
+    /**
+     * Register the thread of a processor so that it can be woken up when there is work
+     *
+     * @param workerIndex index of the processor
+     * @param thread      thread running the processor
+     */
+    void registerWorker(int workerIndex, Thread thread) {
+        workers[workerIndex].thread = thread;
+    }
+
+    /**
+     * Wake up the processor with the given index if it is sleeping
+     *
+     * @param workerIndex index of the processor
+     */
+    void signal(int workerIndex) {
+        Worker worker = workers[workerIndex];
+        Thread thread = worker.thread;
+        if (worker.sleeping && null != thread) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Take the next task to be processed by the given processor. Tasks of the processor are taken first, then
+     * tasks are stolen from other processors. Blocks until there is a task or the processor is deactivated.
+     *
+     * @param workerIndex index of the processor
+     * @param isActive    whether the processor is active
+     * @return {@link TaskHolder} to process or null if the processor is deactivated
+     */
+    TaskHolder next(int workerIndex, AtomicBoolean isActive) {
+        Worker worker = workers[workerIndex];
+        while (isActive.get()) {
+            TaskHolder taskHolder = poll(workerIndex);
+            if (null == taskHolder) {
+                // Announce sleeping before checking again, so that a task queued meanwhile is not missed
+                worker.sleeping = true;
+                taskHolder = poll(workerIndex);
+                if (null == taskHolder) {
+                    LockSupport.parkNanos(this, MAX_WORKER_SLEEP_NANOS);
+                }
+                worker.sleeping = false;
+            }
+
+            if (null != taskHolder) {
+                taskHolder.getState().set(TaskHolder.RUNNING);
+                return taskHolder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reschedule a task after it is processed. An active task is queued again immediately. An idle task is parked
+     * unless it was woken up while running.
+     *
+     * @param taskHolder {@link TaskHolder} processed
+     * @param hint       hint returned by the task
+     */
+    void onTaskProcessed(TaskHolder taskHolder, Task.TaskHint hint) {
+        AtomicInteger state = taskHolder.getState();
+
+        if (Task.TaskHint.ACTIVE == hint) {
+            taskHolder.setIdleDelayMillis(idleTaskDelayMillis);
+            state.set(TaskHolder.SCHEDULED);
+            enqueue(taskHolder);
+        } else if (state.compareAndSet(TaskHolder.RUNNING, TaskHolder.PARKED)) {
+            long delay = taskHolder.getIdleDelayMillis();
+            taskHolder.setIdleDelayMillis(Math.min(delay * 2, maxIdleTaskDelayMillis));
+            taskHolder.setIdleTimer(idleTaskTimer.schedule(new IdleTimeout(taskHolder), delay,
+                    TimeUnit.MILLISECONDS));
+        } else {
+            // Woken up while running
+            state.set(TaskHolder.SCHEDULED);
+            enqueue(taskHolder);
+        }
+    }
+
+    /**
+     * Mark a task as removed. It will not be scheduled again.
+     *
+     * @param taskHolder {@link TaskHolder} removed
+     */
+    void onTaskRemoved(TaskHolder taskHolder) {
+        taskHolder.getState().set(TaskHolder.REMOVED);
+        taskHolder.cancelIdleTimer();
+    }
+
+    /**
+     * Move a task to a processor queue if it is parked, or flag it to be queued again if it is running
+     *
+     * @param taskHolder {@link TaskHolder}
+     */
+    private void schedule(TaskHolder taskHolder) {
+        AtomicInteger state = taskHolder.getState();
+        while (true) {
+            int currentState = state.get();
+            if (TaskHolder.PARKED == currentState) {
+                if (state.compareAndSet(TaskHolder.PARKED, TaskHolder.SCHEDULED)) {
+                    taskHolder.cancelIdleTimer();
+                    enqueue(taskHolder);
+                    return;
+                }
+            } else if (TaskHolder.RUNNING == currentState) {
+                if (state.compareAndSet(TaskHolder.RUNNING, TaskHolder.RUNNING_NOTIFIED)) {
+                    return;
+                }
+            } else {
+                // Already scheduled, already notified or removed
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add a task to the queue of its processor and wake up a processor to take it
+     *
+     * @param taskHolder {@link TaskHolder}
+     */
+    private void enqueue(TaskHolder taskHolder) {
+        int homeWorker = taskHolder.getHomeWorker();
+        workers[homeWorker].tasks.addLast(taskHolder);
+
+        if (workers[homeWorker].sleeping) {
+            signal(homeWorker);
+        } else {
+            // Home processor is busy, let a sleeping processor steal the task
+            for (int i = 0; i < workers.length; i++) {
+                if (workers[i].sleeping) {
+                    signal(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Take a task from the head of the given processor's queue, or steal one from the tail of another
+     * processor's queue
+     *
+     * @param workerIndex index of the processor
+     * @return {@link TaskHolder} or null if there is no queued task
+     */
+    private TaskHolder poll(int workerIndex) {
+        TaskHolder taskHolder = workers[workerIndex].tasks.pollFirst();
+        for (int i = 1; null == taskHolder && i < workers.length; i++) {
+            taskHolder = workers[(workerIndex + i) % workers.length].tasks.pollLast();
+        }
+        return taskHolder;
+    }
+
+    /**
+     * Total number of tasks waiting in processor queues
+     *
+     * @return number of queued tasks
+     */
+    int queuedTaskCount() {
+        int count = 0;
+        for (Worker worker : workers) {
+            count = count + worker.tasks.size();
+        }
+        return count;
+    }
+
+    /**
+     * Queue and sleeping state of a single processor
+     */
+    private static final class Worker {
+
+        /**
+         * Tasks affine to the processor
+         */
+        private final ConcurrentLinkedDeque<TaskHolder> tasks = new ConcurrentLinkedDeque<>();
+
+        /**
+         * Thread currently running the processor
+         */
+        private volatile Thread thread;
+
+        /**
+         * Whether the processor is sleeping due to lack of work
+         */
+        private volatile boolean sleeping;
+    }
+
+    /**
+     * Wakes up a parked task once its idle delay is over. Idle delay is not reset, hence a task that stays idle is
+     * checked less often.
+     */
+    private final class IdleTimeout implements Runnable {
+
+        private final TaskHolder taskHolder;
+
+        IdleTimeout(TaskHolder taskHolder) {
+            this.taskHolder = taskHolder;
+        }
+
+        @Override
+        public void run() {
+            taskHolder.setIdleTimer(null);
+            schedule(taskHolder);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link HierarchicalTimerWheel}
+ */
+public class HierarchicalTimerWheelTest {
+
+    private static final long TICK_DURATION = 100;
+
+    @Test
+    public void testValuesAreReleasedWhenDue() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK_DURATION, 1000);
+        wheel.schedule(1250, "b");
+        wheel.schedule(1100, "a");
+        wheel.schedule(1000 + TICK_DURATION * 64 * 64 * 3, "c");
+
+        assertTrue(wheel.advance(1099).isEmpty());
+        assertEquals(Collections.singletonList("a"), wheel.advance(1100));
+        // Released at the end of the tick the due time falls in
+        assertTrue(wheel.advance(1299).isEmpty());
+        assertEquals(Collections.singletonList("b"), wheel.advance(1300));
+        assertEquals(1, wheel.size());
+
+        assertTrue(wheel.advance(1000 + TICK_DURATION * 64 * 64 * 3 - 1).isEmpty());
+        assertEquals(Collections.singletonList("c"), wheel.advance(1000 + TICK_DURATION * 64 * 64 * 3));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testOverdueValuesAreReleasedOnNextAdvance() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK_DURATION, 5000);
+        wheel.schedule(10, "a");
+        wheel.schedule(5000, "b");
+
+        assertEquals(Arrays.asList("a", "b"), wheel.advance(5000));
+        assertTrue(wheel.isEmpty());
+
+        wheel.schedule(6000, "c");
+        wheel.clear();
+        assertTrue(wheel.advance(7000).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRandomSchedules() {
+        Random random = new Random(37);
+        long now = random.nextInt(1000000);
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(TICK_DURATION, now);
+        List<Long> scheduled = new ArrayList<>();
+        List<Long> pending = new ArrayList<>();
+        List<Long> released = new ArrayList<>();
+
+        for (int round = 0; round < 2000; round++) {
+            for (int i = random.nextInt(5); i > 0; i--) {
+                // Mostly near future, some far ahead across several levels of the wheel
+                long delay = random.nextBoolean() ? random.nextInt(10000) : random.nextInt(100000000);
+                long dueTime = now + delay - 500;
+                wheel.schedule(dueTime, dueTime);
+                scheduled.add(dueTime);
+                pending.add(dueTime);
+            }
+            now = now + random.nextInt(5000);
+            for (Long dueTime : wheel.advance(now)) {
+                assertTrue("Released before due time", dueTime <= now);
+                released.add(dueTime);
+                pending.remove(dueTime);
+            }
+            for (Long dueTime : pending) {
+                assertTrue("Not released at the end of the due tick", dueTime > (now / TICK_DURATION) * TICK_DURATION);
+            }
+        }
+
+        long end = now + 100000000;
+        released.addAll(wheel.advance(end));
+        assertTrue(wheel.isEmpty());
+
+        Collections.sort(scheduled);
+        Collections.sort(released);
+        assertEquals(scheduled, released);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link PriorityDeliveryBuffer}
+ */
+public class PriorityDeliveryBufferTest {
+
+    @Test
+    public void testHigherPriorityMessagesAreDeliveredFirst() {
+        PriorityDeliveryBuffer buffer = new PriorityDeliveryBuffer();
+        buffer.putIfAbsent(message(1, 4));
+        buffer.putIfAbsent(message(2, 4));
+        buffer.putIfAbsent(message(3, 9));
+        buffer.putIfAbsent(message(4, 0));
+        buffer.putIfAbsent(message(5, 9));
+
+        assertEquals(Arrays.asList(3L, 5L, 1L, 2L, 4L), messageIds(buffer));
+    }
+
+    @Test
+    public void testDuplicateMessagesAreNotBuffered() {
+        PriorityDeliveryBuffer buffer = new PriorityDeliveryBuffer();
+        assertTrue(buffer.putIfAbsent(message(1, 4)));
+        assertFalse(buffer.putIfAbsent(message(1, 4)));
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void testRemoveThroughIterator() {
+        PriorityDeliveryBuffer buffer = new PriorityDeliveryBuffer();
+        buffer.putIfAbsent(message(1, 4));
+        buffer.putIfAbsent(message(2, 7));
+        buffer.putIfAbsent(message(3, 4));
+
+        Iterator<DeliverableAndesMetadata> iterator = buffer.values().iterator();
+        iterator.next();
+        // Moves on to the next lane before removing the message from the previous one
+        assertTrue(iterator.hasNext());
+        iterator.remove();
+
+        assertEquals(2, buffer.size());
+        assertEquals(Arrays.asList(1L, 3L), messageIds(buffer));
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.values().isEmpty());
+    }
+
+    private static DeliverableAndesMetadata message(long messageId, int priority) {
+        DeliverableAndesMetadata message = new DeliverableAndesMetadata(null, messageId, null, false);
+        message.setPriority(priority);
+        return message;
+    }
+
+    private static List<Long> messageIds(PriorityDeliveryBuffer buffer) {
+        List<Long> messageIds = new ArrayList<>();
+        for (DeliverableAndesMetadata message : buffer.values()) {
+            messageIds.add(message.getMessageID());
+        }
+        return messageIds;
+    }
+}
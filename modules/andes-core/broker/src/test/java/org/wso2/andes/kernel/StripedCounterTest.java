@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link StripedCounter}
+ */
+public class StripedCounterTest {
+
+    @Test
+    public void testStripeCountIsRoundedToPowerOfTwo() {
+        assertEquals(1, new StripedCounter(1).getStripeCount());
+        assertEquals(8, new StripedCounter(5).getStripeCount());
+        assertEquals(16, new StripedCounter(16).getStripeCount());
+    }
+
+    @Test
+    public void testSumAcrossStripes() {
+        StripedCounter counter = new StripedCounter(4);
+        for (long hint = 0; hint < 100; hint++) {
+            counter.add(hint, 3);
+        }
+        counter.add(7, -50);
+
+        assertEquals(250, counter.sum());
+    }
+
+    @Test
+    public void testAddReturnsValueOfStripe() {
+        StripedCounter counter = new StripedCounter(4);
+
+        assertEquals(3, counter.add(1, 3));
+        assertEquals(5, counter.add(2, 5));
+        assertEquals(7, counter.add(1, 4));
+        assertEquals(4, counter.add(1 + counter.getStripeCount(), -3));
+        assertEquals(9, counter.sum());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final StripedCounter counter = new StripedCounter(8);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final long hint = i;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.add(hint, 2);
+                        counter.add(hint, -1);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80000, counter.sum());
+    }
+}
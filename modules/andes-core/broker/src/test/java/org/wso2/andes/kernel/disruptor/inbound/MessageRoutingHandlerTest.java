@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesContext;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.registry.MessageRouterRegistry;
+import org.wso2.andes.kernel.router.AndesMessageRouter;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.server.ClusterResourceHolder;
+import org.wso2.andes.server.cluster.ClusterManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MessageRoutingHandler}. Events are routed by several handlers concurrently and then passed
+ * through {@link MessagePreProcessor} in ring buffer order, as wired by {@link InboundEventManager}.
+ */
+public class MessageRoutingHandlerTest {
+
+    private static final int ROUTING_HANDLER_COUNT = 3;
+
+    /**
+     * Content of larger messages routed to several queues is shared
+     */
+    private static final int SHARED_CONTENT_THRESHOLD = 10;
+
+    private static final String ROUTER_NAME = "amq.topic";
+
+    private static final String SINGLE_ROUTE = "single";
+
+    private static final String MULTIPLE_ROUTES = "multiple";
+
+    private static final String NO_ROUTE = "none";
+
+    private static final List<String> QUEUE_NAMES = Arrays.asList("queue1", "queue2", "queue3");
+
+    private MessageRouterRegistry previousRouterRegistry;
+
+    private ClusterManager previousClusterManager;
+
+    /**
+     * Names of the threads that routed messages
+     */
+    private Set<String> routingThreads;
+
+    private List<AndesMessageMetadata> ackedMessages;
+
+    @Before
+    public void setUp() throws AndesException {
+        routingThreads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        ackedMessages = Collections.synchronizedList(new ArrayList<AndesMessageMetadata>());
+
+        final Map<String, Set<StorageQueue>> routes = new HashMap<>();
+        Set<StorageQueue> allQueues = new LinkedHashSet<>();
+        for (String queueName : QUEUE_NAMES) {
+            allQueues.add(new StorageQueue(queueName, true, false, null, false, 0L));
+        }
+        routes.put(SINGLE_ROUTE, Collections.singleton(allQueues.iterator().next()));
+        routes.put(MULTIPLE_ROUTES, allQueues);
+        routes.put(NO_ROUTE, Collections.<StorageQueue>emptySet());
+
+        MessageRouterRegistry routerRegistry = new MessageRouterRegistry();
+        routerRegistry.registerMessageRouter(ROUTER_NAME, new AndesMessageRouter(ROUTER_NAME, "topic", false) {
+            @Override
+            public Set<StorageQueue> getMatchingStorageQueues(AndesMessage incomingMessage) {
+                routingThreads.add(Thread.currentThread().getName());
+                return routes.get(incomingMessage.getMetadata().getDestination());
+            }
+
+            @Override
+            public void onBindingQueue(StorageQueue queue) {
+            }
+
+            @Override
+            public void onUnbindingQueue(StorageQueue queue) {
+            }
+        });
+
+        previousRouterRegistry = AndesContext.getInstance().getMessageRouterRegistry();
+        AndesContext.getInstance().setMessageRouterRegistry(routerRegistry);
+        previousClusterManager = ClusterResourceHolder.getInstance().getClusterManager();
+        ClusterResourceHolder.getInstance().setClusterManager(new ClusterManager());
+    }
+
+    @After
+    public void tearDown() {
+        AndesContext.getInstance().setMessageRouterRegistry(previousRouterRegistry);
+        ClusterResourceHolder.getInstance().setClusterManager(previousClusterManager);
+    }
+
+    /**
+     * Messages routed concurrently get ids in ring buffer order. The copies of a message follow the message in the
+     * order of the matching queues, after the shared content id.
+     */
+    @Test
+    public void testMessagesGetIdsInRingOrder() throws Exception {
+        String[] destinations = {SINGLE_ROUTE, MULTIPLE_ROUTES, NO_ROUTE, MULTIPLE_ROUTES};
+        InboundEventContainer[] ring = new InboundEventContainer[60];
+        for (int sequence = 0; sequence < ring.length; sequence++) {
+            int contentLength = (sequence % 3 == 0) ? SHARED_CONTENT_THRESHOLD : 1;
+            ring[sequence] = messageEvent(createMessage(destinations[sequence % destinations.length], contentLength));
+        }
+
+        process(ring);
+
+        assertEquals(ROUTING_HANDLER_COUNT, routingThreads.size());
+        List<Long> assignedIds = new ArrayList<>();
+        for (int sequence = 0; sequence < ring.length; sequence++) {
+            List<AndesMessage> copies = ring[sequence].getMessageList();
+            String destination = destinations[sequence % destinations.length];
+            if (NO_ROUTE.equals(destination)) {
+                assertTrue(copies.isEmpty());
+                assertEquals(1, ring[sequence].getRoutedMessages().size());
+                assignedIds.add(ring[sequence].getRoutedMessages().get(0).getMessage().getMetadata().getMessageID());
+            } else {
+                assertCopiesInQueueOrder(copies, SINGLE_ROUTE.equals(destination) ? 1 : QUEUE_NAMES.size());
+                if (MULTIPLE_ROUTES.equals(destination)) {
+                    assertEquals(sequence % 3 == 0, copies.get(0).getSharedContentID() != 0);
+                }
+                collectIds(copies, assignedIds);
+            }
+        }
+
+        assertAscending(assignedIds);
+        assertEquals(ring.length / destinations.length, ackedMessages.size());
+    }
+
+    /**
+     * Copies made for earlier messages of a transaction are kept when a later message has no routes
+     */
+    @Test
+    public void testTransactionWithMixedRoutes() throws Exception {
+        InboundTransactionEvent transaction = new InboundTransactionEvent(null, null, Integer.MAX_VALUE, null, 1000,
+                null);
+        AndesMessage multipleRoutes = createMessage(MULTIPLE_ROUTES, SHARED_CONTENT_THRESHOLD);
+        AndesMessage noRoute = createMessage(NO_ROUTE, 1);
+        AndesMessage singleRoute = createMessage(SINGLE_ROUTE, SHARED_CONTENT_THRESHOLD);
+        transaction.addMessages(Arrays.asList(multipleRoutes, noRoute, singleRoute));
+
+        InboundEventContainer[] ring = new InboundEventContainer[ROUTING_HANDLER_COUNT * 2];
+        for (int sequence = 0; sequence < ring.length; sequence++) {
+            ring[sequence] = messageEvent(createMessage(MULTIPLE_ROUTES, 1));
+        }
+        // Placed so that the transaction is not routed by the first handler
+        int transactionSequence = ROUTING_HANDLER_COUNT + 1;
+        InboundEventContainer commitEvent = new InboundEventContainer();
+        commitEvent.setMessageList(new UntrackedMessageList());
+        commitEvent.setEventType(InboundEventContainer.Type.TRANSACTION_COMMIT_EVENT);
+        commitEvent.setTransactionEvent(transaction);
+        commitEvent.pubAckHandler = new RecordingPubAckHandler();
+        ring[transactionSequence] = commitEvent;
+
+        process(ring);
+
+        List<AndesMessage> committedMessages = new ArrayList<>(transaction.getQueuedMessages());
+        assertEquals(QUEUE_NAMES.size() + 1, committedMessages.size());
+        assertTrue(multipleRoutes == committedMessages.get(0));
+        assertCopiesInQueueOrder(committedMessages.subList(0, QUEUE_NAMES.size()), QUEUE_NAMES.size());
+        assertTrue(singleRoute == committedMessages.get(QUEUE_NAMES.size()));
+        assertEquals(Collections.singletonList(noRoute.getMetadata()), ackedMessages);
+
+        // Ids follow the order the messages were enqueued in, the dropped message included
+        List<Long> transactionIds = new ArrayList<>();
+        collectIds(committedMessages.subList(0, QUEUE_NAMES.size()), transactionIds);
+        transactionIds.add(noRoute.getMetadata().getMessageID());
+        transactionIds.add(singleRoute.getMetadata().getMessageID());
+        assertAscending(transactionIds);
+
+        // and the ring order across events
+        List<Long> assignedIds = new ArrayList<>();
+        for (int sequence = 0; sequence < ring.length; sequence++) {
+            if (sequence == transactionSequence) {
+                assignedIds.addAll(transactionIds);
+            } else {
+                collectIds(ring[sequence].getMessageList(), assignedIds);
+            }
+        }
+        assertAscending(assignedIds);
+    }
+
+    /**
+     * Pass the events through {@link MessageRoutingHandler}s running concurrently, each seeing every event as with
+     * the Disruptor, and then through a single {@link MessagePreProcessor} in ring buffer order
+     *
+     * @param ring events in ring buffer order
+     */
+    private static void process(final InboundEventContainer[] ring) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(ROUTING_HANDLER_COUNT);
+        try {
+            List<Future<Void>> results = new ArrayList<>(ROUTING_HANDLER_COUNT);
+            for (int turn = 0; turn < ROUTING_HANDLER_COUNT; turn++) {
+                final MessageRoutingHandler routingHandler =
+                        new MessageRoutingHandler(turn, ROUTING_HANDLER_COUNT, SHARED_CONTENT_THRESHOLD);
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int sequence = 0; sequence < ring.length; sequence++) {
+                            routingHandler.onEvent(ring[sequence], sequence, sequence == ring.length - 1);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        MessagePreProcessor preProcessor = new MessagePreProcessor();
+        for (int sequence = 0; sequence < ring.length; sequence++) {
+            preProcessor.onEvent(ring[sequence], sequence, sequence == ring.length - 1);
+        }
+    }
+
+    private InboundEventContainer messageEvent(AndesMessage message) {
+        InboundEventContainer event = new InboundEventContainer();
+        event.setMessageList(new UntrackedMessageList());
+        event.setEventType(InboundEventContainer.Type.MESSAGE_EVENT);
+        event.addMessage(message);
+        event.pubAckHandler = new RecordingPubAckHandler();
+        return event;
+    }
+
+    /**
+     * Create a message with a single content chunk
+     *
+     * @param destination   routing key
+     * @param contentLength length of the content
+     * @return message
+     */
+    private static AndesMessage createMessage(String destination, int contentLength) {
+        AndesMessageMetadata metadata = new AndesMessageMetadata();
+        metadata.setMessageRouterName(ROUTER_NAME);
+        metadata.setDestination(destination);
+        AndesMessage message = new AndesMessage(metadata);
+
+        AndesMessagePart messagePart = new AndesMessagePart();
+        messagePart.setData(new byte[contentLength]);
+        messagePart.setDataLength(contentLength);
+        messagePart.setOffSet(0);
+        message.addMessagePart(messagePart);
+        metadata.setMessageContentLength(contentLength);
+        return message;
+    }
+
+    /**
+     * Assert that the first copy is the published message and the clones follow in the order of matching queues
+     *
+     * @param copies     copies of one message
+     * @param queueCount number of queues the message is routed to
+     */
+    private static void assertCopiesInQueueOrder(List<AndesMessage> copies, int queueCount) {
+        assertEquals(queueCount, copies.size());
+        for (int i = 0; i < queueCount; i++) {
+            AndesMessage copy = copies.get(i);
+            assertEquals(QUEUE_NAMES.get(i), copy.getMetadata().getStorageQueueName());
+            for (AndesMessagePart messagePart : copy.getContentChunkList()) {
+                assertEquals(copy.getMetadata().getMessageID(), messagePart.getMessageID());
+            }
+            assertEquals(copies.get(0).getSharedContentID(), copy.getSharedContentID());
+        }
+    }
+
+    /**
+     * Add the ids assigned to the copies of one message in assignment order. The shared content id, if any, is
+     * assigned right after the id of the published message.
+     *
+     * @param copies copies of one message, the published message first
+     * @param ids    list to add ids to
+     */
+    private static void collectIds(List<AndesMessage> copies, List<Long> ids) {
+        for (int i = 0; i < copies.size(); i++) {
+            ids.add(copies.get(i).getMetadata().getMessageID());
+            if (i == 0 && copies.get(0).getSharedContentID() != 0) {
+                ids.add(copies.get(0).getSharedContentID());
+            }
+        }
+    }
+
+    private static void assertAscending(List<Long> ids) {
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue("Id at " + i + " is not ascending " + ids, ids.get(i - 1) < ids.get(i));
+        }
+    }
+
+    /**
+     * Message list without flow control accounting
+     */
+    private static class UntrackedMessageList extends InboundMessageList {
+
+        @Override
+        public void registerAddMessage(AndesMessage message, AndesChannel channel) {
+            getMessageList().add(message);
+        }
+
+        @Override
+        public AndesMessage registerPopMessage(int index, AndesChannel channel) {
+            return getMessageList().remove(index);
+        }
+    }
+
+    private class RecordingPubAckHandler implements PubAckHandler {
+
+        @Override
+        public void ack(AndesMessageMetadata metadata) {
+            ackedMessages.add(metadata);
+        }
+
+        @Override
+        public void nack(AndesMessageMetadata metadata) {
+        }
+    }
+}
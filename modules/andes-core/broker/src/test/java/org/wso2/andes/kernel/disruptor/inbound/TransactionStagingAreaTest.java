@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.kernel.disruptor.inbound;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.MessageStore;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TransactionStagingArea}
+ */
+public class TransactionStagingAreaTest {
+
+    private static final String STAGING_QUEUE = "AndesTransactionStagingQueue_testNode";
+
+    private static final int MAX_IN_MEMORY_CONTENT_SIZE = 100;
+
+    private RecordingStore store;
+
+    private TransactionStagingArea stagingArea;
+
+    private ExecutorService stagingExecutor;
+
+    @Before
+    public void setUp() {
+        store = new RecordingStore();
+        stagingExecutor = Executors.newFixedThreadPool(2);
+        stagingArea = new TransactionStagingArea(store.asMessageStore(), STAGING_QUEUE,
+                MAX_IN_MEMORY_CONTENT_SIZE, stagingExecutor) {
+
+            private long lastStagedMessageID = 0;
+
+            @Override
+            long nextStagedMessageID() {
+                lastStagedMessageID--;
+                return lastStagedMessageID;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        stagingExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testMessagesWithinLimitStayInMemory() throws AndesException {
+        AndesMessage message = createMessage(MAX_IN_MEMORY_CONTENT_SIZE);
+        stagingArea.add(message);
+        stagingArea.awaitPendingBatches();
+
+        assertTrue(store.stagedBatches.isEmpty());
+        assertFalse(message.isContentStaged());
+        assertEquals(1, message.getContentChunkList().size());
+    }
+
+    @Test
+    public void testMessagesAreStagedOnceLimitIsExceeded() throws AndesException {
+        AndesMessage first = createMessage(60);
+        AndesMessage second = createMessage(60);
+        stagingArea.add(first);
+        stagingArea.add(second);
+        stagingArea.awaitPendingBatches();
+
+        assertEquals(1, store.stagedBatches.size());
+        assertEquals(Arrays.asList(first, second), store.stagedBatches.get(0));
+        assertEquals(Arrays.asList(STAGING_QUEUE), store.stagingQueues);
+        assertEquals(Arrays.asList(-1L, -2L), stagingArea.getStagedMessageIDs());
+
+        // Only metadata is kept in memory once staged
+        assertTrue(first.isContentStaged());
+        assertTrue(first.getContentChunkList().isEmpty());
+        assertTrue(second.getContentChunkList().isEmpty());
+    }
+
+    @Test
+    public void testStagingDoesNotBlockCaller() throws Exception {
+        store.stagingGate = new CountDownLatch(1);
+
+        stagingArea.add(createMessage(MAX_IN_MEMORY_CONTENT_SIZE + 1));
+
+        // The batch is handed over, but not written until the store is released
+        assertTrue(stagingArea.getStagedMessageIDs().isEmpty());
+        store.stagingGate.countDown();
+        stagingArea.awaitPendingBatches();
+        assertEquals(Collections.singletonList(-1L), stagingArea.getStagedMessageIDs());
+    }
+
+    @Test
+    public void testFailedBatchIsKeptInMemoryAndStagedAgain() throws AndesException {
+        store.failStaging = true;
+        AndesMessage first = createMessage(MAX_IN_MEMORY_CONTENT_SIZE + 1);
+        stagingArea.add(first);
+        stagingArea.awaitPendingBatches();
+
+        assertFalse(first.isContentStaged());
+        assertEquals(1, first.getContentChunkList().size());
+        assertTrue(stagingArea.getStagedMessageIDs().isEmpty());
+
+        store.failStaging = false;
+        AndesMessage second = createMessage(1);
+        stagingArea.add(second);
+        stagingArea.awaitPendingBatches();
+
+        assertEquals(Arrays.asList(first, second), store.stagedBatches.get(0));
+        assertTrue(first.isContentStaged());
+        assertEquals(2, stagingArea.getStagedMessageIDs().size());
+    }
+
+    @Test
+    public void testDiscardDeletesStagedMessages() throws AndesException {
+        stagingArea.add(createMessage(MAX_IN_MEMORY_CONTENT_SIZE + 1));
+        stagingArea.awaitPendingBatches();
+
+        stagingArea.discard(stagingArea.getStagedMessageIDs());
+
+        assertEquals(Collections.singletonList(Collections.singletonList(-1L)), store.deletedBatches);
+        assertTrue(stagingArea.getStagedMessageIDs().isEmpty());
+    }
+
+    @Test
+    public void testDiscardWithoutStagedMessagesDoesNotTouchStore() throws AndesException {
+        stagingArea.add(createMessage(1));
+        stagingArea.discard(stagingArea.getStagedMessageIDs());
+
+        assertTrue(store.deletedBatches.isEmpty());
+    }
+
+    private AndesMessage createMessage(int contentLength) {
+        AndesMessageMetadata metadata = new AndesMessageMetadata();
+        metadata.setMessageContentLength(contentLength);
+        AndesMessage message = new AndesMessage(metadata);
+        AndesMessagePart part = new AndesMessagePart();
+        part.setData(new byte[contentLength]);
+        message.addMessagePart(part);
+        return message;
+    }
+
+    /**
+     * Records staging and deletion calls made to the message store
+     */
+    private static class RecordingStore implements InvocationHandler {
+
+        private final List<String> stagingQueues = Collections.synchronizedList(new ArrayList<String>());
+
+        private final List<List<AndesMessage>> stagedBatches =
+                Collections.synchronizedList(new ArrayList<List<AndesMessage>>());
+
+        private final List<List<Long>> deletedBatches = Collections.synchronizedList(new ArrayList<List<Long>>());
+
+        private volatile boolean failStaging = false;
+
+        private volatile CountDownLatch stagingGate;
+
+        private MessageStore asMessageStore() {
+            return (MessageStore) Proxy.newProxyInstance(MessageStore.class.getClassLoader(),
+                    new Class<?>[] {MessageStore.class}, this);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("stageMessages".equals(method.getName())) {
+                if (null != stagingGate) {
+                    stagingGate.await(10, TimeUnit.SECONDS);
+                }
+                if (failStaging) {
+                    throw new AndesException("Store unavailable");
+                }
+                stagingQueues.add((String) args[0]);
+                stagedBatches.add(new ArrayList<>((List<AndesMessage>) args[1]));
+            } else if ("deleteMessages".equals(method.getName()) && 1 == args.length) {
+                deletedBatches.add(new ArrayList<>((List<Long>) args[0]));
+            }
+            return null;
+        }
+    }
+}
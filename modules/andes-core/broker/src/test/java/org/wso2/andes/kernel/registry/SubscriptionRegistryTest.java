@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.registry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.subscription.AndesSubscription;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+import org.wso2.andes.kernel.subscription.SubscriberConnection;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.googlecode.cqengine.query.QueryFactory.equal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SubscriptionRegistry}
+ */
+public class SubscriptionRegistryTest {
+
+    private static final String NODE_ID = "node1";
+
+    private SubscriptionRegistry registry;
+
+    private StorageQueue queue1;
+
+    private StorageQueue queue2;
+
+    @Before
+    public void setUp() {
+        registry = new SubscriptionRegistry();
+        queue1 = new StorageQueue("queue1", true, true, "carbon", false, 0L);
+        queue2 = new StorageQueue("queue2", true, true, "carbon", false, 0L);
+    }
+
+    @Test
+    public void testLookupByIdAndChannel() {
+        UUID channelID = UUID.randomUUID();
+        AndesSubscription subscription = createSubscription("sub1", queue1, channelID);
+
+        registry.registerSubscription(subscription);
+
+        assertSame(subscription, registry.getSubscriptionById("sub1"));
+        Set<AndesSubscription> subscriptionsOfChannel = registry.getSubscriptionsByChannel(channelID);
+        assertEquals(1, subscriptionsOfChannel.size());
+        assertTrue(subscriptionsOfChannel.contains(subscription));
+        assertTrue(registry.getSubscriptionsByChannel(UUID.randomUUID()).isEmpty());
+        assertNull(registry.getSubscriptionById("unknown"));
+    }
+
+    @Test
+    public void testLookupByStorageQueue() {
+        AndesSubscription subscription1 = createSubscription("sub1", queue1, UUID.randomUUID());
+        AndesSubscription subscription2 = createSubscription("sub2", queue2, UUID.randomUUID());
+        registry.registerSubscription(subscription1);
+        registry.registerSubscription(subscription2);
+
+        Iterator<AndesSubscription> result = registry
+                .exucuteQuery(equal(AndesSubscription.STORAGE_QUEUE_NAME, "queue2")).iterator();
+
+        assertSame(subscription2, result.next());
+        assertTrue(!result.hasNext());
+    }
+
+    @Test
+    public void testDuplicateRegistrationIgnored() {
+        UUID channelID = UUID.randomUUID();
+        AndesSubscription subscription = createSubscription("sub1", queue1, channelID);
+        AndesSubscription duplicate = createSubscription("sub1", queue2, UUID.randomUUID());
+
+        registry.registerSubscription(subscription);
+        registry.registerSubscription(duplicate);
+
+        assertSame(subscription, registry.getSubscriptionById("sub1"));
+        assertEquals(1, countAll());
+        assertEquals(1, registry.getSubscriptionsByChannel(channelID).size());
+    }
+
+    @Test
+    public void testRemove() {
+        UUID channelID = UUID.randomUUID();
+        AndesSubscription subscription = createSubscription("sub1", queue1, channelID);
+        registry.registerSubscription(subscription);
+
+        registry.removeSubscription(subscription);
+
+        assertNull(registry.getSubscriptionById("sub1"));
+        assertTrue(registry.getSubscriptionsByChannel(channelID).isEmpty());
+        assertEquals(0, countAll());
+    }
+
+    /**
+     * Several subscriptions bound to one channel, e.g. one per storage queue of a binding, should all be kept and
+     * removing one should leave the others bound to the channel
+     */
+    @Test
+    public void testSubscriptionsSharingChannel() {
+        UUID channelID = UUID.randomUUID();
+        AndesSubscription subscription1 = createSubscription("sub1", queue1, channelID);
+        AndesSubscription subscription2 = createSubscription("sub2", queue2, channelID);
+
+        registry.registerSubscription(subscription1);
+        registry.registerSubscription(subscription2);
+
+        Set<AndesSubscription> subscriptionsOfChannel = registry.getSubscriptionsByChannel(channelID);
+        assertEquals(2, subscriptionsOfChannel.size());
+        assertTrue(subscriptionsOfChannel.contains(subscription1));
+        assertTrue(subscriptionsOfChannel.contains(subscription2));
+
+        registry.removeSubscription("sub2");
+
+        subscriptionsOfChannel = registry.getSubscriptionsByChannel(channelID);
+        assertEquals(1, subscriptionsOfChannel.size());
+        assertTrue(subscriptionsOfChannel.contains(subscription1));
+        assertSame(subscription1, registry.getSubscriptionById("sub1"));
+
+        registry.removeSubscription("sub1");
+
+        assertTrue(registry.getSubscriptionsByChannel(channelID).isEmpty());
+    }
+
+    /**
+     * Subscriptions added to and removed from one channel from several threads should not be lost while the set of
+     * the channel is emptied and recreated
+     */
+    @Test
+    public void testConcurrentChannelUpdates() throws Exception {
+        final UUID channelID = UUID.randomUUID();
+        final int threadCount = 4;
+        final int subscriptionsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < threadCount; thread++) {
+                final int threadIndex = thread;
+                results.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        for (int i = 0; i < subscriptionsPerThread; i++) {
+                            String id = threadIndex + "-" + i;
+                            registry.registerSubscription(createSubscription(id, queue1, channelID));
+                            // Keep the last subscription of each thread, remove the others
+                            if (i < subscriptionsPerThread - 1) {
+                                registry.removeSubscription(id);
+                            }
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<AndesSubscription> subscriptionsOfChannel = registry.getSubscriptionsByChannel(channelID);
+        assertEquals(threadCount, subscriptionsOfChannel.size());
+        for (int thread = 0; thread < threadCount; thread++) {
+            assertTrue(subscriptionsOfChannel.contains(
+                    registry.getSubscriptionById(thread + "-" + (subscriptionsPerThread - 1))));
+        }
+        assertEquals(threadCount, countAll());
+    }
+
+    private AndesSubscription createSubscription(String id, StorageQueue queue, UUID channelID) {
+        return new AndesSubscription(id, queue, ProtocolType.AMQP,
+                new SubscriberConnection("127.0.0.1", NODE_ID, channelID));
+    }
+
+    private int countAll() {
+        int count = 0;
+        Iterator<AndesSubscription> iterator = registry.getAllSubscriptions();
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+}
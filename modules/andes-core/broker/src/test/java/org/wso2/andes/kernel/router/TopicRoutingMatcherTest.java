@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.kernel.router;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.ProtocolType;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TopicRoutingMatcher}
+ */
+public class TopicRoutingMatcherTest {
+
+    private static final int READER_COUNT = 3;
+
+    private static final int WRITER_COUNT = 2;
+
+    private static final int WRITER_ITERATIONS = 500;
+
+    private TopicRoutingMatcher matcher;
+
+    @Before
+    public void setUp() {
+        matcher = new TopicRoutingMatcher(ProtocolType.AMQP);
+    }
+
+    @Test
+    public void testWildcardMatching() throws AndesException {
+        StorageQueue exact = addQueue("exact", "stock.nyse.ibm");
+        StorageQueue singleLevel = addQueue("singleLevel", "stock.*.ibm");
+        StorageQueue multiLevel = addQueue("multiLevel", "stock.#");
+        addQueue("other", "stock.nasdaq.msft");
+
+        assertEquals(new HashSet<>(Arrays.asList(exact, singleLevel, multiLevel)),
+                matcher.getMatchingStorageQueues("stock.nyse.ibm"));
+        assertEquals(new HashSet<>(Arrays.asList(multiLevel)),
+                matcher.getMatchingStorageQueues("stock.nyse.ibm.price.today"));
+
+        matcher.removeStorageQueue(singleLevel);
+
+        assertEquals(new HashSet<>(Arrays.asList(exact, multiLevel)),
+                matcher.getMatchingStorageQueues("stock.nyse.ibm"));
+    }
+
+    /**
+     * Constituent tables added for a routing key longer than any binding key keep every queue matching shorter keys
+     */
+    @Test
+    public void testLongerRoutingKeyKeepsMatchesOfShorterKeys() throws AndesException {
+        StorageQueue multiLevel = addQueue("multiLevel", "stock.#");
+        StorageQueue exact = addQueue("exact", "stock.nyse.ibm");
+        StorageQueue singleLevel = addQueue("singleLevel", "stock.*.ibm");
+
+        assertEquals(new HashSet<>(Arrays.asList(multiLevel)),
+                matcher.getMatchingStorageQueues("stock.nyse.ibm.price.today"));
+
+        assertEquals(new HashSet<>(Arrays.asList(exact, singleLevel, multiLevel)),
+                matcher.getMatchingStorageQueues("stock.nyse.ibm"));
+    }
+
+    /**
+     * Routing keys are matched by several threads while queues are added and removed. Queues bound throughout are
+     * matched by every lookup, including lookups that add constituent tables for longer routing keys.
+     */
+    @Test
+    public void testConcurrentMatchingWhileQueuesChange() throws Exception {
+        final StorageQueue multiLevel = addQueue("multiLevel", "stock.#");
+        final Set<StorageQueue> stableQueues = new HashSet<>(Arrays.asList(
+                addQueue("exact", "stock.nyse.ibm"), addQueue("singleLevel", "stock.*.ibm"), multiLevel));
+
+        ExecutorService executor = Executors.newFixedThreadPool(READER_COUNT + WRITER_COUNT);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean writersDone = new AtomicBoolean(false);
+        List<Future<Integer>> readers = new ArrayList<>(READER_COUNT);
+        List<Future<Integer>> writers = new ArrayList<>(WRITER_COUNT);
+        try {
+            for (int i = 0; i < READER_COUNT; i++) {
+                final int readerIndex = i;
+                readers.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        int lookups = 0;
+                        while (!writersDone.get()) {
+                            Set<StorageQueue> matchingQueues = matcher.getMatchingStorageQueues("stock.nyse.ibm");
+                            assertTrue(matchingQueues.containsAll(stableQueues));
+
+                            // Each lookup of a longer key may need new constituent tables
+                            String longerKey = "stock.nyse.ibm" + repeat(".level", readerIndex + lookups % 20);
+                            assertTrue(matcher.getMatchingStorageQueues(longerKey).contains(multiLevel));
+                            lookups++;
+                        }
+                        return lookups;
+                    }
+                }));
+            }
+            for (int i = 0; i < WRITER_COUNT; i++) {
+                final int writerIndex = i;
+                writers.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        for (int iteration = 0; iteration < WRITER_ITERATIONS; iteration++) {
+                            String name = "churn-" + writerIndex + "-" + iteration;
+                            StorageQueue queue = addQueue(name, (iteration % 2 == 0) ? "stock.nyse.*" : "stock.#");
+                            matcher.updateStorageQueue(queue);
+                            matcher.removeStorageQueue(queue);
+                        }
+                        return WRITER_ITERATIONS;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (Future<Integer> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            writersDone.set(true);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            writersDone.set(true);
+            executor.shutdownNow();
+        }
+
+        assertEquals(stableQueues, matcher.getMatchingStorageQueues("stock.nyse.ibm"));
+        assertEquals(stableQueues.size(), matcher.getAllStorageQueues().size());
+    }
+
+    /**
+     * Add a queue bound by the given binding key to the matcher
+     *
+     * @param name       name of the queue
+     * @param bindingKey binding key of the queue
+     * @return added queue
+     */
+    private StorageQueue addQueue(String name, String bindingKey) throws AndesException {
+        StorageQueue queue = new StorageQueue(name, true, false, null, false, 0L);
+        // Binding only records the key, the queue is added to the matcher below
+        queue.bindQueueToMessageRouter(bindingKey, new AndesMessageRouter("amq.topic", "topic", false) {
+            @Override
+            public Set<StorageQueue> getMatchingStorageQueues(AndesMessage incomingMessage) {
+                return new HashSet<>();
+            }
+
+            @Override
+            public void onBindingQueue(StorageQueue queue) {
+            }
+
+            @Override
+            public void onUnbindingQueue(StorageQueue queue) {
+            }
+        });
+        matcher.addStorageQueue(queue);
+        return queue;
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
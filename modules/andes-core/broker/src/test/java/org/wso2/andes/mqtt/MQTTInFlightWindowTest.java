@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.mqtt;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MQTTInFlightWindow}
+ */
+public class MQTTInFlightWindowTest {
+
+    /**
+     * Packet ids are handed out until the window is full and released ids are reused
+     */
+    @Test
+    public void testPacketIDAllocationAndRelease() {
+        MQTTInFlightWindow window = new MQTTInFlightWindow(40);
+        MQTTSubscription subscription = new MQTTSubscription();
+
+        for (int i = 0; i < 40; i++) {
+            int packetID = window.add(1000 + i, subscription, null);
+            assertEquals(i + 1, packetID);
+        }
+
+        assertEquals(MQTTInFlightWindow.NO_PACKET_ID, window.add(2000, subscription, null));
+
+        assertFalse(window.hasRoom());
+
+        MQTTInFlightWindow.ReleasedMessage releasedMessage = window.release(6);
+        assertEquals(1005, releasedMessage.getClusterMessageID());
+        assertSame(subscription, releasedMessage.getSubscription());
+        assertNull(window.release(6));
+        assertNull(window.getSubscription(6));
+        assertTrue(window.hasRoom());
+
+        assertEquals(6, window.add(2000, subscription, null));
+        assertEquals(40, window.size());
+    }
+
+    /**
+     * A message which is resent should get the packet id it was given before
+     */
+    @Test
+    public void testResendReusesPacketID() {
+        MQTTInFlightWindow window = new MQTTInFlightWindow(10);
+        MQTTSubscription subscription = new MQTTSubscription();
+
+        int packetID = window.add(10, subscription, null);
+        window.add(11, subscription, null);
+
+        assertEquals(packetID, window.add(10, subscription, null));
+        assertSame(subscription, window.getSubscription(packetID));
+        assertEquals(2, window.size());
+    }
+
+    /**
+     * Only messages which survive a full ping interval are reported, and only once
+     */
+    @Test
+    public void testUnackedMessagesOnPing() {
+        MQTTInFlightWindow window = new MQTTInFlightWindow(10);
+        MQTTSubscription subscription = new MQTTSubscription();
+
+        int first = window.add(1, subscription, null);
+        assertArrayEquals(new int[0], window.onPingRequest());
+
+        int second = window.add(2, subscription, null);
+        assertArrayEquals(new int[]{first}, window.onPingRequest());
+        assertArrayEquals(new int[]{second}, window.onPingRequest());
+
+        window.add(1, subscription, null);
+        window.onPingRequest();
+        assertArrayEquals(new int[]{first}, window.onPingRequest());
+        assertEquals(1, window.release(first).getClusterMessageID());
+    }
+
+    /**
+     * The limit applies to the client as a whole, messages of all its topic subscriptions share the same window and
+     * each acknowledgement releases the subscription the message was sent through
+     */
+    @Test
+    public void testWindowIsSharedAcrossSubscriptions() {
+        MQTTInFlightWindow window = new MQTTInFlightWindow(4);
+        MQTTSubscription first = new MQTTSubscription();
+        MQTTSubscription second = new MQTTSubscription();
+
+        int firstPacketID = window.add(1, first, null);
+        window.add(2, second, null);
+        window.add(3, first, null);
+        assertTrue(window.hasRoom());
+
+        int secondPacketID = window.add(4, second, null);
+        assertFalse(window.hasRoom());
+        assertEquals(MQTTInFlightWindow.NO_PACKET_ID, window.add(5, first, null));
+        assertEquals(MQTTInFlightWindow.NO_PACKET_ID, window.add(6, second, null));
+
+        assertSame(second, window.release(secondPacketID).getSubscription());
+        assertTrue(window.hasRoom());
+        assertSame(first, window.release(firstPacketID).getSubscription());
+        assertEquals(2, window.size());
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.ack;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Measures acknowledgement throughput of {@link DeliveryTagRing} against the structures it replaced, at several
+ * prefetch counts. Each run keeps a prefetch worth of messages in flight, delivering a new message for every message
+ * acknowledged, the way a consumer at full prefetch does.
+ * <ul>
+ * <li>Single and multiple acks of AMQP 0-8/0-9 channels are compared against the previous
+ * {@code LinkedHashMap} based tracking, which collected acked entries into a new map and removed them one by one.</li>
+ * <li>Accepts of AMQP 0-10 sessions are compared against the previous {@code ConcurrentSkipListMap} of disposition
+ * listeners, which was walked from its first key up to the accepted range.</li>
+ * </ul>
+ * This is not run as part of the unit tests. Run the main method with the test classpath, optionally passing the
+ * number of acknowledged messages per run.
+ */
+public class AckThroughputBenchmark {
+
+    private static final int[] PREFETCH_COUNTS = {100, 1000, 10000};
+
+    /**
+     * Number of messages acknowledged at once by a multiple ack or a 0-10 accept
+     */
+    private static final int ACK_BATCH_SIZE = 100;
+
+    private static final int WARM_UP_RUNS = 3;
+
+    private static final int MEASURED_RUNS = 5;
+
+    private static final Object MESSAGE = new Object();
+
+    public static void main(String[] args) {
+        int messageCount = (args.length > 0) ? Integer.parseInt(args[0]) : 5000000;
+
+        System.out.println(String.format("%-20s %10s %18s %18s %8s", "scenario", "prefetch", "previous (ack/ms)",
+                "ring (ack/ms)", "ratio"));
+        for (int prefetch : PREFETCH_COUNTS) {
+            report("0-9 single ack", prefetch, messageCount, new LinkedHashMapAcks(prefetch, 1),
+                    new RingAcks(prefetch, 1));
+            report("0-9 multiple ack", prefetch, messageCount, new LinkedHashMapAcks(prefetch, ACK_BATCH_SIZE),
+                    new RingAcks(prefetch, ACK_BATCH_SIZE));
+            report("0-10 accept range", prefetch, messageCount, new SkipListAccepts(prefetch, ACK_BATCH_SIZE),
+                    new RingAcks(prefetch, ACK_BATCH_SIZE));
+        }
+    }
+
+    private static void report(String scenario, int prefetch, int messageCount, AckScenario previous,
+            AckScenario ring) {
+        double previousThroughput = measure(previous, messageCount);
+        double ringThroughput = measure(ring, messageCount);
+        System.out.println(String.format("%-20s %10d %18.0f %18.0f %7.1fx", scenario, prefetch, previousThroughput,
+                ringThroughput, ringThroughput / previousThroughput));
+    }
+
+    /**
+     * @return best throughput of the measured runs, in acknowledged messages per millisecond
+     */
+    private static double measure(AckScenario scenario, int messageCount) {
+        for (int run = 0; run < WARM_UP_RUNS; run++) {
+            scenario.run(messageCount);
+        }
+
+        double best = 0;
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            long start = System.nanoTime();
+            long acknowledged = scenario.run(messageCount);
+            double elapsedMillis = (System.nanoTime() - start) / 1000000.0;
+            best = Math.max(best, acknowledged / elapsedMillis);
+        }
+        return best;
+    }
+
+    /**
+     * Delivers and acknowledges messages of one consumer
+     */
+    private abstract static class AckScenario {
+
+        private final int prefetch;
+
+        private final int ackBatchSize;
+
+        /**
+         * Keeps the tracked messages reachable, so that the work done is not optimised away
+         */
+        long checksum;
+
+        AckScenario(int prefetch, int ackBatchSize) {
+            this.prefetch = prefetch;
+            this.ackBatchSize = ackBatchSize;
+        }
+
+        /**
+         * Deliver up to the prefetch, then acknowledge a batch and deliver a new batch until the given number of
+         * messages are acknowledged
+         *
+         * @return number of messages acknowledged
+         */
+        long run(int messageCount) {
+            reset();
+            long nextTag = 1;
+            for (; nextTag <= prefetch; nextTag++) {
+                deliver(nextTag);
+            }
+
+            long acknowledged = 0;
+            long ackedUpTo = 0;
+            while (acknowledged < messageCount) {
+                ackedUpTo = ackedUpTo + ackBatchSize;
+                acknowledged = acknowledged + acknowledge(ackedUpTo - ackBatchSize + 1, ackedUpTo);
+                for (int i = 0; i < ackBatchSize; i++) {
+                    deliver(nextTag++);
+                }
+            }
+            return acknowledged;
+        }
+
+        abstract void reset();
+
+        abstract void deliver(long tag);
+
+        /**
+         * Acknowledge messages with tags within the given bounds, both inclusive
+         *
+         * @return number of messages acknowledged
+         */
+        abstract int acknowledge(long lower, long upper);
+    }
+
+    /**
+     * Acknowledgements as done by UnacknowledgedMessageMapImpl and AMQChannel before the ring was introduced
+     */
+    private static class LinkedHashMapAcks extends AckScenario {
+
+        private final Object lock = new Object();
+
+        private final int prefetch;
+
+        private final boolean multiple;
+
+        private Map<Long, Object> map;
+
+        LinkedHashMapAcks(int prefetch, int ackBatchSize) {
+            super(prefetch, ackBatchSize);
+            this.prefetch = prefetch;
+            this.multiple = ackBatchSize > 1;
+        }
+
+        @Override
+        void reset() {
+            map = new LinkedHashMap<>(prefetch);
+        }
+
+        @Override
+        void deliver(long tag) {
+            synchronized (lock) {
+                map.put(tag, MESSAGE);
+            }
+        }
+
+        @Override
+        int acknowledge(long lower, long upper) {
+            if (!multiple) {
+                return acknowledgeOne(upper);
+            }
+            Map<Long, Object> acked = new LinkedHashMap<>();
+            synchronized (lock) {
+                for (Map.Entry<Long, Object> entry : map.entrySet()) {
+                    acked.put(entry.getKey(), entry.getValue());
+                    if (entry.getKey() == upper) {
+                        break;
+                    }
+                }
+                for (Long tag : acked.keySet()) {
+                    map.remove(tag);
+                }
+            }
+            checksum = checksum + acked.size();
+            return acked.size();
+        }
+
+        private int acknowledgeOne(long tag) {
+            Map<Long, Object> acked = new LinkedHashMap<>();
+            synchronized (lock) {
+                Object entry = map.get(tag);
+                if (null != entry) {
+                    acked.put(tag, entry);
+                }
+                for (Long ackedTag : acked.keySet()) {
+                    map.remove(ackedTag);
+                }
+            }
+            checksum = checksum + acked.size();
+            return acked.size();
+        }
+    }
+
+    /**
+     * Accepts as done by ServerSession before the ring was introduced
+     */
+    private static class SkipListAccepts extends AckScenario {
+
+        private SortedMap<Integer, Object> listeners;
+
+        SkipListAccepts(int prefetch, int ackBatchSize) {
+            super(prefetch, ackBatchSize);
+        }
+
+        @Override
+        void reset() {
+            listeners = new ConcurrentSkipListMap<>();
+        }
+
+        @Override
+        void deliver(long tag) {
+            listeners.put((int) tag, MESSAGE);
+        }
+
+        @Override
+        int acknowledge(long lower, long upper) {
+            List<Object> accepted = new ArrayList<>();
+            Iterator<Integer> unaccepted = listeners.keySet().iterator();
+            while (unaccepted.hasNext()) {
+                int next = unaccepted.next();
+                if (next > upper) {
+                    break;
+                }
+                if (next >= lower) {
+                    accepted.add(listeners.remove(next));
+                }
+            }
+            checksum = checksum + accepted.size();
+            return accepted.size();
+        }
+    }
+
+    /**
+     * Acknowledgements and accepts through {@link DeliveryTagRing}, as done by UnacknowledgedMessageMapImpl and
+     * ServerSession
+     */
+    private static class RingAcks extends AckScenario {
+
+        private final Object lock = new Object();
+
+        private final boolean multiple;
+
+        private DeliveryTagRing<Object> ring;
+
+        RingAcks(int prefetch, int ackBatchSize) {
+            super(prefetch, ackBatchSize);
+            this.multiple = ackBatchSize > 1;
+        }
+
+        @Override
+        void reset() {
+            ring = new DeliveryTagRing<>();
+        }
+
+        @Override
+        void deliver(long tag) {
+            synchronized (lock) {
+                ring.add(tag, MESSAGE);
+            }
+        }
+
+        @Override
+        int acknowledge(long lower, long upper) {
+            final List<Object> acked = new ArrayList<>();
+            synchronized (lock) {
+                if (multiple) {
+                    ring.removeRange(lower, upper, new DeliveryTagRing.Visitor<Object>() {
+                        @Override
+                        public void visit(long tag, Object value) {
+                            acked.add(value);
+                        }
+                    });
+                } else {
+                    Object value = ring.remove(upper);
+                    if (null != value) {
+                        acked.add(value);
+                    }
+                }
+            }
+            checksum = checksum + acked.size();
+            return acked.size();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.ack;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link DeliveryTagRing}
+ */
+public class DeliveryTagRingTest {
+
+    @Test
+    public void testAddGetAndRemove() {
+        DeliveryTagRing<String> ring = new DeliveryTagRing<>();
+        for (long tag = 1; tag <= 100; tag++) {
+            ring.add(tag, "m" + tag);
+        }
+
+        assertEquals(100, ring.size());
+        assertEquals("m42", ring.get(42));
+        assertEquals("m42", ring.remove(42));
+        assertNull(ring.get(42));
+        assertNull(ring.remove(42));
+        assertNull(ring.get(101));
+        assertEquals(99, ring.size());
+        assertEquals(1, ring.firstTag());
+    }
+
+    @Test
+    public void testRemoveUpToTag() {
+        DeliveryTagRing<String> ring = new DeliveryTagRing<>();
+        for (long tag = 1; tag <= 10; tag++) {
+            ring.add(tag, "m" + tag);
+        }
+        ring.remove(3);
+
+        List<Long> removed = new ArrayList<>();
+        ring.removeRange(Long.MIN_VALUE, 5, collectTags(removed));
+
+        assertEquals(Arrays.asList(1L, 2L, 4L, 5L), removed);
+        assertEquals(5, ring.size());
+        assertEquals(6, ring.firstTag());
+        assertEquals("m6", ring.first());
+    }
+
+    @Test
+    public void testStuckTagMovesToOverflow() {
+        DeliveryTagRing<String> ring = new DeliveryTagRing<>();
+        ring.add(1, "stuck");
+        for (long tag = 2; tag <= 10000; tag++) {
+            ring.add(tag, "m" + tag);
+            ring.remove(tag);
+        }
+        ring.add(10001, "m10001");
+
+        assertEquals(2, ring.size());
+        assertEquals("stuck", ring.get(1));
+        assertEquals("m10001", ring.get(10001));
+
+        List<Long> visited = new ArrayList<>();
+        ring.visit(collectTags(visited));
+        assertEquals(Arrays.asList(1L, 10001L), visited);
+
+        List<Long> removed = new ArrayList<>();
+        ring.removeRange(Long.MIN_VALUE, Long.MAX_VALUE, collectTags(removed));
+        assertEquals(Arrays.asList(1L, 10001L), removed);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testRangesAcrossGrowth() {
+        DeliveryTagRing<String> ring = new DeliveryTagRing<>();
+        for (long tag = 1000; tag < 1100; tag++) {
+            ring.add(tag, "m" + tag);
+        }
+
+        List<Long> visited = new ArrayList<>();
+        ring.visitRange(1010, 1012, collectTags(visited));
+        assertEquals(Arrays.asList(1010L, 1011L, 1012L), visited);
+
+        List<Long> removed = new ArrayList<>();
+        ring.removeRange(1050, 2000, collectTags(removed));
+        assertEquals(50, removed.size());
+        assertEquals(50, ring.size());
+        assertNull(ring.get(1050));
+        assertEquals("m1049", ring.get(1049));
+    }
+
+    private static DeliveryTagRing.Visitor<String> collectTags(final List<Long> tags) {
+        return new DeliveryTagRing.Visitor<String>() {
+            @Override
+            public void visit(long tag, String value) {
+                tags.add(tag);
+            }
+        };
+    }
+}
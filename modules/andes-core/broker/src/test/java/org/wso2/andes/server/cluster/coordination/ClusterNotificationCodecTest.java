@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+import org.wso2.andes.kernel.subscription.StorageQueue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link ClusterNotificationCodec}
+ */
+public class ClusterNotificationCodecTest {
+
+    @Test
+    public void testQueueBatchRoundTrip() throws AndesException {
+        StorageQueue durableQueue = new StorageQueue("durableQueue", true, true, "carbon", false, 1234L);
+        StorageQueue topicQueue = new StorageQueue("carbon:subscriber", false, false, null, true, 0L);
+
+        List<StorageQueue> decodedQueues = ClusterNotificationCodec.decodeQueues(
+                ClusterNotificationCodec.encodeQueues(Arrays.asList(durableQueue, topicQueue)));
+
+        assertEquals(2, decodedQueues.size());
+
+        StorageQueue decodedDurableQueue = decodedQueues.get(0);
+        assertEquals("durableQueue", decodedDurableQueue.getName());
+        assertTrue(decodedDurableQueue.isDurable());
+        assertTrue(decodedDurableQueue.isShared());
+        assertFalse(decodedDurableQueue.isExclusive());
+        assertEquals("carbon", decodedDurableQueue.getQueueOwner());
+        assertEquals(Long.valueOf(1234L), decodedDurableQueue.getLastPurgedTimestamp());
+
+        StorageQueue decodedTopicQueue = decodedQueues.get(1);
+        assertEquals("carbon:subscriber", decodedTopicQueue.getName());
+        assertFalse(decodedTopicQueue.isDurable());
+        assertFalse(decodedTopicQueue.isShared());
+        assertTrue(decodedTopicQueue.isExclusive());
+        assertNull(decodedTopicQueue.getQueueOwner());
+    }
+
+    @Test
+    public void testEncodingIsSmallerThanStringEncoding() {
+        StorageQueue queue = new StorageQueue("durableQueue", true, false, "carbon", false, 0L);
+        assertTrue(ClusterNotificationCodec.encode(queue).length < queue.encodeAsString().getBytes().length / 2);
+    }
+
+    @Test
+    public void testLegacyQueueStringIsDecoded() throws AndesException {
+        StorageQueue queue = new StorageQueue("durableQueue", true, true, "carbon", false, 1234L);
+
+        List<StorageQueue> decodedQueues = ClusterNotificationCodec.decodeQueues(
+                ClusterNotificationCodec.fromLegacyString(queue.encodeAsString()));
+
+        assertEquals(1, decodedQueues.size());
+        StorageQueue decodedQueue = decodedQueues.get(0);
+        assertEquals("durableQueue", decodedQueue.getName());
+        assertTrue(decodedQueue.isDurable());
+        assertTrue(decodedQueue.isShared());
+        assertFalse(decodedQueue.isExclusive());
+        assertEquals("carbon", decodedQueue.getQueueOwner());
+        assertEquals(Long.valueOf(1234L), decodedQueue.getLastPurgedTimestamp());
+    }
+
+    @Test
+    public void testLegacyStringIsRecognised() {
+        StorageQueue queue = new StorageQueue("durableQueue", true, false, null, false, 0L);
+        assertTrue(ClusterNotificationCodec.isLegacyString(queue.encodeAsString()));
+        // Stored form of a DB sync request, which carries no artifact
+        assertFalse(ClusterNotificationCodec.isLegacyString(""));
+        assertFalse(ClusterNotificationCodec.isLegacyString("AQIAAAAB"));
+    }
+
+    @Test
+    public void testFrameOfOtherArtifactIsRejected() {
+        byte[] frame = ClusterNotificationCodec.encode(new StorageQueue("queue", true, false, null, false, 0L));
+        try {
+            ClusterNotificationCodec.decodeBindings(frame);
+            fail("A queue frame should not be decoded as bindings");
+        } catch (AndesException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnknownVersionIsRejected() {
+        byte[] frame = ClusterNotificationCodec.encode(new StorageQueue("queue", true, false, null, false, 0L));
+        frame[0] = (byte) (frame[0] + 1);
+        try {
+            ClusterNotificationCodec.decodeQueues(frame);
+            fail("A frame of an unknown version should not be decoded");
+        } catch (AndesException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTruncatedFrameIsRejected() {
+        byte[] frame = ClusterNotificationCodec.encode(new StorageQueue("queue", true, false, null, false, 0L));
+        try {
+            ClusterNotificationCodec.decodeQueues(Arrays.copyOf(frame, frame.length - 1));
+            fail("A truncated frame should not be decoded");
+        } catch (AndesException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import org.junit.Test;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
+import org.wso2.andes.util.HazelcastDataStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for {@link MessageIdSetProcessor}
+ */
+public class MessageIdSetProcessorTest {
+
+    @Test
+    public void testAddRoundTrip() throws IOException {
+        Map.Entry<String, TreeSetLongWrapper> entry = missingEntry();
+
+        assertNull(roundTrip(MessageIdSetProcessor.add(Long.MAX_VALUE)).process(entry));
+        roundTrip(MessageIdSetProcessor.add(7)).process(entry);
+
+        assertEquals(new TreeSet<>(Arrays.asList(7L, Long.MAX_VALUE)), entry.getValue().getLongTreeSet());
+    }
+
+    @Test
+    public void testPollFirstRoundTrip() throws IOException {
+        Map.Entry<String, TreeSetLongWrapper> entry = entry(5L, 3L, 9L);
+
+        assertEquals(3L, roundTrip(MessageIdSetProcessor.pollFirst()).process(entry));
+        assertEquals(new TreeSet<>(Arrays.asList(5L, 9L)), entry.getValue().getLongTreeSet());
+    }
+
+    @Test
+    public void testPollFirstOfMissingOrEmptySet() throws IOException {
+        MessageIdSetProcessor processor = roundTrip(MessageIdSetProcessor.pollFirst());
+
+        assertNull(processor.process(missingEntry()));
+        assertNull(processor.process(entry()));
+    }
+
+    /**
+     * The backup processor applies the same change to the backup entry
+     */
+    @Test
+    public void testBackupProcessorAppliesChange() throws IOException {
+        MessageIdSetProcessor processor = roundTrip(MessageIdSetProcessor.add(11));
+        Map.Entry<String, TreeSetLongWrapper> entry = missingEntry();
+        Map.Entry<String, TreeSetLongWrapper> backupEntry = missingEntry();
+
+        processor.process(entry);
+        processor.getBackupProcessor().processBackup(backupEntry);
+
+        assertSame(processor, processor.getBackupProcessor());
+        assertEquals(entry.getValue().getLongTreeSet(), backupEntry.getValue().getLongTreeSet());
+    }
+
+    private static MessageIdSetProcessor roundTrip(MessageIdSetProcessor processor) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        processor.writeData(HazelcastDataStreams.output(outputStream));
+        MessageIdSetProcessor readProcessor = new MessageIdSetProcessor();
+        readProcessor.readData(HazelcastDataStreams.input(outputStream.toByteArray()));
+        return readProcessor;
+    }
+
+    /**
+     * Create a map entry without a value
+     */
+    private static Map.Entry<String, TreeSetLongWrapper> missingEntry() {
+        return new AbstractMap.SimpleEntry<>("queue", null);
+    }
+
+    /**
+     * Create a map entry holding the given message ids
+     */
+    private static Map.Entry<String, TreeSetLongWrapper> entry(Long... messageIds) {
+        TreeSetLongWrapper wrapper = new TreeSetLongWrapper();
+        wrapper.getLongTreeSet().addAll(Arrays.asList(messageIds));
+        return new AbstractMap.SimpleEntry<>("queue", wrapper);
+    }
+}
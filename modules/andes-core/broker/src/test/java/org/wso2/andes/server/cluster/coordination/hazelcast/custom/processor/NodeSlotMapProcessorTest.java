@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.HashmapStringTreeSetWrapper;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
+import org.wso2.andes.util.HazelcastDataStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.SlotCodecTest.assertSameSlot;
+import static org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.SlotCodecTest.slot;
+
+/**
+ * Test class for {@link NodeSlotMapProcessor}
+ */
+public class NodeSlotMapProcessorTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    @Test
+    public void testAddSlotsRoundTrip() throws IOException {
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry = new AbstractMap.SimpleEntry<>("node", null);
+
+        assertNull(roundTrip(NodeSlotMapProcessor.addSlots(QUEUE_NAME,
+                slots(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 11, 20)))).process(entry));
+
+        assertEquals(slots(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 11, 20)), queueSlots(entry));
+    }
+
+    /**
+     * A slot added again replaces the equal slot, carrying its new state
+     */
+    @Test
+    public void testAddSlotReplacesEqualSlot() throws IOException {
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry = entry(slot(QUEUE_NAME, 1, 10));
+        Slot assignedSlot = slot(QUEUE_NAME, 1, 10);
+        assignedSlot.addState(SlotState.ASSIGNED);
+        assignedSlot.setMessageCount(10);
+
+        roundTrip(NodeSlotMapProcessor.addSlot(QUEUE_NAME, assignedSlot)).process(entry);
+
+        assertEquals(1, queueSlots(entry).size());
+        assertSameSlot(assignedSlot, queueSlots(entry).first());
+    }
+
+    @Test
+    public void testDeleteSlotRoundTrip() throws IOException {
+        Slot assignedSlot = slot(QUEUE_NAME, 11, 20);
+        assignedSlot.addState(SlotState.ASSIGNED);
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry = entry(slot(QUEUE_NAME, 1, 10), assignedSlot);
+
+        assertEquals(true, roundTrip(NodeSlotMapProcessor.deleteSlot(QUEUE_NAME, 11)).process(entry));
+        assertEquals(slots(slot(QUEUE_NAME, 1, 10)), queueSlots(entry));
+
+        // A slot that was never assigned cannot move to the deleted state
+        assertEquals(false, roundTrip(NodeSlotMapProcessor.deleteSlot(QUEUE_NAME, 1)).process(entry));
+        assertEquals(slots(slot(QUEUE_NAME, 1, 10)), queueSlots(entry));
+
+        // Deleting an unknown slot of a known queue succeeds
+        assertEquals(true, roundTrip(NodeSlotMapProcessor.deleteSlot(QUEUE_NAME, 21)).process(entry));
+        assertEquals(false, roundTrip(NodeSlotMapProcessor.deleteSlot("otherQueue", 1)).process(entry));
+    }
+
+    @Test
+    public void testPollFirstRoundTrip() throws IOException {
+        Slot slot = slot(QUEUE_NAME, 1, 10);
+        slot.setDestinationOfMessagesInSlot("destination");
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry = entry(slot(QUEUE_NAME, 11, 20), slot);
+
+        assertSameSlot(slot, (Slot) roundTrip(NodeSlotMapProcessor.pollFirst(QUEUE_NAME)).process(entry));
+        assertEquals(slots(slot(QUEUE_NAME, 11, 20)), queueSlots(entry));
+        assertNull(roundTrip(NodeSlotMapProcessor.pollFirst("otherQueue")).process(entry));
+    }
+
+    @Test
+    public void testRemoveSlotsRoundTrip() throws IOException {
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry =
+                entry(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 11, 20), slot(QUEUE_NAME, 21, 30));
+
+        TreeSetSlotWrapper removed = (TreeSetSlotWrapper) roundTrip(NodeSlotMapProcessor.removeSlots(QUEUE_NAME,
+                slots(slot(QUEUE_NAME, 11, 20), slot(QUEUE_NAME, 31, 40)))).process(entry);
+
+        assertEquals(slots(slot(QUEUE_NAME, 11, 20)), removed.getSlotTreeSet());
+        assertEquals(slots(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 21, 30)), queueSlots(entry));
+    }
+
+    @Test
+    public void testRemoveQueueRoundTrip() throws IOException {
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry =
+                entry(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 11, 20));
+
+        TreeSetSlotWrapper removed =
+                (TreeSetSlotWrapper) roundTrip(NodeSlotMapProcessor.removeQueue(QUEUE_NAME)).process(entry);
+
+        assertEquals(slots(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 11, 20)), removed.getSlotTreeSet());
+        assertFalse(entry.getValue().getStringListHashMap().containsKey(QUEUE_NAME));
+        removed = (TreeSetSlotWrapper) roundTrip(NodeSlotMapProcessor.removeQueue(QUEUE_NAME)).process(entry);
+        assertTrue(removed.getSlotTreeSet().isEmpty());
+    }
+
+    /**
+     * Reading the slots of a queue returns a copy and is not applied on backups
+     */
+    @Test
+    public void testGetQueueRoundTrip() throws IOException {
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry = entry(slot(QUEUE_NAME, 1, 10));
+        NodeSlotMapProcessor processor = roundTrip(NodeSlotMapProcessor.getQueue(QUEUE_NAME));
+
+        TreeSet<Slot> slots = ((TreeSetSlotWrapper) processor.process(entry)).getSlotTreeSet();
+        slots.clear();
+
+        assertEquals(slots(slot(QUEUE_NAME, 1, 10)), queueSlots(entry));
+        assertNull(processor.getBackupProcessor());
+        assertTrue(((TreeSetSlotWrapper) roundTrip(NodeSlotMapProcessor.getQueue("otherQueue")).process(entry))
+                .getSlotTreeSet().isEmpty());
+    }
+
+    /**
+     * Operations changing the entry apply the same change to the backup entry
+     */
+    @Test
+    public void testBackupProcessorAppliesChange() throws IOException {
+        NodeSlotMapProcessor processor = roundTrip(NodeSlotMapProcessor.removeSlots(QUEUE_NAME,
+                slots(slot(QUEUE_NAME, 1, 10))));
+        Map.Entry<String, HashmapStringTreeSetWrapper> entry =
+                entry(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 11, 20));
+        Map.Entry<String, HashmapStringTreeSetWrapper> backupEntry =
+                entry(slot(QUEUE_NAME, 1, 10), slot(QUEUE_NAME, 11, 20));
+
+        processor.process(entry);
+        processor.getBackupProcessor().processBackup(backupEntry);
+
+        assertSame(processor, processor.getBackupProcessor());
+        assertEquals(queueSlots(entry), queueSlots(backupEntry));
+    }
+
+    private static NodeSlotMapProcessor roundTrip(NodeSlotMapProcessor processor) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        processor.writeData(HazelcastDataStreams.output(outputStream));
+        NodeSlotMapProcessor readProcessor = new NodeSlotMapProcessor();
+        readProcessor.readData(HazelcastDataStreams.input(outputStream.toByteArray()));
+        return readProcessor;
+    }
+
+    private static Map.Entry<String, HashmapStringTreeSetWrapper> entry(Slot... slots) {
+        HashmapStringTreeSetWrapper wrapper = new HashmapStringTreeSetWrapper();
+        wrapper.getStringListHashMap().put(QUEUE_NAME, slots(slots));
+        return new AbstractMap.SimpleEntry<>("node", wrapper);
+    }
+
+    private static TreeSet<Slot> queueSlots(Map.Entry<String, HashmapStringTreeSetWrapper> entry) {
+        return entry.getValue().getStringListHashMap().get(QUEUE_NAME);
+    }
+
+    private static TreeSet<Slot> slots(Slot... slots) {
+        return new TreeSet<>(Arrays.asList(slots));
+    }
+}
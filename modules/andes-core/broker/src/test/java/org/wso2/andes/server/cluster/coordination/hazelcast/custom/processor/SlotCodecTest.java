@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+import org.wso2.andes.util.HazelcastDataStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link SlotCodec}
+ */
+public class SlotCodecTest {
+
+    @Test
+    public void testSlotRoundTrip() throws IOException {
+        Slot slot = slot("queue", 100, 199);
+        slot.setMessageCount(42);
+        slot.setDestinationOfMessagesInSlot("destination");
+        slot.addState(SlotState.ASSIGNED);
+        slot.addState(SlotState.OVERLAPPED);
+        slot.setAnOverlappingSlot(true);
+        slot.setSlotInactive();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SlotCodec.writeSlot(HazelcastDataStreams.output(outputStream), slot);
+        Slot decodedSlot = SlotCodec.readSlot(HazelcastDataStreams.input(outputStream.toByteArray()));
+
+        assertSameSlot(slot, decodedSlot);
+        assertEquals(SlotState.OVERLAPPED, decodedSlot.getCurrentState());
+    }
+
+    @Test
+    public void testSlotWithoutNamesRoundTrip() throws IOException {
+        Slot slot = new Slot();
+        slot.setStartMessageId(1);
+        slot.setEndMessageId(2);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SlotCodec.writeSlot(HazelcastDataStreams.output(outputStream), slot);
+        Slot decodedSlot = SlotCodec.readSlot(HazelcastDataStreams.input(outputStream.toByteArray()));
+
+        assertNull(decodedSlot.getStorageQueueName());
+        assertNull(decodedSlot.getDestinationOfMessagesInSlot());
+        assertEquals(1, decodedSlot.getStartMessageId());
+        assertEquals(2, decodedSlot.getEndMessageId());
+        assertEquals(SlotState.CREATED, decodedSlot.getCurrentState());
+        assertTrue(decodedSlot.isSlotActive());
+        assertFalse(decodedSlot.isAnOverlappingSlot());
+    }
+
+    @Test
+    public void testSlotsRoundTrip() throws IOException {
+        TreeSet<Slot> slots = new TreeSet<>();
+        slots.add(slot("queue", 300, 399));
+        slots.add(slot("queue", 1, 99));
+        slots.add(slot("queue", 100, 299));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SlotCodec.writeSlots(HazelcastDataStreams.output(outputStream), slots);
+        TreeSet<Slot> decodedSlots = SlotCodec.readSlots(HazelcastDataStreams.input(outputStream.toByteArray()));
+
+        assertEquals(slots.size(), decodedSlots.size());
+        Iterator<Slot> decodedIterator = decodedSlots.iterator();
+        for (Slot slot : slots) {
+            assertSameSlot(slot, decodedIterator.next());
+        }
+    }
+
+    @Test
+    public void testEmptySlotsRoundTrip() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SlotCodec.writeSlots(HazelcastDataStreams.output(outputStream), new ArrayList<Slot>());
+
+        assertTrue(SlotCodec.readSlots(HazelcastDataStreams.input(outputStream.toByteArray())).isEmpty());
+    }
+
+    /**
+     * Create a slot in {@link SlotState#CREATED} state
+     *
+     * @param queueName      storage queue of the slot
+     * @param startMessageId first message id of the slot
+     * @param endMessageId   last message id of the slot
+     * @return slot
+     */
+    static Slot slot(String queueName, long startMessageId, long endMessageId) {
+        Slot slot = new Slot(startMessageId, endMessageId, queueName);
+        slot.setStorageQueueName(queueName);
+        return slot;
+    }
+
+    /**
+     * Assert that all serialized fields of the given slots are the same
+     *
+     * @param expected slot written
+     * @param actual   slot read
+     */
+    static void assertSameSlot(Slot expected, Slot actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getMessageCount(), actual.getMessageCount());
+        assertEquals(expected.getDestinationOfMessagesInSlot(), actual.getDestinationOfMessagesInSlot());
+        assertEquals(expected.encodeSlotStates(), actual.encodeSlotStates());
+        assertEquals(expected.isAnOverlappingSlot(), actual.isAnOverlappingSlot());
+        assertEquals(expected.isSlotActive(), actual.isSlotActive());
+    }
+}
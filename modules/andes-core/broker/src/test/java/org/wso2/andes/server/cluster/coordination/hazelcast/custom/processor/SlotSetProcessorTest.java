@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetSlotWrapper;
+import org.wso2.andes.util.HazelcastDataStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.SlotCodecTest.assertSameSlot;
+import static org.wso2.andes.server.cluster.coordination.hazelcast.custom.processor.SlotCodecTest.slot;
+
+/**
+ * Test class for {@link SlotSetProcessor}
+ */
+public class SlotSetProcessorTest {
+
+    @Test
+    public void testAddSlotsRoundTrip() throws IOException {
+        Slot slot = slot("queue", 1, 10);
+        slot.setMessageCount(10);
+        Map.Entry<String, TreeSetSlotWrapper> entry = new AbstractMap.SimpleEntry<>("node", null);
+
+        assertNull(roundTrip(SlotSetProcessor.addSlots(slots(slot))).process(entry));
+        roundTrip(SlotSetProcessor.addSlots(slots(slot("queue", 11, 20)))).process(entry);
+
+        TreeSet<Slot> slotSet = entry.getValue().getSlotTreeSet();
+        assertEquals(slots(slot, slot("queue", 11, 20)), slotSet);
+        assertSameSlot(slot, slotSet.first());
+    }
+
+    @Test
+    public void testPollFirstRoundTrip() throws IOException {
+        Slot slot = slot("queue", 1, 10);
+        slot.addState(SlotState.ASSIGNED);
+        slot.setAnOverlappingSlot(true);
+        Map.Entry<String, TreeSetSlotWrapper> entry = entry(slot("queue", 11, 20), slot);
+
+        assertSameSlot(slot, (Slot) roundTrip(SlotSetProcessor.pollFirst()).process(entry));
+        assertEquals(slots(slot("queue", 11, 20)), entry.getValue().getSlotTreeSet());
+    }
+
+    @Test
+    public void testPollFirstOfMissingOrEmptySet() throws IOException {
+        SlotSetProcessor processor = roundTrip(SlotSetProcessor.pollFirst());
+
+        assertNull(processor.process(new AbstractMap.SimpleEntry<String, TreeSetSlotWrapper>("node", null)));
+        assertNull(processor.process(entry()));
+    }
+
+    /**
+     * The backup processor applies the same change to the backup entry
+     */
+    @Test
+    public void testBackupProcessorAppliesChange() throws IOException {
+        SlotSetProcessor processor = roundTrip(SlotSetProcessor.pollFirst());
+        Map.Entry<String, TreeSetSlotWrapper> entry = entry(slot("queue", 1, 10), slot("queue", 11, 20));
+        Map.Entry<String, TreeSetSlotWrapper> backupEntry = entry(slot("queue", 1, 10), slot("queue", 11, 20));
+
+        processor.process(entry);
+        processor.getBackupProcessor().processBackup(backupEntry);
+
+        assertEquals(entry.getValue().getSlotTreeSet(), backupEntry.getValue().getSlotTreeSet());
+    }
+
+    private static SlotSetProcessor roundTrip(SlotSetProcessor processor) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        processor.writeData(HazelcastDataStreams.output(outputStream));
+        SlotSetProcessor readProcessor = new SlotSetProcessor();
+        readProcessor.readData(HazelcastDataStreams.input(outputStream.toByteArray()));
+        return readProcessor;
+    }
+
+    private static Map.Entry<String, TreeSetSlotWrapper> entry(Slot... slots) {
+        TreeSetSlotWrapper wrapper = new TreeSetSlotWrapper();
+        wrapper.setSlotTreeSet(slots(slots));
+        return new AbstractMap.SimpleEntry<>("node", wrapper);
+    }
+
+    private static TreeSet<Slot> slots(Slot... slots) {
+        return new TreeSet<>(Arrays.asList(slots));
+    }
+}
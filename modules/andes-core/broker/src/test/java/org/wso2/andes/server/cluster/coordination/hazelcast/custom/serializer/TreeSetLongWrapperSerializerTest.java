@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer;
+
+import org.junit.Test;
+import org.wso2.andes.server.cluster.coordination.hazelcast.custom.serializer.wrapper.TreeSetLongWrapper;
+import org.wso2.andes.util.HazelcastDataStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TreeSetLongWrapperSerializer}
+ */
+public class TreeSetLongWrapperSerializerTest {
+
+    /**
+     * Size of the element count and the first message id written before the gaps
+     */
+    private static final int HEADER_LENGTH = 4 + 8;
+
+    private final TreeSetLongWrapperSerializer serializer = new TreeSetLongWrapperSerializer();
+
+    @Test
+    public void testEmptySetRoundTrip() throws IOException {
+        byte[] bytes = write(new TreeSet<Long>());
+
+        assertEquals(4, bytes.length);
+        assertTrue(read(bytes).isEmpty());
+    }
+
+    @Test
+    public void testNullSetIsWrittenAsEmptySet() throws IOException {
+        TreeSetLongWrapper wrapper = new TreeSetLongWrapper();
+        wrapper.setLongTreeSet(null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        serializer.write(HazelcastDataStreams.output(outputStream), wrapper);
+
+        assertTrue(read(outputStream.toByteArray()).isEmpty());
+    }
+
+    @Test
+    public void testSingleMessageIdRoundTrip() throws IOException {
+        TreeSet<Long> messageIds = messageIds(Long.MAX_VALUE);
+        byte[] bytes = write(messageIds);
+
+        assertEquals(HEADER_LENGTH, bytes.length);
+        assertEquals(messageIds, read(bytes));
+    }
+
+    /**
+     * Each gap takes one byte per started group of seven bits
+     */
+    @Test
+    public void testGapLengthAtVarintBoundaries() throws IOException {
+        long[][] gapsAndLengths = {
+                {1, 1}, {0x7FL, 1},
+                {0x80L, 2}, {0x3FFFL, 2},
+                {0x4000L, 3}, {0x1FFFFFL, 3},
+                {0x200000L, 4}, {0xFFFFFFFL, 4},
+                {0x10000000L, 5}, {0x7FFFFFFFFL, 5},
+                {0x800000000L, 6}, {Long.MAX_VALUE >>> 7, 8},
+                {(Long.MAX_VALUE >>> 7) + 1, 9}, {Long.MAX_VALUE, 9}
+        };
+        for (long[] gapAndLength : gapsAndLengths) {
+            TreeSet<Long> messageIds = messageIds(0, gapAndLength[0]);
+            byte[] bytes = write(messageIds);
+
+            assertEquals("Length of gap " + gapAndLength[0], HEADER_LENGTH + gapAndLength[1], bytes.length);
+            assertEquals(messageIds, read(bytes));
+        }
+    }
+
+    /**
+     * A gap above {@link Long#MAX_VALUE} is written as an unsigned ten byte value and still read back
+     */
+    @Test
+    public void testGapSpanningWholeRangeRoundTrip() throws IOException {
+        TreeSet<Long> messageIds = messageIds(Long.MIN_VALUE, -1, 0, Long.MAX_VALUE);
+        byte[] bytes = write(messageIds);
+
+        assertEquals(HEADER_LENGTH + 9 + 1 + 9, bytes.length);
+        assertEquals(messageIds, read(bytes));
+
+        messageIds = messageIds(Long.MIN_VALUE, Long.MAX_VALUE);
+        bytes = write(messageIds);
+
+        assertEquals(HEADER_LENGTH + 10, bytes.length);
+        assertEquals(messageIds, read(bytes));
+    }
+
+    @Test
+    public void testConsecutiveMessageIdsRoundTrip() throws IOException {
+        TreeSet<Long> messageIds = new TreeSet<>();
+        long messageId = 1L << 40;
+        for (int i = 0; i < 1000; i++) {
+            messageIds.add(messageId);
+            messageId = messageId + 1 + (i % 300);
+        }
+        byte[] bytes = write(messageIds);
+
+        assertTrue(bytes.length < HEADER_LENGTH + 2 * 1000);
+        assertEquals(messageIds, read(bytes));
+    }
+
+    private byte[] write(TreeSet<Long> messageIds) throws IOException {
+        TreeSetLongWrapper wrapper = new TreeSetLongWrapper();
+        wrapper.setLongTreeSet(messageIds);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        serializer.write(HazelcastDataStreams.output(outputStream), wrapper);
+        return outputStream.toByteArray();
+    }
+
+    private TreeSet<Long> read(byte[] bytes) throws IOException {
+        return serializer.read(HazelcastDataStreams.input(bytes)).getLongTreeSet();
+    }
+
+    private static TreeSet<Long> messageIds(long... ids) {
+        TreeSet<Long> messageIds = new TreeSet<>();
+        for (long id : ids) {
+            messageIds.add(id);
+        }
+        return messageIds;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import org.junit.Test;
+import org.wso2.andes.kernel.slot.Slot;
+import org.wso2.andes.kernel.slot.SlotState;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link QueueSlotState}
+ */
+public class QueueSlotStateTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private static final String NODE_ID = "node";
+
+    @Test
+    public void testMessageIdsAreKeptSorted() {
+        QueueSlotState state = emptyState();
+
+        assertTrue(state.addMessageId(30));
+        assertTrue(state.addMessageId(10));
+        assertTrue(state.addMessageId(20));
+        assertFalse(state.addMessageId(20));
+        assertEquals(new TreeSet<>(Arrays.asList(10L, 20L, 30L)), state.getMessageIds());
+
+        assertTrue(state.removeMessageId(10));
+        assertFalse(state.removeMessageId(10));
+        assertEquals(Long.valueOf(20), state.getMessageIds().first());
+    }
+
+    @Test
+    public void testUnAssignedSlotIsOldestReturnedSlot() {
+        QueueSlotState state = emptyState();
+        state.createSlot(1, 10, NODE_ID);
+        state.createSlot(11, 20, NODE_ID);
+
+        assertNull(state.getUnAssignedSlot());
+
+        state.unassignSlotsOfNode(NODE_ID);
+        Slot unAssignedSlot = state.getUnAssignedSlot();
+        assertEquals(1, unAssignedSlot.getStartMessageId());
+        assertEquals(SlotState.RETURNED, unAssignedSlot.getCurrentState());
+
+        state.assignSlot(1, 10, "otherNode");
+        assertEquals(11, state.getUnAssignedSlot().getStartMessageId());
+    }
+
+    @Test
+    public void testOverlappedSlotIsNotDeleted() {
+        QueueSlotState state = emptyState();
+        state.createSlot(1, 10, NODE_ID);
+        state.setSlotState(1, 10, SlotState.OVERLAPPED);
+
+        assertFalse(state.deleteSlot(1, 10));
+        assertEquals(1, state.getOverlappedSlot(NODE_ID).getStartMessageId());
+        assertNull(state.getOverlappedSlot("otherNode"));
+
+        state.assignSlot(1, 10, NODE_ID);
+        assertNull(state.getOverlappedSlot(NODE_ID));
+        assertTrue(state.deleteSlot(1, 10));
+        assertTrue(state.deleteSlot(1, 10));
+        assertTrue(state.getAllSlots().isEmpty());
+    }
+
+    private QueueSlotState emptyState() {
+        return new QueueSlotState(QUEUE_NAME, 0, new TreeSet<Long>(), new LinkedHashMap<Slot, String>());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.server.cluster.coordination.rdbms;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for {@link SlotStateJournal}
+ */
+public class SlotStateJournalTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    /**
+     * Interval long enough for the background flusher not to run during a test
+     */
+    private static final int FLUSH_INTERVAL = 600000;
+
+    private RecordingSlotAgent slotAgent;
+
+    private SlotStateJournal journal;
+
+    @Before
+    public void setUp() {
+        slotAgent = new RecordingSlotAgent();
+        journal = new SlotStateJournal(slotAgent, FLUSH_INTERVAL);
+    }
+
+    @After
+    public void tearDown() throws AndesException {
+        slotAgent.failingMessageId = -1;
+        journal.stop();
+    }
+
+    @Test
+    public void testChangesAreWrittenInOrder() throws AndesException {
+        journal.addMessageId(QUEUE_NAME, 1);
+        journal.addMessageId(QUEUE_NAME, 2);
+        journal.addMessageId(QUEUE_NAME, 3);
+
+        journal.flush();
+
+        assertEquals(Arrays.asList("add 1", "add 2", "add 3"), slotAgent.writes);
+        assertFalse(journal.hasPendingChanges());
+    }
+
+    @Test
+    public void testFailedChangeIsWrittenAgain() throws AndesException {
+        journal.addMessageId(QUEUE_NAME, 1);
+        journal.addMessageId(QUEUE_NAME, 2);
+        journal.addMessageId(QUEUE_NAME, 3);
+        slotAgent.failingMessageId = 2;
+
+        try {
+            journal.flush();
+            fail("Flush should fail when a change cannot be written");
+        } catch (AndesException e) {
+            // Expected
+        }
+        assertEquals(Arrays.asList("add 1"), slotAgent.writes);
+        assertTrue(journal.hasPendingChanges());
+
+        slotAgent.failingMessageId = -1;
+        journal.flush();
+
+        assertEquals(Arrays.asList("add 1", "add 2", "add 3"), slotAgent.writes);
+        assertFalse(journal.hasPendingChanges());
+    }
+
+    @Test
+    public void testUnwrittenChangesAreWrittenBeforeLaterChanges() throws AndesException {
+        journal.addMessageId(QUEUE_NAME, 1);
+        journal.setLastAssignedId(QUEUE_NAME, 1);
+        slotAgent.failingMessageId = 1;
+
+        try {
+            journal.flush();
+            fail("Flush should fail when a change cannot be written");
+        } catch (AndesException e) {
+            // Expected
+        }
+
+        journal.addMessageId(QUEUE_NAME, 2);
+        journal.setLastAssignedId(QUEUE_NAME, 2);
+        slotAgent.failingMessageId = -1;
+        journal.flush();
+
+        // The older last assigned id is overwritten by the later one within the retried batch
+        assertEquals(Arrays.asList("add 1", "add 2", "lastAssigned 2"), slotAgent.writes);
+    }
+
+    @Test
+    public void testCancelledChangesAreNotRetried() throws AndesException {
+        journal.addMessageId(QUEUE_NAME, 1);
+        journal.addMessageId(QUEUE_NAME, 2);
+        journal.deleteMessageId(QUEUE_NAME, 1);
+        slotAgent.failingMessageId = 2;
+
+        try {
+            journal.flush();
+            fail("Flush should fail when a change cannot be written");
+        } catch (AndesException e) {
+            // Expected
+        }
+
+        slotAgent.failingMessageId = -1;
+        journal.flush();
+
+        assertEquals(Arrays.asList("add 2"), slotAgent.writes);
+    }
+
+    /**
+     * Slot agent recording writes instead of writing to the database
+     */
+    private static class RecordingSlotAgent extends DatabaseSlotAgent {
+
+        private final List<String> writes = new ArrayList<>();
+
+        private volatile long failingMessageId = -1;
+
+        @Override
+        public void addMessageId(String queueName, long messageId) throws AndesException {
+            if (messageId == failingMessageId) {
+                throw new AndesException("Database unavailable");
+            }
+            writes.add("add " + messageId);
+        }
+
+        @Override
+        public void deleteMessageId(String queueName, long messageId) throws AndesException {
+            writes.add("delete " + messageId);
+        }
+
+        @Override
+        public void setQueueToLastAssignedId(String queueName, long lastAssignedId) throws AndesException {
+            writes.add("lastAssigned " + lastAssignedId);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+
+package org.wso2.andes.server.information.management;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.andes.kernel.AndesChannel;
+import org.wso2.andes.kernel.AndesMessage;
+import org.wso2.andes.kernel.AndesMessageMetadata;
+import org.wso2.andes.kernel.AndesMessagePart;
+import org.wso2.andes.kernel.FlowControlListener;
+import org.wso2.andes.kernel.disruptor.inbound.PubAckHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link DLCBulkOperation}. The dead letter channel is kept in memory and flow control is raised and
+ * lifted by the test.
+ */
+public class DLCBulkOperationTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private static final String DLC_QUEUE_NAME = "DeadLetterChannel";
+
+    /**
+     * Messages of the queue in the dead letter channel by message id
+     */
+    private TreeMap<Long, AndesMessageMetadata> deadLetterChannel;
+
+    /**
+     * Message id ranges deleted from the dead letter channel, one per chunk
+     */
+    private List<String> deletedRanges;
+
+    /**
+     * Ids of the restored messages, in the order they were published
+     */
+    private List<Long> publishedMessageIds;
+
+    @Before
+    public void setUp() {
+        deadLetterChannel = new TreeMap<>();
+        deletedRanges = new ArrayList<>();
+        publishedMessageIds = new ArrayList<>();
+    }
+
+    /**
+     * A delete removes the range one chunk at a time and leaves messages outside the range
+     */
+    @Test
+    public void testDeleteRemovesRangeChunkByChunk() {
+        addMessages(1, 10);
+        addMessages(20, 20);
+
+        InMemoryDLCBulkOperation operation = new InMemoryDLCBulkOperation(DLCBulkOperation.Type.DELETE, 1, 10, 3);
+        operation.run();
+
+        assertEquals(DLCBulkOperation.State.COMPLETED, operation.getState());
+        assertEquals(Arrays.asList("1-3", "4-6", "7-9", "10-10"), deletedRanges);
+        assertEquals(Arrays.asList(20L), new ArrayList<>(deadLetterChannel.keySet()));
+        assertTrue(operation.getStatus().contains("Processed 10 of about 11 messages"));
+    }
+
+    /**
+     * A restore publishes every message of the range once and removes it from the dead letter channel
+     */
+    @Test
+    public void testRestorePublishesAndRemovesEachChunk() {
+        addMessages(1, 7);
+
+        InMemoryDLCBulkOperation operation = new InMemoryDLCBulkOperation(DLCBulkOperation.Type.RESTORE, 1, 7, 3);
+        operation.run();
+
+        assertEquals(DLCBulkOperation.State.COMPLETED, operation.getState());
+        assertEquals(messageIds(1, 7), publishedMessageIds);
+        assertTrue(deadLetterChannel.isEmpty());
+        assertEquals(0, operation.flowControlWaits);
+    }
+
+    /**
+     * Flow control raised in the middle of a chunk stops the chunk. Only the messages published are removed, and the
+     * restore resumes from the first message not published once flow control is lifted.
+     */
+    @Test
+    public void testRestoreResumesAfterFlowControlInterruption() {
+        addMessages(1, 7);
+
+        InMemoryDLCBulkOperation operation = new InMemoryDLCBulkOperation(DLCBulkOperation.Type.RESTORE, 1, 7, 3);
+        operation.blockAfterPublishing = 2;
+        operation.run();
+
+        assertEquals(DLCBulkOperation.State.COMPLETED, operation.getState());
+        assertEquals(messageIds(1, 7), publishedMessageIds);
+        assertTrue(deadLetterChannel.isEmpty());
+        assertEquals(1, operation.flowControlWaits);
+        assertTrue(operation.getStatus().contains("Processed 7 of about 7 messages"));
+    }
+
+    /**
+     * A restore blocked by flow control before publishing anything waits and then restores the whole range
+     */
+    @Test
+    public void testRestoreWaitsForFlowControlBeforeFirstChunk() {
+        addMessages(1, 4);
+
+        InMemoryDLCBulkOperation operation = new InMemoryDLCBulkOperation(DLCBulkOperation.Type.RESTORE, 1, 4, 3);
+        operation.blockedOnStart = true;
+        operation.run();
+
+        assertEquals(DLCBulkOperation.State.COMPLETED, operation.getState());
+        assertEquals(messageIds(1, 4), publishedMessageIds);
+        assertEquals(1, operation.flowControlWaits);
+    }
+
+    /**
+     * A cancelled operation stops after the chunk being processed
+     */
+    @Test
+    public void testCancelStopsAfterCurrentChunk() {
+        addMessages(1, 10);
+
+        InMemoryDLCBulkOperation operation = new InMemoryDLCBulkOperation(DLCBulkOperation.Type.DELETE, 1, 10,
+                3) {
+            @Override
+            int deleteChunk(long firstChunkMessageId, long lastChunkMessageId) {
+                cancel();
+                return super.deleteChunk(firstChunkMessageId, lastChunkMessageId);
+            }
+        };
+        operation.run();
+
+        assertEquals(DLCBulkOperation.State.CANCELLED, operation.getState());
+        assertEquals(Arrays.asList("1-3"), deletedRanges);
+        assertEquals(7, deadLetterChannel.size());
+    }
+
+    private void addMessages(long firstMessageId, long lastMessageId) {
+        for (long messageId = firstMessageId; messageId <= lastMessageId; messageId++) {
+            AndesMessageMetadata metadata = new AndesMessageMetadata(messageId, new byte[0], false);
+            metadata.setDestination(QUEUE_NAME);
+            deadLetterChannel.put(messageId, metadata);
+        }
+    }
+
+    private static List<Long> messageIds(long firstMessageId, long lastMessageId) {
+        List<Long> messageIds = new ArrayList<>();
+        for (long messageId = firstMessageId; messageId <= lastMessageId; messageId++) {
+            messageIds.add(messageId);
+        }
+        return messageIds;
+    }
+
+    /**
+     * Bulk operation working on the in memory dead letter channel
+     */
+    private class InMemoryDLCBulkOperation extends DLCBulkOperation {
+
+        private final int chunkSize;
+
+        private FlowControlListener flowControlListener;
+
+        /**
+         * Raise flow control once this many messages are published, 0 to never raise it
+         */
+        private int blockAfterPublishing;
+
+        /**
+         * Raise flow control as soon as the channel is created
+         */
+        private boolean blockedOnStart;
+
+        private int flowControlWaits;
+
+        InMemoryDLCBulkOperation(Type type, long firstMessageId, long lastMessageId, int chunkSize) {
+            super("operation", type, QUEUE_NAME, DLC_QUEUE_NAME, null, firstMessageId, lastMessageId, chunkSize, 0);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        long getMessageCount() {
+            return deadLetterChannel.size();
+        }
+
+        @Override
+        List<AndesMessageMetadata> readChunk(long nextMessageId) {
+            List<AndesMessageMetadata> chunk = new ArrayList<>();
+            for (AndesMessageMetadata metadata : deadLetterChannel.tailMap(nextMessageId, true).values()) {
+                if (chunk.size() == chunkSize) {
+                    break;
+                }
+                chunk.add(metadata);
+            }
+            return chunk;
+        }
+
+        @Override
+        LongObjectHashMap<List<AndesMessagePart>> getContent(LongArrayList messageIds) {
+            return new LongObjectHashMap<>();
+        }
+
+        @Override
+        int deleteChunk(long firstChunkMessageId, long lastChunkMessageId) {
+            deletedRanges.add(firstChunkMessageId + "-" + lastChunkMessageId);
+            TreeMap<Long, AndesMessageMetadata> chunk =
+                    new TreeMap<>(deadLetterChannel.subMap(firstChunkMessageId, true, lastChunkMessageId, true));
+            deadLetterChannel.keySet().removeAll(chunk.keySet());
+            return chunk.size();
+        }
+
+        @Override
+        void deleteRestoredMessages(List<AndesMessageMetadata> restoredMessages) {
+            for (AndesMessageMetadata metadata : restoredMessages) {
+                deadLetterChannel.remove(metadata.getMessageID());
+            }
+        }
+
+        @Override
+        void setRestoreDestination(AndesMessageMetadata metadata) {
+            metadata.setStorageQueueName(metadata.getDestination());
+        }
+
+        @Override
+        void publish(AndesMessage andesMessage, AndesChannel andesChannel, PubAckHandler pubAckHandler) {
+            publishedMessageIds.add(andesMessage.getMetadata().getMessageID());
+            if (publishedMessageIds.size() == blockAfterPublishing) {
+                flowControlListener.block();
+            }
+        }
+
+        @Override
+        AndesChannel createChannel(FlowControlListener flowControlListener) {
+            this.flowControlListener = flowControlListener;
+            if (blockedOnStart) {
+                flowControlListener.block();
+            }
+            return null;
+        }
+
+        @Override
+        void waitForFlowControl() {
+            flowControlWaits++;
+            flowControlListener.unblock();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+
+package org.wso2.andes.store.rdbms;
+
+import com.gs.collections.impl.list.mutable.primitive.LongArrayList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for deleting messages of a queue in a message id range, from the queue or from the dead letter channel,
+ * through {@link RDBMSMessageStoreImpl}. The metadata and expiry tables are kept in memory behind a JDBC connection
+ * which understands the statements used by the deletion.
+ */
+public class MetadataRangeDeletionTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private static final int QUEUE_ID = 1;
+
+    private static final String OTHER_QUEUE_NAME = "otherQueue";
+
+    private static final int OTHER_QUEUE_ID = 2;
+
+    private static final int DLC_QUEUE_ID = 3;
+
+    /**
+     * Metadata rows by message id
+     */
+    private TreeMap<Long, Row> metadataTable;
+
+    /**
+     * Expiry data rows by message id
+     */
+    private TreeMap<Long, Row> expiryTable;
+
+    private Connection connection;
+
+    private RDBMSMessageStoreImpl messageStore;
+
+    @Before
+    public void setUp() {
+        metadataTable = new TreeMap<>();
+        expiryTable = new TreeMap<>();
+        connection = proxy(Connection.class, new ConnectionHandler());
+        messageStore = new RDBMSMessageStoreImpl();
+    }
+
+    /**
+     * Only messages of the queue within the range are deleted, and their ids are reported
+     */
+    @Test
+    public void testMessagesOfQueueInRangeAreDeleted() throws Exception {
+        for (long messageID = 1; messageID <= 10; messageID++) {
+            addMessage(messageID, QUEUE_ID, QUEUE_NAME, false);
+        }
+        addMessage(11, OTHER_QUEUE_ID, OTHER_QUEUE_NAME, false);
+        addMessage(12, QUEUE_ID, QUEUE_NAME, false);
+
+        LongArrayList deletedMessageIDs = new LongArrayList();
+        int deletedCount = messageStore.deleteMessageMetadataInRange(connection, QUEUE_ID, QUEUE_NAME, 4, 11,
+                deletedMessageIDs);
+
+        assertEquals(7, deletedCount);
+        assertEquals(LongArrayList.newListWith(4, 5, 6, 7, 8, 9, 10), deletedMessageIDs);
+        assertEquals(5, metadataTable.size());
+        assertTrue(metadataTable.keySet().containsAll(Arrays.asList(1L, 2L, 3L, 11L, 12L)));
+    }
+
+    /**
+     * Messages of the queue which are in the dead letter channel are kept
+     */
+    @Test
+    public void testMessagesInDeadLetterChannelAreKept() throws Exception {
+        addMessage(1, QUEUE_ID, QUEUE_NAME, false);
+        addMessage(2, QUEUE_ID, QUEUE_NAME, true);
+        addMessage(3, QUEUE_ID, QUEUE_NAME, false);
+
+        LongArrayList deletedMessageIDs = new LongArrayList();
+        int deletedCount = messageStore.deleteMessageMetadataInRange(connection, QUEUE_ID, QUEUE_NAME, 0,
+                Long.MAX_VALUE, deletedMessageIDs);
+
+        assertEquals(2, deletedCount);
+        assertEquals(LongArrayList.newListWith(1, 3), deletedMessageIDs);
+        assertTrue(metadataTable.containsKey(2L));
+        assertTrue(expiryTable.containsKey(2L));
+    }
+
+    /**
+     * Expiry data of the deleted messages is deleted, expiry data of other messages is kept
+     */
+    @Test
+    public void testExpiryDataOfDeletedMessagesIsDeleted() throws Exception {
+        addMessage(1, QUEUE_ID, QUEUE_NAME, false);
+        addMessage(2, QUEUE_ID, QUEUE_NAME, false);
+        addMessage(3, OTHER_QUEUE_ID, OTHER_QUEUE_NAME, false);
+        addMessage(4, QUEUE_ID, QUEUE_NAME, false);
+
+        messageStore.deleteMessageMetadataInRange(connection, QUEUE_ID, QUEUE_NAME, 1, 3, new LongArrayList());
+
+        assertFalse(expiryTable.containsKey(1L));
+        assertFalse(expiryTable.containsKey(2L));
+        assertTrue(expiryTable.containsKey(3L));
+        assertTrue(expiryTable.containsKey(4L));
+    }
+
+    /**
+     * Deleting from the dead letter channel removes messages of the queue in the range which are in the given dead
+     * letter channel, along with their expiry data
+     */
+    @Test
+    public void testDLCMessagesOfQueueInRangeAreDeleted() throws Exception {
+        addMessage(1, QUEUE_ID, QUEUE_NAME, true);
+        addMessage(2, QUEUE_ID, QUEUE_NAME, false);
+        addMessage(3, OTHER_QUEUE_ID, OTHER_QUEUE_NAME, true);
+        addMessage(4, QUEUE_ID, QUEUE_NAME, true);
+        addMessage(5, QUEUE_ID, QUEUE_NAME, true);
+
+        int deletedCount = messageStore.deleteDLCMessagesForQueueInRange(connection, QUEUE_ID, DLC_QUEUE_ID,
+                QUEUE_NAME, 1, 4);
+
+        assertEquals(2, deletedCount);
+        assertEquals(Arrays.asList(2L, 3L, 5L), new ArrayList<>(metadataTable.keySet()));
+        assertEquals(Arrays.asList(2L, 3L, 5L), new ArrayList<>(expiryTable.keySet()));
+    }
+
+    private void addMessage(long messageID, int queueID, String queueName, boolean inDeadLetterChannel) {
+        int dlcQueueID = inDeadLetterChannel ? DLC_QUEUE_ID : -1;
+        metadataTable.put(messageID, new Row(queueID, queueName, dlcQueueID));
+        expiryTable.put(messageID, new Row(queueID, queueName, dlcQueueID));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(MetadataRangeDeletionTest.class.getClassLoader(), new Class[]{type},
+                handler);
+    }
+
+    /**
+     * Default value for methods not relevant to the test
+     */
+    private static Object defaultValue(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (boolean.class == returnType) {
+            return false;
+        } else if (int.class == returnType) {
+            return 0;
+        }
+        return null;
+    }
+
+    private static class Row {
+
+        private final int queueID;
+
+        private final String queueName;
+
+        private final int dlcQueueID;
+
+        Row(int queueID, String queueName, int dlcQueueID) {
+            this.queueID = queueID;
+            this.queueName = queueName;
+            this.dlcQueueID = dlcQueueID;
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("prepareStatement".equals(method.getName())) {
+                return proxy(PreparedStatement.class, new StatementHandler((String) args[0]));
+            }
+            return defaultValue(method);
+        }
+    }
+
+    /**
+     * Executes the statements of the range deletion against the in memory tables
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final String sql;
+
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        StatementHandler(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "setLong":
+                case "setInt":
+                case "setString":
+                    parameters.put((Integer) args[0], args[1]);
+                    return null;
+                case "executeQuery":
+                    if (!RDBMSConstants.PS_SELECT_MESSAGE_IDS_RANGE_FROM_QUEUE.equals(sql)) {
+                        throw new UnsupportedOperationException(sql);
+                    }
+                    List<Long> messageIDs = new ArrayList<>();
+                    for (Map.Entry<Long, Row> row : rangeOf(metadataTable, 2).entrySet()) {
+                        if (row.getValue().queueID == (Integer) parameters.get(1) && -1 == row.getValue().dlcQueueID) {
+                            messageIDs.add(row.getKey());
+                        }
+                    }
+                    return proxy(ResultSet.class, new ResultSetHandler(messageIDs));
+                case "executeUpdate":
+                    return executeUpdate();
+                default:
+                    return defaultValue(method);
+            }
+        }
+
+        private int executeUpdate() {
+            Map<Long, Row> table;
+            int dlcQueueID = -1;
+            if (RDBMSConstants.PS_DELETE_EXPIRY_DATA_RANGE_FROM_QUEUE.equals(sql)) {
+                table = rangeOf(expiryTable, 2);
+            } else if (RDBMSConstants.PS_DELETE_METADATA_RANGE_FROM_QUEUE.equals(sql)) {
+                table = rangeOf(metadataTable, 2);
+            } else if (RDBMSConstants.PS_DELETE_EXPIRY_DATA_RANGE_FROM_QUEUE_IN_DLC.equals(sql)) {
+                table = rangeOf(expiryTable, 3);
+                dlcQueueID = (Integer) parameters.get(2);
+            } else if (RDBMSConstants.PS_DELETE_METADATA_RANGE_FROM_QUEUE_IN_DLC.equals(sql)) {
+                table = rangeOf(metadataTable, 3);
+                dlcQueueID = (Integer) parameters.get(2);
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+
+            int deletedCount = 0;
+            Iterator<Row> rows = table.values().iterator();
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                boolean ofQueue = parameters.get(1) instanceof String
+                        ? parameters.get(1).equals(row.queueName)
+                        : parameters.get(1).equals(row.queueID);
+                if (ofQueue && dlcQueueID == row.dlcQueueID) {
+                    rows.remove();
+                    deletedCount++;
+                }
+            }
+            return deletedCount;
+        }
+
+        /**
+         * Rows of the table with message ids between the parameters at the given index and the next index
+         */
+        private Map<Long, Row> rangeOf(TreeMap<Long, Row> table, int firstMessageIdIndex) {
+            return table.subMap((Long) parameters.get(firstMessageIdIndex), true,
+                    (Long) parameters.get(firstMessageIdIndex + 1), true);
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final Iterator<Long> messageIDs;
+
+        private Long currentMessageID;
+
+        ResultSetHandler(List<Long> messageIDs) {
+            this.messageIDs = messageIDs.iterator();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "next":
+                    currentMessageID = messageIDs.hasNext() ? messageIDs.next() : null;
+                    return null != currentMessageID;
+                case "getLong":
+                    return currentMessageID;
+                default:
+                    return defaultValue(method);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link MetadataRangeLayout}
+ */
+public class MetadataRangeLayoutTest {
+
+    @Test
+    public void testSharedLayout() {
+        assertFalse(new MetadataRangeLayout(0).isPartitioned());
+        assertFalse(new MetadataRangeLayout(-10).isPartitioned());
+    }
+
+    @Test
+    public void testRangeEnd() {
+        MetadataRangeLayout layout = new MetadataRangeLayout(1000);
+
+        assertTrue(layout.isPartitioned());
+        assertEquals(999, layout.getRangeEnd(0));
+        assertEquals(999, layout.getRangeEnd(999));
+        assertEquals(1999, layout.getRangeEnd(1000));
+        assertEquals(1999, layout.getRangeEnd(1500));
+    }
+
+    @Test
+    public void testRangeEndDoesNotOverflow() {
+        MetadataRangeLayout layout = new MetadataRangeLayout(1000);
+
+        assertEquals(Long.MAX_VALUE, layout.getRangeEnd(Long.MAX_VALUE - 1));
+        assertEquals(Long.MAX_VALUE, layout.getRangeEnd(Long.MAX_VALUE));
+    }
+}
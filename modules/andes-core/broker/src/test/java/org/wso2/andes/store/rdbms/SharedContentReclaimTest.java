@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for shared content reclamation of {@link RDBMSMessageStoreImpl}. The metadata table is kept in memory
+ * behind a JDBC connection which understands the statements used by the reclaim.
+ */
+public class SharedContentReclaimTest {
+
+    private static final int SHARED_CONTENT_QUEUE_ID = 7;
+
+    private static final int QUEUE_ID = 1;
+
+    /**
+     * Metadata rows by message id
+     */
+    private TreeMap<Long, MetadataRow> metadataTable;
+
+    private Connection connection;
+
+    private RDBMSMessageStoreImpl messageStore;
+
+    @Before
+    public void setUp() {
+        metadataTable = new TreeMap<>();
+        connection = proxy(Connection.class, new ConnectionHandler());
+        messageStore = new RDBMSMessageStoreImpl();
+    }
+
+    /**
+     * Shared content is deleted once the last message referring to it is deleted
+     */
+    @Test
+    public void testContentIsReclaimedWhenLastReferenceIsDeleted() throws Exception {
+        addSharedContent(100, 1, 2);
+        addMessage(1);
+        addMessage(2);
+
+        metadataTable.remove(1L);
+        messageStore.reclaimSharedContent(connection, SHARED_CONTENT_QUEUE_ID, 0, 10);
+        assertTrue(metadataTable.containsKey(100L));
+
+        metadataTable.remove(2L);
+        messageStore.reclaimSharedContent(connection, SHARED_CONTENT_QUEUE_ID, 0, 10);
+        assertFalse(metadataTable.containsKey(100L));
+    }
+
+    /**
+     * Shared content is kept while any message refers to it, and only unreferred contents are deleted
+     */
+    @Test
+    public void testContentIsKeptWhileReferenceRemains() throws Exception {
+        addSharedContent(100, 1, 2);
+        addSharedContent(101, 3);
+        addMessage(2);
+
+        messageStore.reclaimSharedContent(connection, SHARED_CONTENT_QUEUE_ID, 0, 10);
+
+        assertTrue(metadataTable.containsKey(100L));
+        assertFalse(metadataTable.containsKey(101L));
+        assertTrue(metadataTable.containsKey(2L));
+    }
+
+    /**
+     * Each call inspects one batch in id order and reports where the next batch starts, 0 at the end of the scan
+     */
+    @Test
+    public void testScanIsPagedAcrossCalls() throws Exception {
+        for (long sharedContentID = 100; sharedContentID < 105; sharedContentID++) {
+            addSharedContent(sharedContentID, sharedContentID - 99);
+        }
+
+        assertEquals(101, messageStore.reclaimSharedContent(connection, SHARED_CONTENT_QUEUE_ID, 0, 2));
+        assertFalse(metadataTable.containsKey(100L));
+        assertFalse(metadataTable.containsKey(101L));
+        assertTrue(metadataTable.containsKey(102L));
+
+        assertEquals(103, messageStore.reclaimSharedContent(connection, SHARED_CONTENT_QUEUE_ID, 101, 2));
+        assertEquals(0, messageStore.reclaimSharedContent(connection, SHARED_CONTENT_QUEUE_ID, 103, 2));
+        assertTrue(metadataTable.isEmpty());
+    }
+
+    /**
+     * Staged messages published by a transaction become shared content under their negative staged ids, a scan
+     * started from the beginning includes them
+     */
+    @Test
+    public void testStagedContentIsReclaimed() throws Exception {
+        addSharedContent(-5, 1);
+        addSharedContent(-4, 2);
+        addMessage(2);
+
+        assertEquals(0, messageStore.reclaimSharedContent(connection, SHARED_CONTENT_QUEUE_ID, 0, 10));
+
+        assertFalse(metadataTable.containsKey(-5L));
+        assertTrue(metadataTable.containsKey(-4L));
+    }
+
+    private void addSharedContent(long sharedContentID, long... referringMessageIDs) {
+        ByteBuffer references = ByteBuffer.allocate(referringMessageIDs.length * Long.SIZE / Byte.SIZE);
+        for (long messageID : referringMessageIDs) {
+            references.putLong(messageID);
+        }
+        metadataTable.put(sharedContentID, new MetadataRow(SHARED_CONTENT_QUEUE_ID, references.array()));
+    }
+
+    private void addMessage(long messageID) {
+        metadataTable.put(messageID, new MetadataRow(QUEUE_ID, new byte[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SharedContentReclaimTest.class.getClassLoader(), new Class[]{type},
+                handler);
+    }
+
+    /**
+     * Default value for methods not relevant to the test
+     */
+    private static Object defaultValue(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (boolean.class == returnType) {
+            return false;
+        } else if (int.class == returnType) {
+            return 0;
+        }
+        return null;
+    }
+
+    private static class MetadataRow {
+
+        private final int queueID;
+
+        private final byte[] metadata;
+
+        MetadataRow(int queueID, byte[] metadata) {
+            this.queueID = queueID;
+            this.metadata = metadata;
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("prepareStatement".equals(method.getName())) {
+                return proxy(PreparedStatement.class, new StatementHandler((String) args[0]));
+            }
+            return defaultValue(method);
+        }
+    }
+
+    /**
+     * Executes the statements of the reclaim against the in memory metadata table
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final String sql;
+
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        private final List<Long> batch = new ArrayList<>();
+
+        private int maxRows;
+
+        StatementHandler(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "setMaxRows":
+                    maxRows = (Integer) args[0];
+                    return null;
+                case "setLong":
+                case "setInt":
+                    parameters.put((Integer) args[0], args[1]);
+                    return null;
+                case "addBatch":
+                    batch.add((Long) parameters.get(1));
+                    return null;
+                case "executeBatch":
+                    for (Long messageID : batch) {
+                        metadataTable.remove(messageID);
+                    }
+                    return new int[batch.size()];
+                case "executeQuery":
+                    return proxy(ResultSet.class, new ResultSetHandler(executeQuery()));
+                default:
+                    return defaultValue(method);
+            }
+        }
+
+        private List<Map.Entry<Long, MetadataRow>> executeQuery() {
+            List<Map.Entry<Long, MetadataRow>> rows = new ArrayList<>();
+            if (RDBMSConstants.PS_SELECT_METADATA_FROM_QUEUE.equals(sql)) {
+                long lastMessageID = (Long) parameters.get(1);
+                int queueID = (Integer) parameters.get(2);
+                for (Map.Entry<Long, MetadataRow> row : metadataTable.tailMap(lastMessageID, false).entrySet()) {
+                    if (row.getValue().queueID == queueID && (0 == maxRows || rows.size() < maxRows)) {
+                        rows.add(row);
+                    }
+                }
+            } else if (sql.startsWith("SELECT " + RDBMSConstants.MESSAGE_ID + " FROM "
+                    + RDBMSConstants.METADATA_TABLE + " WHERE " + RDBMSConstants.MESSAGE_ID + " IN (")) {
+                for (Map.Entry<Long, MetadataRow> row : metadataTable.entrySet()) {
+                    if (parameters.containsValue(row.getKey())) {
+                        rows.add(row);
+                    }
+                }
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+            return rows;
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final Iterator<Map.Entry<Long, MetadataRow>> rows;
+
+        private Map.Entry<Long, MetadataRow> currentRow;
+
+        ResultSetHandler(List<Map.Entry<Long, MetadataRow>> rows) {
+            this.rows = rows.iterator();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "next":
+                    currentRow = rows.hasNext() ? rows.next() : null;
+                    return null != currentRow;
+                case "getLong":
+                    return currentRow.getKey();
+                case "getBytes":
+                    return currentRow.getValue().metadata;
+                default:
+                    return defaultValue(method);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.store.rdbms;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for {@link VariableArityStatement}
+ */
+public class VariableArityStatementTest {
+
+    @Test
+    public void testParameterCountIsRoundedUpToShape() {
+        assertEquals(1, VariableArityStatement.getParameterCount(1));
+        assertEquals(2, VariableArityStatement.getParameterCount(2));
+        assertEquals(4, VariableArityStatement.getParameterCount(3));
+        assertEquals(8, VariableArityStatement.getParameterCount(5));
+        assertEquals(8, VariableArityStatement.getParameterCount(8));
+        assertEquals(VariableArityStatement.MAX_PARAMETER_COUNT,
+                VariableArityStatement.getParameterCount(VariableArityStatement.MAX_PARAMETER_COUNT - 1));
+        assertEquals(VariableArityStatement.MAX_PARAMETER_COUNT,
+                VariableArityStatement.getParameterCount(VariableArityStatement.MAX_PARAMETER_COUNT * 3));
+    }
+
+    @Test
+    public void testShapeSql() {
+        VariableArityStatement statement = new VariableArityStatement("test", "SELECT A FROM T WHERE B IN (", ")");
+
+        assertEquals("SELECT A FROM T WHERE B IN (?)", statement.getSql(1));
+        assertEquals("SELECT A FROM T WHERE B IN (?,?,?,?)", statement.getSql(4));
+    }
+}
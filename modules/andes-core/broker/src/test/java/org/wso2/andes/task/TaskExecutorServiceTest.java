@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+
+package org.wso2.andes.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link TaskExecutorService}
+ */
+public class TaskExecutorServiceTest {
+
+    /**
+     * Long enough for an idle task not to be checked again by the idle timer during a test
+     */
+    private static final long IDLE_TASK_DELAY_MILLIS = 60000;
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private TaskExecutorService<Task> taskExecutorService;
+
+    @After
+    public void tearDown() {
+        if (null != taskExecutorService) {
+            taskExecutorService.stop();
+        }
+    }
+
+    /**
+     * Every added task is processed until it reports idle
+     */
+    @Test
+    public void testAllTasksAreExecuted() throws Exception {
+        taskExecutorService = newTaskExecutorService(4);
+        int taskCount = 200;
+        final int activeRuns = 5;
+        final CountDownLatch completed = new CountDownLatch(taskCount);
+
+        for (int i = 0; i < taskCount; i++) {
+            taskExecutorService.add(new TestTask("task-" + i) {
+                @Override
+                public TaskHint call() {
+                    if (incrementRunCount() < activeRuns) {
+                        return TaskHint.ACTIVE;
+                    }
+                    if (getRunCount() == activeRuns) {
+                        completed.countDown();
+                    }
+                    return TaskHint.IDLE;
+                }
+            });
+        }
+        taskExecutorService.start();
+
+        assertTrue(completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * An idle task is parked and processed again as soon as it is woken up
+     */
+    @Test
+    public void testParkedTaskIsExecutedOnWakeUp() throws Exception {
+        taskExecutorService = newTaskExecutorService(2);
+        final Semaphore runs = new Semaphore(0);
+        TestTask task = new TestTask("task") {
+            @Override
+            public TaskHint call() {
+                incrementRunCount();
+                runs.release();
+                return TaskHint.IDLE;
+            }
+        };
+        taskExecutorService.start();
+        taskExecutorService.add(task);
+        assertTrue(runs.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // Parked, hence not processed again until woken up
+        assertFalse(runs.tryAcquire(200, TimeUnit.MILLISECONDS));
+
+        taskExecutorService.wakeUp("task");
+        assertTrue(runs.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, task.getRunCount());
+    }
+
+    /**
+     * A task is processed by another processor while the processor it is affine to is busy with a long running
+     * task
+     */
+    @Test
+    public void testTaskOfBusyWorkerIsStolen() throws Exception {
+        taskExecutorService = newTaskExecutorService(2);
+        final CountDownLatch blockingTaskStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlockingTask = new CountDownLatch(1);
+        final CountDownLatch stolenTaskRan = new CountDownLatch(1);
+
+        taskExecutorService.start();
+        taskExecutorService.add(new TestTask(TaskSchedulerTest.taskIdForWorker(0, 0)) {
+            @Override
+            public TaskHint call() throws Exception {
+                blockingTaskStarted.countDown();
+                releaseBlockingTask.await();
+                return TaskHint.IDLE;
+            }
+        });
+        assertTrue(blockingTaskStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        taskExecutorService.add(new TestTask(TaskSchedulerTest.taskIdForWorker(0, 1)) {
+            @Override
+            public TaskHint call() {
+                stolenTaskRan.countDown();
+                return TaskHint.IDLE;
+            }
+        });
+
+        try {
+            assertTrue(stolenTaskRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            releaseBlockingTask.countDown();
+        }
+    }
+
+    /**
+     * A removed task is notified and not processed anymore
+     */
+    @Test
+    public void testRemovedTaskIsNotExecuted() throws Exception {
+        taskExecutorService = newTaskExecutorService(2);
+        final CountDownLatch removed = new CountDownLatch(1);
+        TestTask task = new TestTask("task") {
+            @Override
+            public void onRemove() {
+                removed.countDown();
+            }
+        };
+        taskExecutorService.start();
+        taskExecutorService.add(task);
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (task.getRunCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        taskExecutorService.remove("task");
+        assertTrue(removed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        int runCount = task.getRunCount();
+        taskExecutorService.wakeUp("task");
+        Thread.sleep(200);
+        assertEquals(runCount, task.getRunCount());
+        assertEquals(null, taskExecutorService.getTask("task"));
+    }
+
+    private static TaskExecutorService<Task> newTaskExecutorService(int workerCount) {
+        return new TaskExecutorService<>(workerCount, IDLE_TASK_DELAY_MILLIS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TaskExecutorServiceTest");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Task counting its runs. Stays active by default
+     */
+    private static class TestTask extends Task {
+
+        private final String id;
+
+        private final AtomicInteger runCount = new AtomicInteger();
+
+        TestTask(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public TaskHint call() throws Exception {
+            incrementRunCount();
+            return TaskHint.ACTIVE;
+        }
+
+        int incrementRunCount() {
+            return runCount.incrementAndGet();
+        }
+
+        int getRunCount() {
+            return runCount.get();
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+}
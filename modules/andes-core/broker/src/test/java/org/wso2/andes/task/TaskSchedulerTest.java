@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+
+package org.wso2.andes.task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for {@link TaskScheduler}. Processors are driven by the test thread, hence each step is deterministic.
+ */
+public class TaskSchedulerTest {
+
+    private static final int WORKER_COUNT = 2;
+
+    private static final long IDLE_TASK_DELAY_MILLIS = 1000;
+
+    private static final long MAX_IDLE_TASK_DELAY_MILLIS = 3000;
+
+    private ScheduledExecutorService idleTaskTimer;
+
+    private TaskScheduler taskScheduler;
+
+    private final AtomicBoolean active = new AtomicBoolean(true);
+
+    @Before
+    public void setUp() {
+        idleTaskTimer = Executors.newSingleThreadScheduledExecutor();
+        taskScheduler = new TaskScheduler(WORKER_COUNT, IDLE_TASK_DELAY_MILLIS, MAX_IDLE_TASK_DELAY_MILLIS,
+                idleTaskTimer);
+    }
+
+    @After
+    public void tearDown() {
+        idleTaskTimer.shutdownNow();
+    }
+
+    /**
+     * A woken up task is queued to the processor it is affine to and taken from there
+     */
+    @Test
+    public void testTaskIsQueuedToHomeWorker() {
+        TaskHolder<TestTask> taskHolder = taskScheduler.createHolder(new TestTask(taskIdForWorker(1, 0)));
+        assertEquals(1, taskHolder.getHomeWorker());
+
+        taskScheduler.wakeUp(taskHolder);
+        assertEquals(TaskHolder.SCHEDULED, taskHolder.getState().get());
+        assertEquals(1, taskScheduler.queuedTaskCount());
+
+        assertSame(taskHolder, taskScheduler.next(1, active));
+        assertEquals(TaskHolder.RUNNING, taskHolder.getState().get());
+        assertEquals(0, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * A processor without tasks of its own steals from the tail of another processor's queue, while the owner keeps
+     * taking from the head
+     */
+    @Test
+    public void testIdleWorkerStealsFromTailOfOtherWorker() {
+        TaskHolder<TestTask> first = taskScheduler.createHolder(new TestTask(taskIdForWorker(0, 0)));
+        TaskHolder<TestTask> second = taskScheduler.createHolder(new TestTask(taskIdForWorker(0, 1)));
+        TaskHolder<TestTask> third = taskScheduler.createHolder(new TestTask(taskIdForWorker(0, 2)));
+        taskScheduler.wakeUp(first);
+        taskScheduler.wakeUp(second);
+        taskScheduler.wakeUp(third);
+
+        assertSame(third, taskScheduler.next(1, active));
+        assertSame(first, taskScheduler.next(0, active));
+        assertSame(second, taskScheduler.next(1, active));
+        assertEquals(0, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * An active task is queued again right after it is processed
+     */
+    @Test
+    public void testActiveTaskIsQueuedAgain() {
+        TaskHolder<TestTask> taskHolder = runningTask();
+
+        taskScheduler.onTaskProcessed(taskHolder, Task.TaskHint.ACTIVE);
+
+        assertEquals(TaskHolder.SCHEDULED, taskHolder.getState().get());
+        assertEquals(1, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * An idle task is parked and not queued until an event wakes it up
+     */
+    @Test
+    public void testIdleTaskIsParkedUntilWokenUp() {
+        TaskHolder<TestTask> taskHolder = runningTask();
+
+        taskScheduler.onTaskProcessed(taskHolder, Task.TaskHint.IDLE);
+        assertEquals(TaskHolder.PARKED, taskHolder.getState().get());
+        assertEquals(0, taskScheduler.queuedTaskCount());
+
+        taskScheduler.wakeUp(taskHolder);
+        assertEquals(TaskHolder.SCHEDULED, taskHolder.getState().get());
+        assertEquals(1, taskScheduler.queuedTaskCount());
+
+        // Waking up a task which is already queued does not queue it twice
+        taskScheduler.wakeUp(taskHolder);
+        assertEquals(1, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * A task woken up while it runs is queued again even if the run turns out idle
+     */
+    @Test
+    public void testTaskWokenUpWhileRunningIsQueuedAgain() {
+        TaskHolder<TestTask> taskHolder = runningTask();
+
+        taskScheduler.wakeUp(taskHolder);
+        assertEquals(TaskHolder.RUNNING_NOTIFIED, taskHolder.getState().get());
+        assertEquals(0, taskScheduler.queuedTaskCount());
+
+        taskScheduler.onTaskProcessed(taskHolder, Task.TaskHint.IDLE);
+        assertEquals(TaskHolder.SCHEDULED, taskHolder.getState().get());
+        assertEquals(1, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * The delay for checking an idle task again doubles up to the maximum, and is reset by an event
+     */
+    @Test
+    public void testIdleDelayDoublesUpToMaximumAndIsReset() {
+        TaskHolder<TestTask> taskHolder = runningTask();
+
+        taskScheduler.onTaskProcessed(taskHolder, Task.TaskHint.IDLE);
+        assertEquals(2 * IDLE_TASK_DELAY_MILLIS, taskHolder.getIdleDelayMillis());
+
+        // Mimic the idle timer, which does not reset the delay
+        taskHolder.getState().set(TaskHolder.RUNNING);
+        taskScheduler.onTaskProcessed(taskHolder, Task.TaskHint.IDLE);
+        assertEquals(MAX_IDLE_TASK_DELAY_MILLIS, taskHolder.getIdleDelayMillis());
+
+        taskScheduler.wakeUp(taskHolder);
+        assertEquals(IDLE_TASK_DELAY_MILLIS, taskHolder.getIdleDelayMillis());
+    }
+
+    /**
+     * A parked task is queued by the idle timer once its delay is over
+     */
+    @Test
+    public void testParkedTaskIsQueuedByIdleTimer() throws Exception {
+        taskScheduler = new TaskScheduler(WORKER_COUNT, 10, 10, idleTaskTimer);
+        TaskHolder<TestTask> taskHolder = runningTask();
+
+        taskScheduler.onTaskProcessed(taskHolder, Task.TaskHint.IDLE);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (taskScheduler.queuedTaskCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(TaskHolder.SCHEDULED, taskHolder.getState().get());
+        assertEquals(1, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * A removed task is not queued again by events
+     */
+    @Test
+    public void testRemovedTaskIsNotQueued() {
+        TaskHolder<TestTask> taskHolder = runningTask();
+
+        taskScheduler.onTaskRemoved(taskHolder);
+        taskScheduler.wakeUp(taskHolder);
+
+        assertEquals(TaskHolder.REMOVED, taskHolder.getState().get());
+        assertEquals(0, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * A deactivated processor gets no task
+     */
+    @Test
+    public void testDeactivatedWorkerGetsNoTask() {
+        TaskHolder<TestTask> taskHolder = taskScheduler.createHolder(new TestTask(taskIdForWorker(0, 0)));
+        taskScheduler.wakeUp(taskHolder);
+
+        assertNull(taskScheduler.next(0, new AtomicBoolean(false)));
+        assertEquals(1, taskScheduler.queuedTaskCount());
+    }
+
+    /**
+     * Create a task and take it for processing
+     */
+    private TaskHolder<TestTask> runningTask() {
+        TaskHolder<TestTask> taskHolder = taskScheduler.createHolder(new TestTask(taskIdForWorker(0, 0)));
+        taskScheduler.wakeUp(taskHolder);
+        assertSame(taskHolder, taskScheduler.next(0, active));
+        return taskHolder;
+    }
+
+    /**
+     * Find a task id affine to the given processor
+     *
+     * @param workerIndex processor the task should be affine to
+     * @param skip        number of matching ids to skip, to get distinct ids for the same processor
+     * @return task id
+     */
+    static String taskIdForWorker(int workerIndex, int skip) {
+        for (int i = 0; ; i++) {
+            String id = "task-" + i;
+            if ((id.hashCode() & Integer.MAX_VALUE) % WORKER_COUNT == workerIndex && skip-- == 0) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Task which only has an id, the scheduler never runs it
+     */
+    private static class TestTask extends Task {
+
+        private final String id;
+
+        TestTask(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public TaskHint call() {
+            return TaskHint.IDLE;
+        }
+
+        @Override
+        public void onAdd() {
+        }
+
+        @Override
+        public void onRemove() {
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+}
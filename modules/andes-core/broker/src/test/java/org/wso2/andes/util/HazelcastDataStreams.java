@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.util;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Hazelcast {@link ObjectDataOutput} and {@link ObjectDataInput} backed by plain data streams, to serialize custom
+ * Hazelcast types in tests without a running Hazelcast instance. Only the {@link java.io.DataOutput} and
+ * {@link java.io.DataInput} methods are supported.
+ */
+public final class HazelcastDataStreams {
+
+    private HazelcastDataStreams() {
+    }
+
+    /**
+     * Create an output writing to the given stream
+     *
+     * @param outputStream stream to write to
+     * @return {@link ObjectDataOutput}
+     */
+    public static ObjectDataOutput output(ByteArrayOutputStream outputStream) {
+        return (ObjectDataOutput) Proxy.newProxyInstance(ObjectDataOutput.class.getClassLoader(),
+                new Class<?>[] {ObjectDataOutput.class}, new DelegatingHandler(new DataOutputStream(outputStream)));
+    }
+
+    /**
+     * Create an input reading the given bytes
+     *
+     * @param bytes bytes to read
+     * @return {@link ObjectDataInput}
+     */
+    public static ObjectDataInput input(byte[] bytes) {
+        return (ObjectDataInput) Proxy.newProxyInstance(ObjectDataInput.class.getClassLoader(),
+                new Class<?>[] {ObjectDataInput.class},
+                new DelegatingHandler(new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    /**
+     * Invoke the method of the same signature on the underlying data stream
+     */
+    private static class DelegatingHandler implements InvocationHandler {
+
+        private final Object delegate;
+
+        DelegatingHandler(Object delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Method delegateMethod;
+            try {
+                delegateMethod = delegate.getClass().getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                throw new UnsupportedOperationException(method.getName() + " is not supported", e);
+            }
+            try {
+                return delegateMethod.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
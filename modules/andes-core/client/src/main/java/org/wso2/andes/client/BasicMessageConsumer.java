@@ -42,7 +42,6 @@ import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.DelayQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -91,7 +90,7 @@ public abstract class BasicMessageConsumer<U> extends Closeable implements Messa
      * Used in the blocking receive methods to receive a message from the Session thread. <p/> Or to notify of errors
      * <p/> Argument true indicates we want strict FIFO semantics
      */
-    protected final DelayQueue<DelayedObject> _synchronousQueue;
+    protected final ConsumerReceiveQueue _synchronousQueue;
 
     protected final MessageFactoryRegistry _messageFactory;
 
@@ -208,7 +207,7 @@ public abstract class BasicMessageConsumer<U> extends Closeable implements Messa
         _prefetchLow = prefetchLow;
         _exclusive = exclusive;
         
-        _synchronousQueue = new DelayQueue<>();
+        _synchronousQueue = new ConsumerReceiveQueue();
         _autoClose = autoClose;
         _noConsume = noConsume;
 
@@ -473,7 +472,11 @@ public abstract class BasicMessageConsumer<U> extends Closeable implements Messa
              o = _synchronousQueue.take();
          }
          if(o != null){
-             _logger.debug("dest="+ _destination.getQueueName()+  " took message [" + _synchronousQueue.size() + "]");
+             if (_logger.isDebugEnabled())
+             {
+                 _logger.debug("dest=" + _destination.getQueueName() + " took message [" + _synchronousQueue.size()
+                         + "]");
+             }
 
              try {
                  if (o.getObject() instanceof AbstractJMSMessage) {
@@ -767,7 +770,7 @@ public abstract class BasicMessageConsumer<U> extends Closeable implements Messa
                 // If message redelivery delay is set, redelivered messages are queued in delay queue. Else directly
                 // publish to the onMessage listener.
                 if (0 != redeliveryDelay && jmsMessage.getJMSRedelivered()) {
-                    _synchronousQueue.add(new DelayedObject(redeliveryDelay, jmsMessage));
+                    _synchronousQueue.put(new DelayedObject(redeliveryDelay, jmsMessage));
                 } else {
                     deliverMessagesToMessageListener(jmsMessage);
                 }
@@ -782,7 +785,11 @@ public abstract class BasicMessageConsumer<U> extends Closeable implements Messa
                 } else {
                     _synchronousQueue.put(new DelayedObject(0, jmsMessage));
                 }
-                _logger.debug("dest="+ _destination.getQueueName()+  " added message " + _synchronousQueue.size() + "]");
+                if (_logger.isDebugEnabled())
+                {
+                    _logger.debug("dest=" + _destination.getQueueName() + " added message " + _synchronousQueue
+                            .size() + "]");
+                }
             }
         }
         catch (Exception e)
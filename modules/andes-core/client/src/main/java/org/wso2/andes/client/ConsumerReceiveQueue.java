@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016 WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.client;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue holding messages received by a consumer until they are taken by a receive call or a message listener.
+ * <p>
+ * Objects without a delay are handed over through a FIFO queue which does not order its elements, hence taking a
+ * message costs no more than a linked list removal. Only redelivered messages held back by a redelivery delay go to a
+ * {@link DelayQueue}, from which a shared timer moves them to the FIFO queue once their delay expires.
+ */
+public class ConsumerReceiveQueue {
+
+    /**
+     * Timer moving delayed objects to the ready queue of their consumer once the delay expires. Shared by all
+     * consumers since delayed redeliveries are rare compared to normal deliveries.
+     */
+    private static final ScheduledExecutorService redeliveryTimer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ConsumerRedeliveryDelayTimer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Objects ready to be taken, in the order they were added
+     */
+    private final LinkedBlockingQueue<DelayedObject> readyQueue = new LinkedBlockingQueue<>();
+
+    /**
+     * Objects waiting for their delay to expire
+     */
+    private final DelayQueue<DelayedObject> delayedQueue = new DelayQueue<>();
+
+    /**
+     * Moves objects whose delay has expired to the ready queue. The timer and {@link DelayedObject#getDelay(TimeUnit)}
+     * do not use the same clock, hence the task can run before the head has expired. Whatever is left is checked again
+     * once the delay of the new head expires.
+     */
+    private final Runnable releaseTask = new Runnable() {
+        @Override
+        public void run() {
+            DelayedObject delayedObject = delayedQueue.poll();
+            while (null != delayedObject) {
+                readyQueue.offer(delayedObject);
+                delayedObject = delayedQueue.poll();
+            }
+
+            DelayedObject head = delayedQueue.peek();
+            if (null != head) {
+                scheduleRelease(head.getDelay(TimeUnit.MILLISECONDS));
+            }
+        }
+    };
+
+    /**
+     * Add an object to the queue. The object can be taken once its delay expires
+     *
+     * @param delayedObject object to add
+     */
+    public void put(DelayedObject delayedObject) {
+        long delay = delayedObject.getDelay(TimeUnit.MILLISECONDS);
+        if (delay > 0) {
+            delayedQueue.put(delayedObject);
+            scheduleRelease(delay);
+        } else {
+            readyQueue.offer(delayedObject);
+        }
+    }
+
+    /**
+     * Schedule moving expired objects to the ready queue
+     *
+     * @param delay time until the next object expires in milliseconds
+     */
+    private void scheduleRelease(long delay) {
+        redeliveryTimer.schedule(releaseTask, Math.max(delay, 1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add an object to the queue. The queue is unbounded, hence this always succeeds
+     *
+     * @param delayedObject object to add
+     * @return true
+     */
+    public boolean offer(DelayedObject delayedObject) {
+        put(delayedObject);
+        return true;
+    }
+
+    /**
+     * Retrieve and remove the head of the queue, waiting until an object is available
+     *
+     * @return head of the queue
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public DelayedObject take() throws InterruptedException {
+        return readyQueue.take();
+    }
+
+    /**
+     * Retrieve and remove the head of the queue, waiting up to the given time for an object to become available
+     *
+     * @param timeout how long to wait
+     * @param unit    unit of the timeout
+     * @return head of the queue, null if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public DelayedObject poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return readyQueue.poll(timeout, unit);
+    }
+
+    /**
+     * Retrieve and remove the head of the queue without waiting
+     *
+     * @return head of the queue, null if no object is available
+     */
+    public DelayedObject poll() {
+        return readyQueue.poll();
+    }
+
+    /**
+     * Number of objects in the queue including the ones waiting for their delay to expire
+     *
+     * @return number of objects
+     */
+    public int size() {
+        return readyQueue.size() + delayedQueue.size();
+    }
+
+    /**
+     * Check whether the queue holds no objects, including the ones waiting for their delay to expire
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return readyQueue.isEmpty() && delayedQueue.isEmpty();
+    }
+
+    /**
+     * Remove all objects from the queue
+     */
+    public void clear() {
+        delayedQueue.clear();
+        readyQueue.clear();
+    }
+
+    /**
+     * Iterator over the objects ready to be taken followed by the ones waiting for their delay to expire. The
+     * iterator is weakly consistent and supports removal.
+     *
+     * @return iterator over the objects in the queue
+     */
+    public Iterator<DelayedObject> iterator() {
+        return new Iterator<DelayedObject>() {
+
+            private Iterator<DelayedObject> current = readyQueue.iterator();
+
+            private boolean delayedStarted = false;
+
+            /**
+             * Iterator which returned the last object, used for removal
+             */
+            private Iterator<DelayedObject> lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                if (current.hasNext()) {
+                    return true;
+                }
+                if (!delayedStarted) {
+                    current = delayedQueue.iterator();
+                    delayedStarted = true;
+                    return current.hasNext();
+                }
+                return false;
+            }
+
+            @Override
+            public DelayedObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = current;
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                if (null == lastReturned) {
+                    throw new IllegalStateException();
+                }
+                lastReturned.remove();
+                lastReturned = null;
+            }
+        };
+    }
+}
@@ -22,7 +22,8 @@ import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Represents objects that can be inserted into {@link BasicMessageConsumer#_synchronousQueue}.
+ * Represents objects that can be inserted into {@link BasicMessageConsumer#_synchronousQueue}. Objects with a
+ * delay are held back by {@link ConsumerReceiveQueue} until the delay expires.
  */
 public class DelayedObject implements Delayed {
     /**
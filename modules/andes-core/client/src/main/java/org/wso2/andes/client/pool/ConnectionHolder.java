@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.andes.client.Closeable;
+
+import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds a pooled connection along with the idle sessions kept open on it. The holder is the exception listener of
+ * the connection and forwards exceptions to the listener set by the current borrower.
+ */
+class ConnectionHolder implements ExceptionListener {
+
+    private static final Logger _logger = LoggerFactory.getLogger(ConnectionHolder.class);
+
+    private final Connection _connection;
+
+    private final PooledConnectionFactory _factory;
+
+    /**
+     * Idle sessions by acknowledge mode. Transacted sessions are kept under {@link Session#SESSION_TRANSACTED}
+     */
+    private final Map<Integer, Deque<SessionHolder>> _idleSessions = new HashMap<>();
+
+    /**
+     * Exception listener set by the current borrower of the connection
+     */
+    private volatile ExceptionListener _exceptionListener;
+
+    private volatile long _lastUsedTime = System.currentTimeMillis();
+
+    /**
+     * False once a borrower left the connection in a state the next borrower should not see
+     */
+    private volatile boolean _reusable = true;
+
+    ConnectionHolder(Connection connection, PooledConnectionFactory factory) throws JMSException {
+        _connection = connection;
+        _factory = factory;
+        _connection.setExceptionListener(this);
+    }
+
+    Connection getConnection() {
+        return _connection;
+    }
+
+    /**
+     * Check whether the connection can be used. A connection failing over is still valid since it reconnects its
+     * sessions and producers once failover completes
+     *
+     * @return true if the connection is not closed
+     */
+    boolean isValid() {
+        return isOpen(_connection);
+    }
+
+    /**
+     * Prevent the connection from being handed out again once it is returned, for example after a client id was set
+     */
+    void markNotReusable() {
+        _reusable = false;
+    }
+
+    boolean isReusable() {
+        return _reusable;
+    }
+
+    /**
+     * Borrow a session of the given mode, creating one if there is no idle session
+     *
+     * @param transacted      true for a transacted session
+     * @param acknowledgeMode acknowledge mode of a non transacted session
+     * @return session
+     * @throws JMSException if the session cannot be created
+     */
+    SessionHolder borrowSession(boolean transacted, int acknowledgeMode) throws JMSException {
+        int mode = transacted ? Session.SESSION_TRANSACTED : acknowledgeMode;
+        synchronized (_idleSessions) {
+            Deque<SessionHolder> sessions = _idleSessions.get(mode);
+            while (sessions != null && !sessions.isEmpty()) {
+                SessionHolder holder = sessions.pollFirst();
+                // Validation on borrow
+                if (holder.isValid()) {
+                    return holder;
+                }
+                holder.destroy();
+            }
+        }
+        return new SessionHolder(_connection.createSession(transacted, acknowledgeMode), mode, _factory);
+    }
+
+    /**
+     * Return a session. The session is closed if it cannot be reused or enough sessions are idle
+     *
+     * @param holder   returned session
+     * @param reusable false if the session was left in a state it cannot be reused in
+     */
+    void releaseSession(SessionHolder holder, boolean reusable) {
+        if (reusable && isValid() && holder.isValid()) {
+            synchronized (_idleSessions) {
+                Deque<SessionHolder> sessions = _idleSessions.get(holder.getMode());
+                if (sessions == null) {
+                    sessions = new ArrayDeque<>();
+                    _idleSessions.put(holder.getMode(), sessions);
+                }
+                if (sessions.size() < _factory.getMaxIdleSessions()) {
+                    sessions.addFirst(holder);
+                    return;
+                }
+            }
+        }
+        holder.destroy();
+    }
+
+    void setExceptionListener(ExceptionListener exceptionListener) {
+        _exceptionListener = exceptionListener;
+    }
+
+    ExceptionListener getExceptionListener() {
+        return _exceptionListener;
+    }
+
+    /**
+     * Update the time the connection was last used
+     */
+    void touch() {
+        _lastUsedTime = System.currentTimeMillis();
+    }
+
+    long getLastUsedTime() {
+        return _lastUsedTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onException(JMSException exception) {
+        ExceptionListener exceptionListener = _exceptionListener;
+        if (exceptionListener != null) {
+            exceptionListener.onException(exception);
+        } else {
+            _logger.warn("Exception on idle pooled connection", exception);
+        }
+    }
+
+    /**
+     * Close the connection along with its sessions
+     */
+    void destroy() {
+        synchronized (_idleSessions) {
+            _idleSessions.clear();
+        }
+        try {
+            _connection.close();
+        } catch (JMSException e) {
+            _logger.warn("Error while closing pooled connection", e);
+        }
+    }
+
+    /**
+     * Check whether a connection, session or producer is open
+     *
+     * @param jmsObject object to check
+     * @return false if the object is closed or closing
+     */
+    static boolean isOpen(Object jmsObject) {
+        if (jmsObject instanceof Closeable) {
+            Closeable closeable = (Closeable) jmsObject;
+            return !closeable.isClosed() && !closeable.isClosing();
+        }
+        return true;
+    }
+}
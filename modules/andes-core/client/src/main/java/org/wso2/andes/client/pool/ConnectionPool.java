@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.Connection;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of connections of a single user. Idle connections are reused most recently returned first, so that
+ * the least used connections become idle long enough to be evicted when the load drops.
+ */
+class ConnectionPool {
+
+    private static final Logger _logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final PooledConnectionFactory _factory;
+
+    private final String _userName;
+
+    private final String _password;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    /**
+     * Signalled when a connection is returned or discarded
+     */
+    private final Condition _connectionReleased = _lock.newCondition();
+
+    /**
+     * Idle connections, most recently returned first
+     */
+    private final Deque<ConnectionHolder> _idleConnections = new ArrayDeque<>();
+
+    /**
+     * Number of connections of the pool, idle, in use or being created
+     */
+    private int _connectionCount = 0;
+
+    private boolean _closed = false;
+
+    ConnectionPool(PooledConnectionFactory factory, String userName, String password) {
+        _factory = factory;
+        _userName = userName;
+        _password = password;
+    }
+
+    /**
+     * Borrow a connection from the pool. A new connection is created if there is no idle connection and the pool is
+     * not full. Otherwise waits for a connection to be returned up to the borrow timeout.
+     *
+     * @return pooled connection
+     * @throws JMSException if no connection could be obtained
+     */
+    PooledConnection borrow() throws JMSException {
+        long deadline = System.currentTimeMillis() + _factory.getBorrowTimeout();
+        List<ConnectionHolder> invalidConnections = new ArrayList<>();
+        ConnectionHolder holder = null;
+        boolean create = false;
+
+        _lock.lock();
+        try {
+            while (holder == null && !create) {
+                if (_closed) {
+                    throw new IllegalStateException("Connection pool is closed");
+                }
+                holder = _idleConnections.pollFirst();
+                if (holder != null) {
+                    // Validation on borrow
+                    if (!holder.isValid()) {
+                        invalidConnections.add(holder);
+                        _connectionCount--;
+                        holder = null;
+                    }
+                } else if (_connectionCount < _factory.getMaxConnections()) {
+                    _connectionCount++;
+                    create = true;
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new JMSException("Timed out waiting for a pooled connection. All "
+                                + _connectionCount + " connections are in use");
+                    }
+                    _connectionReleased.await(remaining, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while waiting for a pooled connection");
+        } finally {
+            _lock.unlock();
+            for (ConnectionHolder invalidConnection : invalidConnections) {
+                invalidConnection.destroy();
+            }
+        }
+
+        if (create) {
+            try {
+                Connection connection = _factory.createPhysicalConnection(_userName, _password);
+                holder = new ConnectionHolder(connection, _factory);
+            } catch (JMSException | RuntimeException e) {
+                discarded();
+                throw e;
+            }
+        }
+
+        return new PooledConnection(holder, this);
+    }
+
+    /**
+     * Return a connection to the pool. The connection is closed if it is no longer valid, cannot be reused or the pool
+     * is closed
+     *
+     * @param holder returned connection
+     */
+    void release(ConnectionHolder holder) {
+        boolean reuse;
+        _lock.lock();
+        try {
+            reuse = !_closed && holder.isReusable() && holder.isValid();
+            if (reuse) {
+                holder.touch();
+                _idleConnections.addFirst(holder);
+            } else {
+                _connectionCount--;
+            }
+            _connectionReleased.signal();
+        } finally {
+            _lock.unlock();
+        }
+
+        if (!reuse) {
+            holder.destroy();
+        }
+    }
+
+    /**
+     * Close connections idle for longer than the given time along with idle connections which are no longer valid
+     *
+     * @param idleTimeout idle timeout in milliseconds
+     */
+    void evictIdle(long idleTimeout) {
+        List<ConnectionHolder> evictedConnections = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        _lock.lock();
+        try {
+            Iterator<ConnectionHolder> iterator = _idleConnections.descendingIterator();
+            while (iterator.hasNext()) {
+                ConnectionHolder holder = iterator.next();
+                if (!holder.isValid() || now - holder.getLastUsedTime() > idleTimeout) {
+                    iterator.remove();
+                    evictedConnections.add(holder);
+                    _connectionCount--;
+                }
+            }
+            if (!evictedConnections.isEmpty()) {
+                _connectionReleased.signalAll();
+            }
+        } finally {
+            _lock.unlock();
+        }
+
+        for (ConnectionHolder holder : evictedConnections) {
+            holder.destroy();
+        }
+        if (_logger.isDebugEnabled() && !evictedConnections.isEmpty()) {
+            _logger.debug("Closed " + evictedConnections.size() + " idle pooled connections");
+        }
+    }
+
+    /**
+     * Close idle connections and reject further borrowing. Connections in use are closed when returned
+     */
+    void close() {
+        List<ConnectionHolder> idleConnections;
+        _lock.lock();
+        try {
+            _closed = true;
+            idleConnections = new ArrayList<>(_idleConnections);
+            _connectionCount = _connectionCount - _idleConnections.size();
+            _idleConnections.clear();
+            _connectionReleased.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+
+        for (ConnectionHolder holder : idleConnections) {
+            holder.destroy();
+        }
+    }
+
+    /**
+     * Account for a connection which could not be created
+     */
+    private void discarded() {
+        _lock.lock();
+        try {
+            _connectionCount--;
+            _connectionReleased.signal();
+        } finally {
+            _lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.ConnectionMetaData;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection handed out by {@link PooledConnectionFactory}. Closing it stops the underlying connection, closes the
+ * sessions and connection consumers created through it and returns the underlying connection to the pool. A
+ * connection a client id was set on is closed instead of being returned, since the client id cannot be reset.
+ */
+class PooledConnection implements Connection {
+
+    private final ConnectionHolder _holder;
+
+    private final ConnectionPool _pool;
+
+    /**
+     * Sessions created through this connection which are not closed yet
+     */
+    private final List<PooledSession> _sessions = new ArrayList<>();
+
+    /**
+     * Connection consumers created through this connection
+     */
+    private final List<ConnectionConsumer> _connectionConsumers = new ArrayList<>();
+
+    private final AtomicBoolean _closed = new AtomicBoolean(false);
+
+    PooledConnection(ConnectionHolder holder, ConnectionPool pool) {
+        _holder = holder;
+        _pool = pool;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
+        checkNotClosed();
+        PooledSession session = new PooledSession(_holder.borrowSession(transacted, acknowledgeMode), this);
+        synchronized (_sessions) {
+            _sessions.add(session);
+        }
+        return session;
+    }
+
+    @Override
+    public String getClientID() throws JMSException {
+        return getConnection().getClientID();
+    }
+
+    /**
+     * Set the client id of the underlying connection. The underlying connection is not reused by other borrowers
+     * afterwards
+     *
+     * @param clientID client id
+     * @throws JMSException if the client id cannot be set
+     */
+    @Override
+    public void setClientID(String clientID) throws JMSException {
+        Connection connection = getConnection();
+        _holder.markNotReusable();
+        connection.setClientID(clientID);
+    }
+
+    @Override
+    public ConnectionMetaData getMetaData() throws JMSException {
+        return getConnection().getMetaData();
+    }
+
+    @Override
+    public ExceptionListener getExceptionListener() throws JMSException {
+        checkNotClosed();
+        return _holder.getExceptionListener();
+    }
+
+    @Override
+    public void setExceptionListener(ExceptionListener listener) throws JMSException {
+        checkNotClosed();
+        _holder.setExceptionListener(listener);
+    }
+
+    @Override
+    public void start() throws JMSException {
+        getConnection().start();
+    }
+
+    @Override
+    public void stop() throws JMSException {
+        getConnection().stop();
+    }
+
+    /**
+     * Stop the underlying connection, close the sessions and connection consumers created through this connection
+     * and return the underlying connection to the pool
+     *
+     * @throws JMSException if the connection could not be stopped or a session could not be closed
+     */
+    @Override
+    public void close() throws JMSException {
+        if (!_closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<PooledSession> sessions;
+        synchronized (_sessions) {
+            sessions = new ArrayList<>(_sessions);
+            _sessions.clear();
+        }
+        List<ConnectionConsumer> connectionConsumers;
+        synchronized (_connectionConsumers) {
+            connectionConsumers = new ArrayList<>(_connectionConsumers);
+            _connectionConsumers.clear();
+        }
+        try {
+            // The next borrower gets a stopped connection as it would from a connection factory
+            _holder.getConnection().stop();
+            for (ConnectionConsumer connectionConsumer : connectionConsumers) {
+                connectionConsumer.close();
+            }
+            for (PooledSession session : sessions) {
+                session.close();
+            }
+        } catch (JMSException | RuntimeException e) {
+            _holder.markNotReusable();
+            throw e;
+        } finally {
+            _holder.setExceptionListener(null);
+            _pool.release(_holder);
+        }
+    }
+
+    @Override
+    public ConnectionConsumer createConnectionConsumer(Destination destination, String messageSelector,
+                                                       ServerSessionPool sessionPool, int maxMessages)
+            throws JMSException {
+        return connectionConsumerCreated(
+                getConnection().createConnectionConsumer(destination, messageSelector, sessionPool, maxMessages));
+    }
+
+    @Override
+    public ConnectionConsumer createDurableConnectionConsumer(Topic topic, String subscriptionName,
+                                                              String messageSelector, ServerSessionPool sessionPool,
+                                                              int maxMessages) throws JMSException {
+        return connectionConsumerCreated(getConnection().createDurableConnectionConsumer(topic, subscriptionName,
+                messageSelector, sessionPool, maxMessages));
+    }
+
+    /**
+     * Called when a session created through this connection is closed
+     *
+     * @param session closed session
+     */
+    void sessionClosed(PooledSession session) {
+        synchronized (_sessions) {
+            _sessions.remove(session);
+        }
+    }
+
+    /**
+     * Keep track of a connection consumer so that it is closed along with this connection
+     *
+     * @param connectionConsumer created connection consumer
+     * @return the connection consumer
+     */
+    private ConnectionConsumer connectionConsumerCreated(ConnectionConsumer connectionConsumer) {
+        synchronized (_connectionConsumers) {
+            _connectionConsumers.add(connectionConsumer);
+        }
+        return connectionConsumer;
+    }
+
+    ConnectionHolder getHolder() {
+        return _holder;
+    }
+
+    private Connection getConnection() throws JMSException {
+        checkNotClosed();
+        return _holder.getConnection();
+    }
+
+    private void checkNotClosed() throws JMSException {
+        if (_closed.get()) {
+            throw new IllegalStateException("Connection is closed");
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.andes.client.AMQConnectionFactory;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ConnectionFactory} keeping connections created through an {@link AMQConnectionFactory} open for reuse.
+ * <p/>
+ * Closing a connection obtained from this factory returns it to the pool instead of closing the underlying
+ * connection. Sessions created on a pooled connection are kept open for reuse in the same way, and each pooled session
+ * keeps the producers created on it, per destination. Hence a client creating a connection, a session and a producer
+ * for every message only pays for the AMQP handshake and channel open the first time.
+ * <p/>
+ * Connections are pooled per user name and password. The number of connections per pool is bounded. A caller asking
+ * for a connection while all of them are in use waits until one is returned, up to the borrow timeout. Idle connections
+ * are closed after the idle timeout. Connections, sessions and producers are checked on borrow and the ones closed
+ * underneath, e.g. when failover could not reconnect, are discarded. Failover of a pooled connection is handled by the
+ * connection itself as with an unpooled connection, hence sessions and producers stay usable across failover.
+ * <p/>
+ * Consumers and browsers are not pooled. They are closed along with the pooled session they were created on.
+ * Connection consumers are closed along with the pooled connection. A returned connection is stopped, and a connection
+ * a client id was set on is closed instead of being reused.
+ */
+public class PooledConnectionFactory implements ConnectionFactory {
+
+    private static final Logger _logger = LoggerFactory.getLogger(PooledConnectionFactory.class);
+
+    /**
+     * Default maximum number of connections per user
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 8;
+
+    /**
+     * Default maximum number of idle sessions kept per connection
+     */
+    public static final int DEFAULT_MAX_IDLE_SESSIONS = 16;
+
+    /**
+     * Default maximum number of producers kept per session
+     */
+    public static final int DEFAULT_MAX_PRODUCERS = 16;
+
+    /**
+     * Default time in milliseconds a connection is kept idle before it is closed
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000L;
+
+    /**
+     * Default time in milliseconds to wait for a connection when all connections are in use
+     */
+    public static final long DEFAULT_BORROW_TIMEOUT = 30 * 1000L;
+
+    /**
+     * Factory creating the pooled connections
+     */
+    private final AMQConnectionFactory _connectionFactory;
+
+    /**
+     * Connection pools by user credentials
+     */
+    private final ConcurrentMap<Credentials, ConnectionPool> _pools = new ConcurrentHashMap<>();
+
+    private volatile int _maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    private volatile int _maxIdleSessions = DEFAULT_MAX_IDLE_SESSIONS;
+
+    private volatile int _maxProducers = DEFAULT_MAX_PRODUCERS;
+
+    private volatile long _idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    private volatile long _borrowTimeout = DEFAULT_BORROW_TIMEOUT;
+
+    /**
+     * Closes idle connections. Created with the first pool
+     */
+    private ScheduledExecutorService _evictor;
+
+    private volatile boolean _closed = false;
+
+    /**
+     * Create a pooling connection factory
+     *
+     * @param connectionFactory factory creating the pooled connections
+     */
+    public PooledConnectionFactory(AMQConnectionFactory connectionFactory) {
+        if (connectionFactory == null) {
+            throw new NullPointerException("connectionFactory cannot be null");
+        }
+        _connectionFactory = connectionFactory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Connection createConnection() throws JMSException {
+        return getPool(new Credentials(null, null)).borrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Connection createConnection(String userName, String password) throws JMSException {
+        if (userName == null) {
+            return createConnection();
+        }
+        return getPool(new Credentials(userName, password)).borrow();
+    }
+
+    /**
+     * Close connections idle for longer than the idle timeout
+     */
+    public void evictIdleConnections() {
+        for (ConnectionPool pool : _pools.values()) {
+            pool.evictIdle(_idleTimeout);
+        }
+    }
+
+    /**
+     * Close all idle connections and stop pooling. Connections in use are closed when they are returned.
+     */
+    public synchronized void close() {
+        _closed = true;
+        if (_evictor != null) {
+            _evictor.shutdownNow();
+            _evictor = null;
+        }
+        for (ConnectionPool pool : _pools.values()) {
+            pool.close();
+        }
+        _pools.clear();
+    }
+
+    /**
+     * Get the pool for the given credentials, creating it if needed
+     *
+     * @param credentials user credentials
+     * @return connection pool
+     * @throws JMSException if the factory is closed
+     */
+    private ConnectionPool getPool(Credentials credentials) throws JMSException {
+        ConnectionPool pool = _pools.get(credentials);
+        if (pool == null) {
+            synchronized (this) {
+                if (_closed) {
+                    throw new IllegalStateException("Pooled connection factory is closed");
+                }
+                pool = _pools.get(credentials);
+                if (pool == null) {
+                    pool = new ConnectionPool(this, credentials.getUserName(), credentials.getPassword());
+                    _pools.put(credentials, pool);
+                    startEvictor();
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Start the task closing idle connections if not started yet. Should be called while holding the lock of this
+     * factory
+     */
+    private void startEvictor() {
+        if (_evictor != null) {
+            return;
+        }
+        _evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "PooledConnectionFactory-IdleConnectionEvictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(1000L, _idleTimeout / 2);
+        _evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    evictIdleConnections();
+                } catch (RuntimeException e) {
+                    _logger.warn("Error while closing idle pooled connections", e);
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new connection to be pooled
+     *
+     * @param userName user name, null to use the defaults of the underlying factory
+     * @param password password
+     * @return new connection
+     * @throws JMSException if the connection cannot be created
+     */
+    Connection createPhysicalConnection(String userName, String password) throws JMSException {
+        if (userName == null) {
+            return _connectionFactory.createConnection();
+        }
+        return _connectionFactory.createConnection(userName, password);
+    }
+
+    public AMQConnectionFactory getConnectionFactory() {
+        return _connectionFactory;
+    }
+
+    public int getMaxConnections() {
+        return _maxConnections;
+    }
+
+    /**
+     * Set the maximum number of connections per user
+     *
+     * @param maxConnections maximum number of connections, at least 1
+     */
+    public void setMaxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections should be at least 1");
+        }
+        _maxConnections = maxConnections;
+    }
+
+    public int getMaxIdleSessions() {
+        return _maxIdleSessions;
+    }
+
+    /**
+     * Set the maximum number of idle sessions kept open per connection
+     *
+     * @param maxIdleSessions maximum number of idle sessions, 0 to close sessions on return
+     */
+    public void setMaxIdleSessions(int maxIdleSessions) {
+        if (maxIdleSessions < 0) {
+            throw new IllegalArgumentException("maxIdleSessions cannot be negative");
+        }
+        _maxIdleSessions = maxIdleSessions;
+    }
+
+    public int getMaxProducers() {
+        return _maxProducers;
+    }
+
+    /**
+     * Set the maximum number of producers kept open per session
+     *
+     * @param maxProducers maximum number of producers, 0 to close producers on return
+     */
+    public void setMaxProducers(int maxProducers) {
+        if (maxProducers < 0) {
+            throw new IllegalArgumentException("maxProducers cannot be negative");
+        }
+        _maxProducers = maxProducers;
+    }
+
+    public long getIdleTimeout() {
+        return _idleTimeout;
+    }
+
+    /**
+     * Set the time a connection is kept idle before it is closed. Idle connections are checked every half of the idle
+     * timeout set when the first connection is created
+     *
+     * @param idleTimeout idle timeout in milliseconds
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("idleTimeout cannot be negative");
+        }
+        _idleTimeout = idleTimeout;
+    }
+
+    public long getBorrowTimeout() {
+        return _borrowTimeout;
+    }
+
+    /**
+     * Set the time to wait for a connection when all connections are in use
+     *
+     * @param borrowTimeout borrow timeout in milliseconds
+     */
+    public void setBorrowTimeout(long borrowTimeout) {
+        if (borrowTimeout < 0) {
+            throw new IllegalArgumentException("borrowTimeout cannot be negative");
+        }
+        _borrowTimeout = borrowTimeout;
+    }
+
+    /**
+     * User credentials a connection pool is kept for
+     */
+    private static final class Credentials {
+
+        private final String _userName;
+
+        private final String _password;
+
+        Credentials(String userName, String password) {
+            _userName = userName;
+            _password = password;
+        }
+
+        String getUserName() {
+            return _userName;
+        }
+
+        String getPassword() {
+            return _password;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Credentials)) {
+                return false;
+            }
+            Credentials other = (Credentials) o;
+            return (_userName == null ? other._userName == null : _userName.equals(other._userName))
+                    && (_password == null ? other._password == null : _password.equals(other._password));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = _userName == null ? 0 : _userName.hashCode();
+            return 31 * result + (_password == null ? 0 : _password.hashCode());
+        }
+    }
+}
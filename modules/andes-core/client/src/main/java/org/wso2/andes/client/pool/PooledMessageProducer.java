@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Producer handed out by a {@link PooledSession}. Closing it returns the underlying producer to the session.
+ */
+class PooledMessageProducer implements MessageProducer {
+
+    private final SessionHolder.ProducerHolder _holder;
+
+    private final PooledSession _session;
+
+    private final AtomicBoolean _closed = new AtomicBoolean(false);
+
+    PooledMessageProducer(SessionHolder.ProducerHolder holder, PooledSession session) {
+        _holder = holder;
+        _session = session;
+    }
+
+    @Override
+    public void setDisableMessageID(boolean value) throws JMSException {
+        getProducer().setDisableMessageID(value);
+    }
+
+    @Override
+    public boolean getDisableMessageID() throws JMSException {
+        return getProducer().getDisableMessageID();
+    }
+
+    @Override
+    public void setDisableMessageTimestamp(boolean value) throws JMSException {
+        getProducer().setDisableMessageTimestamp(value);
+    }
+
+    @Override
+    public boolean getDisableMessageTimestamp() throws JMSException {
+        return getProducer().getDisableMessageTimestamp();
+    }
+
+    @Override
+    public void setDeliveryMode(int deliveryMode) throws JMSException {
+        getProducer().setDeliveryMode(deliveryMode);
+    }
+
+    @Override
+    public int getDeliveryMode() throws JMSException {
+        return getProducer().getDeliveryMode();
+    }
+
+    @Override
+    public void setPriority(int defaultPriority) throws JMSException {
+        getProducer().setPriority(defaultPriority);
+    }
+
+    @Override
+    public int getPriority() throws JMSException {
+        return getProducer().getPriority();
+    }
+
+    @Override
+    public void setTimeToLive(long timeToLive) throws JMSException {
+        getProducer().setTimeToLive(timeToLive);
+    }
+
+    @Override
+    public long getTimeToLive() throws JMSException {
+        return getProducer().getTimeToLive();
+    }
+
+    @Override
+    public Destination getDestination() throws JMSException {
+        return getProducer().getDestination();
+    }
+
+    @Override
+    public void send(Message message) throws JMSException {
+        getProducer().send(message);
+    }
+
+    @Override
+    public void send(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        getProducer().send(message, deliveryMode, priority, timeToLive);
+    }
+
+    @Override
+    public void send(Destination destination, Message message) throws JMSException {
+        getProducer().send(destination, message);
+    }
+
+    @Override
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive)
+            throws JMSException {
+        getProducer().send(destination, message, deliveryMode, priority, timeToLive);
+    }
+
+    /**
+     * Return the underlying producer to the session
+     */
+    @Override
+    public void close() {
+        if (_closed.compareAndSet(false, true)) {
+            _session.producerClosed(this);
+            _session.getHolder().releaseProducer(_holder);
+        }
+    }
+
+    private MessageProducer getProducer() throws JMSException {
+        if (_closed.get()) {
+            throw new IllegalStateException("Producer is closed");
+        }
+        return _holder.getProducer();
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Session handed out by a {@link PooledConnection}. Producers created on it are pooled. Consumers and browsers are
+ * closed when the session is closed, after which the underlying session is returned to its connection for reuse. A
+ * session with a message listener, or with work it could not roll back, is closed instead.
+ */
+class PooledSession implements Session {
+
+    private static final Logger _logger = LoggerFactory.getLogger(PooledSession.class);
+
+    private final SessionHolder _holder;
+
+    private final PooledConnection _connection;
+
+    private final List<PooledMessageProducer> _producers = new ArrayList<>();
+
+    private final List<MessageConsumer> _consumers = new ArrayList<>();
+
+    private final List<QueueBrowser> _browsers = new ArrayList<>();
+
+    private final AtomicBoolean _closed = new AtomicBoolean(false);
+
+    PooledSession(SessionHolder holder, PooledConnection connection) {
+        _holder = holder;
+        _connection = connection;
+    }
+
+    @Override
+    public BytesMessage createBytesMessage() throws JMSException {
+        return getSession().createBytesMessage();
+    }
+
+    @Override
+    public MapMessage createMapMessage() throws JMSException {
+        return getSession().createMapMessage();
+    }
+
+    @Override
+    public Message createMessage() throws JMSException {
+        return getSession().createMessage();
+    }
+
+    @Override
+    public ObjectMessage createObjectMessage() throws JMSException {
+        return getSession().createObjectMessage();
+    }
+
+    @Override
+    public ObjectMessage createObjectMessage(Serializable object) throws JMSException {
+        return getSession().createObjectMessage(object);
+    }
+
+    @Override
+    public StreamMessage createStreamMessage() throws JMSException {
+        return getSession().createStreamMessage();
+    }
+
+    @Override
+    public TextMessage createTextMessage() throws JMSException {
+        return getSession().createTextMessage();
+    }
+
+    @Override
+    public TextMessage createTextMessage(String text) throws JMSException {
+        return getSession().createTextMessage(text);
+    }
+
+    @Override
+    public boolean getTransacted() throws JMSException {
+        return getSession().getTransacted();
+    }
+
+    @Override
+    public int getAcknowledgeMode() throws JMSException {
+        return getSession().getAcknowledgeMode();
+    }
+
+    @Override
+    public void commit() throws JMSException {
+        getSession().commit();
+    }
+
+    @Override
+    public void rollback() throws JMSException {
+        getSession().rollback();
+    }
+
+    @Override
+    public void recover() throws JMSException {
+        getSession().recover();
+    }
+
+    @Override
+    public MessageListener getMessageListener() throws JMSException {
+        return getSession().getMessageListener();
+    }
+
+    @Override
+    public void setMessageListener(MessageListener listener) throws JMSException {
+        getSession().setMessageListener(listener);
+    }
+
+    @Override
+    public void run() {
+        _holder.getSession().run();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * A producer kept for the destination is reused when available
+     */
+    @Override
+    public MessageProducer createProducer(Destination destination) throws JMSException {
+        checkNotClosed();
+        PooledMessageProducer producer = new PooledMessageProducer(_holder.borrowProducer(destination), this);
+        synchronized (_producers) {
+            _producers.add(producer);
+        }
+        return producer;
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination) throws JMSException {
+        return addConsumer(getSession().createConsumer(destination));
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination, String messageSelector) throws JMSException {
+        return addConsumer(getSession().createConsumer(destination, messageSelector));
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal)
+            throws JMSException {
+        return addConsumer(getSession().createConsumer(destination, messageSelector, noLocal));
+    }
+
+    @Override
+    public TopicSubscriber createDurableSubscriber(Topic topic, String name) throws JMSException {
+        return addConsumer(getSession().createDurableSubscriber(topic, name));
+    }
+
+    @Override
+    public TopicSubscriber createDurableSubscriber(Topic topic, String name, String messageSelector,
+                                                   boolean noLocal) throws JMSException {
+        return addConsumer(getSession().createDurableSubscriber(topic, name, messageSelector, noLocal));
+    }
+
+    @Override
+    public QueueBrowser createBrowser(Queue queue) throws JMSException {
+        return addBrowser(getSession().createBrowser(queue));
+    }
+
+    @Override
+    public QueueBrowser createBrowser(Queue queue, String messageSelector) throws JMSException {
+        return addBrowser(getSession().createBrowser(queue, messageSelector));
+    }
+
+    @Override
+    public Queue createQueue(String queueName) throws JMSException {
+        return getSession().createQueue(queueName);
+    }
+
+    @Override
+    public Topic createTopic(String topicName) throws JMSException {
+        return getSession().createTopic(topicName);
+    }
+
+    @Override
+    public TemporaryQueue createTemporaryQueue() throws JMSException {
+        return getSession().createTemporaryQueue();
+    }
+
+    @Override
+    public TemporaryTopic createTemporaryTopic() throws JMSException {
+        return getSession().createTemporaryTopic();
+    }
+
+    @Override
+    public void unsubscribe(String name) throws JMSException {
+        getSession().unsubscribe(name);
+    }
+
+    /**
+     * Close the consumers and browsers created on this session, return the producers and return the underlying
+     * session to its connection. Uncommitted work of a transacted session is rolled back and unacknowledged messages
+     * of a client acknowledge session are recovered before the session is reused.
+     *
+     * @throws JMSException never thrown, errors make the underlying session be closed instead of reused
+     */
+    @Override
+    public void close() throws JMSException {
+        if (!_closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        boolean reusable = true;
+
+        List<PooledMessageProducer> producers;
+        synchronized (_producers) {
+            producers = new ArrayList<>(_producers);
+            _producers.clear();
+        }
+        for (PooledMessageProducer producer : producers) {
+            producer.close();
+        }
+
+        try {
+            for (MessageConsumer consumer : _consumers) {
+                consumer.close();
+            }
+            for (QueueBrowser browser : _browsers) {
+                browser.close();
+            }
+
+            Session session = _holder.getSession();
+            if (session.getMessageListener() != null) {
+                reusable = false;
+            } else if (session.getTransacted()) {
+                session.rollback();
+            } else if (session.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE) {
+                session.recover();
+            }
+        } catch (JMSException | RuntimeException e) {
+            _logger.warn("Error while preparing pooled session for reuse. Session will be closed", e);
+            reusable = false;
+        } finally {
+            _consumers.clear();
+            _browsers.clear();
+            _connection.sessionClosed(this);
+            _connection.getHolder().releaseSession(_holder, reusable);
+        }
+    }
+
+    /**
+     * Called when a producer created on this session is closed
+     *
+     * @param producer closed producer
+     */
+    void producerClosed(PooledMessageProducer producer) {
+        synchronized (_producers) {
+            _producers.remove(producer);
+        }
+    }
+
+    SessionHolder getHolder() {
+        return _holder;
+    }
+
+    private <T extends MessageConsumer> T addConsumer(T consumer) {
+        synchronized (_consumers) {
+            _consumers.add(consumer);
+        }
+        return consumer;
+    }
+
+    private QueueBrowser addBrowser(QueueBrowser browser) {
+        synchronized (_browsers) {
+            _browsers.add(browser);
+        }
+        return browser;
+    }
+
+    private Session getSession() throws JMSException {
+        checkNotClosed();
+        return _holder.getSession();
+    }
+
+    private void checkNotClosed() throws JMSException {
+        if (_closed.get()) {
+            throw new IllegalStateException("Session is closed");
+        }
+    }
+}
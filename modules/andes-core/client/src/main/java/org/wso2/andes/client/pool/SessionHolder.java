@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds a pooled session along with the producers kept open on it, one per destination. Producers are evicted least
+ * recently used first once there are more than the configured number of producers.
+ */
+class SessionHolder {
+
+    private static final Logger _logger = LoggerFactory.getLogger(SessionHolder.class);
+
+    private final Session _session;
+
+    /**
+     * Acknowledge mode of the session, {@link Session#SESSION_TRANSACTED} if transacted
+     */
+    private final int _mode;
+
+    private final PooledConnectionFactory _factory;
+
+    /**
+     * Producers by destination in access order. The producer of the null destination is an anonymous producer
+     */
+    private final LinkedHashMap<Destination, ProducerHolder> _producers = new LinkedHashMap<>(16, 0.75f, true);
+
+    SessionHolder(Session session, int mode, PooledConnectionFactory factory) {
+        _session = session;
+        _mode = mode;
+        _factory = factory;
+    }
+
+    Session getSession() {
+        return _session;
+    }
+
+    int getMode() {
+        return _mode;
+    }
+
+    boolean isValid() {
+        return ConnectionHolder.isOpen(_session);
+    }
+
+    /**
+     * Borrow a producer for the given destination. A producer kept for the destination is reused if it is not in use
+     * already, otherwise a producer is created.
+     *
+     * @param destination destination of the producer, null for an anonymous producer
+     * @return producer
+     * @throws JMSException if the producer cannot be created
+     */
+    synchronized ProducerHolder borrowProducer(Destination destination) throws JMSException {
+        ProducerHolder holder = _producers.get(destination);
+        if (holder != null && !holder.isValid()) {
+            _producers.remove(destination);
+            holder = null;
+        }
+
+        if (holder == null) {
+            boolean keep = _factory.getMaxProducers() > 0;
+            holder = new ProducerHolder(_session.createProducer(destination), keep);
+            holder.setInUse(true);
+            if (keep) {
+                _producers.put(destination, holder);
+                evictProducers();
+            }
+        } else if (holder.isInUse()) {
+            // Another producer of the borrower uses the same destination
+            holder = new ProducerHolder(_session.createProducer(destination), false);
+            holder.setInUse(true);
+        } else {
+            holder.setInUse(true);
+        }
+        return holder;
+    }
+
+    /**
+     * Return a producer. The producer is closed unless it is kept for its destination
+     *
+     * @param holder returned producer
+     */
+    synchronized void releaseProducer(ProducerHolder holder) {
+        holder.setInUse(false);
+        if (holder.isKept() && _producers.containsValue(holder) && holder.isValid()) {
+            try {
+                holder.resetSettings();
+                evictProducers();
+                return;
+            } catch (JMSException e) {
+                _logger.warn("Error while resetting pooled producer", e);
+                _producers.values().remove(holder);
+            }
+        }
+        holder.close();
+    }
+
+    /**
+     * Close least recently used producers not in use until no more than the configured number of producers are kept
+     */
+    private void evictProducers() {
+        int excess = _producers.size() - _factory.getMaxProducers();
+        Iterator<Map.Entry<Destination, ProducerHolder>> iterator = _producers.entrySet().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            ProducerHolder holder = iterator.next().getValue();
+            if (!holder.isInUse()) {
+                iterator.remove();
+                holder.close();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * Close the session along with its producers
+     */
+    synchronized void destroy() {
+        _producers.clear();
+        try {
+            _session.close();
+        } catch (JMSException e) {
+            _logger.warn("Error while closing pooled session", e);
+        }
+    }
+
+    /**
+     * A producer along with the settings it was created with. Settings changed by a borrower are reset when the
+     * producer is returned.
+     */
+    static class ProducerHolder {
+
+        private final MessageProducer _producer;
+
+        /**
+         * True if the producer is kept for reuse when returned
+         */
+        private final boolean _kept;
+
+        private final int _deliveryMode;
+
+        private final int _priority;
+
+        private final long _timeToLive;
+
+        private final boolean _disableMessageID;
+
+        private final boolean _disableMessageTimestamp;
+
+        private boolean _inUse = false;
+
+        ProducerHolder(MessageProducer producer, boolean kept) throws JMSException {
+            _producer = producer;
+            _kept = kept;
+            _deliveryMode = producer.getDeliveryMode();
+            _priority = producer.getPriority();
+            _timeToLive = producer.getTimeToLive();
+            _disableMessageID = producer.getDisableMessageID();
+            _disableMessageTimestamp = producer.getDisableMessageTimestamp();
+        }
+
+        MessageProducer getProducer() {
+            return _producer;
+        }
+
+        boolean isKept() {
+            return _kept;
+        }
+
+        boolean isInUse() {
+            return _inUse;
+        }
+
+        void setInUse(boolean inUse) {
+            _inUse = inUse;
+        }
+
+        boolean isValid() {
+            return ConnectionHolder.isOpen(_producer);
+        }
+
+        /**
+         * Restore the settings the producer was created with
+         *
+         * @throws JMSException if a setting cannot be changed
+         */
+        void resetSettings() throws JMSException {
+            _producer.setDeliveryMode(_deliveryMode);
+            _producer.setPriority(_priority);
+            _producer.setTimeToLive(_timeToLive);
+            _producer.setDisableMessageID(_disableMessageID);
+            _producer.setDisableMessageTimestamp(_disableMessageTimestamp);
+        }
+
+        void close() {
+            try {
+                _producer.close();
+            } catch (JMSException e) {
+                _logger.warn("Error while closing pooled producer", e);
+            }
+        }
+    }
+}
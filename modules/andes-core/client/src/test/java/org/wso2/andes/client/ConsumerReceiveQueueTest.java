@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 WSO2 Inc. (http://wso2.com) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.andes.client;
+
+import junit.framework.TestCase;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+public class ConsumerReceiveQueueTest extends TestCase {
+
+    public void testObjectsWithoutDelayAreTakenInOrder() throws InterruptedException {
+        ConsumerReceiveQueue queue = new ConsumerReceiveQueue();
+        for (int i = 0; i < 5; i++) {
+            queue.put(new DelayedObject(0, i));
+        }
+        assertEquals(5, queue.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, queue.take().getObject());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testDelayedObjectIsHeldUntilDelayExpires() throws InterruptedException {
+        ConsumerReceiveQueue queue = new ConsumerReceiveQueue();
+        queue.put(new DelayedObject(200, "delayed"));
+        queue.put(new DelayedObject(0, "ready"));
+
+        assertEquals(2, queue.size());
+        assertEquals("ready", queue.poll().getObject());
+        assertNull(queue.poll());
+        assertFalse(queue.isEmpty());
+
+        DelayedObject delayedObject = queue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delayedObject);
+        assertEquals("delayed", delayedObject.getObject());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testObjectIsReleasedWhenTimerRunsEarly() throws InterruptedException {
+        ConsumerReceiveQueue queue = new ConsumerReceiveQueue();
+        // Reports a shorter delay when added, as when the clock of the timer runs ahead of the clock of the object
+        queue.put(new EarlyReportingDelayedObject(300, "delayed"));
+
+        DelayedObject delayedObject = queue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delayedObject);
+        assertEquals("delayed", delayedObject.getObject());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testDelayedObjectsAreReleasedInDelayOrder() throws InterruptedException {
+        ConsumerReceiveQueue queue = new ConsumerReceiveQueue();
+        queue.put(new DelayedObject(300, "second"));
+        queue.put(new DelayedObject(100, "first"));
+
+        assertEquals("first", queue.poll(5, TimeUnit.SECONDS).getObject());
+        assertEquals("second", queue.poll(5, TimeUnit.SECONDS).getObject());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testIteratorCoversBothLanesAndRemoves() {
+        ConsumerReceiveQueue queue = new ConsumerReceiveQueue();
+        queue.put(new DelayedObject(0, "ready"));
+        queue.put(new DelayedObject(60000, "delayed"));
+
+        Iterator<DelayedObject> iterator = queue.iterator();
+        assertTrue(iterator.hasNext());
+        assertEquals("ready", iterator.next().getObject());
+        assertTrue(iterator.hasNext());
+        iterator.remove();
+        assertEquals("delayed", iterator.next().getObject());
+        iterator.remove();
+        assertFalse(iterator.hasNext());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testClearRemovesDelayedObjects() throws InterruptedException {
+        ConsumerReceiveQueue queue = new ConsumerReceiveQueue();
+        queue.put(new DelayedObject(50, "delayed"));
+        queue.clear();
+        assertNull(queue.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * Delayed object reporting only a tenth of its delay the first time it is asked
+     */
+    private static class EarlyReportingDelayedObject extends DelayedObject {
+
+        private boolean delayReported = false;
+
+        private EarlyReportingDelayedObject(long deliveryDelay, Object objectElement) {
+            super(deliveryDelay, objectElement);
+        }
+
+        @Override
+        public long getDelay(TimeUnit timeUnit) {
+            long delay = super.getDelay(timeUnit);
+            if (!delayReported) {
+                delayReported = true;
+                return delay / 10;
+            }
+            return delay;
+        }
+    }
+}
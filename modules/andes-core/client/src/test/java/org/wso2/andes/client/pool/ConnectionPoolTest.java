@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import junit.framework.TestCase;
+import org.wso2.andes.client.AMQConnectionFactory;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConnectionPoolTest extends TestCase {
+
+    private StubConnectionFactory _factory;
+
+    private ConnectionPool _pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _factory = new StubConnectionFactory();
+        _factory.setMaxConnections(1);
+        _factory.setBorrowTimeout(200);
+        _pool = new ConnectionPool(_factory, null, null);
+    }
+
+    public void testReturnedConnectionIsReused() throws JMSException {
+        PooledConnection connection = _pool.borrow();
+        connection.close();
+
+        PooledConnection reusedConnection = _pool.borrow();
+        assertSame(connection.getHolder(), reusedConnection.getHolder());
+        assertEquals(1, _factory.getCreatedConnections().size());
+    }
+
+    public void testBorrowTimesOutWhenAllConnectionsAreInUse() throws JMSException {
+        _pool.borrow();
+
+        long start = System.currentTimeMillis();
+        try {
+            _pool.borrow();
+            fail("Borrowing from a full pool should time out");
+        } catch (JMSException e) {
+            assertTrue(System.currentTimeMillis() - start >= 200);
+        }
+        assertEquals(1, _factory.getCreatedConnections().size());
+    }
+
+    public void testWaitingBorrowerGetsReturnedConnection() throws Exception {
+        _factory.setBorrowTimeout(5000);
+        final PooledConnection connection = _pool.borrow();
+        final AtomicReference<PooledConnection> borrowed = new AtomicReference<>();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Thread borrower = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    borrowed.set(_pool.borrow());
+                } catch (JMSException e) {
+                    failure.set(e);
+                }
+            }
+        });
+        borrower.start();
+        Thread.sleep(100);
+        assertNull(borrowed.get());
+
+        connection.close();
+        borrower.join(5000);
+
+        assertNull(failure.get());
+        assertSame(connection.getHolder(), borrowed.get().getHolder());
+    }
+
+    public void testConnectionClosedUnderneathIsDiscardedOnBorrow() throws JMSException {
+        PooledConnection connection = _pool.borrow();
+        connection.close();
+        _factory.getCreatedConnections().get(0).close();
+
+        PooledConnection newConnection = _pool.borrow();
+        assertNotSame(connection.getHolder(), newConnection.getHolder());
+        assertEquals(2, _factory.getCreatedConnections().size());
+
+        // The discarded connection no longer counts against the pool size
+        newConnection.close();
+        assertSame(newConnection.getHolder(), _pool.borrow().getHolder());
+    }
+
+    public void testIdleConnectionsAreEvicted() throws Exception {
+        PooledConnection connection = _pool.borrow();
+        connection.close();
+
+        _pool.evictIdle(60000);
+        assertFalse(_factory.getCreatedConnections().get(0).isClosed());
+
+        Thread.sleep(10);
+        _pool.evictIdle(1);
+        assertTrue(_factory.getCreatedConnections().get(0).isClosed());
+
+        // The evicted connection no longer counts against the pool size
+        _pool.borrow();
+        assertEquals(2, _factory.getCreatedConnections().size());
+    }
+
+    public void testFailedCreationIsNotCounted() throws JMSException {
+        _factory.failNextCreation();
+        try {
+            _pool.borrow();
+            fail("Connection creation should fail");
+        } catch (JMSException e) {
+            // Expected
+        }
+
+        _pool.borrow();
+        assertEquals(1, _factory.getCreatedConnections().size());
+    }
+
+    public void testReturnedConnectionIsStopped() throws JMSException {
+        PooledConnection connection = _pool.borrow();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        connection.createConnectionConsumer(null, null, null, 1);
+        connection.start();
+        connection.close();
+
+        StubConnection physicalConnection = _factory.getCreatedConnections().get(0);
+        assertFalse(physicalConnection.isStarted());
+        assertTrue(physicalConnection.getConnectionConsumers().get(0).isClosed());
+        assertFalse(physicalConnection.isClosed());
+        try {
+            session.createProducer(null);
+            fail("Session of a closed connection should be closed");
+        } catch (JMSException e) {
+            // Expected
+        }
+    }
+
+    public void testConnectionWithClientIDIsNotReused() throws JMSException {
+        PooledConnection connection = _pool.borrow();
+        connection.setClientID("client");
+        connection.close();
+
+        assertTrue(_factory.getCreatedConnections().get(0).isClosed());
+
+        PooledConnection newConnection = _pool.borrow();
+        assertNotSame(connection.getHolder(), newConnection.getHolder());
+        assertNull(newConnection.getClientID());
+    }
+
+    public void testClosedPoolRejectsBorrowing() throws JMSException {
+        PooledConnection connection = _pool.borrow();
+        _pool.close();
+
+        try {
+            _pool.borrow();
+            fail("Borrowing from a closed pool should fail");
+        } catch (JMSException e) {
+            // Expected
+        }
+
+        // A connection in use is closed when it is returned
+        connection.close();
+        assertTrue(_factory.getCreatedConnections().get(0).isClosed());
+    }
+
+    /**
+     * Factory creating stub connections in place of physical connections
+     */
+    private static class StubConnectionFactory extends PooledConnectionFactory {
+
+        private final List<StubConnection> _createdConnections = new ArrayList<>();
+
+        private boolean _failNextCreation = false;
+
+        StubConnectionFactory() {
+            super(new AMQConnectionFactory());
+        }
+
+        List<StubConnection> getCreatedConnections() {
+            return _createdConnections;
+        }
+
+        void failNextCreation() {
+            _failNextCreation = true;
+        }
+
+        @Override
+        Connection createPhysicalConnection(String userName, String password) throws JMSException {
+            if (_failNextCreation) {
+                _failNextCreation = false;
+                throw new JMSException("Connection refused");
+            }
+            StubConnection connection = new StubConnection();
+            _createdConnections.add(connection);
+            return connection;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import junit.framework.TestCase;
+import org.wso2.andes.client.AMQConnectionFactory;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+public class SessionHolderTest extends TestCase {
+
+    private PooledConnectionFactory _factory;
+
+    private StubConnection.StubSession _session;
+
+    private SessionHolder _holder;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _factory = new PooledConnectionFactory(new AMQConnectionFactory());
+        _factory.setMaxProducers(2);
+        _session = new StubConnection.StubSession(false, Session.AUTO_ACKNOWLEDGE);
+        _holder = new SessionHolder(_session, Session.AUTO_ACKNOWLEDGE, _factory);
+    }
+
+    public void testProducerIsReusedForDestination() throws JMSException {
+        Destination destination = new TestDestination("a");
+
+        SessionHolder.ProducerHolder producer = _holder.borrowProducer(destination);
+        _holder.releaseProducer(producer);
+
+        assertSame(producer, _holder.borrowProducer(destination));
+        assertEquals(1, _session.getProducers().size());
+    }
+
+    public void testLeastRecentlyUsedProducerIsEvicted() throws JMSException {
+        Destination first = new TestDestination("a");
+        Destination second = new TestDestination("b");
+        Destination third = new TestDestination("c");
+
+        SessionHolder.ProducerHolder firstProducer = borrowAndRelease(first);
+        SessionHolder.ProducerHolder secondProducer = borrowAndRelease(second);
+        // Using the first destination again leaves the second one least recently used
+        assertSame(firstProducer, borrowAndRelease(first));
+
+        borrowAndRelease(third);
+
+        assertTrue(firstProducer.isValid());
+        assertFalse(secondProducer.isValid());
+        assertSame(firstProducer, borrowAndRelease(first));
+        assertNotSame(secondProducer, borrowAndRelease(second));
+    }
+
+    public void testProducerInUseIsNotEvicted() throws JMSException {
+        _factory.setMaxProducers(1);
+        Destination first = new TestDestination("a");
+        Destination second = new TestDestination("b");
+
+        SessionHolder.ProducerHolder firstProducer = _holder.borrowProducer(first);
+        // The first producer is least recently used but in use, hence the second one is closed to keep the limit
+        SessionHolder.ProducerHolder secondProducer = borrowAndRelease(second);
+        assertTrue(firstProducer.isValid());
+        assertFalse(secondProducer.isValid());
+
+        _holder.releaseProducer(firstProducer);
+        assertTrue(firstProducer.isValid());
+        assertSame(firstProducer, borrowAndRelease(first));
+    }
+
+    public void testProducerInUseIsNotSharedForSameDestination() throws JMSException {
+        Destination destination = new TestDestination("a");
+
+        SessionHolder.ProducerHolder producer = _holder.borrowProducer(destination);
+        SessionHolder.ProducerHolder otherProducer = _holder.borrowProducer(destination);
+        assertNotSame(producer, otherProducer);
+        assertFalse(otherProducer.isKept());
+
+        _holder.releaseProducer(otherProducer);
+        assertFalse(otherProducer.isValid());
+        assertTrue(producer.isValid());
+    }
+
+    public void testProducerSettingsAreReset() throws JMSException {
+        Destination destination = new TestDestination("a");
+
+        SessionHolder.ProducerHolder producer = _holder.borrowProducer(destination);
+        producer.getProducer().setPriority(9);
+        producer.getProducer().setTimeToLive(1000);
+        _holder.releaseProducer(producer);
+
+        producer = _holder.borrowProducer(destination);
+        assertEquals(Message.DEFAULT_PRIORITY, producer.getProducer().getPriority());
+        assertEquals(Message.DEFAULT_TIME_TO_LIVE, producer.getProducer().getTimeToLive());
+    }
+
+    public void testProducersAreNotKeptWhenDisabled() throws JMSException {
+        _factory.setMaxProducers(0);
+        Destination destination = new TestDestination("a");
+
+        SessionHolder.ProducerHolder producer = borrowAndRelease(destination);
+        assertFalse(producer.isValid());
+        assertNotSame(producer, borrowAndRelease(destination));
+    }
+
+    private SessionHolder.ProducerHolder borrowAndRelease(Destination destination) throws JMSException {
+        SessionHolder.ProducerHolder producer = _holder.borrowProducer(destination);
+        _holder.releaseProducer(producer);
+        return producer;
+    }
+
+    private static class TestDestination implements Destination {
+
+        private final String _name;
+
+        TestDestination(String name) {
+            _name = name;
+        }
+
+        @Override
+        public String toString() {
+            return _name;
+        }
+    }
+}
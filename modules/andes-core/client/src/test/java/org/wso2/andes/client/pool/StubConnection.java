@@ -0,0 +1,451 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.andes.client.pool;
+
+import org.wso2.andes.client.Closeable;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.ConnectionMetaData;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In memory connection used to test pooling. Records the calls made by the pool and can be closed underneath the
+ * pool to simulate a connection lost for good.
+ */
+class StubConnection extends Closeable implements Connection {
+
+    private final List<StubSession> _sessions = new ArrayList<>();
+
+    private final List<StubConnectionConsumer> _connectionConsumers = new ArrayList<>();
+
+    private String _clientID;
+
+    private ExceptionListener _exceptionListener;
+
+    private boolean _started = false;
+
+    boolean isStarted() {
+        return _started;
+    }
+
+    List<StubSession> getSessions() {
+        return _sessions;
+    }
+
+    List<StubConnectionConsumer> getConnectionConsumers() {
+        return _connectionConsumers;
+    }
+
+    @Override
+    public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
+        checkNotClosed();
+        StubSession session = new StubSession(transacted, acknowledgeMode);
+        _sessions.add(session);
+        return session;
+    }
+
+    @Override
+    public String getClientID() throws JMSException {
+        return _clientID;
+    }
+
+    @Override
+    public void setClientID(String clientID) throws JMSException {
+        checkNotClosed();
+        _clientID = clientID;
+    }
+
+    @Override
+    public ConnectionMetaData getMetaData() throws JMSException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ExceptionListener getExceptionListener() throws JMSException {
+        return _exceptionListener;
+    }
+
+    @Override
+    public void setExceptionListener(ExceptionListener listener) throws JMSException {
+        _exceptionListener = listener;
+    }
+
+    @Override
+    public void start() throws JMSException {
+        checkNotClosed();
+        _started = true;
+    }
+
+    @Override
+    public void stop() throws JMSException {
+        checkNotClosed();
+        _started = false;
+    }
+
+    @Override
+    public void close() throws JMSException {
+        _started = false;
+        _closed.set(true);
+    }
+
+    @Override
+    public ConnectionConsumer createConnectionConsumer(Destination destination, String messageSelector,
+                                                       ServerSessionPool sessionPool, int maxMessages)
+            throws JMSException {
+        StubConnectionConsumer connectionConsumer = new StubConnectionConsumer(sessionPool);
+        _connectionConsumers.add(connectionConsumer);
+        return connectionConsumer;
+    }
+
+    @Override
+    public ConnectionConsumer createDurableConnectionConsumer(Topic topic, String subscriptionName,
+                                                              String messageSelector, ServerSessionPool sessionPool,
+                                                              int maxMessages) throws JMSException {
+        return createConnectionConsumer(topic, messageSelector, sessionPool, maxMessages);
+    }
+
+    static class StubConnectionConsumer implements ConnectionConsumer {
+
+        private final ServerSessionPool _sessionPool;
+
+        private boolean _closed = false;
+
+        StubConnectionConsumer(ServerSessionPool sessionPool) {
+            _sessionPool = sessionPool;
+        }
+
+        boolean isClosed() {
+            return _closed;
+        }
+
+        @Override
+        public ServerSessionPool getServerSessionPool() throws JMSException {
+            return _sessionPool;
+        }
+
+        @Override
+        public void close() throws JMSException {
+            _closed = true;
+        }
+    }
+
+    /**
+     * Session which only creates producers
+     */
+    static class StubSession extends Closeable implements Session {
+
+        private final boolean _transacted;
+
+        private final int _acknowledgeMode;
+
+        private final List<StubMessageProducer> _producers = new ArrayList<>();
+
+        StubSession(boolean transacted, int acknowledgeMode) {
+            _transacted = transacted;
+            _acknowledgeMode = acknowledgeMode;
+        }
+
+        List<StubMessageProducer> getProducers() {
+            return _producers;
+        }
+
+        @Override
+        public MessageProducer createProducer(Destination destination) throws JMSException {
+            checkNotClosed();
+            StubMessageProducer producer = new StubMessageProducer(destination);
+            _producers.add(producer);
+            return producer;
+        }
+
+        @Override
+        public boolean getTransacted() throws JMSException {
+            return _transacted;
+        }
+
+        @Override
+        public int getAcknowledgeMode() throws JMSException {
+            return _acknowledgeMode;
+        }
+
+        @Override
+        public void close() throws JMSException {
+            _closed.set(true);
+        }
+
+        @Override
+        public BytesMessage createBytesMessage() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MapMessage createMapMessage() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Message createMessage() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectMessage createObjectMessage() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectMessage createObjectMessage(Serializable object) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public StreamMessage createStreamMessage() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TextMessage createTextMessage() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TextMessage createTextMessage(String text) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void commit() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void rollback() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void recover() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MessageListener getMessageListener() throws JMSException {
+            return null;
+        }
+
+        @Override
+        public void setMessageListener(MessageListener listener) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void run() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MessageConsumer createConsumer(Destination destination) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MessageConsumer createConsumer(Destination destination, String messageSelector) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal)
+                throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TopicSubscriber createDurableSubscriber(Topic topic, String name) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TopicSubscriber createDurableSubscriber(Topic topic, String name, String messageSelector,
+                                                       boolean noLocal) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public QueueBrowser createBrowser(Queue queue) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public QueueBrowser createBrowser(Queue queue, String messageSelector) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Queue createQueue(String queueName) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Topic createTopic(String topicName) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TemporaryQueue createTemporaryQueue() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TemporaryTopic createTemporaryTopic() throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void unsubscribe(String name) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Producer keeping its settings, sending is not supported
+     */
+    static class StubMessageProducer extends Closeable implements MessageProducer {
+
+        private final Destination _destination;
+
+        private boolean _disableMessageID = false;
+
+        private boolean _disableMessageTimestamp = false;
+
+        private int _deliveryMode = DeliveryMode.PERSISTENT;
+
+        private int _priority = Message.DEFAULT_PRIORITY;
+
+        private long _timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+
+        StubMessageProducer(Destination destination) {
+            _destination = destination;
+        }
+
+        @Override
+        public void setDisableMessageID(boolean value) throws JMSException {
+            _disableMessageID = value;
+        }
+
+        @Override
+        public boolean getDisableMessageID() throws JMSException {
+            return _disableMessageID;
+        }
+
+        @Override
+        public void setDisableMessageTimestamp(boolean value) throws JMSException {
+            _disableMessageTimestamp = value;
+        }
+
+        @Override
+        public boolean getDisableMessageTimestamp() throws JMSException {
+            return _disableMessageTimestamp;
+        }
+
+        @Override
+        public void setDeliveryMode(int deliveryMode) throws JMSException {
+            _deliveryMode = deliveryMode;
+        }
+
+        @Override
+        public int getDeliveryMode() throws JMSException {
+            return _deliveryMode;
+        }
+
+        @Override
+        public void setPriority(int defaultPriority) throws JMSException {
+            _priority = defaultPriority;
+        }
+
+        @Override
+        public int getPriority() throws JMSException {
+            return _priority;
+        }
+
+        @Override
+        public void setTimeToLive(long timeToLive) throws JMSException {
+            _timeToLive = timeToLive;
+        }
+
+        @Override
+        public long getTimeToLive() throws JMSException {
+            return _timeToLive;
+        }
+
+        @Override
+        public Destination getDestination() throws JMSException {
+            return _destination;
+        }
+
+        @Override
+        public void close() throws JMSException {
+            _closed.set(true);
+        }
+
+        @Override
+        public void send(Message message) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(Destination destination, Message message) throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive)
+                throws JMSException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
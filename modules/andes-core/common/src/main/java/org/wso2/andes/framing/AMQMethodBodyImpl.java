@@ -126,17 +126,26 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return EncodingUtils.readAMQShortString(buffer);
     }
 
-    protected int getSizeOf(AMQShortString string)
+    /**
+     * Read a short string naming an exchange, queue or routing key. These recur across frames and are interned
+     * while decoding.
+     */
+    protected AMQShortString readInternedAMQShortString(ByteBuffer buffer)
+    {
+        return EncodingUtils.readInternedAMQShortString(buffer);
+    }
+
+    protected static int getSizeOf(AMQShortString string)
     {
         return EncodingUtils.encodedShortStringLength(string);
     }
 
-    protected void writeByte(ByteBuffer buffer, byte b)
+    protected static void writeByte(ByteBuffer buffer, byte b)
     {
         buffer.put(b);
     }
 
-    protected void writeAMQShortString(ByteBuffer buffer, AMQShortString string)
+    protected static void writeAMQShortString(ByteBuffer buffer, AMQShortString string)
     {
         EncodingUtils.writeShortStringBytes(buffer, string);
     }
@@ -146,7 +155,7 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return buffer.getInt();
     }
 
-    protected void writeInt(ByteBuffer buffer, int i)
+    protected static void writeInt(ByteBuffer buffer, int i)
     {
         buffer.putInt(i);
     }
@@ -156,12 +165,12 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return EncodingUtils.readFieldTable(buffer);
     }
 
-    protected int getSizeOf(FieldTable table)
+    protected static int getSizeOf(FieldTable table)
     {
         return EncodingUtils.encodedFieldTableLength(table);  //To change body of created methods use File | Settings | File Templates.
     }
 
-    protected void writeFieldTable(ByteBuffer buffer, FieldTable table)
+    protected static void writeFieldTable(ByteBuffer buffer, FieldTable table)
     {
         EncodingUtils.writeFieldTableBytes(buffer, table);
     }
@@ -171,17 +180,17 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return buffer.getLong();
     }
 
-    protected void writeLong(ByteBuffer buffer, long l)
+    protected static void writeLong(ByteBuffer buffer, long l)
     {
         buffer.putLong(l);
     }
 
-    protected int getSizeOf(byte[] response)
+    protected static int getSizeOf(byte[] response)
     {
         return (response == null) ? 4 : response.length + 4;
     }
 
-    protected void writeBytes(ByteBuffer buffer, byte[] data)
+    protected static void writeBytes(ByteBuffer buffer, byte[] data)
     {
         EncodingUtils.writeBytes(buffer,data);
     }
@@ -196,7 +205,7 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return EncodingUtils.readShort(buffer);
     }
 
-    protected void writeShort(ByteBuffer buffer, short s)
+    protected static void writeShort(ByteBuffer buffer, short s)
     {
         EncodingUtils.writeShort(buffer, s);
     }
@@ -206,12 +215,12 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return null;  //To change body of created methods use File | Settings | File Templates.
     }
 
-    protected int getSizeOf(Content body)
+    protected static int getSizeOf(Content body)
     {
         return 0;  //To change body of created methods use File | Settings | File Templates.
     }
 
-    protected void writeContent(ByteBuffer buffer, Content body)
+    protected static void writeContent(ByteBuffer buffer, Content body)
     {
         //To change body of created methods use File | Settings | File Templates.
     }
@@ -226,12 +235,12 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return buffer.getUnsignedShort();  //To change body of created methods use File | Settings | File Templates.
     }
 
-    protected void writeBitfield(ByteBuffer buffer, byte bitfield0)
+    protected static void writeBitfield(ByteBuffer buffer, byte bitfield0)
     {
         buffer.put(bitfield0);
     }
 
-    protected void writeUnsignedShort(ByteBuffer buffer, int s)
+    protected static void writeUnsignedShort(ByteBuffer buffer, int s)
     {
         EncodingUtils.writeUnsignedShort(buffer, s);
     }
@@ -240,7 +249,7 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
     {
         return buffer.getUnsignedInt();
     }
-    protected void writeUnsignedInteger(ByteBuffer buffer, long i)
+    protected static void writeUnsignedInteger(ByteBuffer buffer, long i)
     {
         EncodingUtils.writeUnsignedInteger(buffer, i);
     }
@@ -251,7 +260,7 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return buffer.getUnsigned();
     }
 
-    protected void writeUnsignedByte(ByteBuffer buffer, short unsignedByte)
+    protected static void writeUnsignedByte(ByteBuffer buffer, short unsignedByte)
     {
         EncodingUtils.writeUnsignedByte(buffer, unsignedByte);
     }
@@ -261,7 +270,7 @@ public abstract class AMQMethodBodyImpl implements AMQMethodBody
         return EncodingUtils.readTimestamp(buffer);
     }
 
-    protected void writeTimestamp(ByteBuffer buffer, long t)
+    protected static void writeTimestamp(ByteBuffer buffer, long t)
     {
         EncodingUtils.writeTimestamp(buffer, t);
     }
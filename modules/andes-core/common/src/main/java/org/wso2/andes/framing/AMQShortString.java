@@ -27,6 +27,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 
 /**
@@ -96,17 +98,11 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
     }
 
 
-    private static final ThreadLocal<Map<AMQShortString, WeakReference<AMQShortString>>> _localInternMap =
-            new ThreadLocal<Map<AMQShortString, WeakReference<AMQShortString>>>()
-            {
-                protected Map<AMQShortString, WeakReference<AMQShortString>> initialValue()
-                {
-                    return new WeakHashMap<AMQShortString, WeakReference<AMQShortString>>();
-                };
-            };
-
-    private static final Map<AMQShortString, WeakReference<AMQShortString>> _globalInternMap =
-            new WeakHashMap<AMQShortString, WeakReference<AMQShortString>>();
+    /**
+     * Intern table shared by all threads. Lookups are lock free, interned strings are weakly held and the table grows
+     * with the number of strings interned.
+     */
+    private static final InternTable _internTable = new InternTable(16, 64);
 
     private static final Logger _logger = LoggerFactory.getLogger(AMQShortString.class);
 
@@ -289,6 +285,35 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
         }
     }
 
+    /**
+     * Read a short string from the buffer and return its interned instance. The interned instance is looked up
+     * directly from the bytes in the buffer, so no short string is created unless the value is not interned yet.
+     *
+     * @param buffer buffer positioned at the length octet of the short string
+     * @return interned short string or null if the short string is empty
+     */
+    public static AMQShortString readInternedFromBuffer(ByteBuffer buffer)
+    {
+        final short length = buffer.getUnsigned();
+        if (length == 0)
+        {
+            return null;
+        }
+        else if (buffer.isDirect() || buffer.isReadOnly())
+        {
+            byte[] data = _readBuffer.get();
+            buffer.get(data, 0, length);
+            return _internTable.intern(data, 0, length, hashCode(data, 0, length), null);
+        }
+        else
+        {
+            final byte[] data = buffer.array();
+            final int offset = buffer.arrayOffset() + buffer.position();
+            buffer.skip(length);
+            return _internTable.intern(data, offset, length, hashCode(data, offset, length), null);
+        }
+    }
+
     public byte[] getBytes()
     {
         if(_offset == 0 && _length == _data.length)
@@ -521,6 +546,50 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
 
     }
 
+    private boolean contentEquals(final byte[] data, final int offset, final int length)
+    {
+        if (_length != length)
+        {
+            return false;
+        }
+
+        final byte[] thisData = _data;
+        int thisIdx = _offset;
+        int otherIdx = offset;
+        for (int i = length; i-- != 0; )
+        {
+            if (thisData[thisIdx++] != data[otherIdx++])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares this string with a length prefixed short string at an absolute position in the buffer, without
+     * reading it out of the buffer.
+     */
+    boolean equalsEncoded(final ByteBuffer buffer, final int index)
+    {
+        if ((buffer.get(index) & 0xFF) != _length)
+        {
+            return false;
+        }
+
+        final byte[] thisData = _data;
+        int thisIdx = _offset;
+        int otherIdx = index + 1;
+        for (int i = _length; i-- != 0; )
+        {
+            if (thisData[thisIdx++] != buffer.get(otherIdx++))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean equals(CharSequence s)
     {
         if(s instanceof AMQShortString)
@@ -554,19 +623,24 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
         int hash = _hashCode;
         if (hash == 0)
         {
-            final int size = length();
-
-            for (int i = 0; i < size; i++)
-            {
-                hash = (31 * hash) + _data[i+_offset];
-            }
-
+            hash = hashCode(_data, _offset, _length);
             _hashCode = hash;
         }
 
         return hash;
     }
 
+    private static int hashCode(final byte[] data, final int offset, final int length)
+    {
+        int hash = 0;
+        final int end = offset + length;
+        for (int i = offset; i < end; i++)
+        {
+            hash = (31 * hash) + data[i];
+        }
+        return hash;
+    }
+
     public void setDirty()
     {
         _hashCode = 0;
@@ -619,40 +693,7 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
 
     public AMQShortString intern()
     {
-
-        hashCode();
-
-        Map<AMQShortString, WeakReference<AMQShortString>> localMap =
-                _localInternMap.get();
-
-        WeakReference<AMQShortString> ref = localMap.get(this);
-        AMQShortString internString;
-
-        if(ref != null)
-        {
-            internString = ref.get();
-            if(internString != null)
-            {
-                return internString;
-            }
-        }
-
-
-        synchronized(_globalInternMap)
-        {
-
-            ref = _globalInternMap.get(this);
-            if((ref == null) || ((internString = ref.get()) == null))
-            {
-                internString = shrink();
-                ref = new WeakReference(internString);
-                _globalInternMap.put(internString, ref);
-            }
-
-        }
-        localMap.put(internString, ref);
-        return internString;
-
+        return _internTable.intern(_data, _offset, _length, hashCode(), this);
     }
 
     private int occurences(final byte delim)
@@ -787,4 +828,298 @@ public final class AMQShortString implements CharSequence, Comparable<AMQShortSt
         }
     }
 
+    /**
+     * Scratch space for looking up short strings read from buffers without a backing array
+     */
+    private static final ThreadLocal<byte[]> _readBuffer = new ThreadLocal<byte[]>()
+    {
+        protected byte[] initialValue()
+        {
+            return new byte[MAX_LENGTH];
+        }
+    };
+
+    /**
+     * Hash table of weakly referenced interned short strings. The table is split in to segments which grow
+     * independently. Each bucket holds an immutable chain of entries, so lookups never block. A string which is not
+     * found is interned under the lock of its segment after looking it up again, so that concurrent interning of equal
+     * values agrees on a single instance. Entries of collected strings are unlinked when their references are enqueued.
+     */
+    static final class InternTable
+    {
+        private final Segment[] _segments;
+        private final int _segmentShift;
+        private final ReferenceQueue<AMQShortString> _clearedEntries = new ReferenceQueue<AMQShortString>();
+
+        /**
+         * @param segmentCount         number of independently locked segments, a power of two
+         * @param initialBucketCount   initial number of buckets of each segment, a power of two
+         */
+        InternTable(final int segmentCount, final int initialBucketCount)
+        {
+            _segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++)
+            {
+                _segments[i] = new Segment(initialBucketCount);
+            }
+            // The hash is moved into the high word of a long so that a single segment, whose shift of 64 is
+            // treated as 0, still selects index 0 from the zero low word
+            _segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        }
+
+        /**
+         * Return the interned short string with the given content, interning one if there is none
+         *
+         * @param data      bytes of the content
+         * @param offset    offset of the content in data
+         * @param length    length of the content
+         * @param hash      hash code of the content
+         * @param candidate short string with the given content to intern if there is none, or null to create a copy
+         * @return interned short string
+         */
+        AMQShortString intern(final byte[] data, final int offset, final int length, final int hash,
+                              AMQShortString candidate)
+        {
+            expungeClearedEntries();
+
+            final int spreadHash = spread(hash);
+            final Segment segment = segmentFor(spreadHash);
+            AMQShortString interned = segment.find(data, offset, length, hash, spreadHash);
+            if (interned != null)
+            {
+                return interned;
+            }
+
+            if (candidate == null || candidate._data.length != length)
+            {
+                byte[] copy = new byte[length];
+                System.arraycopy(data, offset, copy, 0, length);
+                candidate = new AMQShortString(copy, 0, length);
+                candidate._hashCode = hash;
+            }
+            return segment.intern(candidate, hash, spreadHash, _clearedEntries);
+        }
+
+        /**
+         * @return number of entries in the table, including entries of collected strings not expunged yet
+         */
+        int size()
+        {
+            int size = 0;
+            for (Segment segment : _segments)
+            {
+                size += segment.size();
+            }
+            return size;
+        }
+
+        /**
+         * @return number of buckets in the table
+         */
+        int getBucketCount()
+        {
+            int bucketCount = 0;
+            for (Segment segment : _segments)
+            {
+                bucketCount += segment.getBucketCount();
+            }
+            return bucketCount;
+        }
+
+        void expungeClearedEntries()
+        {
+            Entry cleared;
+            while ((cleared = (Entry) _clearedEntries.poll()) != null)
+            {
+                segmentFor(cleared._spreadHash).expunge(cleared._spreadHash, _clearedEntries);
+            }
+        }
+
+        private Segment segmentFor(final int spreadHash)
+        {
+            return _segments[(int) ((spreadHash & 0xFFFFFFFFL) << 32 >>> _segmentShift)];
+        }
+
+        /**
+         * Spread the bits of a hash code so that both the segment, selected by the high bits, and the bucket,
+         * selected by the low bits, depend on all characters of the short string
+         */
+        private static int spread(int hash)
+        {
+            hash += (hash << 15) ^ 0xffffcd7d;
+            hash ^= (hash >>> 10);
+            hash += (hash << 3);
+            hash ^= (hash >>> 6);
+            hash += (hash << 2) + (hash << 14);
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Segment of the intern table. Readers use the current bucket array without locking. Interning, expunging and
+     * growing replace bucket heads or the bucket array under the segment lock.
+     */
+    private static final class Segment
+    {
+        /**
+         * Ratio of entries to buckets beyond which the bucket array is doubled
+         */
+        private static final float LOAD_FACTOR = 0.75f;
+
+        private volatile AtomicReferenceArray<Entry> _buckets;
+        private int _count;
+        private int _threshold;
+
+        Segment(final int bucketCount)
+        {
+            setBuckets(new AtomicReferenceArray<Entry>(bucketCount));
+        }
+
+        AMQShortString find(final byte[] data, final int offset, final int length, final int hash,
+                            final int spreadHash)
+        {
+            AtomicReferenceArray<Entry> buckets = _buckets;
+            for (Entry entry = buckets.get(spreadHash & (buckets.length() - 1)); entry != null; entry = entry._next)
+            {
+                AMQShortString interned = entry.get();
+                if (interned != null && entry._hash == hash && interned.contentEquals(data, offset, length))
+                {
+                    return interned;
+                }
+            }
+            return null;
+        }
+
+        synchronized AMQShortString intern(final AMQShortString candidate, final int hash, final int spreadHash,
+                                           final ReferenceQueue<AMQShortString> queue)
+        {
+            // Interned by another thread since the lock free lookup
+            AMQShortString interned = find(candidate._data, candidate._offset, candidate._length, hash, spreadHash);
+            if (interned != null)
+            {
+                return interned;
+            }
+
+            if (_count >= _threshold)
+            {
+                grow(queue);
+            }
+            AtomicReferenceArray<Entry> buckets = _buckets;
+            int index = spreadHash & (buckets.length() - 1);
+            buckets.set(index, new Entry(candidate, hash, spreadHash, buckets.get(index), queue));
+            _count++;
+            return candidate;
+        }
+
+        /**
+         * Unlink the entries of collected strings from the bucket of the given hash
+         */
+        synchronized void expunge(final int spreadHash, final ReferenceQueue<AMQShortString> queue)
+        {
+            AtomicReferenceArray<Entry> buckets = _buckets;
+            int index = spreadHash & (buckets.length() - 1);
+            Entry head = buckets.get(index);
+            Entry newHead = copyLiveEntries(head, queue);
+            if (newHead != head)
+            {
+                buckets.set(index, newHead);
+            }
+        }
+
+        synchronized int size()
+        {
+            return _count;
+        }
+
+        int getBucketCount()
+        {
+            return _buckets.length();
+        }
+
+        /**
+         * Double the number of buckets, dropping the entries of collected strings on the way. Readers of the old
+         * bucket array keep seeing its unchanged chains until they read the new array.
+         */
+        private void grow(final ReferenceQueue<AMQShortString> queue)
+        {
+            AtomicReferenceArray<Entry> oldBuckets = _buckets;
+            AtomicReferenceArray<Entry> newBuckets = new AtomicReferenceArray<Entry>(oldBuckets.length() << 1);
+            int mask = newBuckets.length() - 1;
+            int count = 0;
+            for (int i = 0; i < oldBuckets.length(); i++)
+            {
+                for (Entry entry = oldBuckets.get(i); entry != null; entry = entry._next)
+                {
+                    AMQShortString interned = entry.get();
+                    if (interned != null)
+                    {
+                        int index = entry._spreadHash & mask;
+                        newBuckets.set(index, new Entry(interned, entry._hash, entry._spreadHash,
+                                newBuckets.get(index), queue));
+                        count++;
+                    }
+                }
+            }
+            _count = count;
+            setBuckets(newBuckets);
+        }
+
+        private void setBuckets(final AtomicReferenceArray<Entry> buckets)
+        {
+            _threshold = (int) (buckets.length() * LOAD_FACTOR);
+            _buckets = buckets;
+        }
+
+        /**
+         * Copy of a chain holding only the entries whose strings are not collected. Entries after the last collected
+         * one are shared with the original chain.
+         */
+        private Entry copyLiveEntries(final Entry head, final ReferenceQueue<AMQShortString> queue)
+        {
+            Entry lastCleared = null;
+            for (Entry entry = head; entry != null; entry = entry._next)
+            {
+                if (entry.get() == null)
+                {
+                    lastCleared = entry;
+                }
+            }
+            if (lastCleared == null)
+            {
+                return head;
+            }
+
+            Entry newHead = lastCleared._next;
+            for (Entry entry = head; entry != lastCleared; entry = entry._next)
+            {
+                AMQShortString interned = entry.get();
+                if (interned == null)
+                {
+                    _count--;
+                }
+                else
+                {
+                    newHead = new Entry(interned, entry._hash, entry._spreadHash, newHead, queue);
+                }
+            }
+            _count--;
+            return newHead;
+        }
+    }
+
+    private static final class Entry extends WeakReference<AMQShortString>
+    {
+        private final int _hash;
+        private final int _spreadHash;
+        private final Entry _next;
+
+        Entry(final AMQShortString referent, final int hash, final int spreadHash, final Entry next,
+              final ReferenceQueue<AMQShortString> queue)
+        {
+            super(referent, queue);
+            _hash = hash;
+            _spreadHash = spreadHash;
+            _next = next;
+        }
+    }
 }
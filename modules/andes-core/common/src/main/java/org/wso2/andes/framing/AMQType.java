@@ -69,6 +69,11 @@ public enum AMQType
         {
             return EncodingUtils.readLongString(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4 + buffer.getInt(index);
+        }
     },
 
     INTEGER('i')
@@ -115,6 +120,11 @@ public enum AMQType
         {
             return EncodingUtils.readUnsignedInteger(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4;
+        }
     },
 
     DECIMAL('D')
@@ -160,6 +170,11 @@ public enum AMQType
 
             return bd.setScale(places);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 5;
+        }
     },
 
     TIMESTAMP('T')
@@ -191,6 +206,11 @@ public enum AMQType
         {
             return EncodingUtils.readLong(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 8;
+        }
     },
 
     /**
@@ -279,6 +299,11 @@ public enum AMQType
                 throw new IllegalArgumentException("Unable to read field table from buffer.", e);
             }
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4 + buffer.getInt(index);
+        }
     },
 
     VOID('V')
@@ -308,6 +333,11 @@ public enum AMQType
         {
             return null;
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 0;
+        }
     },
 
     BINARY('x')
@@ -339,6 +369,11 @@ public enum AMQType
         {
             return EncodingUtils.readLongstr(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4 + buffer.getInt(index);
+        }
     },
 
     ASCII_STRING('c')
@@ -369,6 +404,11 @@ public enum AMQType
         {
             return EncodingUtils.readLongString(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4 + buffer.getInt(index);
+        }
     },
 
     WIDE_STRING('C')
@@ -400,6 +440,11 @@ public enum AMQType
         {
             return EncodingUtils.readLongString(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4 + buffer.getInt(index);
+        }
     },
 
     BOOLEAN('t')
@@ -435,6 +480,11 @@ public enum AMQType
         {
             return EncodingUtils.readBoolean(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 1;
+        }
     },
 
     ASCII_CHARACTER('k')
@@ -470,6 +520,11 @@ public enum AMQType
         {
             return EncodingUtils.readChar(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 1;
+        }
     },
 
     BYTE('b')
@@ -505,6 +560,11 @@ public enum AMQType
         {
             return EncodingUtils.readByte(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 1;
+        }
     },
 
     SHORT('s')
@@ -544,6 +604,11 @@ public enum AMQType
         {
             return EncodingUtils.readShort(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 2;
+        }
     },
 
     INT('I')
@@ -586,6 +651,11 @@ public enum AMQType
         {
             return EncodingUtils.readInteger(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4;
+        }
     },
 
     LONG('l')
@@ -633,6 +703,11 @@ public enum AMQType
         {
             return EncodingUtils.readLong(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 8;
+        }
     },
 
     FLOAT('f')
@@ -668,6 +743,11 @@ public enum AMQType
         {
             return EncodingUtils.readFloat(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 4;
+        }
     },
 
     DOUBLE('d')
@@ -707,6 +787,11 @@ public enum AMQType
         {
             return EncodingUtils.readDouble(buffer);
         }
+
+        int getEncodedValueSize(ByteBuffer buffer, int index)
+        {
+            return 8;
+        }
     };
 
     /** Holds the defined one byte identifier for the type. */
@@ -792,4 +877,14 @@ public enum AMQType
      * @return An instance of the type.
      */
     abstract Object readValueFromBuffer(ByteBuffer buffer);
+
+    /**
+     * Calculates the size in bytes of an instance of the type encoded in a byte buffer, without reading it.
+     *
+     * @param buffer The byte buffer holding the encoded instance.
+     * @param index  The absolute position of the encoded instance, just after its one byte identifier.
+     *
+     * @return The size of the encoded instance in bytes.
+     */
+    abstract int getEncodedValueSize(ByteBuffer buffer, int index);
 }
@@ -603,6 +603,14 @@ public class BasicContentHeaderProperties implements CommonContentHeaderProperti
         _priority = priority;
     }
 
+    /**
+     * @return true if the priority property is set, otherwise {@link #getPriority()} is meaningless
+     */
+    public boolean hasPriority()
+    {
+        return (_propertyFlags & PROPRITY_MASK) != 0;
+    }
+
     public AMQShortString getCorrelationId()
     {
         decodeIfNecessary();
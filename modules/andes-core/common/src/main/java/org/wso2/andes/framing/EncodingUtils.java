@@ -665,6 +665,11 @@ public class EncodingUtils
 
     }
 
+    public static AMQShortString readInternedAMQShortString(ByteBuffer buffer)
+    {
+        return AMQShortString.readInternedFromBuffer(buffer);
+    }
+
     public static String readShortString(ByteBuffer buffer)
     {
         short length = buffer.getUnsigned();
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import org.wso2.andes.AMQPInvalidClassException;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -46,8 +47,11 @@ public class FieldTable
     private ByteBuffer _encodedForm;
     private LinkedHashMap<AMQShortString, AMQTypedValue> _properties;
     private long _encodedSize;
+    /** Positions of the entries in the encoded form, indexed on first lookup while the table is not decoded. */
+    private int[] _entryOffsets;
     private static final int INITIAL_HASHMAP_CAPACITY = 16;
     private static final int INITIAL_ENCODED_FORM_SIZE = 256;
+    private static final int INITIAL_ENTRY_OFFSETS_SIZE = 8;
 
     public FieldTable()
     {
@@ -58,7 +62,8 @@ public class FieldTable
     }
 
     /**
-     * Construct a new field table.
+     * Construct a new field table. The table is not decoded; it refers to the encoded data in the given buffer,
+     * like {@link ContentBody} does, so the data must not be overwritten while the table is in use.
      *
      * @param buffer the buffer from which to read data. The length byte must be read already
      * @param length the length of the field table. Must be > 0.
@@ -66,11 +71,8 @@ public class FieldTable
     public FieldTable(ByteBuffer buffer, long length)
     {
         this();
-        ByteBuffer encodedForm = buffer.slice();
-        encodedForm.limit((int) length);
-        _encodedForm = ByteBuffer.allocate((int)length);
-        _encodedForm.put(encodedForm);
-        _encodedForm.flip();
+        _encodedForm = buffer.slice();
+        _encodedForm.limit((int) length);
         _encodedSize = length;
         buffer.skip((int) length);
     }
@@ -89,26 +91,98 @@ public class FieldTable
                 }
                 else
                 {
-                    populateFromBuffer();
+                    // Only decode the requested value, most readers look at one or two properties
+                    int position = findEncodedValue(string);
+                    if (position < 0)
+                    {
+                        return null;
+                    }
+                    ByteBuffer encodedForm = _encodedForm.duplicate();
+                    encodedForm.position(position);
+                    return AMQTypedValue.readFromBuffer(encodedForm);
                 }
             }
         }
 
-        if (_properties == null)
+        return _properties.get(string);
+    }
+
+    /**
+     * Find an entry in the encoded form without decoding the table. As when the table is decoded, the last entry
+     * wins if a key is repeated.
+     *
+     * @param key the key to find
+     * @return position of the type identifier of the value of the entry, or -1 if the key is not in the table
+     */
+    private int findEncodedValue(AMQShortString key)
+    {
+        if (_entryOffsets == null)
         {
-            return null;
+            indexEncodedForm();
         }
-        else
+
+        for (int i = _entryOffsets.length - 1; i >= 0; i--)
         {
-            return _properties.get(string);
+            final int offset = _entryOffsets[i];
+            if (key.equalsEncoded(_encodedForm, offset))
+            {
+                return offset + 1 + (_encodedForm.get(offset) & 0xFF);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find an entry of the given type in the encoded form without decoding the table.
+     *
+     * @return position of the value of the entry, or -1 if the key is not in the table or has a different type
+     */
+    private int findEncodedValue(AMQShortString key, AMQType type)
+    {
+        int position = findEncodedValue(key);
+        if (position < 0 || _encodedForm.get(position) != type.identifier())
+        {
+            return -1;
         }
+        return position + 1;
+    }
+
+    /**
+     * Record the position of every entry in the encoded form by skipping over the values.
+     */
+    private void indexEncodedForm()
+    {
+        int[] offsets = new int[INITIAL_ENTRY_OFFSETS_SIZE];
+        int count = 0;
+        int position = 0;
+        while (position < _encodedSize)
+        {
+            if (count == offsets.length)
+            {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = position;
+
+            final int typePosition = position + 1 + (_encodedForm.get(position) & 0xFF);
+            final AMQType type = AMQTypeMap.getType(_encodedForm.get(typePosition));
+            position = typePosition + 1 + type.getEncodedValueSize(_encodedForm, typePosition + 1);
+        }
+        _entryOffsets = Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * @return true if the table has only its encoded form, so properties must be looked up in the buffer
+     */
+    private boolean isEncodedOnly()
+    {
+        return _properties == null && _encodedForm != null;
     }
 
     private void populateFromBuffer()
     {
         try
         {
-            setFromBuffer(_encodedForm, _encodedSize);
+            setFromBuffer(_encodedForm.duplicate(), _encodedSize);
         }
         catch (AMQFrameDecodingException e)
         {
@@ -441,6 +515,88 @@ public class FieldTable
         }
     }
 
+    // ************  Primitive getters, reading straight from the encoded form where possible
+
+    public boolean getBoolean(AMQShortString string, boolean defaultValue)
+    {
+        checkPropertyName(string);
+        synchronized (this)
+        {
+            if (isEncodedOnly())
+            {
+                int position = findEncodedValue(string, AMQType.BOOLEAN);
+                return (position < 0) ? defaultValue : (_encodedForm.get(position) == 1);
+            }
+        }
+
+        Boolean value = getBoolean(string);
+        return (value == null) ? defaultValue : value;
+    }
+
+    public short getShort(AMQShortString string, short defaultValue)
+    {
+        checkPropertyName(string);
+        synchronized (this)
+        {
+            if (isEncodedOnly())
+            {
+                int position = findEncodedValue(string, AMQType.SHORT);
+                return (position < 0) ? defaultValue : _encodedForm.getShort(position);
+            }
+        }
+
+        Short value = getShort(string);
+        return (value == null) ? defaultValue : value;
+    }
+
+    public int getInteger(AMQShortString string, int defaultValue)
+    {
+        checkPropertyName(string);
+        synchronized (this)
+        {
+            if (isEncodedOnly())
+            {
+                int position = findEncodedValue(string, AMQType.INT);
+                return (position < 0) ? defaultValue : _encodedForm.getInt(position);
+            }
+        }
+
+        Integer value = getInteger(string);
+        return (value == null) ? defaultValue : value;
+    }
+
+    public long getLong(AMQShortString string, long defaultValue)
+    {
+        checkPropertyName(string);
+        synchronized (this)
+        {
+            if (isEncodedOnly())
+            {
+                int position = findEncodedValue(string, AMQType.LONG);
+                return (position < 0) ? defaultValue : _encodedForm.getLong(position);
+            }
+        }
+
+        Long value = getLong(string);
+        return (value == null) ? defaultValue : value;
+    }
+
+    public double getDouble(AMQShortString string, double defaultValue)
+    {
+        checkPropertyName(string);
+        synchronized (this)
+        {
+            if (isEncodedOnly())
+            {
+                int position = findEncodedValue(string, AMQType.DOUBLE);
+                return (position < 0) ? defaultValue : _encodedForm.getDouble(position);
+            }
+        }
+
+        Double value = getDouble(string);
+        return (value == null) ? defaultValue : value;
+    }
+
     // ************  Setters
     public Object setBoolean(String string, Boolean b)
     {
@@ -703,6 +859,13 @@ public class FieldTable
     public boolean itemExists(AMQShortString propertyName)
     {
         checkPropertyName(propertyName);
+        synchronized (this)
+        {
+            if (isEncodedOnly())
+            {
+                return findEncodedValue(propertyName) >= 0;
+            }
+        }
         initMapIfNecessary();
 
         return _properties.containsKey(propertyName);
@@ -902,6 +1065,13 @@ public class FieldTable
 
     public boolean containsKey(AMQShortString key)
     {
+        synchronized (this)
+        {
+            if (isEncodedOnly() && (key != null))
+            {
+                return findEncodedValue(key) >= 0;
+            }
+        }
         initMapIfNecessary();
 
         return _properties.containsKey(key);
@@ -1007,7 +1177,8 @@ public class FieldTable
 
         if (_encodedForm != null)
         {
-            if(buffer.isDirect() || buffer.isReadOnly())
+            // Unmodified tables are written out as received
+            if(_encodedForm.isDirect() || _encodedForm.isReadOnly())
             {
                 ByteBuffer encodedForm = _encodedForm.duplicate();
 
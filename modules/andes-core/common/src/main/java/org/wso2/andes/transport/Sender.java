@@ -30,6 +30,10 @@ public interface Sender<T>
 {
     void setIdleTimeout(int i);
 
+    /**
+     * Send the given message. Implementations consume the message before returning, so callers may reuse it
+     * afterwards.
+     */
     void send(T msg);
 
     void flush();
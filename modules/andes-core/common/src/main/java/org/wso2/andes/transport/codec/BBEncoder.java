@@ -70,6 +70,19 @@ public final class BBEncoder extends AbstractEncoder
         return slice;
     }
 
+    /**
+     * Skip the given number of bytes at the current position. The bytes are left for the caller of
+     * {@link #segment()} to fill in, e.g. with a frame header in front of the encoded segment.
+     */
+    public void reserve(int size)
+    {
+        if (out.remaining() < size)
+        {
+            grow(size);
+        }
+        out.position(out.position() + size);
+    }
+
     private void grow(int size)
     {
         ByteBuffer old = out;
@@ -38,7 +38,6 @@ import static org.wso2.andes.transport.network.Frame.LAST_SEG;
 
 import static java.lang.Math.min;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 /**
  * Disassembler
@@ -48,6 +47,10 @@ public final class Disassembler implements Sender<ProtocolEvent>, ProtocolDelega
     private final Sender<ByteBuffer> sender;
     private final int maxPayload;
     private final Object sendlock = new Object();
+    /**
+     * Reused for frames whose payload is not encoded in place, guarded by sendlock
+     */
+    private final ByteBuffer frameBuffer;
     private final static ThreadLocal<BBEncoder> _encoder = new ThreadLocal<BBEncoder>()
     {
         public BBEncoder initialValue()
@@ -64,6 +67,7 @@ public final class Disassembler implements Sender<ProtocolEvent>, ProtocolDelega
         }
         this.sender = sender;
         this.maxPayload  = maxFrame - HEADER_SIZE;
+        this.frameBuffer = ByteBuffer.allocate(maxFrame);
     }
 
     public void send(ProtocolEvent event)
@@ -91,26 +95,54 @@ public final class Disassembler implements Sender<ProtocolEvent>, ProtocolDelega
     {
         synchronized (sendlock)
         {
-            ByteBuffer data = ByteBuffer.allocate(size + HEADER_SIZE);
-            data.order(ByteOrder.BIG_ENDIAN);
-            
-            data.put(0, flags);
-            data.put(1, type);
-            data.putShort(2, (short) (size + HEADER_SIZE));
-            data.put(5, track);
-            data.putShort(6, (short) channel);
+            ByteBuffer data = frameBuffer;
+            data.clear();
+            writeHeader(data, 0, flags, type, track, channel, size);
             data.position(HEADER_SIZE);
 
             int limit = buf.limit();
             buf.limit(buf.position() + size);
             data.put(buf);
             buf.limit(limit);
- 
-            data.rewind();
+
+            data.flip();
             sender.send(data);
         }
     }
 
+    /**
+     * Send a segment encoded after HEADER_SIZE reserved bytes. A segment that fits into a single frame gets its
+     * header written into the reserved bytes and is sent as is, without copying it into a frame.
+     */
+    private void fragmentEncoded(byte flags, SegmentType type, ProtocolEvent event, ByteBuffer seg)
+    {
+        int size = seg.remaining() - HEADER_SIZE;
+        if (size <= maxPayload)
+        {
+            byte track = event.getEncodedTrack() == Frame.L4 ? (byte) 1 : (byte) 0;
+            writeHeader(seg, seg.position(), (byte) (flags | FIRST_FRAME | LAST_FRAME), (byte) type.getValue(),
+                        track, event.getChannel(), size);
+            sender.send(seg);
+        }
+        else
+        {
+            seg.position(seg.position() + HEADER_SIZE);
+            fragment(flags, type, event, seg);
+        }
+    }
+
+    private static void writeHeader(ByteBuffer data, int pos, byte flags, byte type, byte track, int channel,
+                                    int size)
+    {
+        data.put(pos, flags);
+        data.put(pos + 1, type);
+        data.putShort(pos + 2, (short) (size + HEADER_SIZE));
+        data.put(pos + 4, (byte) 0);
+        data.put(pos + 5, track);
+        data.putShort(pos + 6, (short) channel);
+        data.putInt(pos + 8, 0);
+    }
+
     private void fragment(byte flags, SegmentType type, ProtocolEvent event, ByteBuffer buf)
     {
         byte typeb = (byte) type.getValue();
@@ -166,6 +198,7 @@ public final class Disassembler implements Sender<ProtocolEvent>, ProtocolDelega
     {
         BBEncoder enc = _encoder.get();
         enc.init();
+        enc.reserve(HEADER_SIZE);
         enc.writeUint16(method.getEncodedType());
         if (type == SegmentType.COMMAND)
         {
@@ -192,6 +225,7 @@ public final class Disassembler implements Sender<ProtocolEvent>, ProtocolDelega
         ByteBuffer headerSeg = null;
         if (payload)
         {
+            enc.reserve(HEADER_SIZE);
             final Header hdr = method.getHeader();
             if (hdr != null)
             {
@@ -207,11 +241,11 @@ public final class Disassembler implements Sender<ProtocolEvent>, ProtocolDelega
 
         synchronized (sendlock)
         {
-            fragment(flags, type, method, methodSeg);
+            fragmentEncoded(flags, type, method, methodSeg);
             if (payload)
             {
                 ByteBuffer body = method.getBody();
-                fragment(body == null ? LAST_SEG : 0x0, SegmentType.HEADER, method, headerSeg);
+                fragmentEncoded(body == null ? LAST_SEG : 0x0, SegmentType.HEADER, method, headerSeg);
                 if (body != null)
                 {
                     fragment(LAST_SEG, SegmentType.BODY, method, body);
@@ -23,6 +23,9 @@ package org.wso2.andes.framing;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.mina.common.ByteBuffer;
 
 import junit.framework.TestCase;
 public class AMQShortStringTest extends TestCase
@@ -300,6 +303,174 @@ public class AMQShortStringTest extends TestCase
         assertEquals("join result differs from expected", expected.toString(), result.asString());
     }
 
+    /**
+     * Tests that equal short strings intern to a single instance holding only their own content.
+     */
+    public void testIntern()
+    {
+        AMQShortString interned = new AMQShortString("intern.test.queue").intern();
+        assertSame(interned, new AMQShortString("intern.test.queue").intern());
+        assertSame(interned, interned.intern());
+
+        AMQShortString token = new AMQShortString("intern.test.queue").tokenize((byte) '.').nextToken();
+        AMQShortString internedToken = token.intern();
+        assertEquals(new AMQShortString("intern"), internedToken);
+        assertSame(internedToken, new AMQShortString("intern").intern());
+        assertEquals(internedToken.length(), internedToken.getBytes().length);
+    }
+
+    /**
+     * Tests that short strings read from heap and direct buffers resolve to the interned instance.
+     */
+    public void testReadInternedFromBuffer()
+    {
+        AMQShortString interned = new AMQShortString("amq.direct").intern();
+
+        ByteBuffer heapBuffer = ByteBuffer.allocate(32);
+        heapBuffer.put((byte) 'x');
+        interned.writeToBuffer(heapBuffer);
+        heapBuffer.flip();
+        heapBuffer.skip(1);
+        assertSame(interned, AMQShortString.readInternedFromBuffer(heapBuffer));
+        assertEquals(0, heapBuffer.remaining());
+
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(32);
+        new AMQShortString("amq.direct").writeToBuffer(directBuffer);
+        directBuffer.put((byte) 0);
+        directBuffer.flip();
+        assertSame(interned, AMQShortString.readInternedFromBuffer(directBuffer));
+        assertNull(AMQShortString.readInternedFromBuffer(directBuffer));
+    }
+
+    /**
+     * Tests that threads interning the same values concurrently agree on one instance per value.
+     */
+    public void testConcurrentIntern() throws Exception
+    {
+        final int threadCount = 8;
+        final int valueCount = 1000;
+        final AMQShortString[][] results = new AMQShortString[threadCount][valueCount];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++)
+        {
+            final int thread = t;
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    for (int i = 0; i < valueCount; i++)
+                    {
+                        results[thread][i] = new AMQShortString("concurrent.intern." + i).intern();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        for (int i = 0; i < valueCount; i++)
+        {
+            for (int t = 1; t < threadCount; t++)
+            {
+                assertSame(results[0][i], results[t][i]);
+            }
+        }
+    }
+
+    /**
+     * Tests that the intern table grows beyond its initial size and keeps returning the interned instances.
+     */
+    public void testInternTableGrows()
+    {
+        AMQShortString.InternTable table = new AMQShortString.InternTable(2, 4);
+        AMQShortString[] interned = new AMQShortString[1000];
+        for (int i = 0; i < interned.length; i++)
+        {
+            interned[i] = intern(table, "grow." + i);
+        }
+
+        assertTrue(table.getBucketCount() >= interned.length);
+        assertEquals(interned.length, table.size());
+        for (int i = 0; i < interned.length; i++)
+        {
+            assertSame(interned[i], intern(table, "grow." + i));
+        }
+    }
+
+    /**
+     * Tests that collected strings are unlinked from a long chain of colliding entries without deep recursion.
+     */
+    public void testCollectedEntriesAreExpungedFromLongChain() throws Exception
+    {
+        final AMQShortString.InternTable table = new AMQShortString.InternTable(1, 4);
+        final int valueCount = 1 << 12;
+        final AMQShortString[] kept = new AMQShortString[valueCount / 2];
+        for (int i = 0; i < valueCount; i++)
+        {
+            // "Aa" and "BB" have the same hash code, so all values land in one bucket
+            StringBuilder value = new StringBuilder();
+            for (int bit = 0; bit < 12; bit++)
+            {
+                value.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+            }
+            AMQShortString interned = intern(table, value.toString());
+            if (i % 2 == 0)
+            {
+                kept[i / 2] = interned;
+            }
+        }
+        assertEquals(valueCount, table.size());
+
+        final Throwable[] failure = new Throwable[1];
+        Thread expunger = new Thread(null, new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    for (int attempt = 0; attempt < 100 && table.size() > kept.length; attempt++)
+                    {
+                        System.gc();
+                        Thread.sleep(10);
+                        table.expungeClearedEntries();
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failure[0] = e;
+                }
+            }
+        }, "expunger", 128 * 1024);
+        expunger.start();
+        expunger.join();
+
+        assertNull(failure[0]);
+        assertEquals(kept.length, table.size());
+        for (AMQShortString interned : kept)
+        {
+            assertSame(interned, intern(table, interned.asString()));
+        }
+    }
+
+    private static AMQShortString intern(AMQShortString.InternTable table, String value)
+    {
+        AMQShortString candidate = new AMQShortString(value);
+        return table.intern(candidate.getBytes(), 0, candidate.length(), candidate.hashCode(), candidate);
+    }
+
     /**
      * A helper method to generate a string with given length containing given
      * character
@@ -122,6 +122,15 @@ public class BasicContentHeaderPropertiesTest extends TestCase
         assertEquals(priority, _testProperties.getPriority());
     }
 
+    public void testHasPriority()
+    {
+        assertFalse(_testProperties.hasPriority());
+        _testProperties.setPriority((byte) 0);
+        assertTrue(_testProperties.hasPriority());
+        _testProperties.setPropertyFlags(_testProperties.getPropertyFlags() & ~(1 << 11));
+        assertFalse(_testProperties.hasPriority());
+    }
+
     public void testSetGetCorrelationId()
     {
         String correlationId = "correlationId";
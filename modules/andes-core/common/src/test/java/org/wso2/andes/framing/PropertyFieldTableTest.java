@@ -607,6 +607,58 @@ public class PropertyFieldTableTest extends TestCase
         Assert.assertEquals(null, table2.getString("null-string"));
     }
 
+    /**
+     * Test that a received table is read without decoding it, and written out as received until it is modified
+     */
+    public void testReadFromEncodedForm()
+    {
+        FieldTable nested = new FieldTable();
+        nested.setInteger("nested-int", 7);
+
+        FieldTable table = new FieldTable();
+        table.setBoolean("bool", true);
+        table.setBytes("bytes", new byte[] { 1, 2, 3 });
+        table.setDouble("double", Double.MAX_VALUE);
+        table.setFieldTable("nested", nested);
+        table.setInteger("int", Integer.MIN_VALUE);
+        table.setLong("long", Long.MAX_VALUE);
+        table.setShort("short", Short.MIN_VALUE);
+        table.setString("string", "hello");
+        table.setString("null-string", null);
+        table.setTimestamp(new AMQShortString("timestamp"), 1234L);
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) table.getEncodedSize() + 4);
+        table.writeToBuffer(buffer);
+        buffer.flip();
+        byte[] encoded = new byte[(int) table.getEncodedSize()];
+        buffer.duplicate().skip(4).get(encoded);
+
+        FieldTable table2 = new FieldTable(buffer, buffer.getUnsignedInt());
+
+        Assert.assertTrue(table2.getBoolean(new AMQShortString("bool"), false));
+        Assert.assertEquals(Double.MAX_VALUE, table2.getDouble(new AMQShortString("double"), 0d));
+        Assert.assertEquals(Integer.MIN_VALUE, table2.getInteger(new AMQShortString("int"), 0));
+        Assert.assertEquals(Long.MAX_VALUE, table2.getLong(new AMQShortString("long"), 0L));
+        Assert.assertEquals(Short.MIN_VALUE, table2.getShort(new AMQShortString("short"), (short) 0));
+        Assert.assertEquals(5L, table2.getLong(new AMQShortString("int"), 5L));
+        Assert.assertEquals(5L, table2.getLong(new AMQShortString("missing"), 5L));
+        Assert.assertEquals((Long) 1234L, table2.getTimestamp(new AMQShortString("timestamp")));
+        Assert.assertEquals((Integer) 7, table2.getFieldTable("nested").getInteger("nested-int"));
+        Assert.assertEquals("hello", table2.getString("string"));
+        Assert.assertTrue(table2.isNullStringValue("null-string"));
+        Assert.assertTrue(table2.containsKey("bytes"));
+        Assert.assertFalse(table2.containsKey("missing"));
+
+        assertBytesEqual(encoded, table2.getDataAsBytes());
+
+        table2.setString("string", "changed");
+
+        Assert.assertEquals("changed", table2.getString("string"));
+        Assert.assertEquals(Long.MAX_VALUE, table2.getLong(new AMQShortString("long"), 0L));
+        Assert.assertEquals(table.size(), table2.size());
+        Assert.assertEquals(table.getEncodedSize() + 2, table2.getEncodedSize());
+    }
+
     public void testEncodingSize()
     {
         FieldTable result = new FieldTable();
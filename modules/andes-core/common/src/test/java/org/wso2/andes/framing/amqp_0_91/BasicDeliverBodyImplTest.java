@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.framing.amqp_0_91;
+
+import junit.framework.TestCase;
+import org.apache.mina.common.ByteBuffer;
+import org.wso2.andes.framing.AMQShortString;
+
+/**
+ * Tests that the generated static encoder of a method writes the same payload as its method body.
+ */
+public class BasicDeliverBodyImplTest extends TestCase
+{
+    private static final AMQShortString CONSUMER_TAG = new AMQShortString("sgen_1");
+    private static final AMQShortString EXCHANGE = new AMQShortString("amq.direct");
+    private static final AMQShortString ROUTING_KEY = new AMQShortString("orders");
+
+    public void testEncodeMatchesMethodBody()
+    {
+        assertEncodeMatchesMethodBody(true, ROUTING_KEY);
+        assertEncodeMatchesMethodBody(false, null);
+    }
+
+    private void assertEncodeMatchesMethodBody(boolean redelivered, AMQShortString routingKey)
+    {
+        BasicDeliverBodyImpl body = new BasicDeliverBodyImpl(CONSUMER_TAG, 42L, redelivered, EXCHANGE, routingKey);
+        int size = BasicDeliverBodyImpl.getEncodedSize(CONSUMER_TAG, 42L, redelivered, EXCHANGE, routingKey);
+        assertEquals(body.getSize(), size);
+
+        ByteBuffer expected = ByteBuffer.allocate(size);
+        body.writePayload(expected);
+        expected.flip();
+
+        ByteBuffer actual = ByteBuffer.allocate(size);
+        BasicDeliverBodyImpl.encode(actual, CONSUMER_TAG, 42L, redelivered, EXCHANGE, routingKey);
+        actual.flip();
+
+        assertEquals(expected.buf(), actual.buf());
+    }
+}
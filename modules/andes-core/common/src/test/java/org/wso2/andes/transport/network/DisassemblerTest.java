@@ -0,0 +1,295 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.wso2.andes.transport.network;
+
+import junit.framework.TestCase;
+
+import org.wso2.andes.transport.DeliveryProperties;
+import org.wso2.andes.transport.ExchangeDeclare;
+import org.wso2.andes.transport.Header;
+import org.wso2.andes.transport.MessageAcceptMode;
+import org.wso2.andes.transport.MessageAcquireMode;
+import org.wso2.andes.transport.MessageProperties;
+import org.wso2.andes.transport.MessageTransfer;
+import org.wso2.andes.transport.Method;
+import org.wso2.andes.transport.MockSender;
+import org.wso2.andes.transport.SegmentType;
+import org.wso2.andes.transport.SessionFlush;
+import org.wso2.andes.transport.Struct;
+import org.wso2.andes.transport.codec.BBEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.wso2.andes.transport.network.Frame.FIRST_FRAME;
+import static org.wso2.andes.transport.network.Frame.FIRST_SEG;
+import static org.wso2.andes.transport.network.Frame.HEADER_SIZE;
+import static org.wso2.andes.transport.network.Frame.LAST_FRAME;
+import static org.wso2.andes.transport.network.Frame.LAST_SEG;
+
+/**
+ * DisassemblerTest
+ *
+ * Compares the frames written by the Disassembler with the frames the original implementation produced, which
+ * encoded every segment into a buffer of its own and copied each fragment into a newly allocated frame.
+ */
+public class DisassemblerTest extends TestCase
+{
+
+    private static final int MAX_FRAME = 256;
+
+    private RecordingSender _sender;
+
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _sender = new RecordingSender();
+    }
+
+    public void testSingleFrameMethod()
+    {
+        SessionFlush flush = new SessionFlush();
+        flush.setChannel(2);
+        byte[][] expected = expectedFrames(flush, SegmentType.CONTROL, MAX_FRAME);
+
+        new Disassembler(_sender, MAX_FRAME).send(flush);
+
+        assertEquals(1, expected.length);
+        assertFrames(expected, _sender.getFrames());
+
+        byte[] frame = _sender.getFrames().get(0);
+        assertEquals(FIRST_SEG | LAST_SEG | FIRST_FRAME | LAST_FRAME, frame[0]);
+        assertEquals(SegmentType.CONTROL.getValue(), frame[1]);
+        assertEquals(frame.length, ByteBuffer.wrap(frame).getShort(2));
+        assertEquals(2, ByteBuffer.wrap(frame).getShort(6));
+    }
+
+    public void testMethodWithHeaderAndBody()
+    {
+        MessageTransfer transfer = transfer(3, 100);
+        byte[][] expected = expectedFrames(transfer, SegmentType.COMMAND, MAX_FRAME);
+
+        new Disassembler(_sender, MAX_FRAME).send(transfer);
+
+        assertEquals(3, expected.length);
+        assertFrames(expected, _sender.getFrames());
+
+        List<byte[]> frames = _sender.getFrames();
+        assertEquals(FIRST_SEG | FIRST_FRAME | LAST_FRAME, frames.get(0)[0]);
+        assertEquals(SegmentType.HEADER.getValue(), frames.get(1)[1]);
+        assertEquals(FIRST_FRAME | LAST_FRAME, frames.get(1)[0]);
+        assertEquals(SegmentType.BODY.getValue(), frames.get(2)[1]);
+        assertEquals(LAST_SEG | FIRST_FRAME | LAST_FRAME, frames.get(2)[0]);
+        assertEquals(100 + HEADER_SIZE, frames.get(2).length);
+    }
+
+    public void testSegmentLargerThanMaxFrame()
+    {
+        int maxFrame = 64;
+        ExchangeDeclare declare = declare(1, 200);
+        MessageTransfer transfer = transfer(3, 300);
+        byte[][] expectedDeclare = expectedFrames(declare, SegmentType.COMMAND, maxFrame);
+        byte[][] expectedTransfer = expectedFrames(transfer, SegmentType.COMMAND, maxFrame);
+
+        Disassembler disassembler = new Disassembler(_sender, maxFrame);
+        disassembler.send(declare);
+        disassembler.send(transfer);
+
+        assertTrue(expectedDeclare.length > 1);
+        assertFrames(concat(expectedDeclare, expectedTransfer), _sender.getFrames());
+        for (byte[] frame : _sender.getFrames())
+        {
+            assertTrue("Frame of " + frame.length + " bytes exceeds max frame", frame.length <= maxFrame);
+        }
+    }
+
+    public void testFramesOfConsecutiveMethods()
+    {
+        int maxFrame = 128;
+        List<byte[]> expected = new ArrayList<byte[]>();
+        Disassembler disassembler = new Disassembler(_sender, maxFrame);
+        for (int i = 0; i < 3; i++)
+        {
+            MessageTransfer transfer = transfer(3, 150 * i);
+            ExchangeDeclare declare = declare(1, 60 * i);
+            SessionFlush flush = new SessionFlush();
+            flush.setChannel(2);
+
+            expected.addAll(Arrays.asList(expectedFrames(transfer, SegmentType.COMMAND, maxFrame)));
+            expected.addAll(Arrays.asList(expectedFrames(declare, SegmentType.COMMAND, maxFrame)));
+            expected.addAll(Arrays.asList(expectedFrames(flush, SegmentType.CONTROL, maxFrame)));
+
+            disassembler.send(transfer);
+            disassembler.send(declare);
+            disassembler.send(flush);
+        }
+
+        assertFrames(expected.toArray(new byte[expected.size()][]), _sender.getFrames());
+    }
+
+    private static MessageTransfer transfer(int channel, int bodySize)
+    {
+        byte[] body = new byte[bodySize];
+        for (int i = 0; i < bodySize; i++)
+        {
+            body[i] = (byte) i;
+        }
+        Header header = new Header(new DeliveryProperties().setRoutingKey("key" + bodySize),
+                                   new MessageProperties().setContentType("text/plain"));
+        MessageTransfer transfer = new MessageTransfer("amq.direct", MessageAcceptMode.NONE,
+                                                       MessageAcquireMode.PRE_ACQUIRED, header, ByteBuffer.wrap(body));
+        transfer.setChannel(channel);
+        return transfer;
+    }
+
+    private static ExchangeDeclare declare(int channel, int nameLength)
+    {
+        char[] name = new char[nameLength];
+        Arrays.fill(name, 'x');
+        ExchangeDeclare declare = new ExchangeDeclare();
+        declare.setExchange(new String(name));
+        declare.setType("direct");
+        declare.setSync(true);
+        declare.setChannel(channel);
+        return declare;
+    }
+
+    /**
+     * Frames the method the way the original Disassembler did.
+     */
+    private static byte[][] expectedFrames(Method method, SegmentType type, int maxFrame)
+    {
+        BBEncoder enc = new BBEncoder(4*1024);
+        enc.init();
+        enc.writeUint16(method.getEncodedType());
+        if (type == SegmentType.COMMAND)
+        {
+            enc.writeUint16(method.isSync() ? 0x0101 : 0x0100);
+        }
+        method.write(enc);
+        ByteBuffer methodSeg = enc.segment();
+
+        List<byte[]> frames = new ArrayList<byte[]>();
+        if (!method.hasPayload())
+        {
+            fragment(frames, FIRST_SEG | LAST_SEG, type, method, methodSeg, maxFrame);
+        }
+        else
+        {
+            Header header = method.getHeader();
+            if (header != null)
+            {
+                for (Struct st : header.getStructs())
+                {
+                    enc.writeStruct32(st);
+                }
+            }
+            ByteBuffer headerSeg = enc.segment();
+            ByteBuffer body = method.getBody();
+
+            fragment(frames, FIRST_SEG, type, method, methodSeg, maxFrame);
+            fragment(frames, body == null ? LAST_SEG : 0x0, SegmentType.HEADER, method, headerSeg, maxFrame);
+            if (body != null)
+            {
+                fragment(frames, LAST_SEG, SegmentType.BODY, method, body.duplicate(), maxFrame);
+            }
+        }
+        return frames.toArray(new byte[frames.size()][]);
+    }
+
+    private static void fragment(List<byte[]> frames, int flags, SegmentType type, Method method, ByteBuffer seg,
+                                 int maxFrame)
+    {
+        byte track = method.getEncodedTrack() == Frame.L4 ? (byte) 1 : (byte) 0;
+        boolean first = true;
+        do
+        {
+            int size = Math.min(maxFrame - HEADER_SIZE, seg.remaining());
+            int frameFlags = flags;
+            if (first)
+            {
+                frameFlags |= FIRST_FRAME;
+                first = false;
+            }
+            if (size == seg.remaining())
+            {
+                frameFlags |= LAST_FRAME;
+            }
+
+            ByteBuffer frame = ByteBuffer.allocate(size + HEADER_SIZE);
+            frame.put((byte) frameFlags);
+            frame.put((byte) type.getValue());
+            frame.putShort((short) (size + HEADER_SIZE));
+            frame.put((byte) 0);
+            frame.put(track);
+            frame.putShort((short) method.getChannel());
+            frame.putInt(0);
+            for (int i = 0; i < size; i++)
+            {
+                frame.put(seg.get());
+            }
+            frames.add(frame.array());
+        }
+        while (seg.hasRemaining());
+    }
+
+    private static byte[][] concat(byte[][] first, byte[][] second)
+    {
+        byte[][] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static void assertFrames(byte[][] expected, List<byte[]> actual)
+    {
+        assertEquals("Number of frames", expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertTrue("Frame " + i + " differs", Arrays.equals(expected[i], actual.get(i)));
+        }
+    }
+
+    /**
+     * Copies every frame as it is sent, since the Disassembler reuses its frame buffer.
+     */
+    private static class RecordingSender extends MockSender
+    {
+        private final List<byte[]> _frames = new ArrayList<byte[]>();
+
+        public void send(ByteBuffer msg)
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            while (msg.hasRemaining())
+            {
+                out.write(msg.get());
+            }
+            _frames.add(out.toByteArray());
+        }
+
+        public List<byte[]> getFrames()
+        {
+            return _frames;
+        }
+    }
+}
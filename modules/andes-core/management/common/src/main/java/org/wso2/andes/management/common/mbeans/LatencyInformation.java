@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.andes.management.common.mbeans;
+
+import org.wso2.andes.management.common.mbeans.annotations.MBeanAttribute;
+import org.wso2.andes.management.common.mbeans.annotations.MBeanOperationParameter;
+
+/**
+ * This is the interface for exposing message latency statistics of the broker node.
+ */
+public interface LatencyInformation {
+
+    static final String TYPE = "LatencyInformation";
+
+    /**
+     * MBean service to get the destinations latency is tracked for
+     * @return array of destination names
+     */
+    @MBeanAttribute(name = "Destinations", description = "Destinations latency is tracked for")
+    String[] getDestinations();
+
+    /**
+     * MBean service to get the latency statistics of a destination. One entry is returned per stage of the
+     * message flow with count, percentiles, maximum and mean in micro seconds
+     * @param destination destination name
+     * @return array of latency statistics per stage
+     */
+    @MBeanAttribute(name = "LatencyStatistics", description = "Latency statistics of a destination per stage")
+    String[] getLatencyStatistics(
+            @MBeanOperationParameter(name = "destination", description = "destination name") String destination);
+
+    /**
+     * MBean service to get the latency sampling rate
+     * @return one in this number of messages is tracked, 0 if tracking is disabled
+     */
+    @MBeanAttribute(name = "SamplingRate", description = "One in this number of messages is tracked")
+    int getSamplingRate();
+
+    /**
+     * MBean service to change the latency sampling rate
+     * @param samplingRate one in this number of messages is tracked, 0 to disable tracking
+     */
+    @MBeanAttribute(name = "SetSamplingRate", description = "Change the latency sampling rate")
+    void setSamplingRate(
+            @MBeanOperationParameter(name = "samplingRate", description = "one in this number of messages is " +
+                    "tracked, 0 to disable") int samplingRate);
+
+    /**
+     * MBean service to clear recorded latency statistics
+     */
+    @MBeanAttribute(name = "ResetLatencyStatistics", description = "Clear recorded latency statistics")
+    void resetLatencyStatistics();
+}
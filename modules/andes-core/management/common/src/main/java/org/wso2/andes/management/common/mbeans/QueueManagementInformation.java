@@ -165,6 +165,64 @@ public interface QueueManagementInformation {
             description = "Destination of the message to be restored") String newDestinationQueueName, @MBeanOperationParameter(name = "deadLetterQueueName",
             description = "The Dead Letter Queue Name for the selected tenant") String destinationQueueName);
 
+    /**
+     * Restore all messages of a queue within a message id range from the Dead Letter Queue in the background. Messages
+     * are restored chunk by chunk and removed from the Dead Letter Queue once restored.
+     *
+     * @param queueName               Name of the queue the messages were in before moving to the Dead Letter Queue
+     * @param newDestinationQueueName Queue to restore the messages to. Messages are restored to their original queue
+     *                                if empty
+     * @param firstMsgId              First message id of the range
+     * @param lastMsgId               Last message id of the range
+     * @return Id of the started operation, to be used to query its progress
+     */
+    @MBeanAttribute(name = " Restore Back a Range of Messages ", description = "Will Restore a Range of Messages of a "
+            + "Queue From the Dead Letter Queue in the Background")
+    String restoreMessageRangeFromDeadLetterQueue(@MBeanOperationParameter(name = "queueName",
+            description = "Name of the queue the messages belonged to") String queueName,
+            @MBeanOperationParameter(name = "destination",
+                    description = "Destination of the messages to be restored") String newDestinationQueueName,
+            @MBeanOperationParameter(name = "firstMsgId", description = "First message id of the range") long firstMsgId,
+            @MBeanOperationParameter(name = "lastMsgId", description = "Last message id of the range") long lastMsgId)
+            throws MBeanException;
+
+    /**
+     * Delete all messages of a queue within a message id range from the Dead Letter Queue in the background.
+     *
+     * @param queueName  Name of the queue the messages were in before moving to the Dead Letter Queue
+     * @param firstMsgId First message id of the range
+     * @param lastMsgId  Last message id of the range
+     * @return Id of the started operation, to be used to query its progress
+     */
+    @MBeanAttribute(name = " Delete a Range of Messages In Dead Letter Queue ", description = "Will Delete a Range of "
+            + "Messages of a Queue From the Dead Letter Queue in the Background")
+    String deleteMessageRangeFromDeadLetterQueue(@MBeanOperationParameter(name = "queueName",
+            description = "Name of the queue the messages belonged to") String queueName,
+            @MBeanOperationParameter(name = "firstMsgId", description = "First message id of the range") long firstMsgId,
+            @MBeanOperationParameter(name = "lastMsgId", description = "Last message id of the range") long lastMsgId)
+            throws MBeanException;
+
+    /**
+     * Retrieve the progress of a background Dead Letter Queue operation.
+     *
+     * @param operationId Id returned when the operation was started
+     * @return Human readable status of the operation
+     */
+    @MBeanAttribute(name = "DeadLetterQueueOperationStatus", description = "Progress of a background Dead Letter "
+            + "Queue operation")
+    String getDeadLetterQueueOperationStatus(@MBeanOperationParameter(name = "operationId",
+            description = "Id of the operation") String operationId) throws MBeanException;
+
+    /**
+     * Stop a background Dead Letter Queue operation. Chunks already processed are not rolled back.
+     *
+     * @param operationId Id returned when the operation was started
+     */
+    @MBeanAttribute(name = " Cancel Dead Letter Queue Operation ", description = "Will Stop a Background Dead Letter "
+            + "Queue Operation")
+    void cancelDeadLetterQueueOperation(@MBeanOperationParameter(name = "operationId",
+            description = "Id of the operation") String operationId) throws MBeanException;
+
     /**
      * Browse queue for given id starting from last message id until it meet max message count
      *